@@ -1,16 +1,22 @@
 package main
 
 import (
+	"context"
+	"errors"
 	"fmt"
 	"os"
+	"os/exec"
 	"path/filepath"
+	"time"
 
 	tea "github.com/charmbracelet/bubbletea"
 	"github.com/charmbracelet/lipgloss"
 
 	"github.com/roniel/todo-app/internal/app"
+	"github.com/roniel/todo-app/internal/backup"
 	"github.com/roniel/todo-app/internal/cli"
 	"github.com/roniel/todo-app/internal/config"
+	"github.com/roniel/todo-app/internal/daemon"
 	"github.com/roniel/todo-app/internal/database"
 	"github.com/roniel/todo-app/internal/focus"
 	"github.com/roniel/todo-app/internal/journal"
@@ -18,21 +24,61 @@ import (
 	"github.com/roniel/todo-app/internal/ui"
 )
 
+// backupHelperArg makes the process run as the detached backup helper that
+// CLI commands start, see startBackupHelper.
+const backupHelperArg = "__backup"
+
 func main() {
-	db, err := database.Open()
+	// Scripted calls go to a running `todo serve` daemon when there is one,
+	// skipping database setup entirely.
+	if len(os.Args) > 1 && os.Args[1] != backupHelperArg && cli.ShouldForward(os.Args[1:]) {
+		if path, err := daemon.SocketPath(); err == nil {
+			code, err := daemon.Forward(path, os.Args[1:], os.Stdout, os.Stderr)
+			if err == nil {
+				os.Exit(code)
+			}
+			if !errors.Is(err, daemon.ErrUnavailable) {
+				fmt.Fprintf(os.Stderr, "Error: %v\n", err)
+				os.Exit(1)
+			}
+		}
+	}
+
+	// Load config early so it's available to both CLI and TUI, and to
+	// decide whether the database archives its WAL.
+	cfg, warnings, err := config.LoadWithWarnings()
+	if err != nil {
+		fmt.Fprintf(os.Stderr, "Warning: config load failed: %v\n", err)
+		cfg = config.DefaultConfig()
+	}
+	for _, w := range warnings {
+		fmt.Fprintf(os.Stderr, "Warning: %s\n", w)
+	}
+
+	// Daily backup, kept off the startup path: the TUI copies the database
+	// in the background, and CLI commands leave it to a detached helper.
+	var backupDir, walArchive string
+	if home, _ := os.UserHomeDir(); home != "" {
+		backupDir = filepath.Join(home, ".todo-app", "backups")
+		if cfg.WALArchive {
+			walArchive = backup.WALDir(backupDir)
+		}
+	}
+
+	db, err := database.Open(walArchive)
 	if err != nil {
 		fmt.Fprintf(os.Stderr, "Error: %v\n", err)
 		os.Exit(1)
 	}
-	defer db.Close()
+	defer database.Close(db)
 
-	// Auto backup on startup (best-effort, don't block).
-	home, _ := os.UserHomeDir()
-	if home != "" {
-		backupDir := filepath.Join(home, ".todo-app", "backups")
-		if err := database.Backup(db, backupDir, 30); err != nil {
-			fmt.Fprintf(os.Stderr, "Warning: backup failed: %v\n", err)
+	if len(os.Args) == 2 && os.Args[1] == backupHelperArg {
+		if backupDir != "" {
+			if _, err := backup.Daily(context.Background(), db, backupDir, backup.RetainDays); err != nil {
+				os.Exit(1)
+			}
 		}
+		return
 	}
 
 	taskStore, err := task.NewStore(db)
@@ -53,24 +99,13 @@ func main() {
 		os.Exit(1)
 	}
 
-	// Load config early so it's available to both CLI and TUI.
-	cfg, warnings, err := config.LoadWithWarnings()
-	if err != nil {
-		fmt.Fprintf(os.Stderr, "Warning: config load failed: %v\n", err)
-		cfg = config.DefaultConfig()
-	}
-	for _, w := range warnings {
-		fmt.Fprintf(os.Stderr, "Warning: %s\n", w)
-	}
-
 	// CLI subcommands: if args are provided, dispatch to CLI instead of TUI.
 	if len(os.Args) > 1 {
+		startBackupHelper(backupDir)
 		if err := cli.Run(os.Args[1:], taskStore, journalStore, focusStore, cfg); err != nil {
-			fmt.Fprintf(os.Stderr, "Error: %v\n", err)
-			if cli.IsNotFound(err) {
-				os.Exit(3)
-			}
-			os.Exit(1)
+			code := cli.ReportError(os.Stderr, err)
+			database.Close(db) // os.Exit skips the deferred close and its last WAL archive
+			os.Exit(code)
 		}
 		return
 	}
@@ -79,9 +114,40 @@ func main() {
 	ui.InitTheme(lipgloss.HasDarkBackground())
 
 	m := app.New(taskStore, journalStore, focusStore, cfg)
+	if err := m.WatchDB(db); err != nil {
+		fmt.Fprintf(os.Stderr, "Warning: live refresh disabled: %v\n", err)
+	}
+	if backupDir != "" {
+		m.BackupDB(db, backupDir, backup.RetainDays)
+	}
 	p := tea.NewProgram(m, tea.WithAltScreen())
 	if _, err := p.Run(); err != nil {
 		fmt.Fprintf(os.Stderr, "Error: %v\n", err)
 		os.Exit(1)
 	}
 }
+
+// startBackupHelper starts this executable as a background process that
+// writes today's backup, unless it already exists. The helper outlives the
+// command that started it, so a short CLI call never waits for the copy.
+func startBackupHelper(dir string) {
+	if dir == "" {
+		return
+	}
+	if repo, err := backup.Open(dir); err == nil && repo.Has(time.Now()) {
+		return
+	}
+	if backup.Locked(dir) {
+		return // another process is saving it
+	}
+	self, err := os.Executable()
+	if err != nil {
+		return
+	}
+	cmd := exec.Command(self, backupHelperArg)
+	if err := cmd.Start(); err != nil {
+		fmt.Fprintf(os.Stderr, "Warning: backup failed: %v\n", err)
+		return
+	}
+	cmd.Process.Release()
+}
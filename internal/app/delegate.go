@@ -29,7 +29,7 @@ func (d taskDelegate) Spacing() int { return 0 }
 func (d taskDelegate) Update(_ tea.Msg, _ *list.Model) tea.Cmd { return nil }
 
 func (d taskDelegate) Render(w io.Writer, m list.Model, index int, item list.Item) {
-	t, ok := item.(task.Task)
+	t, ok := item.(task.TaskSummary)
 	if !ok {
 		return
 	}
@@ -70,7 +70,7 @@ func (d taskDelegate) Render(w io.Writer, m list.Model, index int, item list.Ite
 
 	// Blocked badge
 	blockedBadge := ""
-	if len(t.BlockedByIDs) > 0 {
+	if t.Blocked {
 		blockedBadge = lipgloss.NewStyle().Foreground(ui.Red).Bold(true).Render(" [BLOCKED]")
 	}
 
@@ -106,23 +106,17 @@ func (d taskDelegate) Render(w io.Writer, m list.Model, index int, item list.Ite
 		}
 		subtitle += ui.DueStyle(level).Render(dueStr)
 	}
-	if len(t.Subtasks) > 0 {
-		done := 0
-		for _, st := range t.Subtasks {
-			if st.Completed {
-				done++
-			}
-		}
+	if t.SubtasksTotal > 0 {
 		if subtitle != "" {
 			subtitle += "  "
 		}
-		subtitle += lipgloss.NewStyle().Foreground(ui.Gray).Render(fmt.Sprintf("[%d/%d]", done, len(t.Subtasks)))
+		subtitle += lipgloss.NewStyle().Foreground(ui.Gray).Render(fmt.Sprintf("[%d/%d]", t.SubtasksDone, t.SubtasksTotal))
 	}
-	if len(t.Notes) > 0 {
+	if t.NoteCount > 0 {
 		if subtitle != "" {
 			subtitle += "  "
 		}
-		subtitle += lipgloss.NewStyle().Foreground(ui.Gray).Render(fmt.Sprintf("[%d notes]", len(t.Notes)))
+		subtitle += lipgloss.NewStyle().Foreground(ui.Gray).Render(fmt.Sprintf("[%d notes]", t.NoteCount))
 	}
 	line2 := lipgloss.NewStyle().PaddingLeft(5).MaxWidth(availWidth).Render(subtitle)
 
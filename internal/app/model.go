@@ -1,6 +1,7 @@
 package app
 
 import (
+	"database/sql"
 	"fmt"
 	"strconv"
 	"strings"
@@ -14,10 +15,12 @@ import (
 	"github.com/charmbracelet/huh"
 	"github.com/charmbracelet/lipgloss"
 
+	"github.com/roniel/todo-app/internal/backup"
 	"github.com/roniel/todo-app/internal/config"
 	"github.com/roniel/todo-app/internal/focus"
 	"github.com/roniel/todo-app/internal/journal"
 	"github.com/roniel/todo-app/internal/task"
+	"github.com/roniel/todo-app/internal/task/plan"
 	"github.com/roniel/todo-app/internal/ui"
 )
 
@@ -98,7 +101,17 @@ type statsData struct {
 // Model is the top-level Bubbletea model for the todo application.
 type Model struct {
 	store    *task.Store
-	tasks    []task.Task
+	tasks    []task.TaskSummary
+	detail   *task.Task // hydrated selected task, see selectedTask
+	taskSeq  int64      // change-log position m.tasks reflects, see reload
+
+	// External-change watcher, see WatchDB.
+	db          *sql.DB
+	dataVersion int64
+
+	// Daily backup run in the background at startup, see BackupDB.
+	backup func() (backup.DailyResult, error)
+
 	list     list.Model
 	viewport viewport.Model
 	help     help.Model
@@ -141,9 +154,27 @@ type Model struct {
 	focusPhase    focusPhase
 	focusCyclePos int
 
-	// Tag filter.
+	// Tag filter. tagCounts and tagged are read from the store's tag index
+	// whenever tasks change; tagged holds the IDs of tasks carrying activeTag.
 	activeTag     string
 	tagBarVisible bool
+	tagCounts     []task.TagCount
+	tagged        map[int64]bool
+
+	// deps indexes task dependencies for the detail view's blocked badge.
+	// It is loaded with the task list and refreshed from the change log.
+	deps *task.DepGraph
+
+	// Schedule panel beside the blocker overlay. planCache recomputes only
+	// after the change log moves; schedule is nil while the panel is hidden.
+	planCache *plan.Cache
+	schedule  *plan.Plan
+
+	// Archived tasks shown at the end of the Done tab, read a page at a
+	// time as the cursor reaches the bottom, see loadArchivePage.
+	archived       []task.Task
+	archiveEnd     bool
+	archiveLoading bool
 
 	// Undo.
 	undoAction *undoAction
@@ -164,7 +195,9 @@ type Model struct {
 
 // tasksLoaded is a message sent after the initial data load completes.
 type tasksLoaded struct {
-	tasks []task.Task
+	tasks []task.TaskSummary
+	deps  *task.DepGraph
+	seq   int64
 	err   error
 }
 
@@ -226,6 +259,7 @@ func New(store *task.Store, journalStore *journal.Store, focusStore *focus.Store
 
 	return Model{
 		store:           store,
+		planCache:       plan.NewCache(store),
 		journalStore:    journalStore,
 		focusStore:      focusStore,
 		cfg:             cfg,
@@ -244,18 +278,39 @@ func New(store *task.Store, journalStore *journal.Store, focusStore *focus.Store
 func (m Model) Init() tea.Cmd {
 	return tea.Batch(
 		func() tea.Msg {
-			tasks, err := m.store.List()
-			return tasksLoaded{tasks: tasks, err: err}
+			seq, err := m.store.CurrentSeq()
+			if err != nil {
+				return tasksLoaded{err: err}
+			}
+			tasks, err := m.store.ListSummaries()
+			if err != nil {
+				return tasksLoaded{err: err}
+			}
+			deps, err := m.store.LoadDepGraph()
+			return tasksLoaded{tasks: tasks, deps: deps, seq: seq, err: err}
 		},
 		func() tea.Msg {
 			notes, err := m.journalStore.ListNotes(false)
 			return notesLoaded{notes: notes, err: err}
 		},
+		m.pollDataVersion(),
+		m.runArchive(),
+		m.purgeTrash(),
+		m.runBackup(),
 	)
 }
 
 // Update handles all incoming messages and returns the updated model.
 func (m Model) Update(msg tea.Msg) (tea.Model, tea.Cmd) {
+	// Handled ahead of the form dispatch so polling continues while a form
+	// is open.
+	if msg, ok := msg.(dataVersionMsg); ok {
+		return m, m.handleDataVersion(msg)
+	}
+	if msg, ok := msg.(backupDoneMsg); ok {
+		return m, m.handleBackupDone(msg)
+	}
+
 	// Forms need ALL message types (cursor blink, timers, etc.), not just KeyMsg.
 	if m.mode == modeAdd || m.mode == modeEdit || m.mode == modeSubtask || m.mode == modeEditSubtask {
 		return m.updateFormMsg(msg)
@@ -283,6 +338,12 @@ func (m Model) Update(msg tea.Msg) (tea.Model, tea.Cmd) {
 			return m, nil
 		}
 		m.tasks = msg.tasks
+		m.deps = msg.deps
+		m.taskSeq = msg.seq
+		m.detail = nil
+		if err := m.loadTags(); err != nil {
+			m.statusMsg = "Error: " + err.Error()
+		}
 		m.refreshList()
 		m.updateDetail()
 		return m, nil
@@ -321,6 +382,18 @@ func (m Model) Update(msg tea.Msg) (tea.Model, tea.Cmd) {
 		}
 		return m, m.setStatus("Exported to " + msg.path)
 
+	case archiveRunMsg:
+		return m, m.handleArchiveRun(msg)
+
+	case archivePageMsg:
+		return m, m.handleArchivePage(msg)
+
+	case trashPurgeMsg:
+		if msg.err != nil {
+			return m, m.setError(msg.err)
+		}
+		return m, nil
+
 	case tea.WindowSizeMsg:
 		m.width = msg.Width
 		m.height = msg.Height
@@ -384,7 +457,7 @@ func (m Model) Update(msg tea.Msg) (tea.Model, tea.Cmd) {
 			return m, nil
 		case key.Matches(msg, keys.Tab):
 			m.switchTab()
-			return m, nil
+			return m, m.loadArchivePage()
 		case key.Matches(msg, keys.Undo):
 			return m.handleUndo()
 		case key.Matches(msg, keys.Export):
@@ -428,7 +501,7 @@ func (m Model) Update(msg tea.Msg) (tea.Model, tea.Cmd) {
 		case key.Matches(msg, keys.TagBar):
 			if m.activeTab != 3 {
 				m.tagBarVisible = !m.tagBarVisible
-				m.activeTag = ""
+				m.setActiveTag("")
 				m.resizeComponents()
 				m.refreshList()
 				m.updateDetail()
@@ -477,6 +550,10 @@ func (m Model) Update(msg tea.Msg) (tea.Model, tea.Cmd) {
 			return m, nil
 		}
 
+		if sel := m.selectedSummary(); sel != nil && sel.Archived && editsTask(msg) {
+			return m, m.setStatus("Archived tasks are read-only")
+		}
+
 		// When detail panel is focused, keys operate on subtasks or notes.
 		if m.focusedPanel == 1 {
 			selected := m.selectedTask()
@@ -756,6 +833,7 @@ func (m Model) Update(msg tea.Msg) (tea.Model, tea.Cmd) {
 			m.noteIdx = 0
 			m.notesFocused = false
 			m.updateDetail()
+			cmd = tea.Batch(cmd, m.loadArchivePage())
 		}
 		m.list.SetShowFilter(m.list.FilterState() == list.Filtering || m.list.FilterState() == list.FilterApplied)
 	}
@@ -1000,6 +1078,9 @@ func (m Model) View() string {
 
 	case modeBlockerPicker:
 		dialog := m.renderBlockerOverlay()
+		if m.schedule != nil {
+			dialog = lipgloss.JoinHorizontal(lipgloss.Top, dialog, " ", m.renderPlanOverlay())
+		}
 		view = lipgloss.Place(m.width, m.height, lipgloss.Center, lipgloss.Center, dialog,
 			lipgloss.WithWhitespaceChars(" "),
 			lipgloss.WithWhitespaceForeground(ui.OverlayDim))
@@ -0,0 +1,143 @@
+package app
+
+import (
+	"fmt"
+	"slices"
+	"time"
+
+	"github.com/charmbracelet/bubbles/key"
+	tea "github.com/charmbracelet/bubbletea"
+
+	"github.com/roniel/todo-app/internal/task"
+)
+
+// archivePageSize is how many archived tasks the Done tab reads at a time.
+const archivePageSize = 100
+
+// archiveRunMsg reports a background pass moving old done tasks to the
+// archive.
+type archiveRunMsg struct {
+	n   int
+	err error
+}
+
+// archivePageMsg carries the next page of archived tasks for the Done tab.
+type archivePageMsg struct {
+	tasks []task.Task
+	err   error
+}
+
+// runArchive moves done tasks older than the configured cutoff to the
+// archive off the UI goroutine. It returns nil if archiving is disabled.
+func (m Model) runArchive() tea.Cmd {
+	cutoff, ok := m.cfg.ArchiveCutoff(time.Now())
+	if !ok {
+		return nil
+	}
+	store := m.store
+	return func() tea.Msg {
+		n, err := store.ArchiveDone(cutoff)
+		return archiveRunMsg{n: n, err: err}
+	}
+}
+
+// trashPurgeMsg reports a background pass purging old deleted tasks.
+type trashPurgeMsg struct {
+	err error
+}
+
+// purgeTrash permanently removes tasks deleted more than
+// task.TrashRetention ago, off the UI goroutine. Purged tasks are already
+// hidden, so nothing needs reloading afterwards.
+func (m Model) purgeTrash() tea.Cmd {
+	store := m.store
+	return func() tea.Msg {
+		_, err := store.PurgeDeleted(time.Now().Add(-task.TrashRetention))
+		return trashPurgeMsg{err: err}
+	}
+}
+
+// loadArchivePage reads the next page of archived tasks once the Done tab
+// is showing and its cursor is on the last item, so the archive is only
+// read as far as the user scrolls.
+func (m *Model) loadArchivePage() tea.Cmd {
+	if m.activeTab != 2 || m.archiveEnd || m.archiveLoading {
+		return nil
+	}
+	if n := len(m.list.Items()); n > 0 && m.list.Index() < n-1 {
+		return nil
+	}
+	m.archiveLoading = true
+	var after *task.Task
+	if len(m.archived) > 0 {
+		last := m.archived[len(m.archived)-1]
+		after = &last
+	}
+	store := m.store
+	return func() tea.Msg {
+		tasks, err := store.ListArchived(after, archivePageSize)
+		return archivePageMsg{tasks: tasks, err: err}
+	}
+}
+
+func (m *Model) handleArchiveRun(msg archiveRunMsg) tea.Cmd {
+	if msg.err != nil {
+		return m.setError(msg.err)
+	}
+	if msg.n == 0 {
+		return nil
+	}
+	// Pages read so far no longer line up with the archive.
+	m.archived, m.archiveEnd = nil, false
+	if err := m.reload(); err != nil {
+		return m.setError(err)
+	}
+	return m.setStatus(fmt.Sprintf("Archived %d done tasks", msg.n))
+}
+
+func (m *Model) handleArchivePage(msg archivePageMsg) tea.Cmd {
+	m.archiveLoading = false
+	if msg.err != nil {
+		return m.setError(msg.err)
+	}
+	m.archived = append(m.archived, msg.tasks...)
+	m.archiveEnd = len(msg.tasks) < archivePageSize
+	if len(msg.tasks) > 0 {
+		m.refreshList()
+		m.updateDetail()
+	}
+	return nil
+}
+
+// archivedSummaries returns the list items for the archived tasks read so
+// far, keeping those that carry the active tag when one is set.
+func (m *Model) archivedSummaries() []task.TaskSummary {
+	out := make([]task.TaskSummary, 0, len(m.archived))
+	for _, t := range m.archived {
+		if m.activeTag != "" && !slices.ContainsFunc(t.Tags, func(tag string) bool {
+			return task.SameTag(tag, m.activeTag)
+		}) {
+			continue
+		}
+		sum := t.Summary()
+		sum.Archived = true
+		out = append(out, sum)
+	}
+	return out
+}
+
+// archivedTask returns the loaded archived task id.
+func (m *Model) archivedTask(id int64) *task.Task {
+	for i := range m.archived {
+		if m.archived[i].ID == id {
+			return &m.archived[i]
+		}
+	}
+	return nil
+}
+
+// editsTask reports whether msg is a key that changes the selected task,
+// which archived tasks do not allow.
+func editsTask(msg tea.KeyMsg) bool {
+	return key.Matches(msg, keys.Edit, keys.Delete, keys.Status, keys.Subtask, keys.TimeLog, keys.Note)
+}
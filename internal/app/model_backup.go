@@ -0,0 +1,50 @@
+package app
+
+import (
+	"context"
+	"database/sql"
+	"fmt"
+
+	tea "github.com/charmbracelet/bubbletea"
+
+	"github.com/roniel/todo-app/internal/backup"
+)
+
+// backupDoneMsg reports the background backup started with the TUI.
+type backupDoneMsg struct {
+	res backup.DailyResult
+	err error
+}
+
+// BackupDB makes the TUI save today's snapshot of db to the backup store in
+// dir in the background once it starts, pruning snapshots older than
+// retainDays. The result is reported in the status bar.
+func (m *Model) BackupDB(db *sql.DB, dir string, retainDays int) {
+	m.backup = func() (backup.DailyResult, error) {
+		return backup.Daily(context.Background(), db, dir, retainDays)
+	}
+}
+
+// runBackup starts the backup set up by BackupDB, if any.
+func (m Model) runBackup() tea.Cmd {
+	if m.backup == nil {
+		return nil
+	}
+	run := m.backup
+	return func() tea.Msg {
+		res, err := run()
+		return backupDoneMsg{res: res, err: err}
+	}
+}
+
+func (m *Model) handleBackupDone(msg backupDoneMsg) tea.Cmd {
+	switch {
+	case msg.err != nil:
+		return m.setError(fmt.Errorf("backup failed: %w", msg.err))
+	case msg.res.Date != "" && msg.res.OneRead:
+		return m.setStatus("Backup saved: snapshot " + msg.res.Date + " (copied in one read: writes kept restarting it)")
+	case msg.res.Date != "":
+		return m.setStatus("Backup saved: snapshot " + msg.res.Date)
+	}
+	return nil
+}
@@ -205,15 +205,15 @@ func (m *Model) updateTagFilter(msg tea.KeyMsg) (tea.Model, tea.Cmd) {
 		// Cycle forward through tags.
 		if m.activeTag == "" {
 			if len(tags) > 0 {
-				m.activeTag = tags[0]
+				m.setActiveTag(tags[0])
 			}
 		} else {
 			for i, t := range tags {
 				if t == m.activeTag {
 					if i+1 < len(tags) {
-						m.activeTag = tags[i+1]
+						m.setActiveTag(tags[i+1])
 					} else {
-						m.activeTag = "" // Wrap to "All"
+						m.setActiveTag("") // Wrap to "All"
 					}
 					break
 				}
@@ -226,15 +226,15 @@ func (m *Model) updateTagFilter(msg tea.KeyMsg) (tea.Model, tea.Cmd) {
 		// Cycle backward through tags.
 		if m.activeTag == "" {
 			if len(tags) > 0 {
-				m.activeTag = tags[len(tags)-1]
+				m.setActiveTag(tags[len(tags)-1])
 			}
 		} else {
 			for i, t := range tags {
 				if t == m.activeTag {
 					if i-1 >= 0 {
-						m.activeTag = tags[i-1]
+						m.setActiveTag(tags[i-1])
 					} else {
-						m.activeTag = "" // Wrap to "All"
+						m.setActiveTag("") // Wrap to "All"
 					}
 					break
 				}
@@ -248,10 +248,22 @@ func (m *Model) updateTagFilter(msg tea.KeyMsg) (tea.Model, tea.Cmd) {
 }
 
 func (m *Model) updateBlockerPicker(msg tea.KeyMsg) (tea.Model, tea.Cmd) {
-	// Simple blocker management: show info + toggle.
+	// Simple blocker management: show info + toggle the schedule panel.
 	switch msg.String() {
 	case "esc":
 		m.mode = modeNormal
+		m.schedule = nil
+		return m, nil
+	case "c":
+		if m.schedule != nil {
+			m.schedule = nil
+			return m, nil
+		}
+		p, err := m.planCache.Plan(time.Now())
+		if err != nil {
+			return m, m.setError(err)
+		}
+		m.schedule = p
 		return m, nil
 	}
 	return m, nil
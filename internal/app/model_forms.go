@@ -285,12 +285,13 @@ func (m *Model) updateConfirmDelete(msg tea.KeyMsg) (tea.Model, tea.Cmd) {
 				m.deleteGuardConfirmed = true
 				return m, nil
 			}
-			// Capture for undo.
-			deletedTask := *selected
+			// Deleting only moves the task to the trash, so undo takes it
+			// back out with its ID and relations intact.
+			id, title := selected.ID, selected.Title
 			m.undoAction = &undoAction{
-				description: fmt.Sprintf("Undo delete %q", deletedTask.Title),
+				description: fmt.Sprintf("Undo delete %q", title),
 				undo: func() error {
-					return m.store.Restore(&deletedTask)
+					return m.store.Undelete(id)
 				},
 			}
 			if err := m.store.Delete(selected.ID); err != nil {
@@ -13,6 +13,7 @@ import (
 	"github.com/roniel/todo-app/internal/config"
 	"github.com/roniel/todo-app/internal/focus"
 	"github.com/roniel/todo-app/internal/task"
+	"github.com/roniel/todo-app/internal/task/plan"
 	"github.com/roniel/todo-app/internal/ui"
 )
 
@@ -149,7 +150,73 @@ func (m Model) renderBlockerOverlay() string {
 	}
 
 	lines = append(lines, "")
-	lines = append(lines, lipgloss.NewStyle().Foreground(ui.Gray).Render("Press Esc to close"))
+	lines = append(lines, lipgloss.NewStyle().Foreground(ui.Gray).Render("c: schedule  Esc: close"))
+
+	content := strings.Join(lines, "\n")
+	return lipgloss.NewStyle().
+		Border(lipgloss.DoubleBorder()).
+		BorderForeground(ui.Cyan).
+		Padding(1, 2).
+		Width(50).
+		Render(content)
+}
+
+// maxPlanLines caps the critical-path rows in the schedule panel.
+const maxPlanLines = 12
+
+// renderPlanOverlay renders the schedule panel shown beside the blocker
+// overlay: when the selected task can finish, its slack, and the critical
+// path that sets the finish of all open work.
+func (m Model) renderPlanOverlay() string {
+	p := m.schedule
+	selected := m.selectedTask()
+	if selected == nil {
+		return ""
+	}
+	gray := lipgloss.NewStyle().Foreground(ui.Gray)
+	slackStyle := func(d time.Duration) lipgloss.Style {
+		if d < 0 {
+			return lipgloss.NewStyle().Foreground(ui.Red)
+		}
+		return gray
+	}
+
+	var lines []string
+	lines = append(lines, lipgloss.NewStyle().Bold(true).Foreground(ui.White).Render("Schedule"))
+	lines = append(lines, "")
+
+	if e, ok := p.Entry(selected.ID); ok {
+		lines = append(lines, gray.Render(fmt.Sprintf("Earliest finish: %s", m.cfg.FormatDateTime(p.FinishAt(e.EarliestFinish)))))
+		lines = append(lines, gray.Render("Slack: ")+slackStyle(e.Slack).Render(plan.FormatSlack(e.Slack)))
+	} else {
+		lines = append(lines, gray.Render("Task is done"))
+	}
+	lines = append(lines, "")
+
+	if len(p.CriticalPath) == 0 {
+		lines = append(lines, gray.Render("No open tasks"))
+	} else {
+		lines = append(lines, lipgloss.NewStyle().Bold(true).Foreground(ui.Cyan).Render(
+			fmt.Sprintf("Critical path (done %s):", m.cfg.FormatDateTime(p.FinishAt(p.Finish)))))
+		path := p.CriticalPath
+		if len(path) > maxPlanLines {
+			path = path[len(path)-maxPlanLines:]
+			lines = append(lines, gray.Render(fmt.Sprintf("  … %d earlier", len(p.CriticalPath)-maxPlanLines)))
+		}
+		for _, id := range path {
+			e, _ := p.Entry(id)
+			style := lipgloss.NewStyle().Foreground(ui.White)
+			if id == selected.ID {
+				style = style.Bold(true).Foreground(ui.Cyan)
+			}
+			title := truncate(e.Title, 21)
+			lines = append(lines, style.Render(fmt.Sprintf("  %s %-24s %6s ", e.Status.Icon(), title, task.FormatDuration(e.Remaining)))+
+				slackStyle(e.Slack).Render(plan.FormatSlack(e.Slack)))
+		}
+	}
+
+	lines = append(lines, "")
+	lines = append(lines, gray.Render("c: hide schedule"))
 
 	content := strings.Join(lines, "\n")
 	return lipgloss.NewStyle().
@@ -163,7 +230,10 @@ func (m Model) renderBlockerOverlay() string {
 func (m *Model) computeStats() {
 	s := &statsData{
 		totalTasks: len(m.tasks),
-		tagCounts:  make(map[string]int),
+		tagCounts:  make(map[string]int, len(m.tagCounts)),
+	}
+	for _, c := range m.tagCounts {
+		s.tagCounts[c.Name] = c.Count
 	}
 	for _, t := range m.tasks {
 		switch t.Status {
@@ -182,8 +252,12 @@ func (m *Model) computeStats() {
 		case task.Urgent:
 			s.urgentCount++
 		}
-		for _, tag := range t.Tags {
-			s.tagCounts[tag]++
+	}
+	// Archived tasks are all done and count toward the totals.
+	if m.store != nil {
+		if n, err := m.store.CountArchived(); err == nil {
+			s.totalTasks += n
+			s.doneTasks += n
 		}
 	}
 	if m.focusStore != nil {
@@ -294,6 +368,7 @@ func (m Model) renderHelpOverlay() string {
 		{"l", "Log time (detail)"},
 		{"n", "Notes (detail)"},
 		{"b", "View blockers (detail)"},
+		{"b then c", "Schedule / critical path"},
 		{"", ""},
 		{"", "Tools"},
 		{"p", "Focus timer"},
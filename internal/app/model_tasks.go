@@ -1,6 +1,7 @@
 package app
 
 import (
+	"errors"
 	"fmt"
 	"os"
 	"path/filepath"
@@ -16,40 +17,58 @@ import (
 	"github.com/roniel/todo-app/internal/ui"
 )
 
-func (m *Model) selectedTask() *task.Task {
+// selectedSummary returns the list row under the cursor, or nil.
+func (m *Model) selectedSummary() *task.TaskSummary {
 	item := m.list.SelectedItem()
 	if item == nil {
 		return nil
 	}
-	t, ok := item.(task.Task)
+	t, ok := item.(task.TaskSummary)
 	if !ok {
 		return nil
 	}
-	// Find the original task in our slice so that mutations persist.
-	for i := range m.tasks {
-		if m.tasks[i].ID == t.ID {
-			return &m.tasks[i]
+	return &t
+}
+
+// selectedTask returns the fully loaded selected task. The list only holds
+// summaries, so the task is fetched on first access and cached until the
+// selection changes or the list is reloaded. If the fetch fails, the error
+// goes to the status bar and nil is returned, so a database error is not
+// mistaken for an empty selection.
+func (m *Model) selectedTask() *task.Task {
+	sum := m.selectedSummary()
+	if sum == nil {
+		return nil
+	}
+	if sum.Archived {
+		return m.archivedTask(sum.ID)
+	}
+	if m.detail == nil || m.detail.ID != sum.ID {
+		t, err := m.store.GetByID(sum.ID)
+		if err != nil {
+			m.statusMsg = fmt.Sprintf("Error: load task %d: %v", sum.ID, err)
+			return nil
 		}
+		m.detail = t
 	}
-	return nil
+	return m.detail
 }
 
 func (m *Model) reload() error {
 	var selectedID int64
-	if sel := m.selectedTask(); sel != nil {
+	if sel := m.selectedSummary(); sel != nil {
 		selectedID = sel.ID
 	}
 
-	tasks, err := m.store.List()
-	if err != nil {
+	if err := m.syncTasks(); err != nil {
 		return err
 	}
-	m.tasks = tasks
+	m.detail = nil
 	m.sortTasks()
 
 	if selectedID != 0 {
 		for i, item := range m.list.Items() {
-			if t, ok := item.(task.Task); ok && t.ID == selectedID {
+			if t, ok := item.(task.TaskSummary); ok && t.ID == selectedID {
 				m.list.Select(i)
 				break
 			}
@@ -59,6 +78,115 @@ func (m *Model) reload() error {
 	return nil
 }
 
+// syncTasks brings m.tasks up to date with the database. Only tasks the
+// change log reports as touched since the last sync are re-read; the whole
+// list is reloaded only when the log no longer reaches back that far.
+func (m *Model) syncTasks() error {
+	ids, seq, err := m.store.ChangesSince(m.taskSeq)
+	if errors.Is(err, task.ErrChangesTruncated) {
+		if seq, err = m.store.CurrentSeq(); err != nil {
+			return err
+		}
+		tasks, err := m.store.ListSummaries()
+		if err != nil {
+			return err
+		}
+		if m.deps, err = m.store.LoadDepGraph(); err != nil {
+			return err
+		}
+		m.tasks, m.taskSeq = tasks, seq
+		return m.loadTags()
+	}
+	if err != nil {
+		return err
+	}
+	if len(ids) > 0 {
+		fresh, err := m.store.SummariesByID(ids)
+		if err != nil {
+			return err
+		}
+		m.tasks = patchSummaries(m.tasks, ids, fresh)
+		if m.deps != nil {
+			if err := m.store.RefreshDepGraph(m.deps, ids); err != nil {
+				return err
+			}
+		}
+		if err := m.loadTags(); err != nil {
+			return err
+		}
+	}
+	m.taskSeq = seq
+	return nil
+}
+
+// loadTags reads tag counts, and the tasks carrying the active tag, from
+// the store's tag index.
+func (m *Model) loadTags() error {
+	counts, err := m.store.TagCounts()
+	if err != nil {
+		return err
+	}
+	m.tagCounts = counts
+	return m.loadTagged()
+}
+
+// loadTagged reads the IDs of tasks carrying the active tag.
+func (m *Model) loadTagged() error {
+	m.tagged = nil
+	if m.activeTag == "" {
+		return nil
+	}
+	ids, err := m.store.TaskIDsWithTag(m.activeTag)
+	if err != nil {
+		return err
+	}
+	m.tagged = make(map[int64]bool, len(ids))
+	for _, id := range ids {
+		m.tagged[id] = true
+	}
+	return nil
+}
+
+// setActiveTag filters the task list to tag; "" shows every task.
+func (m *Model) setActiveTag(tag string) {
+	m.activeTag = tag
+	if err := m.loadTagged(); err != nil {
+		m.statusMsg = "Error: " + err.Error()
+	}
+}
+
+// patchSummaries replaces the entries of tasks whose IDs are in changed with
+// their fresh versions, drops those with no fresh version (deleted), and
+// appends fresh entries not seen before (created).
+func patchSummaries(tasks []task.TaskSummary, changed []int64, fresh []task.TaskSummary) []task.TaskSummary {
+	touched := make(map[int64]bool, len(changed))
+	for _, id := range changed {
+		touched[id] = true
+	}
+	byID := make(map[int64]task.TaskSummary, len(fresh))
+	for _, t := range fresh {
+		byID[t.ID] = t
+	}
+
+	out := make([]task.TaskSummary, 0, len(tasks)+len(fresh))
+	for _, t := range tasks {
+		if !touched[t.ID] {
+			out = append(out, t)
+			continue
+		}
+		if f, ok := byID[t.ID]; ok {
+			out = append(out, f)
+			delete(byID, t.ID)
+		}
+	}
+	for _, f := range fresh {
+		if _, ok := byID[f.ID]; ok {
+			out = append(out, f)
+		}
+	}
+	return out
+}
+
 func (m *Model) refreshList() {
 	filtered := m.filteredTasks()
 	items := make([]list.Item, len(filtered))
@@ -68,8 +196,8 @@ func (m *Model) refreshList() {
 	m.list.SetItems(items)
 }
 
-func (m *Model) filteredTasks() []task.Task {
-	var result []task.Task
+func (m *Model) filteredTasks() []task.TaskSummary {
+	var result []task.TaskSummary
 
 	// First, filter by tab.
 	for _, t := range m.tasks {
@@ -89,18 +217,18 @@ func (m *Model) filteredTasks() []task.Task {
 
 	// Then, filter by active tag if set.
 	if m.activeTag != "" {
-		var tagFiltered []task.Task
+		var tagFiltered []task.TaskSummary
 		for _, t := range result {
-			for _, tag := range t.Tags {
-				if tag == m.activeTag {
-					tagFiltered = append(tagFiltered, t)
-					break
-				}
+			if m.tagged[t.ID] {
+				tagFiltered = append(tagFiltered, t)
 			}
 		}
 		result = tagFiltered
 	}
 
+	if m.activeTab == 2 {
+		result = append(result, m.archivedSummaries()...)
+	}
 	return result
 }
 
@@ -118,7 +246,8 @@ func (m *Model) updateDetail() {
 	} else if m.noteIdx >= len(selected.Notes) {
 		m.noteIdx = len(selected.Notes) - 1
 	}
-	content := ui.RenderDetail(selected, m.viewport.Width, m.subtaskIdx, m.focusedPanel == 1, m.noteIdx, m.notesFocused, m.cfg)
+	blocked := selected != nil && m.deps != nil && m.deps.Blocked(selected.ID)
+	content := ui.RenderDetail(selected, blocked, m.viewport.Width, m.subtaskIdx, m.focusedPanel == 1, m.noteIdx, m.notesFocused, m.cfg)
 	m.viewport.SetContent(content)
 	m.viewport.GotoTop()
 }
@@ -151,18 +280,12 @@ func (m *Model) sortTasks() {
 	m.updateDetail()
 }
 
+// allTags returns the names of tags in use, in the tag index's order.
 func (m *Model) allTags() []string {
-	tagSet := make(map[string]bool)
-	for _, t := range m.tasks {
-		for _, tag := range t.Tags {
-			tagSet[tag] = true
-		}
-	}
-	tags := make([]string, 0, len(tagSet))
-	for tag := range tagSet {
-		tags = append(tags, tag)
+	tags := make([]string, len(m.tagCounts))
+	for i, c := range m.tagCounts {
+		tags[i] = c.Name
 	}
-	sort.Strings(tags)
 	return tags
 }
 
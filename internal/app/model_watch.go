@@ -0,0 +1,71 @@
+package app
+
+import (
+	"database/sql"
+	"time"
+
+	tea "github.com/charmbracelet/bubbletea"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// watchInterval is how often the TUI checks for writes by other processes.
+const watchInterval = 500 * time.Millisecond
+
+// dataVersionMsg carries a PRAGMA data_version reading.
+type dataVersionMsg struct {
+	version int64
+	err     error
+}
+
+// WatchDB makes the TUI refresh itself when another process (for example a
+// `todo add` from a script) writes to db. It must be the *sql.DB the stores
+// were built on.
+func (m *Model) WatchDB(db *sql.DB) error {
+	v, err := database.DataVersion(db)
+	if err != nil {
+		return err
+	}
+	m.db = db
+	m.dataVersion = v
+	return nil
+}
+
+// pollDataVersion schedules the next data_version reading.
+func (m *Model) pollDataVersion() tea.Cmd {
+	if m.db == nil {
+		return nil
+	}
+	db := m.db
+	return tea.Tick(watchInterval, func(time.Time) tea.Msg {
+		v, err := database.DataVersion(db)
+		return dataVersionMsg{version: v, err: err}
+	})
+}
+
+// handleDataVersion refreshes tasks, journal, and focus state after an
+// external write. Refreshing is deferred while a form or dialog is open so
+// the data under it does not shift; the version is left unchanged, so the
+// next reading after the dialog closes triggers the refresh.
+func (m *Model) handleDataVersion(msg dataVersionMsg) tea.Cmd {
+	next := m.pollDataVersion()
+	if msg.err != nil || msg.version == m.dataVersion || m.mode != modeNormal {
+		return next
+	}
+	m.dataVersion = msg.version
+
+	// Tasks are patched from the change log, so only rows written by the
+	// other process are re-read.
+	if err := m.reload(); err != nil {
+		return tea.Batch(next, m.setError(err))
+	}
+	if err := m.reloadJournal(); err != nil {
+		return tea.Batch(next, m.setError(err))
+	}
+	if !m.isFocusActive() && m.cfg.Focus.LongBreakInterval > 0 {
+		if wc, err := m.focusStore.TodayWorkCount(); err == nil {
+			m.focusCyclePos = wc % m.cfg.Focus.LongBreakInterval
+		}
+	}
+	return next
+}
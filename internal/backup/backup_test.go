@@ -0,0 +1,299 @@
+package backup
+
+import (
+	"bytes"
+	"context"
+	"database/sql"
+	"errors"
+	"fmt"
+	"os"
+	"path/filepath"
+	"strings"
+	"testing"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+	_ "modernc.org/sqlite"
+)
+
+// writeDB creates an SQLite file at path holding rows rows, then applies
+// edit, and closes it so the file is complete.
+func writeDB(t *testing.T, path string, rows int, edit string) {
+	t.Helper()
+	db, err := sql.Open("sqlite", path)
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	defer db.Close()
+	if _, err := db.Exec(`CREATE TABLE IF NOT EXISTS t (id INTEGER PRIMARY KEY, v TEXT)`); err != nil {
+		t.Fatalf("create: %v", err)
+	}
+	for i := range rows {
+		if _, err := db.Exec(`INSERT INTO t (v) VALUES (?)`, fmt.Sprintf("%d %s", i, strings.Repeat("x", 300))); err != nil {
+			t.Fatalf("insert: %v", err)
+		}
+	}
+	if edit != "" {
+		if _, err := db.Exec(edit); err != nil {
+			t.Fatalf("edit: %v", err)
+		}
+	}
+}
+
+func TestRepo_SaveDeduplicatesAndRestores(t *testing.T) {
+	dir := t.TempDir()
+	src := filepath.Join(dir, "src.db")
+	repo, err := Open(filepath.Join(dir, "store"))
+	if err != nil {
+		t.Fatalf("Open: %v", err)
+	}
+
+	writeDB(t, src, 2000, "")
+	day1 := time.Date(2026, 3, 1, 9, 0, 0, 0, time.Local)
+	first, err := repo.Save(day1, src)
+	if err != nil {
+		t.Fatalf("Save: %v", err)
+	}
+	if first.Pages < 100 || first.NewChunks == 0 {
+		t.Fatalf("first snapshot = %+v, want every page stored", first)
+	}
+
+	writeDB(t, src, 0, `UPDATE t SET v = 'changed' WHERE id = 1000`)
+	second, err := repo.Save(day1.AddDate(0, 0, 1), src)
+	if err != nil {
+		t.Fatalf("Save: %v", err)
+	}
+	// One row changed: the page holding it and the header page differ.
+	if second.NewChunks > 3 {
+		t.Errorf("second snapshot stored %d new chunks of %d pages, want only the changed ones", second.NewChunks, second.Pages)
+	}
+
+	dates, _ := repo.List()
+	if want := []string{"2026-03-01", "2026-03-02"}; fmt.Sprint(dates) != fmt.Sprint(want) {
+		t.Errorf("List = %v, want %v", dates, want)
+	}
+
+	out := filepath.Join(dir, "restored.db")
+	if err := repo.Restore("2026-03-02", out); err != nil {
+		t.Fatalf("Restore: %v", err)
+	}
+	want, _ := os.ReadFile(src)
+	got, _ := os.ReadFile(out)
+	if !bytes.Equal(got, want) {
+		t.Errorf("restored %d bytes differ from the %d-byte source", len(got), len(want))
+	}
+
+	if err := repo.Restore("2026-02-01", out); !errors.Is(err, ErrNoSnapshot) {
+		t.Errorf("Restore of a missing date = %v, want ErrNoSnapshot", err)
+	}
+}
+
+func TestRepo_PruneDropsUnreferencedChunks(t *testing.T) {
+	dir := t.TempDir()
+	src := filepath.Join(dir, "src.db")
+	repo, err := Open(filepath.Join(dir, "store"))
+	if err != nil {
+		t.Fatalf("Open: %v", err)
+	}
+	writeDB(t, src, 200, "")
+	if _, err := repo.Save(time.Now().AddDate(0, 0, -40), src); err != nil {
+		t.Fatalf("Save old: %v", err)
+	}
+	writeDB(t, src, 0, `DELETE FROM t WHERE id > 100; VACUUM`)
+	if _, err := repo.Save(time.Now(), src); err != nil {
+		t.Fatalf("Save: %v", err)
+	}
+	// Age every chunk past the grace period.
+	old := time.Now().Add(-2 * chunkGrace)
+	filepath.WalkDir(filepath.Join(repo.dir, "chunks"), func(path string, d os.DirEntry, err error) error {
+		if err == nil && !d.IsDir() {
+			os.Chtimes(path, old, old)
+		}
+		return nil
+	})
+	before := countFiles(t, filepath.Join(repo.dir, "chunks"))
+
+	n, err := repo.Prune(30)
+	if err != nil || n != 1 {
+		t.Fatalf("Prune = %d, %v; want 1 snapshot removed", n, err)
+	}
+	if after := countFiles(t, filepath.Join(repo.dir, "chunks")); after >= before {
+		t.Errorf("chunks %d -> %d, want the old snapshot's own pages removed", before, after)
+	}
+	out := filepath.Join(dir, "restored.db")
+	if err := repo.Restore(time.Now().Format(DateLayout), out); err != nil {
+		t.Errorf("remaining snapshot no longer restores: %v", err)
+	}
+}
+
+func TestDaily(t *testing.T) {
+	dir := t.TempDir()
+	src := filepath.Join(dir, "src.db")
+	writeDB(t, src, 50, "")
+	db, err := sql.Open("sqlite", src)
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	defer db.Close()
+
+	store := filepath.Join(dir, "backups")
+	res, err := Daily(context.Background(), db, store, 30)
+	if err != nil || res.Date != time.Now().Format(DateLayout) {
+		t.Fatalf("Daily = %+v, %v; want today's snapshot", res, err)
+	}
+	if res, err := Daily(context.Background(), db, store, 30); err != nil || res.Date != "" {
+		t.Errorf("second Daily = %+v, %v; want nothing new", res, err)
+	}
+	if Locked(store) {
+		t.Error("lock file left behind")
+	}
+}
+
+func TestDaily_SkipsWhileLocked(t *testing.T) {
+	dir := t.TempDir()
+	src := filepath.Join(dir, "src.db")
+	writeDB(t, src, 50, "")
+	db, err := sql.Open("sqlite", src)
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	defer db.Close()
+
+	store := filepath.Join(dir, "backups")
+	if _, err := Open(store); err != nil {
+		t.Fatalf("Open: %v", err)
+	}
+	unlock, ok, err := lock(store)
+	if err != nil || !ok {
+		t.Fatalf("lock = %v, %v", ok, err)
+	}
+	if !Locked(store) {
+		t.Fatal("Locked = false while held")
+	}
+	res, err := Daily(context.Background(), db, store, 30)
+	if err != nil || !res.Busy || res.Date != "" {
+		t.Fatalf("Daily = %+v, %v; want it left to the lock holder", res, err)
+	}
+	unlock()
+
+	// A lock left by a process that died is taken over once stale.
+	if _, _, err := lock(store); err != nil {
+		t.Fatalf("lock: %v", err)
+	}
+	old := time.Now().Add(-2 * staleLock)
+	if err := os.Chtimes(filepath.Join(store, lockName), old, old); err != nil {
+		t.Fatalf("Chtimes: %v", err)
+	}
+	if res, err := Daily(context.Background(), db, store, 30); err != nil || res.Date == "" {
+		t.Errorf("Daily over a stale lock = %+v, %v; want today's snapshot", res, err)
+	}
+}
+
+func TestRepo_Replay(t *testing.T) {
+	home := t.TempDir()
+	t.Setenv("HOME", home)
+	store := filepath.Join(home, "backups")
+	db, err := database.Open(WALDir(store))
+	if err != nil {
+		t.Fatalf("Open: %v", err)
+	}
+	defer database.Close(db)
+
+	exec := func(q string) {
+		t.Helper()
+		if _, err := db.Exec(q); err != nil {
+			t.Fatalf("%s: %v", q, err)
+		}
+		if err := database.CheckpointWAL(db); err != nil {
+			t.Fatalf("CheckpointWAL: %v", err)
+		}
+		time.Sleep(2 * time.Millisecond) // segment times are in milliseconds
+	}
+	// The first frames are archived only after the snapshot is taken:
+	// replaying them over it must be harmless.
+	if _, err := db.Exec(`CREATE TABLE t (id INTEGER PRIMARY KEY, v TEXT); INSERT INTO t (v) VALUES ('a')`); err != nil {
+		t.Fatalf("create: %v", err)
+	}
+	if _, err := Daily(context.Background(), db, store, 30); err != nil {
+		t.Fatalf("Daily: %v", err)
+	}
+	exec(`INSERT INTO t (v) VALUES ('b')`)
+	mark := time.Now()
+	time.Sleep(2 * time.Millisecond)
+	exec(`UPDATE t SET v = 'changed'`)
+
+	repo, err := Open(store)
+	if err != nil {
+		t.Fatalf("Open: %v", err)
+	}
+	values := func(until time.Time) string {
+		t.Helper()
+		out := filepath.Join(home, "replayed.db")
+		if _, err := repo.Replay(until, out); err != nil {
+			t.Fatalf("Replay: %v", err)
+		}
+		rdb, err := sql.Open("sqlite", out)
+		if err != nil {
+			t.Fatalf("open replayed: %v", err)
+		}
+		defer rdb.Close()
+		var got string
+		if err := rdb.QueryRow(`SELECT group_concat(v, ',') FROM (SELECT v FROM t ORDER BY id)`).Scan(&got); err != nil {
+			t.Fatalf("read replayed: %v", err)
+		}
+		return got
+	}
+	if got := values(mark); got != "a,b" {
+		t.Errorf("replay to mark = %q, want a,b", got)
+	}
+	if got := values(time.Now()); got != "changed,changed" {
+		t.Errorf("replay to now = %q, want changed,changed", got)
+	}
+	if _, err := repo.Replay(time.Now().AddDate(0, 0, -1), filepath.Join(home, "x.db")); !errors.Is(err, ErrNoSnapshot) {
+		t.Errorf("replay before the first snapshot = %v, want ErrNoSnapshot", err)
+	}
+}
+
+func TestRepo_ReplaySkipsSnapshotFinishedAfterUntil(t *testing.T) {
+	dir := t.TempDir()
+	src := filepath.Join(dir, "src.db")
+	repo, err := Open(filepath.Join(dir, "store"))
+	if err != nil {
+		t.Fatalf("Open: %v", err)
+	}
+	writeDB(t, src, 10, "")
+	day1 := time.Date(2026, 3, 1, 9, 0, 0, 0, time.Local)
+	if _, err := repo.Save(day1, src); err != nil {
+		t.Fatalf("Save: %v", err)
+	}
+	// The next day's copy started before until but ended after it, so its
+	// pages may be newer than until.
+	day2 := day1.AddDate(0, 0, 1)
+	if _, err := repo.save(day2, day2.Add(time.Hour), src); err != nil {
+		t.Fatalf("save: %v", err)
+	}
+
+	out := filepath.Join(dir, "replayed.db")
+	res, err := repo.Replay(day2.Add(30*time.Minute), out)
+	if err != nil {
+		t.Fatalf("Replay: %v", err)
+	}
+	if want := day1.Format(DateLayout); res.Snapshot != want {
+		t.Errorf("replayed from %s, want %s", res.Snapshot, want)
+	}
+	if res, err := repo.Replay(day2.Add(time.Hour), out); err != nil || res.Snapshot != day2.Format(DateLayout) {
+		t.Errorf("Replay once the copy finished = %+v, %v; want %s", res, err, day2.Format(DateLayout))
+	}
+}
+
+func countFiles(t *testing.T, root string) int {
+	t.Helper()
+	n := 0
+	filepath.WalkDir(root, func(path string, d os.DirEntry, err error) error {
+		if err == nil && !d.IsDir() {
+			n++
+		}
+		return nil
+	})
+	return n
+}
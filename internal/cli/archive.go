@@ -0,0 +1,41 @@
+package cli
+
+import (
+	"fmt"
+	"time"
+
+	"github.com/spf13/cobra"
+)
+
+func (c *CLI) archiveCmd() *cobra.Command {
+	var days int
+
+	cmd := &cobra.Command{
+		Use:   "archive",
+		Short: "Move old done tasks out of the working set now",
+		Long: `Move done tasks last changed more than --days ago into the archive.
+The TUI and ` + "`serve`" + ` do this in the background using the archive_after_days
+config key. Archived tasks are read-only: list them with
+` + "`list --include-archived`" + ` or open one with ` + "`show <id>`" + `. A done task
+that still blocks an unfinished one is kept.`,
+		Args: cobra.NoArgs,
+		RunE: func(cmd *cobra.Command, args []string) error {
+			if !cmd.Flags().Changed("days") {
+				days = c.cfg.ArchiveAfterDays
+			}
+			if days <= 0 {
+				return fmt.Errorf("archiving is disabled (archive_after_days = %d); pass --days", days)
+			}
+			n, err := c.taskStore.ArchiveDone(time.Now().AddDate(0, 0, -days))
+			if err != nil {
+				return err
+			}
+			c.printer(c.stdout).Success("Archived %d done tasks", n)
+			return nil
+		},
+	}
+
+	cmd.Flags().IntVar(&days, "days", 0, "Archive done tasks older than this many days (default: archive_after_days)")
+
+	return cmd
+}
@@ -0,0 +1,249 @@
+package cli
+
+import (
+	"context"
+	"database/sql"
+	"fmt"
+	"os"
+	"path/filepath"
+	"strings"
+	"time"
+
+	"github.com/roniel/todo-app/internal/backup"
+	"github.com/roniel/todo-app/internal/config"
+	"github.com/roniel/todo-app/internal/database"
+	"github.com/spf13/cobra"
+)
+
+func (c *CLI) backupCmd() *cobra.Command {
+	var dir string
+
+	cmd := &cobra.Command{
+		Use:   "backup",
+		Short: "List, restore and replay daily backups",
+		Long: `Daily backups are snapshots in a deduplicated store: each database page
+is kept once, compressed, and shared by every snapshot it appears in.
+
+With wal_archive enabled in the config, every committed change is archived
+as well, and replay rebuilds the database at any moment since the oldest
+snapshot.`,
+		RunE: func(cmd *cobra.Command, args []string) error {
+			return cmd.Help()
+		},
+	}
+
+	cmd.PersistentFlags().StringVar(&dir, "dir", "", "Backup directory (default: ~/.todo-app/backups)")
+	repo := func() (*backup.Repo, error) {
+		if dir == "" {
+			d, err := backup.DefaultDir()
+			if err != nil {
+				return nil, err
+			}
+			dir = d
+		}
+		return backup.Open(dir)
+	}
+
+	cmd.AddCommand(c.backupListCmd(repo))
+	cmd.AddCommand(c.backupRestoreCmd(repo))
+	cmd.AddCommand(c.backupReplayCmd(repo))
+
+	return cmd
+}
+
+func (c *CLI) backupListCmd(repo func() (*backup.Repo, error)) *cobra.Command {
+	return &cobra.Command{
+		Use:   "list",
+		Short: "List backup snapshots, oldest first",
+		Args:  cobra.NoArgs,
+		RunE: func(cmd *cobra.Command, args []string) error {
+			r, err := repo()
+			if err != nil {
+				return err
+			}
+			dates, err := r.List()
+			if err != nil {
+				return fmt.Errorf("list backups: %w", err)
+			}
+			switch strings.ToLower(c.format) {
+			case "json":
+				if dates == nil {
+					dates = []string{}
+				}
+				return c.printer(c.stdout).JSON(dates)
+			default:
+				if len(dates) == 0 {
+					fmt.Fprintln(c.stdout, "No backups yet.")
+				}
+				for _, d := range dates {
+					fmt.Fprintln(c.stdout, d)
+				}
+				return nil
+			}
+		},
+	}
+}
+
+func (c *CLI) backupRestoreCmd(repo func() (*backup.Repo, error)) *cobra.Command {
+	var output string
+	var force bool
+
+	cmd := &cobra.Command{
+		Use:   "restore <date>",
+		Short: "Rebuild the database from a backup snapshot",
+		Long: `Rebuild the snapshot taken on <date> (YYYY-MM-DD). With --output the
+snapshot is written to that file and the live database is left alone.
+Without it the live database is replaced, which other open instances see
+on their next read.`,
+		Args: cobra.ExactArgs(1),
+		RunE: func(cmd *cobra.Command, args []string) error {
+			date, err := backup.ParseDate(args[0])
+			if err != nil {
+				return err
+			}
+			r, err := repo()
+			if err != nil {
+				return err
+			}
+			if output != "" {
+				if err := r.Restore(date, output); err != nil {
+					return err
+				}
+				c.printer(c.stdout).Success("Restored backup %s to %s", date, output)
+				return nil
+			}
+
+			ok, err := c.confirm(fmt.Sprintf("Replace the database with the backup from %s?", date), force)
+			if err != nil {
+				return err
+			}
+			if !ok {
+				fmt.Fprintln(c.stderr, "Cancelled.")
+				return nil
+			}
+			path, err := c.replaceDatabase(func(tmp string) error { return r.Restore(date, tmp) })
+			if err != nil {
+				return err
+			}
+			c.printer(c.stdout).Success("Restored backup %s to %s", date, path)
+			return nil
+		},
+	}
+
+	cmd.Flags().StringVarP(&output, "output", "o", "", "Write the snapshot to this file instead of replacing the database")
+	cmd.Flags().BoolVarP(&force, "force", "y", false, "Skip confirmation prompt")
+
+	return cmd
+}
+
+func (c *CLI) backupReplayCmd(repo func() (*backup.Repo, error)) *cobra.Command {
+	var until, output string
+	var force bool
+
+	cmd := &cobra.Command{
+		Use:   "replay --until <time>",
+		Short: "Rebuild the database as it was at a moment",
+		Long: `Rebuild the database as it was at --until (YYYY-MM-DD HH:MM[:SS] local
+time, or RFC 3339) from the last snapshot before it and the archived WAL.
+Changes are archived every 30 seconds and when a command exits, so the
+rebuild holds everything archived by then. Needs wal_archive enabled in
+the config; without an archive it stops at the snapshot.
+
+With --output the result is written to that file and the live database is
+left alone; without it the live database is replaced.`,
+		Args: cobra.NoArgs,
+		RunE: func(cmd *cobra.Command, args []string) error {
+			at, err := backup.ParseTime(until)
+			if err != nil {
+				return err
+			}
+			r, err := repo()
+			if err != nil {
+				return err
+			}
+			report := func(res backup.ReplayResult, dest string) {
+				c.printer(c.stdout).Success("Rebuilt the database as of %s into %s (snapshot %s + %d WAL segments)",
+					at.Format(time.DateTime), dest, res.Snapshot, res.Segments)
+			}
+			if output != "" {
+				res, err := r.Replay(at, output)
+				if err != nil {
+					return err
+				}
+				report(res, output)
+				return nil
+			}
+
+			ok, err := c.confirm(fmt.Sprintf("Replace the database with its state at %s?", at.Format(time.DateTime)), force)
+			if err != nil {
+				return err
+			}
+			if !ok {
+				fmt.Fprintln(c.stderr, "Cancelled.")
+				return nil
+			}
+			var res backup.ReplayResult
+			path, err := c.replaceDatabase(func(tmp string) error {
+				res, err = r.Replay(at, tmp)
+				return err
+			})
+			if err != nil {
+				return err
+			}
+			report(res, path)
+			return nil
+		},
+	}
+
+	cmd.Flags().StringVar(&until, "until", "", "Moment to rebuild (required)")
+	cmd.Flags().StringVarP(&output, "output", "o", "", "Write the result to this file instead of replacing the database")
+	cmd.Flags().BoolVarP(&force, "force", "y", false, "Skip confirmation prompt")
+
+	return cmd
+}
+
+// openDB opens a handle of its own on the live database, archiving its WAL
+// when cfg turns that on, for work that needs the *sql.DB the stores hide.
+// Close it with database.Close.
+func (c *CLI) openDB(cfg config.Config) (*sql.DB, error) {
+	var walArchive string
+	if cfg.WALArchive {
+		dir, err := backup.DefaultDir()
+		if err != nil {
+			return nil, err
+		}
+		walArchive = backup.WALDir(dir)
+	}
+	return database.Open(walArchive)
+}
+
+// replaceDatabase has build write a database file to a temporary path, then
+// copies it over the live database with the online backup API, so other
+// open instances see it on their next read. It returns the live path.
+func (c *CLI) replaceDatabase(build func(tmp string) error) (string, error) {
+	dataDir, err := database.Dir()
+	if err != nil {
+		return "", err
+	}
+	tmp, err := os.CreateTemp(dataDir, "restore-*.db")
+	if err != nil {
+		return "", err
+	}
+	tmp.Close()
+	defer os.Remove(tmp.Name())
+	if err := build(tmp.Name()); err != nil {
+		return "", err
+	}
+
+	// The copy lands in the WAL like any write, so with an archive it is
+	// archived too and a later replay can go back past it.
+	db, err := c.openDB(c.cfg)
+	if err != nil {
+		return "", err
+	}
+	defer database.Close(db)
+	if err := database.RestoreFrom(context.Background(), db, tmp.Name()); err != nil {
+		return "", err
+	}
+	return filepath.Join(dataDir, "todo.db"), nil
+}
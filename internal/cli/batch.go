@@ -2,13 +2,16 @@ package cli
 
 import (
 	"bufio"
+	"bytes"
 	"encoding/json"
+	"errors"
 	"fmt"
 	"io"
-	"os"
 	"strings"
 
+	"github.com/roniel/todo-app/internal/database"
 	"github.com/spf13/cobra"
+	"github.com/spf13/pflag"
 )
 
 // batchCommand is a single command in a batch request.
@@ -17,68 +20,185 @@ type batchCommand struct {
 	Args []string `json:"args,omitempty"`
 }
 
-// batchResult is the result of a single command in a batch.
+// batchResult is the result of a single command in a batch, written as one
+// JSON line as soon as the command finishes.
 type batchResult struct {
-	Cmd   string `json:"cmd"`
-	OK    bool   `json:"ok"`
-	Error string `json:"error,omitempty"`
+	Line   int    `json:"line"`
+	Cmd    string `json:"cmd"`
+	OK     bool   `json:"ok"`
+	Error  string `json:"error,omitempty"`
+	Output string `json:"output,omitempty"`
 }
 
 func (c *CLI) batchCmd() *cobra.Command {
-	return &cobra.Command{
+	var atomic bool
+	var chunk int
+
+	cmd := &cobra.Command{
 		Use:   "batch",
 		Short: "Execute commands from stdin (one JSON object per line)",
 		Long: `Read newline-delimited JSON commands from stdin and execute each one.
 Each line is a JSON object: {"cmd": "add", "args": ["task title", "--priority", "high"]}
-Output is a JSON array of results.`,
+
+Commands run in a single transaction committed at the end. A failed command
+is rolled back on its own and the others still apply. With --atomic, the
+first failure rolls back the whole batch, including commands already
+reported as ok. With --chunk N, work is committed every N commands instead.
+
+One JSON result per command is written to stdout as it completes, e.g.
+{"line": 1, "cmd": "add", "ok": true, "output": "Created task #4: ..."}`,
 		Args: cobra.NoArgs,
 		RunE: func(cmd *cobra.Command, _ []string) error {
-			scanner := bufio.NewScanner(os.Stdin)
-			var results []batchResult
-
-			for scanner.Scan() {
-				line := strings.TrimSpace(scanner.Text())
-				if line == "" {
-					continue
-				}
-
-				var bc batchCommand
-				if err := json.Unmarshal([]byte(line), &bc); err != nil {
-					results = append(results, batchResult{
-						Cmd:   line,
-						OK:    false,
-						Error: fmt.Sprintf("invalid JSON: %v", err),
-					})
-					continue
-				}
-
-				if bc.Cmd == "batch" {
-					results = append(results, batchResult{Cmd: bc.Cmd, OK: false, Error: "batch cannot be nested"})
-					continue
-				}
-
-				// Build a fresh command tree for each command to avoid
-				// cobra flag state leaking between invocations.
-				fresh := New(c.taskStore, c.journalStore, c.focusStore, c.cfg)
-				fresh.SetOut(io.Discard)
-				fresh.SetErr(io.Discard)
-				fresh.SetArgs(append([]string{bc.Cmd}, bc.Args...))
-				err := fresh.Execute()
-
-				br := batchResult{Cmd: bc.Cmd, OK: err == nil}
-				if err != nil {
-					br.Error = err.Error()
-				}
-				results = append(results, br)
+			if atomic && chunk > 0 {
+				return fmt.Errorf("--atomic and --chunk cannot be used together")
 			}
+			if chunk < 0 {
+				return fmt.Errorf("--chunk must not be negative")
+			}
+			return c.runBatch(atomic, chunk)
+		},
+	}
+
+	cmd.Flags().BoolVar(&atomic, "atomic", false, "Roll back every command if any command fails")
+	cmd.Flags().IntVar(&chunk, "chunk", 0, "Commit every N commands instead of once at the end")
+
+	return cmd
+}
+
+// batchRunner executes batch commands on one reused command tree bound to
+// the current transaction.
+type batchRunner struct {
+	parent *CLI
+	inner  *CLI
+	tree   *cobra.Command
+	output bytes.Buffer
+	tx     *database.Tx
+}
+
+func (c *CLI) runBatch(atomic bool, chunk int) error {
+	b := &batchRunner{parent: c}
+	b.inner = &CLI{
+		cfg:    c.cfg,
+		stdin:  strings.NewReader(""), // stdin carries the batch itself
+		stderr: c.stderr,
+	}
+	b.inner.stdout = &b.output
+	b.tree = b.inner.rootCmd()
+	b.tree.SetOut(io.Discard)
+	b.tree.SetErr(io.Discard)
+
+	if err := b.begin(); err != nil {
+		return err
+	}
+	defer func() { b.tx.Rollback() }()
+
+	enc := json.NewEncoder(c.stdout)
+	scanner := bufio.NewScanner(c.stdin)
+	lineNo, pending := 0, 0
+	for scanner.Scan() {
+		lineNo++
+		line := strings.TrimSpace(scanner.Text())
+		if line == "" {
+			continue
+		}
+
+		res := batchResult{Line: lineNo}
+		var bc batchCommand
+		var cmdErr error
+		if err := json.Unmarshal([]byte(line), &bc); err != nil {
+			res.Cmd = line
+			cmdErr = fmt.Errorf("invalid JSON: %v", err)
+		} else if bc.Cmd == "batch" {
+			res.Cmd = bc.Cmd
+			cmdErr = errors.New("batch cannot be nested")
+		} else {
+			res.Cmd = bc.Cmd
+			cmdErr = b.exec(bc)
+			res.Output = b.output.String()
+		}
+		res.OK = cmdErr == nil
+		if cmdErr != nil {
+			res.Error = cmdErr.Error()
+		}
+		if err := enc.Encode(res); err != nil {
+			return err
+		}
 
-			if err := scanner.Err(); err != nil {
-				return fmt.Errorf("read stdin: %w", err)
+		if cmdErr != nil && atomic {
+			return fmt.Errorf("line %d failed; batch rolled back", lineNo)
+		}
+		pending++
+		if chunk > 0 && pending == chunk {
+			if err := b.tx.Commit(); err != nil {
+				return fmt.Errorf("commit: %w", err)
 			}
+			if err := b.begin(); err != nil {
+				return err
+			}
+			pending = 0
+		}
+	}
+	if err := scanner.Err(); err != nil {
+		return fmt.Errorf("read stdin: %w", err)
+	}
+	if err := b.tx.Commit(); err != nil {
+		return fmt.Errorf("commit: %w", err)
+	}
+	return nil
+}
 
-			enc := json.NewEncoder(os.Stdout)
-			enc.SetIndent("", "  ")
-			return enc.Encode(results)
-		},
+// begin starts a transaction and binds the tree's stores to it.
+func (b *batchRunner) begin() error {
+	tx, err := b.parent.taskStore.Begin()
+	if err != nil {
+		return fmt.Errorf("begin: %w", err)
+	}
+	b.tx = tx
+	b.inner.taskStore = b.parent.taskStore.WithTx(tx)
+	if b.parent.journalStore != nil {
+		b.inner.journalStore = b.parent.journalStore.WithTx(tx)
+	}
+	if b.parent.focusStore != nil {
+		b.inner.focusStore = b.parent.focusStore.WithTx(tx)
+	}
+	return nil
+}
+
+// exec runs one command in a savepoint, so a failure undoes only its own
+// writes.
+func (b *batchRunner) exec(bc batchCommand) error {
+	sp, err := database.Begin(b.tx)
+	if err != nil {
+		return err
+	}
+	resetFlags(b.tree)
+	b.output.Reset()
+	b.tree.SetArgs(append([]string{bc.Cmd}, bc.Args...))
+	if err := b.tree.Execute(); err != nil {
+		sp.Rollback()
+		return err
+	}
+	return sp.Commit()
+}
+
+// resetFlags returns every flag in the tree to its default, so a reused
+// tree parses each command from a clean slate.
+func resetFlags(cmd *cobra.Command) {
+	reset := func(f *pflag.Flag) {
+		if sv, ok := f.Value.(pflag.SliceValue); ok {
+			var def []string
+			if s := strings.Trim(f.DefValue, "[]"); s != "" {
+				def = strings.Split(s, ",")
+			}
+			sv.Replace(def)
+		} else {
+			f.Value.Set(f.DefValue)
+		}
+		f.Changed = false
+	}
+	cmd.Flags().VisitAll(reset)
+	cmd.PersistentFlags().VisitAll(reset)
+	for _, sub := range cmd.Commands() {
+		resetFlags(sub)
 	}
 }
@@ -21,6 +21,22 @@ type CLI struct {
 	format       string
 	quiet        bool
 	noColor      bool
+
+	stdin  io.Reader
+	stdout io.Writer
+	stderr io.Writer
+}
+
+// Streams are the standard streams a command reads and writes.
+type Streams struct {
+	In  io.Reader
+	Out io.Writer
+	Err io.Writer
+}
+
+// StdStreams returns the process's own standard streams.
+func StdStreams() Streams {
+	return Streams{In: os.Stdin, Out: os.Stdout, Err: os.Stderr}
 }
 
 // printer returns a Printer writing to w using the current CLI settings.
@@ -28,15 +44,27 @@ func (c *CLI) printer(w io.Writer) *Printer {
 	return newPrinter(w, c.format, c.quiet, c.noColor)
 }
 
-// New builds and returns the Cobra root command.
+// New builds and returns the Cobra root command, wired to the process's
+// standard streams.
 func New(ts *task.Store, js *journal.Store, fs *focus.Store, cfg config.Config) *cobra.Command {
+	return newWithStreams(ts, js, fs, cfg, StdStreams())
+}
+
+func newWithStreams(ts *task.Store, js *journal.Store, fs *focus.Store, cfg config.Config, std Streams) *cobra.Command {
 	c := &CLI{
 		taskStore:    ts,
 		journalStore: js,
 		focusStore:   fs,
 		cfg:          cfg,
+		stdin:        std.In,
+		stdout:       std.Out,
+		stderr:       std.Err,
 	}
+	return c.rootCmd()
+}
 
+// rootCmd builds the command tree bound to c.
+func (c *CLI) rootCmd() *cobra.Command {
 	var useJSON bool
 
 	root := &cobra.Command{
@@ -56,7 +84,7 @@ func New(ts *task.Store, js *journal.Store, fs *focus.Store, cfg config.Config)
 			}
 			// Auto-disable color when stdout is not a terminal,
 			// but only if the user hasn't explicitly set --no-color.
-			if !cmd.Flags().Changed("no-color") && !isTTY(os.Stdout) {
+			if !cmd.Flags().Changed("no-color") && !isTTY(c.stdout) {
 				c.noColor = true
 			}
 			return nil
@@ -71,12 +99,15 @@ func New(ts *task.Store, js *journal.Store, fs *focus.Store, cfg config.Config)
 	root.AddCommand(c.addCmd())
 	root.AddCommand(c.doneCmd())
 	root.AddCommand(c.listCmd())
+	root.AddCommand(c.nextCmd())
 	root.AddCommand(c.showCmd())
 	root.AddCommand(c.editCmd())
 	root.AddCommand(c.deleteCmd())
 	root.AddCommand(c.statusCmd())
 	root.AddCommand(c.journalCmd())
 	root.AddCommand(c.exportCmd())
+	root.AddCommand(c.importCmd())
+	root.AddCommand(c.searchCmd())
 	root.AddCommand(c.subtaskCmd())
 	root.AddCommand(c.timelogCmd())
 	root.AddCommand(c.recurCmd())
@@ -84,7 +115,12 @@ func New(ts *task.Store, js *journal.Store, fs *focus.Store, cfg config.Config)
 	root.AddCommand(c.statsCmd())
 	root.AddCommand(c.focusCmd())
 	root.AddCommand(c.noteCmd())
+	root.AddCommand(c.depsCmd())
+	root.AddCommand(c.planCmd())
+	root.AddCommand(c.archiveCmd())
+	root.AddCommand(c.backupCmd())
 	root.AddCommand(c.batchCmd())
+	root.AddCommand(c.serveCmd())
 	root.AddCommand(c.completionCmd())
 	root.AddCommand(c.skillCmd())
 
@@ -93,10 +129,19 @@ func New(ts *task.Store, js *journal.Store, fs *focus.Store, cfg config.Config)
 
 // Run is the CLI entry point.
 func Run(args []string, ts *task.Store, js *journal.Store, fs *focus.Store, cfg config.Config) error {
-	root := New(ts, js, fs, cfg)
+	return RunWithStreams(args, ts, js, fs, cfg, StdStreams())
+}
+
+// RunWithStreams is Run with explicit standard streams, used to serve
+// forwarded calls in daemon mode.
+func RunWithStreams(args []string, ts *task.Store, js *journal.Store, fs *focus.Store, cfg config.Config, std Streams) error {
+	root := newWithStreams(ts, js, fs, cfg, std)
 	if args == nil {
 		args = []string{}
 	}
 	root.SetArgs(args)
+	root.SetIn(std.In)
+	root.SetOut(std.Out)
+	root.SetErr(std.Err)
 	return root.Execute()
 }
@@ -6,10 +6,13 @@ import (
 	"io"
 	"os"
 	"path/filepath"
+	"slices"
 	"strconv"
 	"strings"
 	"testing"
+	"time"
 
+	"github.com/roniel/todo-app/internal/backup"
 	"github.com/roniel/todo-app/internal/config"
 	"github.com/roniel/todo-app/internal/journal"
 	"github.com/roniel/todo-app/internal/task"
@@ -402,6 +405,17 @@ func TestIntegration_Export_ToFile(t *testing.T) {
 	if !strings.Contains(content, "File export") {
 		t.Errorf("file missing task title:\n%s", content)
 	}
+
+	// A failed export leaves the previous file as it was, and no temp file.
+	if err := run(t, []string{"export", "--format", "xml", "--output", tmpFile}, ts, js); err == nil {
+		t.Fatal("export with an invalid format succeeded")
+	}
+	if again, _ := os.ReadFile(tmpFile); string(again) != content {
+		t.Errorf("failed export changed the output file:\n%s", again)
+	}
+	if entries, _ := os.ReadDir(filepath.Dir(tmpFile)); len(entries) != 1 {
+		t.Errorf("failed export left %d files behind, want only the export", len(entries))
+	}
 }
 
 func TestIntegration_Export_WithJournal(t *testing.T) {
@@ -424,6 +438,65 @@ func TestIntegration_Export_WithJournal(t *testing.T) {
 	}
 }
 
+func TestIntegration_Export_NDJSON(t *testing.T) {
+	ts, js := newTestStores(t)
+
+	for _, title := range []string{"First", "Second", "Third"} {
+		run(t, []string{"add", title}, ts, js)
+	}
+	run(t, []string{"journal", "My entry"}, ts, js)
+
+	out := captureStdout(t, func() {
+		if err := run(t, []string{"export", "--format", "ndjson", "--journal"}, ts, js); err != nil {
+			t.Fatalf("export ndjson: %v", err)
+		}
+	})
+
+	var got []string
+	for _, line := range strings.Split(strings.TrimSpace(out), "\n") {
+		var rec struct {
+			Type  string `json:"type"`
+			Title string `json:"title"`
+		}
+		if err := json.Unmarshal([]byte(line), &rec); err != nil {
+			t.Fatalf("invalid line %q: %v", line, err)
+		}
+		got = append(got, rec.Type+":"+rec.Title)
+	}
+	if want := "task:Third,task:Second,task:First,note:"; strings.Join(got, ",") != want {
+		t.Errorf("records = %s, want %s", strings.Join(got, ","), want)
+	}
+}
+
+func TestIntegration_Import_CSV(t *testing.T) {
+	ts, js := newTestStores(t)
+	path := filepath.Join(t.TempDir(), "tasks.csv")
+	in := "id,title,priority,blocked_by\n1,Plan,high,\n2,Build,,1\n"
+	if err := os.WriteFile(path, []byte(in), 0o644); err != nil {
+		t.Fatalf("write csv: %v", err)
+	}
+
+	if err := run(t, []string{"import", path}, ts, js); err != nil {
+		t.Fatalf("import: %v", err)
+	}
+
+	tasks, _ := ts.List()
+	if len(tasks) != 2 {
+		t.Fatalf("got %d tasks, want 2", len(tasks))
+	}
+	byTitle := map[string]task.Task{}
+	for _, tk := range tasks {
+		byTitle[tk.Title] = tk
+	}
+	plan, build := byTitle["Plan"], byTitle["Build"]
+	if plan.Priority != task.High {
+		t.Errorf("Plan priority = %v, want High", plan.Priority)
+	}
+	if !slices.Equal(build.BlockedByIDs, []int64{plan.ID}) {
+		t.Errorf("Build blocked by %v, want [%d]", build.BlockedByIDs, plan.ID)
+	}
+}
+
 // ---------------------------------------------------------------------------
 // show command
 // ---------------------------------------------------------------------------
@@ -828,6 +901,174 @@ func TestIntegration_List_JSON_AllFields(t *testing.T) {
 	}
 }
 
+// ---------------------------------------------------------------------------
+// search command
+// ---------------------------------------------------------------------------
+
+func TestIntegration_Search_JSON(t *testing.T) {
+	ts, js := newTestStores(t)
+
+	for _, args := range [][]string{
+		{"add", "Renew passport", "--desc", "bring photos"},
+		{"add", "Water plants"},
+		{"note", "add", "2", "the passport office closes at noon"},
+		{"journal", "Finally renewed my passport"},
+	} {
+		if err := run(t, args, ts, js); err != nil {
+			t.Fatalf("%v: %v", args, err)
+		}
+	}
+
+	out := captureStdout(t, func() {
+		if err := run(t, []string{"search", "passport", "--json"}, ts, js); err != nil {
+			t.Fatalf("search: %v", err)
+		}
+	})
+
+	var results []searchResult
+	if err := json.Unmarshal([]byte(out), &results); err != nil {
+		t.Fatalf("invalid JSON: %v\n%s", err, out)
+	}
+	kinds := make(map[string]int)
+	for _, r := range results {
+		kinds[r.Kind]++
+		if !strings.Contains(strings.ToLower(r.Snippet), "[passport]") {
+			t.Errorf("snippet %q does not mark the match", r.Snippet)
+		}
+	}
+	if kinds["task"] != 1 || kinds["note"] != 1 || kinds["journal"] != 1 {
+		t.Errorf("expected one task, note, and journal hit, got %v", kinds)
+	}
+}
+
+func TestIntegration_List_SearchUsesIndex(t *testing.T) {
+	ts, js := newTestStores(t)
+	run(t, []string{"add", "Renew passport"}, ts, js)
+	run(t, []string{"add", "Water plants"}, ts, js)
+	run(t, []string{"note", "add", "2", "passport"}, ts, js)
+
+	out := captureStdout(t, func() {
+		if err := run(t, []string{"list", "--search", "PASSP", "--json"}, ts, js); err != nil {
+			t.Fatalf("list: %v", err)
+		}
+	})
+
+	var tasks []map[string]any
+	if err := json.Unmarshal([]byte(out), &tasks); err != nil {
+		t.Fatalf("invalid JSON: %v\n%s", err, out)
+	}
+	// Notes are searchable with `search` but --search keeps matching only
+	// titles and descriptions.
+	if len(tasks) != 1 || tasks[0]["title"] != "Renew passport" {
+		t.Errorf("expected only the passport task, got %v", tasks)
+	}
+}
+
+// ---------------------------------------------------------------------------
+// batch
+// ---------------------------------------------------------------------------
+
+// runBatch runs `batch` with the given flags on input and returns the
+// decoded NDJSON results.
+func runBatch(t *testing.T, ts *task.Store, js *journal.Store, input string, flags ...string) ([]batchResult, error) {
+	t.Helper()
+	var out strings.Builder
+	err := RunWithStreams(append([]string{"batch"}, flags...), ts, js, nil, config.Config{},
+		Streams{In: strings.NewReader(input), Out: &out, Err: io.Discard})
+	var results []batchResult
+	dec := json.NewDecoder(strings.NewReader(out.String()))
+	for dec.More() {
+		var r batchResult
+		if err := dec.Decode(&r); err != nil {
+			t.Fatalf("invalid NDJSON: %v\n%s", err, out.String())
+		}
+		results = append(results, r)
+	}
+	return results, err
+}
+
+func TestIntegration_Batch_StreamsResults(t *testing.T) {
+	ts, js := newTestStores(t)
+	input := `{"cmd":"add","args":["First","--tags","a"]}
+{"cmd":"add","args":["Second","--priority","bogus"]}
+
+{"cmd":"add","args":["Third"]}
+{"cmd":"list","args":["--json"]}
+not json
+`
+	results, err := runBatch(t, ts, js, input)
+	if err != nil {
+		t.Fatalf("batch: %v", err)
+	}
+	if len(results) != 5 {
+		t.Fatalf("expected 5 results, got %d: %+v", len(results), results)
+	}
+	wantOK := []bool{true, false, true, true, false}
+	wantLine := []int{1, 2, 4, 5, 6}
+	for i, r := range results {
+		if r.OK != wantOK[i] || r.Line != wantLine[i] {
+			t.Errorf("result %d = %+v, want ok=%v line=%d", i, r, wantOK[i], wantLine[i])
+		}
+	}
+
+	// Flags from one command must not leak into the next on the reused tree:
+	// only "First" carries the tag.
+	var listed []map[string]any
+	if err := json.Unmarshal([]byte(results[3].Output), &listed); err != nil {
+		t.Fatalf("list output is not JSON: %v\n%s", err, results[3].Output)
+	}
+	if len(listed) != 2 {
+		t.Fatalf("expected 2 tasks listed, got %d", len(listed))
+	}
+	tasks, err := ts.Find(task.Query{Tags: []string{"a"}})
+	if err != nil {
+		t.Fatalf("Find: %v", err)
+	}
+	if len(tasks) != 1 || tasks[0].Title != "First" {
+		t.Errorf("expected only First tagged, got %+v", tasks)
+	}
+}
+
+func TestIntegration_Batch_AtomicRollsBack(t *testing.T) {
+	ts, js := newTestStores(t)
+	input := `{"cmd":"add","args":["Kept?"]}
+{"cmd":"done","args":["999"]}
+{"cmd":"add","args":["Never run"]}
+`
+	results, err := runBatch(t, ts, js, input, "--atomic")
+	if err == nil {
+		t.Fatal("expected an error from a failed atomic batch")
+	}
+	if len(results) != 2 || !results[0].OK || results[1].OK {
+		t.Errorf("unexpected results: %+v", results)
+	}
+	tasks, err := ts.List()
+	if err != nil {
+		t.Fatalf("List: %v", err)
+	}
+	if len(tasks) != 0 {
+		t.Errorf("expected the batch to be rolled back, found %d tasks", len(tasks))
+	}
+}
+
+func TestIntegration_Batch_Chunked(t *testing.T) {
+	ts, js := newTestStores(t)
+	var input strings.Builder
+	for i := range 5 {
+		input.WriteString(`{"cmd":"add","args":["Task ` + strconv.Itoa(i) + `"]}` + "\n")
+	}
+	if _, err := runBatch(t, ts, js, input.String(), "--chunk", "2"); err != nil {
+		t.Fatalf("batch: %v", err)
+	}
+	tasks, err := ts.List()
+	if err != nil {
+		t.Fatalf("List: %v", err)
+	}
+	if len(tasks) != 5 {
+		t.Errorf("expected 5 tasks, got %d", len(tasks))
+	}
+}
+
 // ---------------------------------------------------------------------------
 // dispatch (Run)
 // ---------------------------------------------------------------------------
@@ -850,3 +1091,248 @@ func TestIntegration_Run_Dispatch(t *testing.T) {
 		t.Errorf("Title = %q, want %q", tasks[0].Title, "My task")
 	}
 }
+
+// ---------------------------------------------------------------------------
+// deps / next commands
+// ---------------------------------------------------------------------------
+
+func createTask(t *testing.T, ts *task.Store, title string, p task.Priority) *task.Task {
+	t.Helper()
+	tk := &task.Task{Title: title, Priority: p}
+	if err := ts.Create(tk); err != nil {
+		t.Fatalf("Create: %v", err)
+	}
+	return tk
+}
+
+func TestIntegration_DepsTree(t *testing.T) {
+	ts, js := newTestStores(t)
+	a := createTask(t, ts, "Design schema", task.Medium)
+	b := createTask(t, ts, "Write migration", task.Medium)
+	c := createTask(t, ts, "Ship release", task.Medium)
+	ts.SetBlocker(b.ID, a.ID)
+	ts.SetBlocker(c.ID, b.ID)
+
+	out := captureStdout(t, func() {
+		if err := run(t, []string{"deps", "tree", "--no-color", strconv.FormatInt(c.ID, 10)}, ts, js); err != nil {
+			t.Fatalf("deps tree: %v", err)
+		}
+	})
+	for _, want := range []string{"Ship release", "└── #" + strconv.FormatInt(b.ID, 10), "    └── #" + strconv.FormatInt(a.ID, 10)} {
+		if !strings.Contains(out, want) {
+			t.Errorf("output missing %q:\n%s", want, out)
+		}
+	}
+
+	out = captureStdout(t, func() {
+		if err := run(t, []string{"deps", "tree", "--dependents", "--json", strconv.FormatInt(a.ID, 10)}, ts, js); err != nil {
+			t.Fatalf("deps tree --dependents: %v", err)
+		}
+	})
+	var tree depTree
+	if err := json.Unmarshal([]byte(out), &tree); err != nil {
+		t.Fatalf("invalid JSON: %v\noutput: %s", err, out)
+	}
+	if len(tree.Deps) != 1 || tree.Deps[0].ID != b.ID || len(tree.Deps[0].Deps) != 1 || tree.Deps[0].Deps[0].ID != c.ID {
+		t.Errorf("dependents tree = %+v", tree)
+	}
+}
+
+func TestIntegration_Next(t *testing.T) {
+	ts, js := newTestStores(t)
+	a := createTask(t, ts, "Ready now", task.Low)
+	b := createTask(t, ts, "Waiting", task.Urgent)
+	ts.SetBlocker(b.ID, a.ID)
+
+	out := captureStdout(t, func() {
+		if err := run(t, []string{"next", "--json"}, ts, js); err != nil {
+			t.Fatalf("next: %v", err)
+		}
+	})
+	if !strings.Contains(out, "Ready now") || strings.Contains(out, "Waiting") {
+		t.Errorf("next should list only the unblocked task:\n%s", out)
+	}
+}
+
+func TestIntegration_Plan_JSON(t *testing.T) {
+	ts, js := newTestStores(t)
+	run(t, []string{"add", "--meta", "estimate=2h", "Design"}, ts, js)
+	run(t, []string{"add", "--meta", "estimate=3h", "Build"}, ts, js)
+	run(t, []string{"add", "--meta", "estimate=1h", "Docs"}, ts, js)
+	tasks, _ := ts.List()
+	ids := map[string]int64{}
+	for _, tk := range tasks {
+		ids[tk.Title] = tk.ID
+	}
+	ts.SetBlocker(ids["Build"], ids["Design"])
+
+	out := captureStdout(t, func() {
+		if err := run(t, []string{"plan", "--json"}, ts, js); err != nil {
+			t.Fatalf("plan: %v", err)
+		}
+	})
+	var p jsonPlan
+	if err := json.Unmarshal([]byte(out), &p); err != nil {
+		t.Fatalf("invalid JSON: %v\noutput: %s", err, out)
+	}
+	if want := []int64{ids["Design"], ids["Build"]}; !slices.Equal(p.CriticalPath, want) {
+		t.Errorf("critical_path = %v, want %v", p.CriticalPath, want)
+	}
+	if len(p.Tasks) != 3 {
+		t.Fatalf("got %d tasks, want 3", len(p.Tasks))
+	}
+	for _, e := range p.Tasks {
+		if e.ID == ids["Docs"] && (e.Critical || e.SlackMinutes != 4*60) {
+			t.Errorf("Docs = %+v, want 4h of slack", e)
+		}
+	}
+}
+
+// ---------------------------------------------------------------------------
+// archive
+// ---------------------------------------------------------------------------
+
+func TestIntegration_Archive_IncludeArchived(t *testing.T) {
+	ts, js := newTestStores(t)
+	old := createTask(t, ts, "Filed taxes", task.Medium)
+	createTask(t, ts, "Still open", task.Medium)
+	old.Status = task.Done
+	if err := ts.Update(old); err != nil {
+		t.Fatalf("update: %v", err)
+	}
+
+	// Nothing is old enough yet.
+	if err := run(t, []string{"archive", "--days", "1"}, ts, js); err != nil {
+		t.Fatalf("archive: %v", err)
+	}
+	if n, _ := ts.CountArchived(); n != 0 {
+		t.Fatalf("archived %d fresh tasks", n)
+	}
+	if _, err := ts.ArchiveDone(time.Now().Add(time.Minute)); err != nil {
+		t.Fatalf("ArchiveDone: %v", err)
+	}
+
+	out := captureStdout(t, func() {
+		if err := run(t, []string{"list", "--json"}, ts, js); err != nil {
+			t.Fatalf("list: %v", err)
+		}
+	})
+	if strings.Contains(out, "Filed taxes") {
+		t.Errorf("archived task listed without --include-archived:\n%s", out)
+	}
+	out = captureStdout(t, func() {
+		if err := run(t, []string{"list", "--json", "--include-archived"}, ts, js); err != nil {
+			t.Fatalf("list --include-archived: %v", err)
+		}
+	})
+	if !strings.Contains(out, "Filed taxes") || !strings.Contains(out, "Still open") {
+		t.Errorf("--include-archived should list both tasks:\n%s", out)
+	}
+	out = captureStdout(t, func() {
+		if err := run(t, []string{"list", "--json", "--include-archived", "--status", "pending"}, ts, js); err != nil {
+			t.Fatalf("list: %v", err)
+		}
+	})
+	if strings.Contains(out, "Filed taxes") {
+		t.Errorf("status filter should exclude archived tasks:\n%s", out)
+	}
+	out = captureStdout(t, func() {
+		if err := run(t, []string{"list", "--json", "--include-archived", "--search", "taxes", "--limit", "1"}, ts, js); err != nil {
+			t.Fatalf("list: %v", err)
+		}
+	})
+	if !strings.Contains(out, "Filed taxes") || strings.Contains(out, "Still open") {
+		t.Errorf("filters and --limit should apply to archived tasks:\n%s", out)
+	}
+
+	out = captureStdout(t, func() {
+		if err := run(t, []string{"show", strconv.FormatInt(old.ID, 10)}, ts, js); err != nil {
+			t.Fatalf("show archived: %v", err)
+		}
+	})
+	if !strings.Contains(out, "Filed taxes") {
+		t.Errorf("show should fall back to the archive:\n%s", out)
+	}
+
+	for _, format := range []string{"ndjson", "md"} {
+		out = captureStdout(t, func() {
+			if err := run(t, []string{"export", "--format", format}, ts, js); err != nil {
+				t.Fatalf("export %s: %v", format, err)
+			}
+		})
+		if !strings.Contains(out, "Filed taxes") || !strings.Contains(out, "Still open") {
+			t.Errorf("export --format %s should include archived tasks:\n%s", format, out)
+		}
+	}
+
+	out = captureStdout(t, func() {
+		if err := run(t, []string{"stats", "--json"}, ts, js); err != nil {
+			t.Fatalf("stats: %v", err)
+		}
+	})
+	var stats struct {
+		Tasks struct {
+			Total int `json:"total"`
+			Done  int `json:"done"`
+		} `json:"tasks"`
+	}
+	if err := json.Unmarshal([]byte(out), &stats); err != nil {
+		t.Fatalf("stats output %q: %v", out, err)
+	}
+	if stats.Tasks.Total != 2 || stats.Tasks.Done != 1 {
+		t.Errorf("stats total, done = %d, %d; want 2, 1 counting the archive", stats.Tasks.Total, stats.Tasks.Done)
+	}
+}
+
+// ---------------------------------------------------------------------------
+// backup
+// ---------------------------------------------------------------------------
+
+func TestIntegration_BackupListRestore(t *testing.T) {
+	ts, js := newTestStores(t)
+	dir := t.TempDir()
+	src := filepath.Join(dir, "src.db")
+	db, err := sql.Open("sqlite", src)
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	if _, err := db.Exec(`CREATE TABLE t (v TEXT); INSERT INTO t VALUES ('kept')`); err != nil {
+		t.Fatalf("seed: %v", err)
+	}
+	db.Close()
+	store := filepath.Join(dir, "backups")
+	repo, err := backup.Open(store)
+	if err != nil {
+		t.Fatalf("backup.Open: %v", err)
+	}
+	if _, err := repo.Save(time.Date(2026, 3, 1, 12, 0, 0, 0, time.Local), src); err != nil {
+		t.Fatalf("Save: %v", err)
+	}
+
+	out := captureStdout(t, func() {
+		if err := run(t, []string{"backup", "list", "--dir", store}, ts, js); err != nil {
+			t.Fatalf("backup list: %v", err)
+		}
+	})
+	if !strings.Contains(out, "2026-03-01") {
+		t.Errorf("backup list should show the snapshot:\n%s", out)
+	}
+
+	dest := filepath.Join(dir, "restored.db")
+	if err := run(t, []string{"backup", "restore", "2026-03-01", "--dir", store, "--output", dest}, ts, js); err != nil {
+		t.Fatalf("backup restore: %v", err)
+	}
+	rdb, err := sql.Open("sqlite", dest)
+	if err != nil {
+		t.Fatalf("open restored: %v", err)
+	}
+	defer rdb.Close()
+	var v string
+	if err := rdb.QueryRow(`SELECT v FROM t`).Scan(&v); err != nil || v != "kept" {
+		t.Errorf("restored database has %q, %v", v, err)
+	}
+
+	if err := run(t, []string{"backup", "restore", "2026-02-30", "--dir", store, "--output", dest}, ts, js); err == nil {
+		t.Error("expected an invalid date to be rejected")
+	}
+}
@@ -106,3 +106,17 @@ func TestFilterTasks_Active(t *testing.T) {
 		t.Errorf("expected nil for nil input, got %v", tasks)
 	}
 }
+
+func TestCommandName(t *testing.T) {
+	cases := map[string][]string{
+		"list":  {"list", "--json"},
+		"add":   {"--json", "add", "x"},
+		"batch": {"--format", "json", "batch"},
+		"":      {"--quiet"},
+	}
+	for want, args := range cases {
+		if got := commandName(args); got != want {
+			t.Errorf("commandName(%v) = %q, want %q", args, got, want)
+		}
+	}
+}
@@ -2,7 +2,6 @@ package cli
 
 import (
 	"fmt"
-	"os"
 
 	"github.com/spf13/cobra"
 )
@@ -37,13 +36,13 @@ To load completions:
 			root := cmd.Root()
 			switch args[0] {
 			case "bash":
-				return root.GenBashCompletion(os.Stdout)
+				return root.GenBashCompletion(c.stdout)
 			case "zsh":
-				return root.GenZshCompletion(os.Stdout)
+				return root.GenZshCompletion(c.stdout)
 			case "fish":
-				return root.GenFishCompletion(os.Stdout, true)
+				return root.GenFishCompletion(c.stdout, true)
 			case "powershell":
-				return root.GenPowerShellCompletion(os.Stdout)
+				return root.GenPowerShellCompletion(c.stdout)
 			default:
 				return fmt.Errorf("unknown shell %q: supported shells are bash, zsh, fish, powershell", args[0])
 			}
@@ -2,7 +2,6 @@ package cli
 
 import (
 	"fmt"
-	"os"
 	"strconv"
 	"strings"
 
@@ -71,6 +70,39 @@ var configKeys = map[string]configKey{
 			return nil
 		},
 	},
+	"archive_after_days": {
+		description: "Days a done task stays in the working set before archiving (-1 = never)",
+		get:         func(c config.Config) string { return strconv.Itoa(c.ArchiveAfterDays) },
+		set: func(c *config.Config, val string) error {
+			if val == "-1" {
+				c.ArchiveAfterDays = -1
+				return nil
+			}
+			v, err := parseMinutes(val, 1, 36500)
+			if err != nil {
+				return fmt.Errorf("archive_after_days: %w", err)
+			}
+			c.ArchiveAfterDays = v
+			return nil
+		},
+	},
+	"wal_archive": {
+		description: "Archive WAL frames for point-in-time restore (true/false)",
+		get: func(c config.Config) string {
+			if c.WALArchive {
+				return "true"
+			}
+			return "false"
+		},
+		set: func(c *config.Config, val string) error {
+			b, err := parseBool(val)
+			if err != nil {
+				return fmt.Errorf("wal_archive: %w", err)
+			}
+			c.WALArchive = b
+			return nil
+		},
+	},
 	"focus.work_duration_min": {
 		description: "Work session duration in minutes (1–120)",
 		get:         func(c config.Config) string { return strconv.Itoa(c.Focus.WorkDuration) },
@@ -173,6 +205,8 @@ var orderedConfigKeys = []string{
 	"date_format",
 	"time_format",
 	"datetime_format",
+	"archive_after_days",
+	"wal_archive",
 	"focus.work_duration_min",
 	"focus.short_break_duration_min",
 	"focus.long_break_duration_min",
@@ -232,7 +266,7 @@ func (c *CLI) configListCmd() *cobra.Command {
 				return fmt.Errorf("load config: %w", err)
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			switch strings.ToLower(c.format) {
 			case "json":
 				return p.JSON(cfg)
@@ -266,7 +300,7 @@ func (c *CLI) configGetCmd() *cobra.Command {
 				return fmt.Errorf("load config: %w", err)
 			}
 
-			fmt.Fprintln(os.Stdout, kd.get(cfg))
+			fmt.Fprintln(c.stdout, kd.get(cfg))
 			return nil
 		},
 	}
@@ -297,7 +331,7 @@ func (c *CLI) configSetCmd() *cobra.Command {
 				return fmt.Errorf("save config: %w", err)
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			stored := kd.get(cfg)
 			if stored != val {
 				p.Success("Set %s = %s (resolved: %s)", key, val, stored)
@@ -317,12 +351,12 @@ func (c *CLI) configResetCmd() *cobra.Command {
 		Short: "Reset configuration to defaults",
 		Args:  cobra.NoArgs,
 		RunE: func(cmd *cobra.Command, args []string) error {
-			ok, err := Confirm("Reset all configuration to defaults?", force)
+			ok, err := c.confirm("Reset all configuration to defaults?", force)
 			if err != nil {
 				return err
 			}
 			if !ok {
-				fmt.Fprintln(os.Stderr, "Cancelled.")
+				fmt.Fprintln(c.stderr, "Cancelled.")
 				return nil
 			}
 
@@ -330,7 +364,7 @@ func (c *CLI) configResetCmd() *cobra.Command {
 				return fmt.Errorf("save config: %w", err)
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			p.Success("Configuration reset to defaults")
 			return nil
 		},
@@ -0,0 +1,151 @@
+package cli
+
+import (
+	"fmt"
+	"io"
+	"strconv"
+	"strings"
+
+	"github.com/roniel/todo-app/internal/task"
+	"github.com/spf13/cobra"
+)
+
+func (c *CLI) depsCmd() *cobra.Command {
+	cmd := &cobra.Command{
+		Use:   "deps",
+		Short: "Inspect task dependencies",
+		RunE: func(cmd *cobra.Command, args []string) error {
+			return cmd.Help()
+		},
+	}
+
+	cmd.AddCommand(c.depsTreeCmd())
+
+	return cmd
+}
+
+func (c *CLI) depsTreeCmd() *cobra.Command {
+	var dependents bool
+
+	cmd := &cobra.Command{
+		Use:   "tree <task-id>",
+		Short: "Show everything a task waits on, transitively",
+		Args:  cobra.ExactArgs(1),
+		RunE: func(cmd *cobra.Command, args []string) error {
+			id, err := strconv.ParseInt(args[0], 10, 64)
+			if err != nil {
+				return fmt.Errorf("invalid task ID %q: %w", args[0], err)
+			}
+			root, err := c.getTaskOrNotFound(id)
+			if err != nil {
+				return err
+			}
+			dir := task.Upstream
+			if dependents {
+				dir = task.Downstream
+			}
+			links, err := c.taskStore.DepLinks(id, dir)
+			if err != nil {
+				return err
+			}
+			tree := buildDepTree(task.DepLink{To: root.ID, Title: root.Title, Status: root.Status}, links)
+
+			switch strings.ToLower(c.format) {
+			case "json":
+				return c.printer(c.stdout).JSON(tree)
+			default:
+				p := c.printer(c.stdout)
+				fmt.Fprintf(c.stdout, "#%d %s  %s\n", tree.ID, tree.Title, formatStatus(p, tree.status))
+				printDepTree(c.stdout, p, tree.Deps, "")
+				return nil
+			}
+		},
+	}
+
+	cmd.Flags().BoolVar(&dependents, "dependents", false, "Show the tasks waiting on this one instead of its blockers")
+
+	return cmd
+}
+
+// depTree is a dependency walk laid out as a tree. A task reached again by
+// another path is listed with Repeat set and its subtree omitted, so the
+// output stays linear in the number of edges.
+type depTree struct {
+	ID     int64      `json:"id"`
+	Title  string     `json:"title"`
+	Status string     `json:"status"`
+	Repeat bool       `json:"repeat,omitempty"`
+	Deps   []*depTree `json:"deps,omitempty"`
+
+	status task.Status
+}
+
+func buildDepTree(root task.DepLink, links []task.DepLink) *depTree {
+	next := make(map[int64][]task.DepLink)
+	for _, l := range links {
+		next[l.From] = append(next[l.From], l)
+	}
+	seen := make(map[int64]bool)
+	var build func(l task.DepLink) *depTree
+	build = func(l task.DepLink) *depTree {
+		n := &depTree{ID: l.To, Title: l.Title, Status: l.Status.String(), status: l.Status}
+		if seen[l.To] {
+			n.Repeat = true
+			return n
+		}
+		seen[l.To] = true
+		for _, child := range next[l.To] {
+			n.Deps = append(n.Deps, build(child))
+		}
+		return n
+	}
+	return build(root)
+}
+
+func printDepTree(w io.Writer, p *Printer, nodes []*depTree, indent string) {
+	for i, n := range nodes {
+		branch, nextIndent := "├── ", indent+"│   "
+		if i == len(nodes)-1 {
+			branch, nextIndent = "└── ", indent+"    "
+		}
+		line := fmt.Sprintf("%s%s#%d %s  %s", indent, branch, n.ID, n.Title, formatStatus(p, n.status))
+		if n.Repeat {
+			line += p.Dim("  (see above)")
+		}
+		fmt.Fprintln(w, line)
+		printDepTree(w, p, n.Deps, nextIndent)
+	}
+}
+
+func (c *CLI) nextCmd() *cobra.Command {
+	var tags []string
+	var limit int
+
+	cmd := &cobra.Command{
+		Use:   "next",
+		Short: "List tasks ready to start: not done and not waiting on unfinished tasks",
+		Args:  cobra.NoArgs,
+		RunE: func(cmd *cobra.Command, args []string) error {
+			asJSON := strings.EqualFold(c.format, "json")
+			tasks, err := c.taskStore.Find(task.Query{
+				Unblocked:  true,
+				Tags:       tags,
+				Sort:       task.SortPriority,
+				Limit:      limit,
+				NoMetadata: !asJSON,
+			})
+			if err != nil {
+				return fmt.Errorf("next tasks: %w", err)
+			}
+			if asJSON {
+				return printTasksJSON(c.stdout, tasks)
+			}
+			return c.printTasksTable(c.printer(c.stdout), tasks)
+		},
+	}
+
+	cmd.Flags().StringSliceVar(&tags, "tag", nil, "Only tasks with one of these tags (repeatable)")
+	cmd.Flags().IntVar(&limit, "limit", 10, "Maximum number of tasks to show (0 = unlimited)")
+
+	return cmd
+}
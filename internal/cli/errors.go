@@ -3,6 +3,7 @@ package cli
 import (
 	"errors"
 	"fmt"
+	"io"
 )
 
 // NotFoundError indicates that a requested resource was not found.
@@ -20,3 +21,16 @@ func IsNotFound(err error) bool {
 	var nfe *NotFoundError
 	return errors.As(err, &nfe)
 }
+
+// ReportError prints err to w the way the todo binary does and returns the
+// process exit code: 0 for nil, 3 for not found, 1 otherwise.
+func ReportError(w io.Writer, err error) int {
+	if err == nil {
+		return 0
+	}
+	fmt.Fprintf(w, "Error: %v\n", err)
+	if IsNotFound(err) {
+		return 3
+	}
+	return 1
+}
@@ -5,9 +5,10 @@ import (
 	"fmt"
 	"io"
 	"os"
+	"path/filepath"
 
 	"github.com/roniel/todo-app/internal/export"
-	"github.com/roniel/todo-app/internal/journal"
+	"github.com/roniel/todo-app/internal/task"
 	"github.com/spf13/cobra"
 )
 
@@ -18,39 +19,63 @@ func (c *CLI) exportCmd() *cobra.Command {
 	cmd := &cobra.Command{
 		Use:   "export [flags]",
 		Short: "Export tasks and optionally journal to a file or stdout",
-		Args:  cobra.NoArgs,
+		Long: `Export tasks, and the journal with --journal, as Markdown, JSON or NDJSON.
+JSON and NDJSON are written one record at a time straight from the
+database, so memory use stays flat however large the export is. NDJSON has
+one object per line with a "type" of "task" or "note". Archived tasks
+are exported after the others, so an import restores them too. The export
+is one snapshot of the database, and --output is replaced only once it is
+complete.`,
+		Args: cobra.NoArgs,
 		RunE: func(cmd *cobra.Command, args []string) error {
-			tasks, err := c.taskStore.List()
-			if err != nil {
-				return fmt.Errorf("list tasks: %w", err)
-			}
-
-			var notes []journal.Note
-			if includeJournal {
-				notes, err = c.journalStore.ListNotes(false)
-				if err != nil {
-					return fmt.Errorf("list journal notes: %w", err)
-				}
-			}
-
-			var w io.Writer = os.Stdout
+			var w io.Writer = c.stdout
 			var bw *bufio.Writer
+			var tmp *os.File
 			if output != "" {
-				f, err := os.Create(output)
+				// Written beside output and renamed over it at the end, so
+				// a failed export never leaves a truncated file.
+				var err error
+				tmp, err = os.CreateTemp(filepath.Dir(output), "."+filepath.Base(output)+".*.tmp")
 				if err != nil {
 					return fmt.Errorf("create output file: %w", err)
 				}
-				defer f.Close()
-				bw = bufio.NewWriter(f)
+				defer func() {
+					if tmp != nil {
+						tmp.Close()
+						os.Remove(tmp.Name())
+					}
+				}()
+				bw = bufio.NewWriter(tmp)
 				w = bw
 			}
 
+			// Tasks and journal are read from one snapshot.
+			tx, err := c.taskStore.BeginRead()
+			if err != nil {
+				return fmt.Errorf("begin export: %w", err)
+			}
+			defer tx.Rollback()
+			ts, js := c.taskStore.WithTx(tx), c.journalStore.WithTx(tx)
+
 			switch format {
 			case "md", "markdown":
+				tasks, err := ts.List()
+				if err != nil {
+					return fmt.Errorf("list tasks: %w", err)
+				}
+				archived, err := ts.ListArchived(nil, 0)
+				if err != nil {
+					return err
+				}
+				tasks = append(tasks, archived...)
 				if err := export.WriteTasks(w, tasks); err != nil {
 					return fmt.Errorf("write tasks: %w", err)
 				}
 				if includeJournal {
+					notes, err := js.ListNotes(false)
+					if err != nil {
+						return fmt.Errorf("list journal notes: %w", err)
+					}
 					if _, err := fmt.Fprintln(w); err != nil {
 						return err
 					}
@@ -58,31 +83,53 @@ func (c *CLI) exportCmd() *cobra.Command {
 						return fmt.Errorf("write journal: %w", err)
 					}
 				}
-			case "json":
-				if !includeJournal {
-					notes = nil
+			case "json", "ndjson":
+				s := export.NewJSONStream(w)
+				if format == "ndjson" {
+					s = export.NewNDJSONStream(w)
+				}
+				if err := ts.ForEach(task.Query{}, 0, s.WriteTask); err != nil {
+					return fmt.Errorf("write %s: %w", format, err)
+				}
+				if err := ts.ForEachArchived(0, s.WriteTask); err != nil {
+					return fmt.Errorf("write %s: %w", format, err)
 				}
-				if err := export.WriteJSON(w, tasks, notes); err != nil {
-					return fmt.Errorf("write json: %w", err)
+				if includeJournal {
+					if err := js.ForEachNote(false, 0, s.WriteNote); err != nil {
+						return fmt.Errorf("write %s: %w", format, err)
+					}
+				}
+				if err := s.Close(); err != nil {
+					return fmt.Errorf("write %s: %w", format, err)
 				}
 			default:
-				return fmt.Errorf("invalid format %q: must be md or json", format)
+				return fmt.Errorf("invalid format %q: must be md, json or ndjson", format)
 			}
 
 			if bw != nil {
 				if err := bw.Flush(); err != nil {
 					return fmt.Errorf("flush output: %w", err)
 				}
+				if err := tmp.Chmod(0o644); err != nil {
+					return fmt.Errorf("write output file: %w", err)
+				}
+				if err := tmp.Close(); err != nil {
+					return fmt.Errorf("write output file: %w", err)
+				}
+				if err := os.Rename(tmp.Name(), output); err != nil {
+					return fmt.Errorf("write output file: %w", err)
+				}
+				tmp = nil
 			}
 
 			if output != "" {
-				fmt.Fprintf(os.Stderr, "Exported to %s\n", output)
+				fmt.Fprintf(c.stderr, "Exported to %s\n", output)
 			}
 			return nil
 		},
 	}
 
-	cmd.Flags().StringVar(&format, "format", "md", "Export format: md, json")
+	cmd.Flags().StringVar(&format, "format", "md", "Export format: md, json, ndjson")
 	cmd.Flags().StringVar(&output, "output", "", "Output file path (default: stdout)")
 	cmd.Flags().BoolVar(&includeJournal, "journal", false, "Include journal entries")
 
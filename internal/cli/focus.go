@@ -3,7 +3,6 @@ package cli
 import (
 	"encoding/json"
 	"fmt"
-	"os"
 	"sort"
 	"strings"
 	"time"
@@ -66,9 +65,9 @@ func (c *CLI) focusStartCmd() *cobra.Command {
 				return fmt.Errorf("complete session: %w", err)
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			if c.quiet {
-				fmt.Fprintf(os.Stdout, "%d\n", sess.ID)
+				fmt.Fprintf(c.stdout, "%d\n", sess.ID)
 			} else {
 				p.Success("Recorded focus session #%d (%s)", sess.ID, task.FormatDuration(dur))
 			}
@@ -106,11 +105,11 @@ func (c *CLI) focusStatusCmd() *cobra.Command {
 					"streak_days": streak,
 					"date":        time.Now().Format(time.DateOnly),
 				}
-				enc := json.NewEncoder(os.Stdout)
+				enc := json.NewEncoder(c.stdout)
 				enc.SetIndent("", "  ")
 				return enc.Encode(out)
 			default:
-				p := c.printer(os.Stdout)
+				p := c.printer(c.stdout)
 				p.Table(
 					[]string{"METRIC", "VALUE"},
 					[][]string{
@@ -149,7 +148,7 @@ func (c *CLI) focusStatsCmd() *cobra.Command {
 
 			switch strings.ToLower(c.format) {
 			case "json":
-				enc := json.NewEncoder(os.Stdout)
+				enc := json.NewEncoder(c.stdout)
 				enc.SetIndent("", "  ")
 				return enc.Encode(byDay)
 			default:
@@ -158,11 +157,11 @@ func (c *CLI) focusStatsCmd() *cobra.Command {
 					rows = append(rows, []string{d, fmt.Sprintf("%d", byDay[d])})
 				}
 				if len(rows) == 0 {
-					p := c.printer(os.Stdout)
+					p := c.printer(c.stdout)
 					fmt.Fprintln(p.w, p.Dim(fmt.Sprintf("(no focus sessions in the last %d days)", days)))
 					return nil
 				}
-				p := c.printer(os.Stdout)
+				p := c.printer(c.stdout)
 				p.Table([]string{"DATE", "SESSIONS"}, rows)
 				return nil
 			}
@@ -0,0 +1,78 @@
+package cli
+
+import (
+	"fmt"
+	"io"
+	"os"
+
+	"github.com/roniel/todo-app/internal/importer"
+	"github.com/spf13/cobra"
+)
+
+func (c *CLI) importCmd() *cobra.Command {
+	var format string
+	var batchSize int
+
+	cmd := &cobra.Command{
+		Use:   "import <file|->",
+		Short: "Import tasks and journal entries from a JSON, NDJSON or CSV file",
+		Long: `Import the files written by ` + "`export --format json|ndjson`" + `, or a CSV file
+whose header names its columns: title (required), id, description, status,
+priority, due_date, created_at, tags and blocked_by. Tags and blocked_by are
+lists separated by commas or semicolons.
+
+Tasks always get new IDs; blocked_by refers to the id values in the file and
+is remapped. Journal entries already present are skipped. Everything is
+written in one transaction, so a failed import leaves the database as it
+was. Use - to read standard input.`,
+		Args: cobra.ExactArgs(1),
+		RunE: func(cmd *cobra.Command, args []string) error {
+			opts := importer.Options{BatchSize: batchSize}
+			if format != "" {
+				f, err := importer.ParseFormat(format)
+				if err != nil {
+					return err
+				}
+				opts.Format = f
+			} else {
+				opts.Format = importer.FormatFromPath(args[0])
+			}
+
+			var r io.Reader = c.stdin
+			if args[0] != "-" {
+				f, err := os.Open(args[0])
+				if err != nil {
+					return fmt.Errorf("open import file: %w", err)
+				}
+				defer f.Close()
+				r = f
+			}
+
+			// Progress goes to a terminal only, redrawn in place.
+			if isTTY(c.stderr) && !c.quiet {
+				opts.Progress = func(s importer.Stats) {
+					fmt.Fprintf(c.stderr, "\rImported %d tasks...", s.Tasks)
+				}
+			}
+			stats, err := importer.Import(r, c.taskStore, c.journalStore, opts)
+			if opts.Progress != nil {
+				fmt.Fprintln(c.stderr)
+			}
+			if err != nil {
+				return fmt.Errorf("import %s: %w", args[0], err)
+			}
+
+			p := c.printer(c.stdout)
+			p.Success("Imported %d tasks, %d journal entries and %d dependencies", stats.Tasks, stats.Entries, stats.Deps)
+			if stats.SkippedDeps > 0 {
+				fmt.Fprintf(c.stderr, "Warning: skipped %d dependencies on tasks not in the file\n", stats.SkippedDeps)
+			}
+			return nil
+		},
+	}
+
+	cmd.Flags().StringVar(&format, "format", "", "Input format: json, ndjson, csv (default: from the file extension, else json)")
+	cmd.Flags().IntVar(&batchSize, "batch-size", importer.DefaultBatchSize, "Tasks inserted per statement batch")
+
+	return cmd
+}
@@ -4,7 +4,6 @@ import (
 	"encoding/json"
 	"fmt"
 	"io"
-	"os"
 	"strconv"
 	"strings"
 	"time"
@@ -62,7 +61,7 @@ note (backward-compatible shorthand for 'journal add').`,
 			if err := c.journalStore.AddEntry(note.ID, body); err != nil {
 				return fmt.Errorf("add entry: %w", err)
 			}
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			p.Success("Added journal entry to %s", c.cfg.FormatDate(note.Date))
 			return nil
 		},
@@ -115,7 +114,7 @@ func (c *CLI) journalAddCmd() *cobra.Command {
 				return fmt.Errorf("add entry: %w", err)
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			p.Success("Added journal entry to %s", c.cfg.FormatDate(noteDate))
 			return nil
 		},
@@ -157,9 +156,9 @@ func (c *CLI) journalListCmd() *cobra.Command {
 
 			switch strings.ToLower(c.format) {
 			case "json":
-				return printNotesJSON(os.Stdout, notes)
+				return printNotesJSON(c.stdout, notes)
 			default:
-				return c.printNotesTable(c.printer(os.Stdout), notes)
+				return c.printNotesTable(c.printer(c.stdout), notes)
 			}
 		},
 	}
@@ -203,9 +202,9 @@ func (c *CLI) journalShowCmd() *cobra.Command {
 
 			switch strings.ToLower(c.format) {
 			case "json":
-				return printEntriesJSON(os.Stdout, n.Date, entries)
+				return printEntriesJSON(c.stdout, n.Date, entries)
 			default:
-				return c.printEntriesTable(c.printer(os.Stdout), n.Date, entries)
+				return c.printEntriesTable(c.printer(c.stdout), n.Date, entries)
 			}
 		},
 	}
@@ -225,7 +224,7 @@ func (c *CLI) journalEditCmd() *cobra.Command {
 			if err := c.journalStore.UpdateEntry(id, body); err != nil {
 				return fmt.Errorf("update entry: %w", err)
 			}
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			p.Success("Updated entry #%d", id)
 			return nil
 		},
@@ -246,12 +245,12 @@ func (c *CLI) journalDeleteCmd() *cobra.Command {
 				return fmt.Errorf("invalid entry ID %q: expected a positive integer", args[0])
 			}
 
-			ok, err := Confirm(fmt.Sprintf("Delete entry #%d?", id), force)
+			ok, err := c.confirm(fmt.Sprintf("Delete entry #%d?", id), force)
 			if err != nil {
 				return err
 			}
 			if !ok {
-				fmt.Fprintln(os.Stderr, "Cancelled.")
+				fmt.Fprintln(c.stderr, "Cancelled.")
 				return nil
 			}
 
@@ -259,7 +258,7 @@ func (c *CLI) journalDeleteCmd() *cobra.Command {
 				return fmt.Errorf("delete entry: %w", err)
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			p.Success("Deleted entry #%d", id)
 			return nil
 		},
@@ -295,7 +294,7 @@ func (c *CLI) journalHideCmd() *cobra.Command {
 				return fmt.Errorf("toggle hidden: %w", err)
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			p.Success("Toggled hidden flag for note %s", dateStr)
 			return nil
 		},
@@ -2,7 +2,6 @@ package cli
 
 import (
 	"fmt"
-	"os"
 	"strconv"
 	"strings"
 	"time"
@@ -45,7 +44,7 @@ func (c *CLI) noteAddCmd() *cobra.Command {
 			if err := c.taskStore.AddNote(taskID, body); err != nil {
 				return fmt.Errorf("add note: %w", err)
 			}
-			c.printer(os.Stdout).Success("Added note to task #%d", taskID)
+			c.printer(c.stdout).Success("Added note to task #%d", taskID)
 			return nil
 		},
 	}
@@ -68,7 +67,7 @@ func (c *CLI) noteListCmd() *cobra.Command {
 			if err != nil {
 				return fmt.Errorf("list notes: %w", err)
 			}
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			if strings.ToLower(c.format) == "json" {
 				type jsonN struct {
 					ID        int64  `json:"id"`
@@ -124,7 +123,7 @@ func (c *CLI) noteEditCmd() *cobra.Command {
 			if err := c.taskStore.UpdateNote(noteID, newBody); err != nil {
 				return fmt.Errorf("update note: %w", err)
 			}
-			c.printer(os.Stdout).Success("Updated note #%d", noteID)
+			c.printer(c.stdout).Success("Updated note #%d", noteID)
 			return nil
 		},
 	}
@@ -166,18 +165,18 @@ func (c *CLI) noteDeleteCmd() *cobra.Command {
 			if len(display) > 50 {
 				display = display[:50] + "..."
 			}
-			ok, err := Confirm(fmt.Sprintf("Delete note #%d %q?", noteID, display), force)
+			ok, err := c.confirm(fmt.Sprintf("Delete note #%d %q?", noteID, display), force)
 			if err != nil {
 				return err
 			}
 			if !ok {
-				fmt.Fprintln(os.Stderr, "Cancelled.")
+				fmt.Fprintln(c.stderr, "Cancelled.")
 				return nil
 			}
 			if err := c.taskStore.DeleteNote(noteID); err != nil {
 				return fmt.Errorf("delete note: %w", err)
 			}
-			c.printer(os.Stdout).Success("Deleted note #%d", noteID)
+			c.printer(c.stdout).Success("Deleted note #%d", noteID)
 			return nil
 		},
 	}
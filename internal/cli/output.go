@@ -27,8 +27,13 @@ func newPrinter(w io.Writer, format string, quiet, noColor bool) *Printer {
 	return &Printer{format: format, quiet: quiet, noColor: noColor, w: w}
 }
 
-// isTTY reports whether the given file is connected to a terminal.
-func isTTY(f *os.File) bool {
+// isTTY reports whether v is a file connected to a terminal. Other readers
+// and writers, such as the buffers of a forwarded daemon call, never are.
+func isTTY(v any) bool {
+	f, ok := v.(*os.File)
+	if !ok {
+		return false
+	}
 	return isatty.IsTerminal(f.Fd()) || isatty.IsCygwinTerminal(f.Fd())
 }
 
@@ -0,0 +1,149 @@
+package cli
+
+import (
+	"strconv"
+	"strings"
+	"sync"
+	"time"
+
+	"github.com/roniel/todo-app/internal/task"
+	"github.com/roniel/todo-app/internal/task/plan"
+	"github.com/roniel/todo-app/internal/ui"
+	"github.com/spf13/cobra"
+)
+
+// planCaches holds one plan.Cache per task store, so calls served by a
+// daemon reuse the last plan until the change log moves on.
+var planCaches sync.Map // *task.Store -> *plan.Cache
+
+func (c *CLI) planCache() *plan.Cache {
+	if pc, ok := planCaches.Load(c.taskStore); ok {
+		return pc.(*plan.Cache)
+	}
+	pc, _ := planCaches.LoadOrStore(c.taskStore, plan.NewCache(c.taskStore))
+	return pc.(*plan.Cache)
+}
+
+func (c *CLI) planCmd() *cobra.Command {
+	var critical bool
+
+	cmd := &cobra.Command{
+		Use:   "plan",
+		Short: "Schedule open tasks along their dependencies and show the critical path",
+		Long: `Schedule open tasks along their dependencies and show the critical path.
+
+Each task takes its "estimate" metadata (e.g. --meta estimate=2h) less the
+time already logged on it. Tasks without an estimate are assumed to take
+as long as finished tasks took on average. SLACK is how long a task can
+slip before it delays the last task or misses its own or a dependent's
+due date; negative slack means it is already late.`,
+		Args: cobra.NoArgs,
+		RunE: func(cmd *cobra.Command, args []string) error {
+			p, err := c.planCache().Plan(time.Now())
+			if err != nil {
+				return err
+			}
+			entries := p.Entries
+			if critical {
+				entries = make([]plan.Entry, 0, len(p.CriticalPath))
+				for _, id := range p.CriticalPath {
+					e, _ := p.Entry(id)
+					entries = append(entries, e)
+				}
+			}
+
+			pr := c.printer(c.stdout)
+			if strings.ToLower(c.format) == "json" {
+				return pr.JSON(planToJSON(p, entries))
+			}
+			rows := make([][]string, 0, len(entries))
+			for _, e := range entries {
+				mark := ""
+				if e.Critical {
+					mark = "*"
+				}
+				due := "-"
+				if e.Due != nil {
+					due = c.cfg.FormatDate(*e.Due)
+				}
+				slack := plan.FormatSlack(e.Slack)
+				if e.Slack < 0 {
+					slack = pr.Colored(slack, ui.Red)
+				}
+				rows = append(rows, []string{
+					mark,
+					strconv.FormatInt(e.ID, 10),
+					e.Title,
+					task.FormatDuration(e.Remaining),
+					c.cfg.FormatDateTime(p.FinishAt(e.EarliestFinish)),
+					due,
+					slack,
+				})
+			}
+			pr.Table([]string{"", "ID", "TITLE", "LEFT", "FINISH", "DUE", "SLACK"}, rows)
+			if len(p.Entries) > 0 {
+				pr.Success("All open work done by %s (%s of work on the critical path)",
+					c.cfg.FormatDateTime(p.FinishAt(p.Finish)), task.FormatDuration(p.Finish))
+			}
+			return nil
+		},
+	}
+
+	cmd.Flags().BoolVar(&critical, "critical", false, "Only show tasks on the critical path")
+
+	return cmd
+}
+
+type jsonPlanEntry struct {
+	ID               int64     `json:"id"`
+	Title            string    `json:"title"`
+	Status           string    `json:"status"`
+	DueDate          string    `json:"due_date,omitempty"`
+	Remaining        string    `json:"remaining"`
+	RemainingMinutes int64     `json:"remaining_minutes"`
+	EarliestStart    time.Time `json:"earliest_start"`
+	EarliestFinish   time.Time `json:"earliest_finish"`
+	LatestFinish     time.Time `json:"latest_finish"`
+	Slack            string    `json:"slack"`
+	SlackMinutes     int64     `json:"slack_minutes"`
+	Critical         bool      `json:"critical"`
+}
+
+type jsonPlan struct {
+	GeneratedAt  time.Time       `json:"generated_at"`
+	Finish       time.Time       `json:"finish"`
+	CriticalPath []int64         `json:"critical_path"`
+	Tasks        []jsonPlanEntry `json:"tasks"`
+}
+
+func planToJSON(p *plan.Plan, entries []plan.Entry) jsonPlan {
+	out := jsonPlan{
+		GeneratedAt:  p.Now,
+		Finish:       p.FinishAt(p.Finish),
+		CriticalPath: p.CriticalPath,
+		Tasks:        make([]jsonPlanEntry, 0, len(entries)),
+	}
+	if out.CriticalPath == nil {
+		out.CriticalPath = []int64{}
+	}
+	for _, e := range entries {
+		j := jsonPlanEntry{
+			ID:               e.ID,
+			Title:            e.Title,
+			Status:           e.Status.String(),
+			Remaining:        task.FormatDuration(e.Remaining),
+			RemainingMinutes: int64(e.Remaining / time.Minute),
+			EarliestStart:    p.FinishAt(e.EarliestStart),
+			EarliestFinish:   p.FinishAt(e.EarliestFinish),
+			LatestFinish:     p.FinishAt(e.LatestFinish),
+			Slack:            plan.FormatSlack(e.Slack),
+			SlackMinutes:     int64(e.Slack / time.Minute),
+			Critical:         e.Critical,
+		}
+		if e.Due != nil {
+			j.DueDate = e.Due.Format(time.DateOnly)
+		}
+		out.Tasks = append(out.Tasks, j)
+	}
+	return out
+}
@@ -2,7 +2,6 @@ package cli
 
 import (
 	"fmt"
-	"os"
 	"strconv"
 	"strings"
 
@@ -47,7 +46,7 @@ func (c *CLI) recurSetCmd() *cobra.Command {
 			if err := c.taskStore.UpdateRecurrence(taskID, freq, interval); err != nil {
 				return fmt.Errorf("set recurrence: %w", err)
 			}
-			c.printer(os.Stdout).Success("Set task #%d to recur %s", taskID, freq.String())
+			c.printer(c.stdout).Success("Set task #%d to recur %s", taskID, freq.String())
 			return nil
 		},
 	}
@@ -69,7 +68,7 @@ func (c *CLI) recurClearCmd() *cobra.Command {
 			if err := c.taskStore.UpdateRecurrence(taskID, task.RecurNone, 0); err != nil {
 				return fmt.Errorf("clear recurrence: %w", err)
 			}
-			c.printer(os.Stdout).Success("Cleared recurrence for task #%d", taskID)
+			c.printer(c.stdout).Success("Cleared recurrence for task #%d", taskID)
 			return nil
 		},
 	}
@@ -0,0 +1,123 @@
+package cli
+
+import (
+	"fmt"
+	"sort"
+	"strconv"
+	"strings"
+
+	"github.com/spf13/cobra"
+)
+
+// searchResult is one row of `search` output, from either a task, a task
+// note, or a journal entry.
+type searchResult struct {
+	Kind    string  `json:"kind"` // "task", "note", or "journal"
+	TaskID  int64   `json:"task_id,omitempty"`
+	NoteID  int64   `json:"note_id,omitempty"`
+	EntryID int64   `json:"entry_id,omitempty"`
+	Date    string  `json:"date,omitempty"`
+	Title   string  `json:"title,omitempty"`
+	Snippet string  `json:"snippet"`
+	Rank    float64 `json:"rank"`
+}
+
+func (c *CLI) searchCmd() *cobra.Command {
+	var in string
+	var limit int
+
+	cmd := &cobra.Command{
+		Use:   "search \"text\" [flags]",
+		Short: "Full-text search across tasks, task notes, and journal entries",
+		Long: `Search tasks, task notes, and journal entries for every word of the query.
+Results are ranked by relevance. Words shorter than three characters cannot
+use the search index and fall back to an unranked scan.`,
+		Args: cobra.MinimumNArgs(1),
+		RunE: func(cmd *cobra.Command, args []string) error {
+			text := strings.TrimSpace(strings.Join(args, " "))
+			if text == "" {
+				return fmt.Errorf("search text cannot be empty")
+			}
+
+			var searchTasks, searchJournal bool
+			switch strings.ToLower(in) {
+			case "all":
+				searchTasks, searchJournal = true, true
+			case "tasks":
+				searchTasks = true
+			case "journal":
+				searchJournal = true
+			default:
+				return fmt.Errorf("invalid --in %q: must be tasks, journal, or all", in)
+			}
+
+			var results []searchResult
+			if searchTasks {
+				hits, err := c.taskStore.Search(text, limit)
+				if err != nil {
+					return err
+				}
+				for _, h := range hits {
+					r := searchResult{Kind: "task", TaskID: h.TaskID, NoteID: h.NoteID, Title: h.Title, Snippet: h.Snippet, Rank: h.Rank}
+					if h.NoteID != 0 {
+						r.Kind = "note"
+					}
+					results = append(results, r)
+				}
+			}
+			if searchJournal {
+				hits, err := c.journalStore.Search(text, limit)
+				if err != nil {
+					return err
+				}
+				for _, h := range hits {
+					results = append(results, searchResult{
+						Kind:    "journal",
+						EntryID: h.EntryID,
+						Date:    h.Date.Format("2006-01-02"),
+						Snippet: h.Snippet,
+						Rank:    h.Rank,
+					})
+				}
+			}
+
+			// Each store returns its best matches first; interleave them by
+			// score and keep the overall top results.
+			sort.SliceStable(results, func(i, j int) bool { return results[i].Rank < results[j].Rank })
+			if limit > 0 && len(results) > limit {
+				results = results[:limit]
+			}
+
+			p := c.printer(c.stdout)
+			if strings.ToLower(c.format) == "json" {
+				if results == nil {
+					results = []searchResult{}
+				}
+				return p.JSON(results)
+			}
+			rows := make([][]string, 0, len(results))
+			for _, r := range results {
+				ref := "#" + strconv.FormatInt(r.TaskID, 10)
+				switch r.Kind {
+				case "note":
+					ref += " note " + strconv.FormatInt(r.NoteID, 10)
+				case "journal":
+					ref = r.Date
+				}
+				rows = append(rows, []string{r.Kind, ref, r.Title, flattenSnippet(r.Snippet)})
+			}
+			p.Table([]string{"KIND", "REF", "TITLE", "MATCH"}, rows)
+			return nil
+		},
+	}
+
+	cmd.Flags().StringVar(&in, "in", "all", "Where to search: tasks, journal, all")
+	cmd.Flags().IntVar(&limit, "limit", 20, "Maximum number of results")
+
+	return cmd
+}
+
+// flattenSnippet collapses line breaks so a snippet fits in one table cell.
+func flattenSnippet(s string) string {
+	return strings.Join(strings.Fields(s), " ")
+}
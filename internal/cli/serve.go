@@ -0,0 +1,153 @@
+package cli
+
+import (
+	"context"
+	"fmt"
+	"io"
+	"os"
+	"os/signal"
+	"strings"
+	"syscall"
+	"time"
+
+	"github.com/roniel/todo-app/internal/backup"
+	"github.com/roniel/todo-app/internal/config"
+	"github.com/roniel/todo-app/internal/daemon"
+	"github.com/roniel/todo-app/internal/database"
+	"github.com/roniel/todo-app/internal/task"
+	"github.com/spf13/cobra"
+)
+
+// localOnly lists commands that are never forwarded to a daemon: they read
+// stdin, manage the daemon itself, or write files next to the caller, whose
+// relative paths the daemon would resolve against its own directory.
+var localOnly = map[string]bool{
+	"backup": true,
+	"batch":  true,
+	"export": true,
+	"import": true,
+	"serve":  true,
+	"skill":  true,
+}
+
+// ShouldForward reports whether the todo binary should try to run args on a
+// `todo serve` daemon. Calls are forwarded only when neither stdin nor
+// stdout is a terminal, as from scripts and agents, because interactive
+// prompts and styled output depend on the caller's terminal.
+func ShouldForward(args []string) bool {
+	if isTTY(os.Stdin) || isTTY(os.Stdout) {
+		return false
+	}
+	name := commandName(args)
+	return name != "" && !localOnly[name]
+}
+
+// commandName returns the first positional argument in args, skipping
+// global flags and the value of --format.
+func commandName(args []string) string {
+	for i := 0; i < len(args); i++ {
+		a := args[i]
+		if a == "--format" {
+			i++
+			continue
+		}
+		if strings.HasPrefix(a, "-") {
+			continue
+		}
+		return a
+	}
+	return ""
+}
+
+func (c *CLI) serveCmd() *cobra.Command {
+	return &cobra.Command{
+		Use:   "serve",
+		Short: "Run a background daemon that serves CLI calls from scripts",
+		Long: `Keep the database open and serve CLI calls over a Unix socket in the
+data directory. While it runs, non-interactive invocations (stdin and stdout
+both redirected) are forwarded to it, skipping per-call startup. Without a
+daemon, commands run directly as usual. Config changes are picked up on
+every call.`,
+		Args: cobra.NoArgs,
+		RunE: func(cmd *cobra.Command, _ []string) error {
+			path, err := daemon.SocketPath()
+			if err != nil {
+				return err
+			}
+			ctx, stop := signal.NotifyContext(context.Background(), os.Interrupt, syscall.SIGTERM)
+			defer stop()
+
+			if !c.quiet {
+				fmt.Fprintf(c.stderr, "Serving on %s\n", path)
+			}
+			go c.archiveLoop(ctx)
+			return daemon.Serve(ctx, path, func(args []string, stdout, stderr io.Writer) int {
+				cfg, _, err := config.LoadWithWarnings()
+				if err != nil {
+					cfg = config.DefaultConfig()
+				}
+				err = RunWithStreams(args, c.taskStore, c.journalStore, c.focusStore, cfg,
+					Streams{In: strings.NewReader(""), Out: stdout, Err: stderr})
+				return ReportError(stderr, err)
+			})
+		},
+	}
+}
+
+// archiveInterval is how often a running daemon moves old done tasks to
+// the archive, purges the trash and saves the daily backup.
+const archiveInterval = 6 * time.Hour
+
+// archiveLoop purges tasks deleted more than task.TrashRetention ago,
+// archives done tasks past the configured age and saves today's backup
+// snapshot, now and then every archiveInterval until ctx is cancelled.
+// Forwarded calls never start the backup helper, so without this a daemon
+// serving scripts alone would back up only when it started. The config is
+// re-read each time, as for served calls.
+func (c *CLI) archiveLoop(ctx context.Context) {
+	for {
+		cfg, _, err := config.LoadWithWarnings()
+		if err != nil {
+			cfg = config.DefaultConfig()
+		}
+		if _, err := c.taskStore.PurgeDeleted(time.Now().Add(-task.TrashRetention)); err != nil {
+			fmt.Fprintf(c.stderr, "Warning: %v\n", err)
+		}
+		if cutoff, ok := cfg.ArchiveCutoff(time.Now()); ok {
+			n, err := c.taskStore.ArchiveDone(cutoff)
+			if err != nil {
+				fmt.Fprintf(c.stderr, "Warning: %v\n", err)
+			} else if n > 0 && !c.quiet {
+				fmt.Fprintf(c.stderr, "Archived %d done tasks\n", n)
+			}
+		}
+		if err := c.dailyBackup(ctx, cfg); err != nil {
+			fmt.Fprintf(c.stderr, "Warning: backup failed: %v\n", err)
+		}
+		select {
+		case <-ctx.Done():
+			return
+		case <-time.After(archiveInterval):
+		}
+	}
+}
+
+// dailyBackup saves today's backup snapshot unless it exists. Daily takes
+// the backup store's lock, so it is safe beside a TUI or helper doing the
+// same.
+func (c *CLI) dailyBackup(ctx context.Context, cfg config.Config) error {
+	dir, err := backup.DefaultDir()
+	if err != nil {
+		return err
+	}
+	db, err := c.openDB(cfg)
+	if err != nil {
+		return err
+	}
+	defer database.Close(db)
+	res, err := backup.Daily(ctx, db, dir, backup.RetainDays)
+	if err == nil && res.Date != "" && !c.quiet {
+		fmt.Fprintf(c.stderr, "Backup saved: snapshot %s\n", res.Date)
+	}
+	return err
+}
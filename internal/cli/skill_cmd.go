@@ -46,7 +46,7 @@ Use --project to install to ./.claude/skills/rondo/ (current project only).`,
 				return fmt.Errorf("write skill file: %w", err)
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			p.Success("Skill installed at %s", path)
 			return nil
 		},
@@ -71,7 +71,7 @@ func (c *CLI) skillUninstallCmd() *cobra.Command {
 
 			if _, err := os.Stat(dir); err != nil {
 				if os.IsNotExist(err) {
-					p := c.printer(os.Stdout)
+					p := c.printer(c.stdout)
 					p.Success("Skill not installed, nothing to remove")
 					return nil
 				}
@@ -82,7 +82,7 @@ func (c *CLI) skillUninstallCmd() *cobra.Command {
 				return fmt.Errorf("remove skill directory: %w", err)
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			p.Success("Skill removed from %s", dir)
 			return nil
 		},
@@ -27,6 +27,17 @@ rondo list [--status pending|active|done|all] [--priority high] [--tag work] \
   [--meta key=value] [--sort created|due|priority] [--due-before YYYY-MM-DD] \
   [--due-after YYYY-MM-DD] [--overdue] [--search text] [--limit N] [--json]
 
+# Page through large lists (next cursor is printed to stderr)
+rondo list --page-size 500 [--cursor <cursor>] [--json]
+
+# Done tasks older than archive_after_days (default 90, -1 = never) move to
+# a read-only archive; list them with --include-archived, show <id> still works
+rondo list --include-archived [--json]
+rondo archive [--days N]                       # archive now instead of in the background
+
+# Ranked full-text search over tasks, task notes, and journal entries
+rondo search "text" [--in tasks|journal|all] [--limit N] [--json]
+
 # Show task details
 rondo show <id> [--json]
 
@@ -42,6 +53,16 @@ rondo delete <id> [--force] [--cascade]
 
 # Set or cycle status
 rondo status <id> [pending|active|done]
+
+# Tasks ready to start: not done, every blocker done (priority order)
+rondo next [--tag work] [--limit 10] [--json]
+
+# Everything a task waits on, transitively (--dependents for the reverse)
+rondo deps tree <id> [--dependents] [--json]
+
+# Schedule open tasks: earliest finish, slack, critical path
+# (estimates come from --meta estimate=2h, else average logged time)
+rondo plan [--critical] [--json]
 ` + "```" + `
 
 ## Subtasks
@@ -119,7 +140,8 @@ rondo focus stats [--days 7] [--json]
 
 ` + "```" + `bash
 rondo stats [--json]
-rondo export [--format md|json] [--output file.md] [--journal]
+rondo export [--format md|json|ndjson] [--output file.md] [--journal]
+rondo import <file|-> [--format json|ndjson|csv]
 ` + "```" + `
 
 ## Batch Mode
@@ -131,7 +153,9 @@ echo '{"cmd":"add","args":["Deploy fix","--priority","urgent"]}
 {"cmd":"list","args":["--status","active","--json"]}' | rondo batch
 ` + "```" + `
 
-Returns JSON array: ` + "`" + `[{"cmd":"add","ok":true}, ...]` + "`" + `
+Writes one JSON result per command as it runs: ` + "`" + `{"line":1,"cmd":"add","ok":true,"output":"..."}` + "`" + `.
+The batch runs in one transaction. Add ` + "`" + `--atomic` + "`" + ` to roll back every command if any
+fails, or ` + "`" + `--chunk N` + "`" + ` to commit every N commands.
 
 ## Config
 
@@ -142,6 +166,15 @@ rondo config set <key> <value>
 rondo config reset [--force]
 ` + "```" + `
 
+## Backups
+
+` + "```" + `bash
+rondo backup list [--json]
+rondo backup restore <YYYY-MM-DD> --output <file>   # rebuild a snapshot to a file
+rondo backup restore <YYYY-MM-DD> --force           # replace the live database
+rondo backup replay --until "<YYYY-MM-DD HH:MM>" --output <file>   # point in time; needs wal_archive
+` + "```" + `
+
 ## Shell Completions
 
 ` + "```" + `bash
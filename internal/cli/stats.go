@@ -2,7 +2,6 @@ package cli
 
 import (
 	"fmt"
-	"os"
 	"strings"
 	"time"
 
@@ -21,8 +20,13 @@ func (c *CLI) statsCmd() *cobra.Command {
 				return fmt.Errorf("list tasks: %w", err)
 			}
 
-			// Count by status.
-			var pending, active, done int
+			// Count by status. Archived tasks are all done.
+			archived, err := c.taskStore.CountArchived()
+			if err != nil {
+				return fmt.Errorf("count archived tasks: %w", err)
+			}
+			var pending, active int
+			done := archived
 			for _, t := range tasks {
 				switch t.Status {
 				case task.Pending:
@@ -60,9 +64,9 @@ func (c *CLI) statsCmd() *cobra.Command {
 
 			switch strings.ToLower(c.format) {
 			case "json":
-				return c.printer(os.Stdout).JSON(map[string]any{
+				return c.printer(c.stdout).JSON(map[string]any{
 					"tasks": map[string]any{
-						"total":   len(tasks),
+						"total":   len(tasks) + archived,
 						"pending": pending,
 						"active":  active,
 						"done":    done,
@@ -81,7 +85,7 @@ func (c *CLI) statsCmd() *cobra.Command {
 					},
 				})
 			default:
-				return c.printStatsTable(c.printer(os.Stdout), pending, active, done, priCounts, todayWork, goal, streak, totalMin)
+				return c.printStatsTable(c.printer(c.stdout), pending, active, done, priCounts, todayWork, goal, streak, totalMin)
 			}
 		},
 	}
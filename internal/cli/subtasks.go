@@ -2,7 +2,6 @@ package cli
 
 import (
 	"fmt"
-	"os"
 	"strconv"
 	"strings"
 
@@ -43,7 +42,7 @@ func (c *CLI) subtaskAddCmd() *cobra.Command {
 			if err := c.taskStore.AddSubtask(taskID, title); err != nil {
 				return fmt.Errorf("add subtask: %w", err)
 			}
-			c.printer(os.Stdout).Success("Added subtask to task #%d: %s", taskID, title)
+			c.printer(c.stdout).Success("Added subtask to task #%d: %s", taskID, title)
 			return nil
 		},
 	}
@@ -63,7 +62,7 @@ func (c *CLI) subtaskListCmd() *cobra.Command {
 			if err != nil {
 				return err
 			}
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			if strings.ToLower(c.format) == "json" {
 				type jsonSub struct {
 					ID       int64  `json:"id"`
@@ -124,7 +123,7 @@ func (c *CLI) subtaskDoneCmd() *cobra.Command {
 			if err := c.taskStore.ToggleSubtask(subtaskID); err != nil {
 				return fmt.Errorf("toggle subtask: %w", err)
 			}
-			c.printer(os.Stdout).Success("Toggled subtask #%d", subtaskID)
+			c.printer(c.stdout).Success("Toggled subtask #%d", subtaskID)
 			return nil
 		},
 	}
@@ -155,7 +154,7 @@ func (c *CLI) subtaskEditCmd() *cobra.Command {
 			if err := c.taskStore.UpdateSubtask(subtaskID, newTitle); err != nil {
 				return fmt.Errorf("update subtask: %w", err)
 			}
-			c.printer(os.Stdout).Success("Updated subtask #%d: %s", subtaskID, newTitle)
+			c.printer(c.stdout).Success("Updated subtask #%d: %s", subtaskID, newTitle)
 			return nil
 		},
 	}
@@ -192,18 +191,18 @@ func (c *CLI) subtaskDeleteCmd() *cobra.Command {
 			if !found {
 				return &NotFoundError{Type: "subtask", ID: subtaskID}
 			}
-			ok, err := Confirm(fmt.Sprintf("Delete subtask #%d %q?", subtaskID, subtaskTitle), force)
+			ok, err := c.confirm(fmt.Sprintf("Delete subtask #%d %q?", subtaskID, subtaskTitle), force)
 			if err != nil {
 				return err
 			}
 			if !ok {
-				fmt.Fprintln(os.Stderr, "Cancelled.")
+				fmt.Fprintln(c.stderr, "Cancelled.")
 				return nil
 			}
 			if err := c.taskStore.DeleteSubtask(subtaskID); err != nil {
 				return fmt.Errorf("delete subtask: %w", err)
 			}
-			c.printer(os.Stdout).Success("Deleted subtask #%d", subtaskID)
+			c.printer(c.stdout).Success("Deleted subtask #%d", subtaskID)
 			return nil
 		},
 	}
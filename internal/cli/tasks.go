@@ -3,9 +3,9 @@ package cli
 import (
 	"database/sql"
 	"encoding/json"
+	"errors"
 	"fmt"
 	"io"
-	"os"
 	"sort"
 	"strconv"
 	"strings"
@@ -153,9 +153,9 @@ func (c *CLI) addCmd() *cobra.Command {
 			}
 
 			if c.quiet {
-				fmt.Fprintf(os.Stdout, "%d\n", t.ID)
+				fmt.Fprintf(c.stdout, "%d\n", t.ID)
 			} else {
-				c.printer(os.Stdout).Success("Created task #%d: %s", t.ID, t.Title)
+				c.printer(c.stdout).Success("Created task #%d: %s", t.ID, t.Title)
 			}
 			return nil
 		},
@@ -218,7 +218,7 @@ func (c *CLI) doneCmd() *cobra.Command {
 					return fmt.Errorf("update task: %w", err)
 				}
 
-				c.printer(os.Stdout).Success("Marked task #%d as done: %s", t.ID, t.Title)
+				c.printer(c.stdout).Success("Marked task #%d as done: %s", t.ID, t.Title)
 			}
 			return nil
 		},
@@ -237,15 +237,22 @@ func (c *CLI) showCmd() *cobra.Command {
 			}
 
 			t, err := c.getTaskOrNotFound(id)
+			var nf *NotFoundError
+			if errors.As(err, &nf) {
+				// Archived tasks are read-only but still shown by ID.
+				if archived, aerr := c.taskStore.GetArchived(id); aerr == nil {
+					t, err = archived, nil
+				}
+			}
 			if err != nil {
 				return err
 			}
 
 			switch strings.ToLower(c.format) {
 			case "json":
-				return c.printTaskJSON(os.Stdout, t)
+				return c.printTaskJSON(c.stdout, t)
 			default:
-				return c.printTaskDetail(c.printer(os.Stdout), t)
+				return c.printTaskDetail(c.printer(c.stdout), t)
 			}
 		},
 	}
@@ -361,7 +368,7 @@ func (c *CLI) editCmd() *cobra.Command {
 				}
 			}
 
-			c.printer(os.Stdout).Success("Updated task #%d: %s", t.ID, t.Title)
+			c.printer(c.stdout).Success("Updated task #%d: %s", t.ID, t.Title)
 			return nil
 		},
 	}
@@ -412,12 +419,12 @@ func (c *CLI) deleteCmd() *cobra.Command {
 				return fmt.Errorf("task #%d blocks %s. Use --cascade to delete and unblock them", id, strings.Join(idStrs, ", "))
 			}
 
-			ok, err := Confirm(fmt.Sprintf("Delete task #%d %q?", id, t.Title), force)
+			ok, err := c.confirm(fmt.Sprintf("Delete task #%d %q?", id, t.Title), force)
 			if err != nil {
 				return err
 			}
 			if !ok {
-				fmt.Fprintln(os.Stderr, "Cancelled.")
+				fmt.Fprintln(c.stderr, "Cancelled.")
 				return nil
 			}
 
@@ -430,9 +437,9 @@ func (c *CLI) deleteCmd() *cobra.Command {
 				for i, bid := range blocksIDs {
 					idStrs[i] = fmt.Sprintf("#%d", bid)
 				}
-				c.printer(os.Stdout).Success("Deleted task #%d: %s (unblocked %s)", id, t.Title, strings.Join(idStrs, ", "))
+				c.printer(c.stdout).Success("Deleted task #%d: %s (unblocked %s)", id, t.Title, strings.Join(idStrs, ", "))
 			} else {
-				c.printer(os.Stdout).Success("Deleted task #%d: %s", id, t.Title)
+				c.printer(c.stdout).Success("Deleted task #%d: %s", id, t.Title)
 			}
 			return nil
 		},
@@ -479,7 +486,7 @@ func (c *CLI) statusCmd() *cobra.Command {
 				return fmt.Errorf("update task: %w", err)
 			}
 
-			c.printer(os.Stdout).Success("Task #%d status: %s", t.ID, t.Status.String())
+			c.printer(c.stdout).Success("Task #%d status: %s", t.ID, t.Status.String())
 			return nil
 		},
 	}
@@ -489,20 +496,16 @@ func (c *CLI) listCmd() *cobra.Command {
 	var status, priority, sortBy, dueBefore, dueAfter, search string
 	var tags []string
 	var metaFilter []string
-	var overdue bool
-	var limit int
+	var overdue, includeArchived bool
+	var limit, pageSize int
+	var cursor string
 
 	cmd := &cobra.Command{
 		Use:   "list [flags]",
 		Short: "List tasks",
 		Args:  cobra.NoArgs,
 		RunE: func(cmd *cobra.Command, args []string) error {
-			tasks, err := c.taskStore.List()
-			if err != nil {
-				return fmt.Errorf("list tasks: %w", err)
-			}
-
-			filtered, err := applyTaskFilters(tasks, taskFilterOpts{
+			opts := taskFilterOpts{
 				status:     status,
 				priority:   priority,
 				tags:       tags,
@@ -511,22 +514,54 @@ func (c *CLI) listCmd() *cobra.Command {
 				dueAfter:   dueAfter,
 				overdue:    overdue,
 				search:     search,
-			})
+			}
+			q, err := buildTaskQuery(opts)
 			if err != nil {
 				return err
 			}
+			if includeArchived && (pageSize > 0 || cursor != "") {
+				return fmt.Errorf("--include-archived cannot be combined with --page-size or --cursor")
+			}
+			q.Sort = task.ParseSortKey(sortBy)
+			q.Limit = limit
+			// Only JSON output includes metadata.
+			q.NoMetadata = !strings.EqualFold(c.format, "json")
+
+			var filtered []task.Task
+			if pageSize > 0 || cursor != "" {
+				page, err := c.taskStore.ListPage(q, cursor, pageSize)
+				if errors.Is(err, task.ErrInvalidCursor) {
+					return fmt.Errorf("invalid --cursor %q: pass the value printed by the previous page with the same --sort", cursor)
+				}
+				if err != nil {
+					return fmt.Errorf("list tasks: %w", err)
+				}
+				filtered = page.Tasks
+				// The next cursor goes to stderr so stdout stays a clean
+				// table or JSON array.
+				if page.Next != "" {
+					fmt.Fprintf(c.stderr, "next cursor: %s\n", page.Next)
+				}
+			} else {
+				filtered, err = c.taskStore.Find(q)
+				if err != nil {
+					return fmt.Errorf("list tasks: %w", err)
+				}
+			}
 
-			sortTasks(filtered, sortBy)
-
-			if limit > 0 && len(filtered) > limit {
-				filtered = filtered[:limit]
+			// Archived tasks are all done, so other status filters and
+			// --overdue skip the archive without reading it.
+			if includeArchived && !opts.overdue && (len(q.Statuses) == 0 || q.Statuses[0] == task.Done) {
+				if filtered, err = c.appendArchived(filtered, opts, sortBy, limit); err != nil {
+					return err
+				}
 			}
 
 			switch strings.ToLower(c.format) {
 			case "json":
-				return printTasksJSON(os.Stdout, filtered)
+				return printTasksJSON(c.stdout, filtered)
 			default:
-				return c.printTasksTable(c.printer(os.Stdout), filtered)
+				return c.printTasksTable(c.printer(c.stdout), filtered)
 			}
 		},
 	}
@@ -541,10 +576,49 @@ func (c *CLI) listCmd() *cobra.Command {
 	cmd.Flags().BoolVar(&overdue, "overdue", false, "Show only overdue tasks (not done, past due date)")
 	cmd.Flags().StringVar(&search, "search", "", "Substring match on title and description")
 	cmd.Flags().IntVar(&limit, "limit", 0, "Maximum number of tasks to show (0 = unlimited)")
+	cmd.Flags().IntVar(&pageSize, "page-size", 0, "Page through results this many at a time; prints the next cursor to stderr")
+	cmd.Flags().StringVar(&cursor, "cursor", "", "Resume listing after a cursor printed by a previous --page-size call")
+	cmd.Flags().BoolVar(&includeArchived, "include-archived", false, "Also list done tasks moved to the archive")
 
 	return cmd
 }
 
+// archivePage is how many archived tasks list --include-archived decodes
+// at a time.
+const archivePage = 500
+
+// appendArchived adds the archived tasks matching opts to tasks and sorts
+// the result. The archive is read a page at a time, and with a limit only
+// the first limit tasks in sortBy order are kept between pages, so memory
+// follows the output rather than the size of the archive.
+func (c *CLI) appendArchived(tasks []task.Task, opts taskFilterOpts, sortBy string, limit int) ([]task.Task, error) {
+	var after *task.Task
+	for {
+		page, err := c.taskStore.ListArchived(after, archivePage)
+		if err != nil {
+			return nil, err
+		}
+		if len(page) > 0 {
+			last := page[len(page)-1]
+			after = &last
+		}
+		matched, err := applyTaskFilters(page, opts)
+		if err != nil {
+			return nil, err
+		}
+		tasks = append(tasks, matched...)
+		if limit > 0 && len(tasks) > limit {
+			sortTasks(tasks, sortBy)
+			tasks = tasks[:limit]
+		}
+		if len(page) < archivePage {
+			break
+		}
+	}
+	sortTasks(tasks, sortBy)
+	return tasks, nil
+}
+
 // taskFilterOpts holds all list filter parameters.
 type taskFilterOpts struct {
 	status     string
@@ -557,6 +631,58 @@ type taskFilterOpts struct {
 	search     string
 }
 
+// buildTaskQuery compiles list filter flags into a task.Query so that
+// filtering runs in SQL. Invalid due-date bounds are ignored, matching
+// applyTaskFilters.
+func buildTaskQuery(opts taskFilterOpts) (task.Query, error) {
+	var q task.Query
+
+	switch strings.ToLower(opts.status) {
+	case "pending":
+		q.Statuses = []task.Status{task.Pending}
+	case "active", "in-progress", "inprogress":
+		q.Statuses = []task.Status{task.InProgress}
+	case "done":
+		q.Statuses = []task.Status{task.Done}
+	}
+
+	if opts.priority != "" {
+		prio, err := parsePriority(opts.priority)
+		if err != nil {
+			return task.Query{}, err
+		}
+		q.Priority = &prio
+	}
+
+	q.Tags = opts.tags
+
+	if len(opts.metaFilter) > 0 {
+		metaKV, err := parseMetaFlags(opts.metaFilter)
+		if err != nil {
+			return task.Query{}, err
+		}
+		q.Metadata = metaKV
+	}
+
+	q.Search = opts.search
+	q.Overdue = opts.overdue
+
+	if opts.dueBefore != "" {
+		if cutoff, err := time.ParseInLocation(time.DateOnly, opts.dueBefore, time.UTC); err == nil {
+			q.DueBefore = &cutoff
+		}
+	}
+	if opts.dueAfter != "" {
+		if cutoff, err := time.ParseInLocation(time.DateOnly, opts.dueAfter, time.UTC); err == nil {
+			q.DueAfter = &cutoff
+		}
+	}
+
+	return q, nil
+}
+
+// applyTaskFilters is the in-memory counterpart of buildTaskQuery, for task
+// slices that did not come straight from a store query.
 func applyTaskFilters(tasks []task.Task, opts taskFilterOpts) ([]task.Task, error) {
 	tasks = filterTasks(tasks, opts.status)
 
@@ -632,14 +758,13 @@ func filterSlice(tasks []task.Task, pred func(task.Task) bool) []task.Task {
 }
 
 // taskHasAnyTag reports whether the task has at least one of the given tags.
+// Tags compare as the tag index does, without building a set per task.
 func taskHasAnyTag(t task.Task, filterTags []string) bool {
-	tagSet := make(map[string]struct{}, len(t.Tags))
 	for _, tag := range t.Tags {
-		tagSet[strings.ToLower(tag)] = struct{}{}
-	}
-	for _, ft := range filterTags {
-		if _, ok := tagSet[strings.ToLower(ft)]; ok {
-			return true
+		for _, ft := range filterTags {
+			if task.SameTag(tag, ft) {
+				return true
+			}
 		}
 	}
 	return false
@@ -658,7 +783,8 @@ func taskMatchesMeta(t task.Task, filter map[string]string) bool {
 	return true
 }
 
-// sortTasks sorts tasks in-place by the given sort key.
+// sortTasks sorts tasks in-place by the given sort key. It mirrors the
+// ORDER BY that task.Query applies in SQL.
 func sortTasks(tasks []task.Task, sortBy string) {
 	switch strings.ToLower(sortBy) {
 	case "due":
@@ -2,7 +2,6 @@ package cli
 
 import (
 	"fmt"
-	"os"
 	"strconv"
 	"strings"
 	"time"
@@ -45,7 +44,7 @@ func (c *CLI) timelogAddCmd() *cobra.Command {
 			if err := c.taskStore.AddTimeLog(taskID, dur, note); err != nil {
 				return fmt.Errorf("add time log: %w", err)
 			}
-			c.printer(os.Stdout).Success("Logged %s to task #%d", task.FormatDuration(dur), taskID)
+			c.printer(c.stdout).Success("Logged %s to task #%d", task.FormatDuration(dur), taskID)
 			return nil
 		},
 	}
@@ -71,7 +70,7 @@ func (c *CLI) timelogListCmd() *cobra.Command {
 			if err != nil {
 				return fmt.Errorf("list time logs: %w", err)
 			}
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			if strings.ToLower(c.format) == "json" {
 				type jsonTL struct {
 					ID       int64  `json:"id"`
@@ -146,7 +145,7 @@ func (c *CLI) timelogSummaryCmd() *cobra.Command {
 				}
 			}
 
-			p := c.printer(os.Stdout)
+			p := c.printer(c.stdout)
 			if strings.ToLower(c.format) == "json" {
 				type jsonSummary struct {
 					TaskID    int64  `json:"task_id"`
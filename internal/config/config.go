@@ -16,6 +16,7 @@ const (
 	maxPanelRatio        = 0.8
 	defaultDateFormat    = "Jan 02, 2006"
 	defaultTimeFormat    = "3:04 PM"
+	defaultArchiveDays   = 90
 	layoutSentinelOneY   = 2009
 	layoutSentinelTwoY   = 2021
 	layoutSentinelOneMon = time.March
@@ -74,15 +75,23 @@ type Config struct {
 	TimeFormat     string      `json:"time_format"`
 	DateTimeFormat string      `json:"datetime_format"`
 	Focus          FocusConfig `json:"focus"`
+	// ArchiveAfterDays is how long a done task stays in the working set
+	// before it moves to the archive. -1 disables archiving.
+	ArchiveAfterDays int `json:"archive_after_days"`
+	// WALArchive copies every committed WAL frame into the backup
+	// directory before it is checkpointed, so `backup replay` can rebuild
+	// the database at any moment since the oldest snapshot.
+	WALArchive bool `json:"wal_archive"`
 }
 
 // DefaultConfig returns a Config populated with default values.
 func DefaultConfig() Config {
 	return Config{
-		PanelRatio:     defaultPanelRatio,
-		DateFormat:     defaultDateFormat,
-		TimeFormat:     defaultTimeFormat,
-		DateTimeFormat: defaultDateFormat + " " + defaultTimeFormat,
+		PanelRatio:       defaultPanelRatio,
+		DateFormat:       defaultDateFormat,
+		TimeFormat:       defaultTimeFormat,
+		DateTimeFormat:   defaultDateFormat + " " + defaultTimeFormat,
+		ArchiveAfterDays: defaultArchiveDays,
 		Focus: FocusConfig{
 			WorkDuration:       25,
 			ShortBreakDuration: 5,
@@ -136,6 +145,10 @@ func (c *Config) validateWithWarnings() []string {
 		c.DateTimeFormat = c.DateFormat + " " + c.TimeFormat
 	}
 
+	if c.ArchiveAfterDays == 0 || c.ArchiveAfterDays < -1 {
+		c.ArchiveAfterDays = defaultArchiveDays
+	}
+
 	if c.Focus.WorkDuration == 0 {
 		c.Focus.WorkDuration = 25
 	}
@@ -191,6 +204,15 @@ func ValidateTimeLayout(layout string) error {
 	return nil
 }
 
+// ArchiveCutoff returns the time before which done tasks are archived, and
+// false if archiving is disabled.
+func (c Config) ArchiveCutoff(now time.Time) (time.Time, bool) {
+	if c.ArchiveAfterDays <= 0 {
+		return time.Time{}, false
+	}
+	return now.AddDate(0, 0, -c.ArchiveAfterDays), true
+}
+
 func (c Config) FormatDate(t time.Time) string {
 	return t.Format(c.DateFormat)
 }
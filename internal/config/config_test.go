@@ -260,6 +260,27 @@ func TestDefaultConfig_FocusDefaults(t *testing.T) {
 	}
 }
 
+func TestArchiveCutoff(t *testing.T) {
+	now := time.Date(2026, 3, 31, 12, 0, 0, 0, time.UTC)
+	cfg := DefaultConfig()
+	cutoff, ok := cfg.ArchiveCutoff(now)
+	if !ok || !cutoff.Equal(now.AddDate(0, 0, -90)) {
+		t.Errorf("default cutoff = %v, %v; want 90 days back", cutoff, ok)
+	}
+
+	cfg.ArchiveAfterDays = -1
+	cfg.validateWithWarnings()
+	if _, ok := cfg.ArchiveCutoff(now); ok {
+		t.Error("archive_after_days = -1 should disable archiving")
+	}
+
+	cfg.ArchiveAfterDays = 0 // missing from an older config file
+	cfg.validateWithWarnings()
+	if cfg.ArchiveAfterDays != 90 {
+		t.Errorf("ArchiveAfterDays = %d after validate, want default 90", cfg.ArchiveAfterDays)
+	}
+}
+
 func TestRoundtrip_JSON(t *testing.T) {
 	original := Config{PanelRatio: 0.55}
 
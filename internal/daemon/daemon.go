@@ -0,0 +1,193 @@
+// Package daemon lets CLI invocations run inside a long-lived `todo serve`
+// process over a Unix socket, so each call skips opening the database,
+// running migrations, and the startup backup check.
+package daemon
+
+import (
+	"context"
+	"encoding/json"
+	"errors"
+	"fmt"
+	"io"
+	"net"
+	"os"
+	"path/filepath"
+	"sync"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// dialTimeout bounds how long a client waits for a daemon before falling
+// back to running the command itself.
+const dialTimeout = 50 * time.Millisecond
+
+// requestTimeout bounds how long the daemon waits for a client to send its
+// request once connected.
+const requestTimeout = 5 * time.Second
+
+// writeTimeout bounds each frame the daemon writes, so a client that stops
+// reading cannot hold up the calls queued behind it.
+const writeTimeout = 10 * time.Second
+
+// idleTimeout bounds how long a client waits between frames, which
+// includes waiting for the calls ahead of it to finish.
+const idleTimeout = 2 * time.Minute
+
+// request is one forwarded CLI invocation.
+type request struct {
+	Args []string `json:"args"`
+}
+
+// frame is one message of a response. Output is sent as the command
+// writes it, one frame per write, so the daemon never holds a command's
+// whole output; the last frame has Done set and carries the exit code.
+type frame struct {
+	Stdout string `json:"stdout,omitempty"`
+	Stderr string `json:"stderr,omitempty"`
+	Done   bool   `json:"done,omitempty"`
+	Code   int    `json:"code,omitempty"`
+}
+
+// frameWriter sends frames on a connection. Writes to stdout and stderr
+// share it, so frames keep the order the command wrote in. After a failed
+// write every later one fails too, which ends the command early.
+type frameWriter struct {
+	conn net.Conn
+	enc  *json.Encoder
+	err  error
+}
+
+func (fw *frameWriter) send(f frame) error {
+	if fw.err != nil {
+		return fw.err
+	}
+	fw.conn.SetWriteDeadline(time.Now().Add(writeTimeout))
+	fw.err = fw.enc.Encode(f)
+	return fw.err
+}
+
+// streamWriter is the io.Writer for one of a command's output streams.
+type streamWriter struct {
+	fw     *frameWriter
+	stderr bool
+}
+
+func (w streamWriter) Write(p []byte) (int, error) {
+	if len(p) == 0 {
+		return 0, nil
+	}
+	f := frame{Stdout: string(p)}
+	if w.stderr {
+		f = frame{Stderr: string(p)}
+	}
+	if err := w.fw.send(f); err != nil {
+		return 0, err
+	}
+	return len(p), nil
+}
+
+// Handler runs one CLI invocation, writing its output to stdout and stderr,
+// and returns the process exit code.
+type Handler func(args []string, stdout, stderr io.Writer) int
+
+// SocketPath returns the daemon socket path in the application data dir.
+func SocketPath() (string, error) {
+	dir, err := database.Dir()
+	if err != nil {
+		return "", err
+	}
+	return filepath.Join(dir, "todo.sock"), nil
+}
+
+// Serve accepts forwarded invocations on the Unix socket at path until ctx
+// is cancelled. Invocations run one at a time, since they share the stores
+// and their single database connection.
+func Serve(ctx context.Context, path string, h Handler) error {
+	if conn, err := net.DialTimeout("unix", path, dialTimeout); err == nil {
+		conn.Close()
+		return fmt.Errorf("a daemon is already listening on %s", path)
+	}
+	// Left behind by a daemon that did not shut down cleanly.
+	if err := os.Remove(path); err != nil && !errors.Is(err, os.ErrNotExist) {
+		return fmt.Errorf("remove stale socket: %w", err)
+	}
+
+	ln, err := net.Listen("unix", path)
+	if err != nil {
+		return fmt.Errorf("listen: %w", err)
+	}
+	defer os.Remove(path)
+	if err := os.Chmod(path, 0o600); err != nil {
+		ln.Close()
+		return fmt.Errorf("restrict socket permissions: %w", err)
+	}
+
+	go func() {
+		<-ctx.Done()
+		ln.Close()
+	}()
+
+	var mu sync.Mutex
+	for {
+		conn, err := ln.Accept()
+		if err != nil {
+			if ctx.Err() != nil {
+				return nil
+			}
+			return fmt.Errorf("accept: %w", err)
+		}
+		go func() {
+			defer conn.Close()
+			conn.SetReadDeadline(time.Now().Add(requestTimeout))
+			var req request
+			if err := json.NewDecoder(conn).Decode(&req); err != nil {
+				return
+			}
+			fw := &frameWriter{conn: conn, enc: json.NewEncoder(conn)}
+			mu.Lock()
+			code := h(req.Args, streamWriter{fw: fw}, streamWriter{fw: fw, stderr: true})
+			mu.Unlock()
+			fw.send(frame{Done: true, Code: code})
+		}()
+	}
+}
+
+// ErrUnavailable is returned by Forward when no daemon received the call,
+// so it is safe for the caller to run the command itself.
+var ErrUnavailable = errors.New("daemon unavailable")
+
+// Forward runs args on the daemon listening at path, copying its output to
+// stdout and stderr as it arrives, and returns the exit code. Errors other
+// than ErrUnavailable mean the daemon may already have run the command.
+func Forward(path string, args []string, stdout, stderr io.Writer) (int, error) {
+	conn, err := net.DialTimeout("unix", path, dialTimeout)
+	if err != nil {
+		return 0, fmt.Errorf("%w: %v", ErrUnavailable, err)
+	}
+	defer conn.Close()
+
+	conn.SetWriteDeadline(time.Now().Add(requestTimeout))
+	if err := json.NewEncoder(conn).Encode(request{Args: args}); err != nil {
+		return 0, fmt.Errorf("%w: %v", ErrUnavailable, err)
+	}
+	dec := json.NewDecoder(conn)
+	for {
+		conn.SetReadDeadline(time.Now().Add(idleTimeout))
+		var f frame
+		if err := dec.Decode(&f); err != nil {
+			return 0, fmt.Errorf("read daemon response: %w", err)
+		}
+		if f.Done {
+			return f.Code, nil
+		}
+		if f.Stdout != "" {
+			if _, err := io.WriteString(stdout, f.Stdout); err != nil {
+				return 0, err
+			}
+		}
+		if f.Stderr != "" {
+			io.WriteString(stderr, f.Stderr)
+		}
+	}
+}
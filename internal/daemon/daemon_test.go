@@ -0,0 +1,127 @@
+package daemon
+
+import (
+	"bytes"
+	"context"
+	"errors"
+	"fmt"
+	"io"
+	"net"
+	"os"
+	"path/filepath"
+	"strings"
+	"testing"
+	"time"
+)
+
+// socketPath returns a short socket path; Unix socket paths are limited to
+// about 100 bytes, which t.TempDir can exceed.
+func socketPath(t *testing.T) string {
+	t.Helper()
+	dir, err := os.MkdirTemp("", "todod")
+	if err != nil {
+		t.Fatalf("temp dir: %v", err)
+	}
+	t.Cleanup(func() { os.RemoveAll(dir) })
+	return filepath.Join(dir, "s.sock")
+}
+
+func startServer(t *testing.T, path string, h Handler) {
+	t.Helper()
+	ctx, cancel := context.WithCancel(context.Background())
+	done := make(chan error, 1)
+	go func() { done <- Serve(ctx, path, h) }()
+	t.Cleanup(func() {
+		cancel()
+		if err := <-done; err != nil {
+			t.Errorf("Serve: %v", err)
+		}
+	})
+	for range 100 {
+		if conn, err := net.Dial("unix", path); err == nil {
+			conn.Close()
+			return
+		}
+		time.Sleep(5 * time.Millisecond)
+	}
+	t.Fatal("daemon did not start listening")
+}
+
+func TestForward_RoundTrip(t *testing.T) {
+	path := socketPath(t)
+	startServer(t, path, func(args []string, stdout, stderr io.Writer) int {
+		fmt.Fprintln(stdout, strings.Join(args, " "))
+		fmt.Fprintln(stderr, "warn")
+		return 3
+	})
+
+	var stdout, stderr bytes.Buffer
+	code, err := Forward(path, []string{"list", "--json"}, &stdout, &stderr)
+	if err != nil {
+		t.Fatalf("Forward: %v", err)
+	}
+	if code != 3 {
+		t.Errorf("code = %d, want 3", code)
+	}
+	if stdout.String() != "list --json\n" || stderr.String() != "warn\n" {
+		t.Errorf("unexpected output: stdout %q, stderr %q", stdout.String(), stderr.String())
+	}
+}
+
+func TestForward_NoDaemon(t *testing.T) {
+	_, err := Forward(socketPath(t), []string{"list"}, io.Discard, io.Discard)
+	if !errors.Is(err, ErrUnavailable) {
+		t.Errorf("expected ErrUnavailable, got %v", err)
+	}
+}
+
+func TestServe_RefusesSecondDaemon(t *testing.T) {
+	path := socketPath(t)
+	startServer(t, path, func([]string, io.Writer, io.Writer) int { return 0 })
+
+	if err := Serve(context.Background(), path, nil); err == nil {
+		t.Error("expected an error when a daemon is already listening")
+	}
+}
+
+// notifyWriter signals on its first write.
+type notifyWriter struct {
+	bytes.Buffer
+	first chan struct{}
+}
+
+func (w *notifyWriter) Write(p []byte) (int, error) {
+	if w.Len() == 0 {
+		close(w.first)
+	}
+	return w.Buffer.Write(p)
+}
+
+func TestForward_StreamsOutput(t *testing.T) {
+	path := socketPath(t)
+	stdout := &notifyWriter{first: make(chan struct{})}
+	startServer(t, path, func(args []string, out, errOut io.Writer) int {
+		fmt.Fprint(out, "first")
+		// The client has the first write before the command finishes.
+		select {
+		case <-stdout.first:
+		case <-time.After(2 * time.Second):
+			return 1
+		}
+		fmt.Fprint(errOut, "warn")
+		fmt.Fprint(out, " second")
+		return 0
+	})
+
+	var stderr bytes.Buffer
+	code, err := Forward(path, []string{"export"}, stdout, &stderr)
+	if err != nil {
+		t.Fatalf("Forward: %v", err)
+	}
+	if code != 0 {
+		t.Errorf("code = %d, want 0: output was not streamed", code)
+	}
+	if stdout.String() != "first second" || stderr.String() != "warn" {
+		t.Errorf("unexpected output: stdout %q, stderr %q", stdout.String(), stderr.String())
+	}
+}
@@ -1,12 +1,15 @@
 package database
 
 import (
+	"context"
 	"database/sql"
 	"fmt"
 	"os"
 	"path/filepath"
 	"strings"
 	"time"
+
+	"modernc.org/sqlite"
 )
 
 // Backup creates a backup of the SQLite database using VACUUM INTO.
@@ -18,8 +21,7 @@ func Backup(db *sql.DB, dir string, retainDays int) error {
 		return fmt.Errorf("create backup dir: %w", err)
 	}
 
-	name := fmt.Sprintf("backup-%s.db", time.Now().Format("2006-01-02"))
-	dest := filepath.Join(dir, name)
+	dest := BackupPath(dir, time.Now())
 
 	// Skip if today's backup already exists.
 	if _, err := os.Stat(dest); err == nil {
@@ -39,8 +41,150 @@ func Backup(db *sql.DB, dir string, retainDays int) error {
 	return nil
 }
 
+// BackupPath returns the path of the daily backup for day in dir.
+func BackupPath(dir string, day time.Time) string {
+	return filepath.Join(dir, fmt.Sprintf("backup-%s.db", day.Format("2006-01-02")))
+}
+
+// backupStepPages is how many pages OnlineBackup copies per step. The
+// source is only read-locked during a step, so a step of 256 pages (1 MiB
+// at the default page size) is the longest any writer can be held up.
+const backupStepPages = 256
+
+// backupStepPause is the rest between steps, leaving the disk to
+// foreground work.
+const backupStepPause = 2 * time.Millisecond
+
+// OnlineBackup writes today's backup of db into dir, like Backup, but with
+// SQLite's online backup API: pages are copied a step at a time over a
+// reader connection, so it can run alongside the application without
+// stalling writes. The copy is written to a temporary file and renamed
+// into place once complete. It returns the path of the new backup, or ""
+// if today's backup already exists. Cancelling ctx abandons the copy.
+func OnlineBackup(ctx context.Context, db *sql.DB, dir string, retainDays int) (string, error) {
+	if err := os.MkdirAll(dir, 0o755); err != nil {
+		return "", fmt.Errorf("create backup dir: %w", err)
+	}
+	dest := BackupPath(dir, time.Now())
+	if _, err := os.Stat(dest); err == nil {
+		return "", pruneBackups(dir, retainDays)
+	}
+
+	tmp, err := os.CreateTemp(dir, "backup-*.db.tmp")
+	if err != nil {
+		return "", fmt.Errorf("create backup file: %w", err)
+	}
+	tmp.Close()
+	defer os.Remove(tmp.Name()) // fails harmlessly after the rename
+
+	if _, err := CopyOnline(ctx, db, tmp.Name()); err != nil {
+		return "", fmt.Errorf("back up to %s: %w", dest, err)
+	}
+	if err := os.Rename(tmp.Name(), dest); err != nil {
+		return "", fmt.Errorf("finish backup: %w", err)
+	}
+	if err := pruneBackups(dir, retainDays); err != nil {
+		return dest, fmt.Errorf("prune backups: %w", err)
+	}
+	return dest, nil
+}
+
+// PruneBackups removes the daily backup files Backup and OnlineBackup
+// wrote to dir that are older than retainDays days.
+func PruneBackups(dir string, retainDays int) error {
+	return pruneBackups(dir, retainDays)
+}
+
+// backuper is implemented by modernc.org/sqlite connections.
+type backuper interface {
+	NewBackup(dstURI string) (*sqlite.Backup, error)
+	NewRestore(srcURI string) (*sqlite.Backup, error)
+}
+
+// rawBackuper runs fn on a driver connection of db that has the backup API.
+func rawBackuper(ctx context.Context, db *sql.DB, fn func(b backuper) error) error {
+	conn, err := db.Conn(ctx)
+	if err != nil {
+		return err
+	}
+	defer conn.Close()
+	return conn.Raw(func(dc any) error {
+		b, ok := dc.(backuper)
+		if !ok {
+			return fmt.Errorf("driver connection %T has no backup API", dc)
+		}
+		return fn(b)
+	})
+}
+
+// backupMaxRestarts bounds how many times CopyOnline lets the copy start
+// over. A step restarts it whenever another connection wrote to the
+// database since the last one, so under steady writes it never ends.
+const backupMaxRestarts = 3
+
+// CopyOnline copies the database behind db to the file dest through the
+// backup API, backupStepPages at a time on a reader connection, and
+// returns once dest holds a consistent copy. If writes keep restarting the
+// copy, it finishes in a single step instead, inside one read transaction,
+// and reports so with oneRead.
+func CopyOnline(ctx context.Context, db *sql.DB, dest string) (oneRead bool, err error) {
+	readers := Readers(db)
+	var pages int64
+	if err := readers.QueryRowContext(ctx, `PRAGMA page_count`).Scan(&pages); err != nil {
+		return false, fmt.Errorf("read page count: %w", err)
+	}
+	// The backup API does not say when a step started over, so restarts
+	// are counted in steps: a full pass takes pages/backupStepPages+1.
+	budget := (backupMaxRestarts + 1) * (pages/backupStepPages + 1)
+	err = rawBackuper(ctx, readers, func(b backuper) error {
+		bk, err := b.NewBackup(dest)
+		if err != nil {
+			return err
+		}
+		for steps := int64(0); ; steps++ {
+			n := int32(backupStepPages)
+			if steps >= budget {
+				n, oneRead = -1, true
+			}
+			more, err := bk.Step(n)
+			if err != nil {
+				bk.Finish()
+				return err
+			}
+			if !more {
+				return bk.Finish()
+			}
+			select {
+			case <-ctx.Done():
+				bk.Finish()
+				return ctx.Err()
+			case <-time.After(backupStepPause):
+			}
+		}
+	})
+	return oneRead, err
+}
+
+// RestoreFrom replaces the contents of db with the database file src,
+// through the writer connection. Other connections, including those of
+// other processes, see the restored data on their next read.
+func RestoreFrom(ctx context.Context, db *sql.DB, src string) error {
+	return rawBackuper(ctx, db, func(b backuper) error {
+		bk, err := b.NewRestore(src)
+		if err != nil {
+			return err
+		}
+		if _, err := bk.Step(-1); err != nil {
+			bk.Finish()
+			return fmt.Errorf("restore from %s: %w", src, err)
+		}
+		return bk.Finish()
+	})
+}
+
 // pruneBackups removes backup-YYYY-MM-DD.db files from dir that are
-// older than retainDays days.
+// older than retainDays days, and temporary files left by online backups
+// interrupted more than a day ago.
 func pruneBackups(dir string, retainDays int) error {
 	entries, err := os.ReadDir(dir)
 	if err != nil {
@@ -54,6 +198,12 @@ func pruneBackups(dir string, retainDays int) error {
 			continue
 		}
 		name := entry.Name()
+		if strings.HasPrefix(name, "backup-") && strings.HasSuffix(name, ".db.tmp") {
+			if info, err := entry.Info(); err == nil && time.Since(info.ModTime()) > 24*time.Hour {
+				os.Remove(filepath.Join(dir, name))
+			}
+			continue
+		}
 		if !strings.HasPrefix(name, "backup-") || !strings.HasSuffix(name, ".db") {
 			continue
 		}
@@ -1,6 +1,7 @@
 package database
 
 import (
+	"context"
 	"database/sql"
 	"fmt"
 	"os"
@@ -122,3 +123,117 @@ func TestBackup_PrunesOldFiles(t *testing.T) {
 		t.Errorf("today's backup should exist: %v", err)
 	}
 }
+
+func TestOnlineBackup(t *testing.T) {
+	db := newTestDB(t)
+	for i := range 2000 {
+		if _, err := db.Exec("INSERT INTO t (val) VALUES (?)", fmt.Sprintf("row %d %0200d", i, i)); err != nil {
+			t.Fatalf("insert: %v", err)
+		}
+	}
+	dir := filepath.Join(t.TempDir(), "backups")
+
+	path, err := OnlineBackup(context.Background(), db, dir, 7)
+	if err != nil {
+		t.Fatalf("OnlineBackup: %v", err)
+	}
+	if path != BackupPath(dir, time.Now()) {
+		t.Errorf("path = %q, want today's backup", path)
+	}
+	bdb, err := sql.Open("sqlite", path)
+	if err != nil {
+		t.Fatalf("open backup: %v", err)
+	}
+	defer bdb.Close()
+	var n int
+	if err := bdb.QueryRow("SELECT count(*) FROM t").Scan(&n); err != nil || n != 2001 {
+		t.Errorf("backup has %d rows (%v), want 2001", n, err)
+	}
+
+	// Today's backup exists, so a second run copies nothing.
+	if path, err := OnlineBackup(context.Background(), db, dir, 7); err != nil || path != "" {
+		t.Errorf("second OnlineBackup = %q, %v; want no new backup", path, err)
+	}
+}
+
+func TestOnlineBackup_Cancelled(t *testing.T) {
+	db := newTestDB(t)
+	dir := t.TempDir()
+	ctx, cancel := context.WithCancel(context.Background())
+	cancel()
+
+	if _, err := OnlineBackup(ctx, db, dir, 7); err == nil {
+		t.Fatal("expected an error from a cancelled backup")
+	}
+	entries, _ := os.ReadDir(dir)
+	if len(entries) != 0 {
+		t.Errorf("cancelled backup left %d files behind", len(entries))
+	}
+}
+
+func TestCopyOnline_FinishesUnderSteadyWrites(t *testing.T) {
+	src := filepath.Join(t.TempDir(), "src.db") + "?_pragma=journal_mode(WAL)&_pragma=busy_timeout(5000)"
+	db, err := sql.Open("sqlite", src)
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	defer db.Close()
+	if _, err := db.Exec("CREATE TABLE t (id INTEGER PRIMARY KEY, val TEXT)"); err != nil {
+		t.Fatalf("create table: %v", err)
+	}
+	// Several steps' worth of pages, so each write restarts a pass.
+	for i := range 8000 {
+		if _, err := db.Exec("INSERT INTO t (val) VALUES (?)", fmt.Sprintf("row %d %0200d", i, i)); err != nil {
+			t.Fatalf("insert: %v", err)
+		}
+	}
+
+	// A second connection commits throughout the copy.
+	w, err := sql.Open("sqlite", src)
+	if err != nil {
+		t.Fatalf("open writer: %v", err)
+	}
+	defer w.Close()
+	stop := make(chan struct{})
+	done := make(chan error, 1)
+	go func() {
+		for {
+			select {
+			case <-stop:
+				done <- nil
+				return
+			default:
+			}
+			if _, err := w.Exec("INSERT INTO t (val) VALUES ('more')"); err != nil {
+				done <- err
+				return
+			}
+		}
+	}()
+
+	dest := filepath.Join(t.TempDir(), "copy.db")
+	oneRead, err := CopyOnline(context.Background(), db, dest)
+	close(stop)
+	if werr := <-done; werr != nil {
+		t.Fatalf("writer: %v", werr)
+	}
+	if err != nil {
+		t.Fatalf("CopyOnline: %v", err)
+	}
+	if !oneRead {
+		t.Error("oneRead = false; want the restarted copy finished in one read")
+	}
+	cdb, err := sql.Open("sqlite", dest)
+	if err != nil {
+		t.Fatalf("open copy: %v", err)
+	}
+	defer cdb.Close()
+	var check string
+	var n int
+	if err := cdb.QueryRow("PRAGMA integrity_check").Scan(&check); err != nil || check != "ok" {
+		t.Errorf("integrity_check = %q, %v", check, err)
+	}
+	if err := cdb.QueryRow("SELECT count(*) FROM t").Scan(&n); err != nil || n < 8000 {
+		t.Errorf("copy has %d rows (%v), want at least 8000", n, err)
+	}
+}
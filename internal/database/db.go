@@ -3,40 +3,130 @@ package database
 import (
 	"database/sql"
 	"fmt"
+	"net/url"
 	"os"
 	"path/filepath"
+	"sync"
 
 	_ "modernc.org/sqlite"
 )
 
-// Open opens the shared SQLite database used by all stores.
-// The caller is responsible for closing the returned *sql.DB.
-func Open() (*sql.DB, error) {
+// Dir returns the application data directory (~/.todo-app), creating it
+// if needed.
+func Dir() (string, error) {
 	home, err := os.UserHomeDir()
 	if err != nil {
-		return nil, fmt.Errorf("home dir: %w", err)
+		return "", fmt.Errorf("home dir: %w", err)
 	}
 	dir := filepath.Join(home, ".todo-app")
 	if err := os.MkdirAll(dir, 0o755); err != nil {
-		return nil, fmt.Errorf("create dir: %w", err)
+		return "", fmt.Errorf("create dir: %w", err)
 	}
-	dbPath := filepath.Join(dir, "todo.db")
-	db, err := sql.Open("sqlite", dbPath)
+	return dir, nil
+}
+
+// connPragmas are run by the driver on every new connection, so pooled
+// connections are all set up alike. busy_timeout makes a connection wait
+// for another process's lock instead of failing with SQLITE_BUSY;
+// synchronous=NORMAL is durable in WAL mode except across power loss.
+var connPragmas = []string{
+	"foreign_keys(1)",
+	"busy_timeout(5000)",
+	"synchronous(NORMAL)",
+	"mmap_size(268435456)", // 256 MiB
+	"cache_size(-16384)",   // 16 MiB
+}
+
+// readerConns caps the reader pool. WAL lets readers run alongside each
+// other and the writer, so the TUI's concurrent loads and a CLI call do
+// not queue behind one connection.
+const readerConns = 4
+
+// readerPools maps each writer opened by Open to its reader pool.
+var readerPools sync.Map // *sql.DB -> *sql.DB
+
+// dsn returns the driver data source name for the database at path with
+// connPragmas and the given extra parameters.
+func dsn(path string, extra url.Values) string {
+	v := url.Values{"_pragma": connPragmas}
+	for k, vals := range extra {
+		v[k] = append(v[k], vals...)
+	}
+	return path + "?" + v.Encode()
+}
+
+// Open opens the shared SQLite database used by all stores. A non-empty
+// walArchive is a directory to archive WAL frames into for point-in-time
+// restore, see walarchive.go.
+// The caller is responsible for closing the returned *sql.DB with Close.
+func Open(walArchive string) (*sql.DB, error) {
+	dir, err := Dir()
 	if err != nil {
-		return nil, fmt.Errorf("open db: %w", err)
+		return nil, err
 	}
+	return open(filepath.Join(dir, "todo.db"), walArchive)
+}
 
-	// Single connection so PRAGMAs stick across all operations.
+// open opens the database at path as a single writer connection plus a
+// pool of read-only connections. Stores built on the returned writer
+// send their reads to the pool through StmtCache; transactions and writes
+// stay on the writer.
+func open(path, walArchive string) (*sql.DB, error) {
+	// Write transactions take the lock at BEGIN, so a transaction that
+	// reads first never fails upgrading to a write; busy_timeout covers
+	// the wait.
+	params := url.Values{"_txlock": {"immediate"}}
+	if walArchive != "" {
+		// The archiver checkpoints once the frames are copied.
+		params.Set("_pragma", "wal_autocheckpoint(0)")
+	}
+	db, err := sql.Open("sqlite", dsn(path, params))
+	if err != nil {
+		return nil, fmt.Errorf("open db: %w", err)
+	}
+	// SQLite allows one writer at a time anyway, and DataVersion relies on
+	// reading the same connection every time.
 	db.SetMaxOpenConns(1)
 
 	if _, err := db.Exec("PRAGMA journal_mode=WAL"); err != nil {
 		db.Close()
 		return nil, fmt.Errorf("set WAL mode: %w", err)
 	}
-	if _, err := db.Exec("PRAGMA foreign_keys=ON"); err != nil {
+
+	readers, err := sql.Open("sqlite", dsn(path, url.Values{"_pragma": {"query_only(1)"}}))
+	if err != nil {
 		db.Close()
-		return nil, fmt.Errorf("enable foreign keys: %w", err)
+		return nil, fmt.Errorf("open db readers: %w", err)
 	}
+	readers.SetMaxOpenConns(readerConns)
+	readerPools.Store(db, readers)
 
+	if walArchive != "" {
+		if err := startWALArchive(db, path, walArchive); err != nil {
+			Close(db)
+			return nil, err
+		}
+	}
 	return db, nil
 }
+
+// Readers returns the pool reads on db should use: the read-only pool Open
+// created with db, or db itself for a database opened some other way.
+func Readers(db *sql.DB) *sql.DB {
+	if r, ok := readerPools.Load(db); ok {
+		return r.(*sql.DB)
+	}
+	return db
+}
+
+// Close closes db and the reader pool Open created with it, archiving the
+// WAL a last time first if db was opened with an archive.
+func Close(db *sql.DB) error {
+	if a, ok := walArchivers.LoadAndDelete(db); ok {
+		a.(*walArchiver).close()
+	}
+	if r, ok := readerPools.LoadAndDelete(db); ok {
+		r.(*sql.DB).Close()
+	}
+	return db.Close()
+}
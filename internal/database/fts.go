@@ -0,0 +1,50 @@
+package database
+
+import (
+	"strings"
+	"unicode/utf8"
+)
+
+// MinSearchLen is the shortest term the trigram full-text indexes can match.
+// Shorter terms must fall back to a LIKE scan.
+const MinSearchLen = 3
+
+// MatchAll builds an FTS5 MATCH expression that requires every
+// whitespace-separated term of text to appear as a substring. Each term is
+// quoted as a phrase so FTS5 operators in user input are matched literally.
+// ok is false when text is empty or any term is shorter than MinSearchLen.
+func MatchAll(text string) (expr string, ok bool) {
+	terms := strings.Fields(text)
+	if len(terms) == 0 {
+		return "", false
+	}
+	phrases := make([]string, len(terms))
+	for i, term := range terms {
+		if utf8.RuneCountInString(term) < MinSearchLen {
+			return "", false
+		}
+		phrases[i] = quotePhrase(term)
+	}
+	return strings.Join(phrases, " "), true
+}
+
+// MatchSubstring builds an FTS5 MATCH expression that matches text as one
+// contiguous substring, the same rows a LIKE '%text%' would find. ok is
+// false when text is shorter than MinSearchLen.
+func MatchSubstring(text string) (expr string, ok bool) {
+	if utf8.RuneCountInString(text) < MinSearchLen {
+		return "", false
+	}
+	return quotePhrase(text), true
+}
+
+func quotePhrase(s string) string {
+	return `"` + strings.ReplaceAll(s, `"`, `""`) + `"`
+}
+
+// EscapeLike escapes LIKE wildcards so s matches literally in a pattern
+// used with ESCAPE '\'.
+func EscapeLike(s string) string {
+	r := strings.NewReplacer(`\`, `\\`, `%`, `\%`, `_`, `\_`)
+	return r.Replace(s)
+}
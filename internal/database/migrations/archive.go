@@ -0,0 +1,20 @@
+package migrations
+
+import "database/sql"
+
+// archive adds the cold tier done tasks move to once they are old enough.
+// Each archived task is one row holding the task and all of its relations
+// as JSON, so history costs the hot tables nothing. The status index finds
+// archive candidates without scanning the open tasks.
+func archive(tx *sql.Tx) error {
+	return execAll(tx, []string{
+		`CREATE TABLE IF NOT EXISTS archived_tasks (
+			id           INTEGER PRIMARY KEY,
+			title        TEXT NOT NULL,
+			completed_at INTEGER NOT NULL,
+			data         TEXT NOT NULL
+		)`,
+		`CREATE INDEX IF NOT EXISTS idx_archived_tasks_completed ON archived_tasks(completed_at, id)`,
+		`CREATE INDEX IF NOT EXISTS idx_tasks_status_updated ON tasks(status, updated_at)`,
+	})
+}
@@ -0,0 +1,262 @@
+package migrations
+
+import (
+	"database/sql"
+	"fmt"
+	"strings"
+)
+
+// baseline is the schema as it stood before versioned migrations. Databases
+// created by earlier builds have user_version 0 and some or all of it
+// already, so every step checks before it creates.
+func baseline(tx *sql.Tx) error {
+	if err := execAll(tx, taskTables); err != nil {
+		return fmt.Errorf("tasks: %w", err)
+	}
+	for _, col := range []struct{ name, def string }{
+		{"recur_freq", "INTEGER NOT NULL DEFAULT 0"},
+		{"recur_interval", "INTEGER NOT NULL DEFAULT 0"},
+		{"metadata", "TEXT NOT NULL DEFAULT '{}'"},
+	} {
+		if err := addColumnIfNotExists(tx, "tasks", col.name, col.def); err != nil {
+			return fmt.Errorf("tasks.%s: %w", col.name, err)
+		}
+	}
+	if err := createOnce(tx, "task_fts", taskSearch); err != nil {
+		return fmt.Errorf("task search index: %w", err)
+	}
+	if err := execAll(tx, changeLog()); err != nil {
+		return fmt.Errorf("change log: %w", err)
+	}
+
+	if err := execAll(tx, journalTables); err != nil {
+		return fmt.Errorf("journal: %w", err)
+	}
+	if err := createOnce(tx, "journal_fts", journalSearch); err != nil {
+		return fmt.Errorf("journal search index: %w", err)
+	}
+
+	if err := execAll(tx, focusTables); err != nil {
+		return fmt.Errorf("focus: %w", err)
+	}
+	for _, col := range []struct{ name, def string }{
+		{"kind", "INTEGER NOT NULL DEFAULT 0"},
+		{"cycle_pos", "INTEGER NOT NULL DEFAULT 0"},
+	} {
+		if err := addColumnIfNotExists(tx, "focus_sessions", col.name, col.def); err != nil {
+			return fmt.Errorf("focus_sessions.%s: %w", col.name, err)
+		}
+	}
+	return nil
+}
+
+// createOnce runs stmts unless the object name already exists. Used for the
+// full-text indexes, whose backfill must not run twice.
+func createOnce(tx *sql.Tx, name string, stmts []string) error {
+	ok, err := exists(tx, name)
+	if err != nil || ok {
+		return err
+	}
+	return execAll(tx, stmts)
+}
+
+var taskTables = []string{
+	`CREATE TABLE IF NOT EXISTS tasks (
+		id          INTEGER PRIMARY KEY AUTOINCREMENT,
+		title       TEXT NOT NULL,
+		description TEXT NOT NULL DEFAULT '',
+		status      INTEGER NOT NULL DEFAULT 0,
+		priority    INTEGER NOT NULL DEFAULT 0,
+		due_date    TEXT,
+		created_at  TEXT NOT NULL,
+		updated_at  TEXT NOT NULL
+	)`,
+	`CREATE TABLE IF NOT EXISTS subtasks (
+		id         INTEGER PRIMARY KEY AUTOINCREMENT,
+		task_id    INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
+		title      TEXT NOT NULL,
+		completed  INTEGER NOT NULL DEFAULT 0,
+		position   INTEGER NOT NULL DEFAULT 0
+	)`,
+	`CREATE TABLE IF NOT EXISTS tags (
+		id      INTEGER PRIMARY KEY AUTOINCREMENT,
+		task_id INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
+		name    TEXT NOT NULL
+	)`,
+	`CREATE INDEX IF NOT EXISTS idx_subtasks_task ON subtasks(task_id)`,
+	`CREATE INDEX IF NOT EXISTS idx_tags_task ON tags(task_id)`,
+	`CREATE TABLE IF NOT EXISTS time_logs (
+		id        INTEGER PRIMARY KEY AUTOINCREMENT,
+		task_id   INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
+		duration  INTEGER NOT NULL,
+		note      TEXT NOT NULL DEFAULT '',
+		logged_at TEXT NOT NULL
+	)`,
+	`CREATE INDEX IF NOT EXISTS idx_time_logs_task ON time_logs(task_id)`,
+	`CREATE TABLE IF NOT EXISTS task_dependencies (
+		task_id    INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
+		blocked_by INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
+		PRIMARY KEY (task_id, blocked_by)
+	)`,
+	`CREATE INDEX IF NOT EXISTS idx_task_deps_blocked_by ON task_dependencies(blocked_by)`,
+	`CREATE TABLE IF NOT EXISTS task_notes (
+		id         INTEGER PRIMARY KEY AUTOINCREMENT,
+		task_id    INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
+		body       TEXT NOT NULL,
+		created_at TEXT NOT NULL
+	)`,
+	`CREATE INDEX IF NOT EXISTS idx_task_notes_task ON task_notes(task_id)`,
+	// Keyset pagination indexes, one per sort order (see task.ListPage).
+	`CREATE INDEX IF NOT EXISTS idx_tasks_created ON tasks(created_at, id)`,
+	`CREATE INDEX IF NOT EXISTS idx_tasks_due ON tasks(due_date, created_at, id)`,
+	`CREATE INDEX IF NOT EXISTS idx_tasks_priority ON tasks(priority, created_at, id)`,
+}
+
+// task_fts indexes task titles and descriptions alongside note bodies with
+// the trigram tokenizer, so any substring of at least three characters is an
+// index lookup. Tasks and notes share the table: a task's rowid is id*2 and a
+// note's is id*2+1, so both kinds can be addressed without a separate key.
+var taskSearch = []string{
+	`CREATE VIRTUAL TABLE task_fts USING fts5(title, body, task_id UNINDEXED, tokenize='trigram')`,
+	`CREATE TRIGGER task_fts_ai AFTER INSERT ON tasks BEGIN
+		INSERT INTO task_fts(rowid, title, body, task_id) VALUES (new.id*2, new.title, new.description, new.id);
+	END`,
+	`CREATE TRIGGER task_fts_au AFTER UPDATE OF title, description ON tasks BEGIN
+		DELETE FROM task_fts WHERE rowid = old.id*2;
+		INSERT INTO task_fts(rowid, title, body, task_id) VALUES (new.id*2, new.title, new.description, new.id);
+	END`,
+	`CREATE TRIGGER task_fts_ad AFTER DELETE ON tasks BEGIN
+		DELETE FROM task_fts WHERE rowid = old.id*2;
+	END`,
+	`CREATE TRIGGER task_notes_fts_ai AFTER INSERT ON task_notes BEGIN
+		INSERT INTO task_fts(rowid, title, body, task_id) VALUES (new.id*2+1, '', new.body, new.task_id);
+	END`,
+	`CREATE TRIGGER task_notes_fts_au AFTER UPDATE OF body ON task_notes BEGIN
+		DELETE FROM task_fts WHERE rowid = old.id*2+1;
+		INSERT INTO task_fts(rowid, title, body, task_id) VALUES (new.id*2+1, '', new.body, new.task_id);
+	END`,
+	`CREATE TRIGGER task_notes_fts_ad AFTER DELETE ON task_notes BEGIN
+		DELETE FROM task_fts WHERE rowid = old.id*2+1;
+	END`,
+	// Backfill rows written before the index existed.
+	`INSERT INTO task_fts(rowid, title, body, task_id) SELECT id*2, title, description, id FROM tasks`,
+	`INSERT INTO task_fts(rowid, title, body, task_id) SELECT id*2+1, '', body, task_id FROM task_notes`,
+}
+
+// changeLogKeep is roughly how many task_changes rows survive pruning.
+// Readers that fall further behind get task.ErrChangesTruncated and reload.
+const changeLogKeep = 10000
+
+// changeLogTables lists each table that hangs off a task and the columns
+// naming the task(s) a row change touches. A dependency row touches both
+// ends: the blocked task's blocked flag and the blocker's blocks list.
+var changeLogTables = []struct {
+	table string
+	cols  []string
+}{
+	{"subtasks", []string{"task_id"}},
+	{"tags", []string{"task_id"}},
+	{"task_notes", []string{"task_id"}},
+	{"time_logs", []string{"task_id"}},
+	{"task_dependencies", []string{"task_id", "blocked_by"}},
+}
+
+// changeLog returns the task_changes table and the triggers that append the
+// ID of every touched task to it.
+func changeLog() []string {
+	stmts := []string{
+		`CREATE TABLE IF NOT EXISTS task_changes (
+			seq     INTEGER PRIMARY KEY AUTOINCREMENT,
+			task_id INTEGER NOT NULL
+		)`,
+		// Pruning is amortized over writes instead of run at every startup.
+		fmt.Sprintf(`CREATE TRIGGER IF NOT EXISTS task_changes_prune AFTER INSERT ON task_changes
+			WHEN new.seq %% 1000 = 0 BEGIN
+			DELETE FROM task_changes WHERE seq <= new.seq - %d;
+		END`, changeLogKeep),
+		`CREATE TRIGGER IF NOT EXISTS task_changes_tasks_ai AFTER INSERT ON tasks BEGIN
+			INSERT INTO task_changes(task_id) VALUES (new.id);
+		END`,
+		// A status change can flip the blocked flag of every task this one
+		// blocks, so those are logged too.
+		`CREATE TRIGGER IF NOT EXISTS task_changes_tasks_au AFTER UPDATE ON tasks BEGIN
+			INSERT INTO task_changes(task_id) VALUES (new.id);
+			INSERT INTO task_changes(task_id)
+				SELECT task_id FROM task_dependencies WHERE blocked_by = new.id AND old.status != new.status;
+		END`,
+		`CREATE TRIGGER IF NOT EXISTS task_changes_tasks_ad AFTER DELETE ON tasks BEGIN
+			INSERT INTO task_changes(task_id) VALUES (old.id);
+		END`,
+	}
+	for _, t := range changeLogTables {
+		var ins, upd, del []string
+		for _, col := range t.cols {
+			ins = append(ins, "INSERT INTO task_changes(task_id) VALUES (new."+col+");")
+			upd = append(upd,
+				"INSERT INTO task_changes(task_id) VALUES (new."+col+");",
+				"INSERT INTO task_changes(task_id) SELECT old."+col+" WHERE old."+col+" != new."+col+";")
+			del = append(del, "INSERT INTO task_changes(task_id) VALUES (old."+col+");")
+		}
+		for _, trg := range []struct {
+			suffix, event string
+			body          []string
+		}{
+			{"ai", "INSERT", ins},
+			{"au", "UPDATE", upd},
+			{"ad", "DELETE", del},
+		} {
+			stmts = append(stmts, fmt.Sprintf(
+				"CREATE TRIGGER IF NOT EXISTS task_changes_%s_%s AFTER %s ON %s BEGIN %s END",
+				t.table, trg.suffix, trg.event, t.table, strings.Join(trg.body, " "),
+			))
+		}
+	}
+	return stmts
+}
+
+var journalTables = []string{
+	`CREATE TABLE IF NOT EXISTS journal_notes (
+		id         INTEGER PRIMARY KEY AUTOINCREMENT,
+		date       TEXT NOT NULL UNIQUE,
+		hidden     INTEGER NOT NULL DEFAULT 0,
+		created_at TEXT NOT NULL,
+		updated_at TEXT NOT NULL
+	)`,
+	`CREATE TABLE IF NOT EXISTS journal_entries (
+		id         INTEGER PRIMARY KEY AUTOINCREMENT,
+		note_id    INTEGER NOT NULL REFERENCES journal_notes(id) ON DELETE CASCADE,
+		body       TEXT NOT NULL,
+		created_at TEXT NOT NULL
+	)`,
+	`CREATE INDEX IF NOT EXISTS idx_journal_entries_note ON journal_entries(note_id)`,
+	`CREATE INDEX IF NOT EXISTS idx_journal_notes_date ON journal_notes(date)`,
+}
+
+// journal_fts indexes entry bodies with the trigram tokenizer. Its rowid is
+// the journal_entries id.
+var journalSearch = []string{
+	`CREATE VIRTUAL TABLE journal_fts USING fts5(body, tokenize='trigram')`,
+	`CREATE TRIGGER journal_fts_ai AFTER INSERT ON journal_entries BEGIN
+		INSERT INTO journal_fts(rowid, body) VALUES (new.id, new.body);
+	END`,
+	`CREATE TRIGGER journal_fts_au AFTER UPDATE OF body ON journal_entries BEGIN
+		DELETE FROM journal_fts WHERE rowid = old.id;
+		INSERT INTO journal_fts(rowid, body) VALUES (new.id, new.body);
+	END`,
+	`CREATE TRIGGER journal_fts_ad AFTER DELETE ON journal_entries BEGIN
+		DELETE FROM journal_fts WHERE rowid = old.id;
+	END`,
+	// Backfill entries written before the index existed.
+	`INSERT INTO journal_fts(rowid, body) SELECT id, body FROM journal_entries`,
+}
+
+var focusTables = []string{
+	`CREATE TABLE IF NOT EXISTS focus_sessions (
+		id           INTEGER PRIMARY KEY AUTOINCREMENT,
+		task_id      INTEGER NOT NULL DEFAULT 0,
+		duration     INTEGER NOT NULL,
+		started_at   TEXT NOT NULL,
+		completed_at TEXT
+	)`,
+	`CREATE INDEX IF NOT EXISTS idx_focus_sessions_task ON focus_sessions(task_id)`,
+}
@@ -0,0 +1,69 @@
+package migrations
+
+import (
+	"database/sql"
+	"fmt"
+)
+
+// epochMillisColumns lists the timestamp columns that migration 2 converts
+// from RFC3339 text to INTEGER unix milliseconds. Calendar dates (due_date,
+// journal_notes.date) stay "YYYY-MM-DD" text.
+var epochMillisColumns = []struct {
+	table, column string
+	nullable      bool
+}{
+	{"tasks", "created_at", false},
+	{"tasks", "updated_at", false},
+	{"task_notes", "created_at", false},
+	{"time_logs", "logged_at", false},
+	{"journal_notes", "created_at", false},
+	{"journal_notes", "updated_at", false},
+	{"journal_entries", "created_at", false},
+	{"focus_sessions", "started_at", false},
+	{"focus_sessions", "completed_at", true},
+}
+
+// epochMillis stores timestamps as integers, so range filters, ordering, and
+// grouping by day compare integers and can use an index instead of parsing
+// or formatting text per row. Indexes over converted columns are dropped
+// first because SQLite will not drop a column an index still uses. Columns
+// already declared INTEGER are left alone, so a database whose user_version
+// was lost converts cleanly when the migrations run again.
+func epochMillis(tx *sql.Tx) error {
+	if err := execAll(tx, []string{
+		`DROP INDEX IF EXISTS idx_tasks_created`,
+		`DROP INDEX IF EXISTS idx_tasks_due`,
+		`DROP INDEX IF EXISTS idx_tasks_priority`,
+	}); err != nil {
+		return err
+	}
+	for _, c := range epochMillisColumns {
+		var typ string
+		if err := tx.QueryRow(`SELECT type FROM pragma_table_info(?) WHERE name = ?`, c.table, c.column).Scan(&typ); err != nil {
+			return fmt.Errorf("%s.%s: %w", c.table, c.column, err)
+		}
+		if typ == "INTEGER" {
+			continue
+		}
+		def, value := "INTEGER NOT NULL DEFAULT 0", "coalesce(%s, 0)"
+		if c.nullable {
+			def, value = "INTEGER", "%s"
+		}
+		old := c.column + "_text"
+		millis := fmt.Sprintf(value, "CAST(unixepoch("+old+", 'subsec') * 1000 AS INTEGER)")
+		if err := execAll(tx, []string{
+			fmt.Sprintf(`ALTER TABLE %s RENAME COLUMN %s TO %s`, c.table, c.column, old),
+			fmt.Sprintf(`ALTER TABLE %s ADD COLUMN %s %s`, c.table, c.column, def),
+			fmt.Sprintf(`UPDATE %s SET %s = %s`, c.table, c.column, millis),
+			fmt.Sprintf(`ALTER TABLE %s DROP COLUMN %s`, c.table, old),
+		}); err != nil {
+			return fmt.Errorf("%s.%s: %w", c.table, c.column, err)
+		}
+	}
+	return execAll(tx, []string{
+		`CREATE INDEX idx_tasks_created ON tasks(created_at, id)`,
+		`CREATE INDEX idx_tasks_due ON tasks(due_date, created_at, id)`,
+		`CREATE INDEX idx_tasks_priority ON tasks(priority, created_at, id)`,
+		`CREATE INDEX IF NOT EXISTS idx_focus_sessions_completed ON focus_sessions(completed_at)`,
+	})
+}
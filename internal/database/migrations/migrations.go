@@ -0,0 +1,146 @@
+// Package migrations owns the schema of the shared SQLite database. Each
+// migration runs once, in order, and the number of applied migrations is
+// recorded in PRAGMA user_version, so opening an up-to-date database costs a
+// single integer read.
+package migrations
+
+import (
+	"database/sql"
+	"fmt"
+	"sync"
+)
+
+// Migration is one numbered schema change.
+type Migration struct {
+	Version int
+	Name    string
+	Up      func(tx *sql.Tx) error
+}
+
+// all is the ordered list of migrations. Append new ones at the end with the
+// next version number; never edit or reorder an entry that has shipped.
+var all = []Migration{
+	{1, "baseline", baseline},
+	{2, "epoch_millis", epochMillis},
+	{3, "tag_index", tagIndex},
+	{4, "task_meta", taskMeta},
+	{5, "archive", archive},
+	{6, "trash", trash},
+}
+
+// Latest returns the schema version this build migrates to.
+func Latest() int {
+	return all[len(all)-1].Version
+}
+
+// applied remembers databases already brought up to date by this process,
+// so the stores sharing a connection pool check the version only once.
+var applied sync.Map // *sql.DB -> struct{}
+
+// Apply brings db up to the latest schema version. It is safe to call from
+// every store constructor.
+func Apply(db *sql.DB) error {
+	if _, ok := applied.Load(db); ok {
+		return nil
+	}
+	if err := apply(db, all); err != nil {
+		return err
+	}
+	applied.Store(db, struct{}{})
+	return nil
+}
+
+// Version returns the schema version recorded in db.
+func Version(db *sql.DB) (int, error) {
+	var v int
+	err := db.QueryRow(`PRAGMA user_version`).Scan(&v)
+	return v, err
+}
+
+func apply(db *sql.DB, migrations []Migration) error {
+	current, err := Version(db)
+	if err != nil {
+		return fmt.Errorf("read schema version: %w", err)
+	}
+	latest := migrations[len(migrations)-1].Version
+	if current > latest {
+		return fmt.Errorf("database schema version %d is newer than this build supports (%d)", current, latest)
+	}
+	for i, m := range migrations {
+		if m.Version != i+1 {
+			return fmt.Errorf("migration %q has version %d, want %d", m.Name, m.Version, i+1)
+		}
+		if m.Version <= current {
+			continue
+		}
+		if err := run(db, m); err != nil {
+			// A process that read the same version and committed first
+			// makes this one fail at its first write; its work stands.
+			if v, verr := Version(db); verr == nil && v >= m.Version {
+				continue
+			}
+			return fmt.Errorf("migration %d (%s): %w", m.Version, m.Name, err)
+		}
+	}
+	return nil
+}
+
+// run applies m and records its version in one transaction, so a failed
+// migration leaves the schema and user_version untouched. The version is
+// read again inside the transaction and m skipped if another process, such
+// as the TUI and its backup helper starting together, applied it since
+// apply looked. database.Open's writer begins transactions IMMEDIATE, so
+// that read already holds the write lock.
+func run(db *sql.DB, m Migration) error {
+	tx, err := db.Begin()
+	if err != nil {
+		return err
+	}
+	defer tx.Rollback()
+	var current int
+	if err := tx.QueryRow(`PRAGMA user_version`).Scan(&current); err != nil {
+		return err
+	}
+	if current >= m.Version {
+		return nil
+	}
+	if err := m.Up(tx); err != nil {
+		return err
+	}
+	if _, err := tx.Exec(fmt.Sprintf(`PRAGMA user_version = %d`, m.Version)); err != nil {
+		return err
+	}
+	return tx.Commit()
+}
+
+// execAll runs stmts in order.
+func execAll(tx *sql.Tx, stmts []string) error {
+	for _, stmt := range stmts {
+		if _, err := tx.Exec(stmt); err != nil {
+			return err
+		}
+	}
+	return nil
+}
+
+// exists reports whether a table, index, or trigger named name exists.
+func exists(tx *sql.Tx, name string) (bool, error) {
+	var n int
+	err := tx.QueryRow(`SELECT count(*) FROM sqlite_master WHERE name = ?`, name).Scan(&n)
+	return n > 0, err
+}
+
+// addColumnIfNotExists adds column to table unless a previous build already
+// did. Only the baseline needs this; later migrations know the schema they
+// start from.
+func addColumnIfNotExists(tx *sql.Tx, table, column, colDef string) error {
+	var n int
+	if err := tx.QueryRow(`SELECT count(*) FROM pragma_table_info(?) WHERE name = ?`, table, column).Scan(&n); err != nil {
+		return err
+	}
+	if n > 0 {
+		return nil
+	}
+	_, err := tx.Exec(fmt.Sprintf("ALTER TABLE %s ADD COLUMN %s %s", table, column, colDef))
+	return err
+}
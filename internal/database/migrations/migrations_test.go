@@ -0,0 +1,335 @@
+package migrations
+
+import (
+	"database/sql"
+	"path/filepath"
+	"strings"
+	"testing"
+
+	_ "modernc.org/sqlite"
+)
+
+func openTestDB(tb testing.TB) *sql.DB {
+	tb.Helper()
+	db, err := sql.Open("sqlite", filepath.Join(tb.TempDir(), "todo.db"))
+	if err != nil {
+		tb.Fatalf("open: %v", err)
+	}
+	db.SetMaxOpenConns(1)
+	tb.Cleanup(func() { db.Close() })
+	return db
+}
+
+func count(t *testing.T, db *sql.DB, query string, args ...any) int {
+	t.Helper()
+	var n int
+	if err := db.QueryRow(query, args...).Scan(&n); err != nil {
+		t.Fatalf("%s: %v", query, err)
+	}
+	return n
+}
+
+func TestApply_FreshDatabase(t *testing.T) {
+	db := openTestDB(t)
+	if err := Apply(db); err != nil {
+		t.Fatalf("Apply: %v", err)
+	}
+	if v, _ := Version(db); v != Latest() {
+		t.Errorf("user_version = %d, want %d", v, Latest())
+	}
+	for _, name := range []string{"tasks", "task_fts", "task_changes", "journal_entries", "journal_fts", "focus_sessions"} {
+		if count(t, db, `SELECT count(*) FROM sqlite_master WHERE name = ?`, name) != 1 {
+			t.Errorf("missing %s", name)
+		}
+	}
+}
+
+func TestApply_LegacyDatabase(t *testing.T) {
+	db := openTestDB(t)
+	// A tasks table as written by the first releases, before recurrence,
+	// metadata, and the search index.
+	for _, stmt := range []string{
+		`CREATE TABLE tasks (
+			id          INTEGER PRIMARY KEY AUTOINCREMENT,
+			title       TEXT NOT NULL,
+			description TEXT NOT NULL DEFAULT '',
+			status      INTEGER NOT NULL DEFAULT 0,
+			priority    INTEGER NOT NULL DEFAULT 0,
+			due_date    TEXT,
+			created_at  TEXT NOT NULL,
+			updated_at  TEXT NOT NULL
+		)`,
+		`INSERT INTO tasks (title, created_at, updated_at) VALUES ('legacy task', '2024-01-01T00:00:00Z', '2024-01-01T00:00:00Z')`,
+	} {
+		if _, err := db.Exec(stmt); err != nil {
+			t.Fatalf("seed: %v", err)
+		}
+	}
+
+	if err := apply(db, all); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+	if count(t, db, `SELECT count(*) FROM pragma_table_info('tasks') WHERE name = 'metadata'`) != 1 {
+		t.Error("metadata column not added")
+	}
+	if count(t, db, `SELECT count(*) FROM task_fts WHERE task_fts MATCH 'legacy'`) != 1 {
+		t.Error("existing task not backfilled into the search index")
+	}
+}
+
+func TestApply_EpochMillis(t *testing.T) {
+	db := openTestDB(t)
+	if err := apply(db, all[:1]); err != nil {
+		t.Fatalf("apply baseline: %v", err)
+	}
+	for _, stmt := range []string{
+		`INSERT INTO tasks (title, created_at, updated_at) VALUES ('t', '2024-01-02T03:04:05Z', '2024-01-02T05:04:05+02:00')`,
+		`INSERT INTO focus_sessions (duration, started_at, completed_at) VALUES (1, '2024-01-02T03:04:05Z', NULL)`,
+	} {
+		if _, err := db.Exec(stmt); err != nil {
+			t.Fatalf("seed: %v", err)
+		}
+	}
+	if err := apply(db, all); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+
+	const want = 1704164645000 // 2024-01-02T03:04:05Z
+	var created, updated int64
+	if err := db.QueryRow(`SELECT created_at, updated_at FROM tasks`).Scan(&created, &updated); err != nil {
+		t.Fatalf("read task: %v", err)
+	}
+	if created != want || updated != want {
+		t.Errorf("task timestamps = %d, %d; want %d", created, updated, want)
+	}
+	var completed sql.NullInt64
+	if err := db.QueryRow(`SELECT completed_at FROM focus_sessions`).Scan(&completed); err != nil {
+		t.Fatalf("read session: %v", err)
+	}
+	if completed.Valid {
+		t.Errorf("completed_at = %d, want NULL", completed.Int64)
+	}
+	if n := count(t, db, `SELECT count(*) FROM pragma_table_info('tasks') WHERE name LIKE '%_text'`); n != 0 {
+		t.Errorf("%d text columns left behind", n)
+	}
+	if count(t, db, `SELECT count(*) FROM sqlite_master WHERE name = 'idx_tasks_created'`) != 1 {
+		t.Error("idx_tasks_created not recreated")
+	}
+}
+
+func TestApply_TagIndex(t *testing.T) {
+	db := openTestDB(t)
+	if err := apply(db, all[:2]); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+	for _, stmt := range []string{
+		`INSERT INTO tasks (id, title) VALUES (1, 'a'), (2, 'b')`,
+		`INSERT INTO tags (task_id, name) VALUES (1, 'Work'), (1, 'home'), (2, 'work'), (2, ' '), (1, 'WORK')`,
+	} {
+		if _, err := db.Exec(stmt); err != nil {
+			t.Fatalf("seed: %v", err)
+		}
+	}
+	if err := apply(db, all); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+
+	if n := count(t, db, `SELECT count(*) FROM tag_names`); n != 2 {
+		t.Errorf("tag_names has %d rows, want 2", n)
+	}
+	var names string
+	if err := db.QueryRow(`SELECT group_concat(n.name, ',') FROM (SELECT n.name FROM task_tags tt
+		JOIN tag_names n ON n.id = tt.tag_id WHERE tt.task_id = 1 ORDER BY tt.position) n`).Scan(&names); err != nil {
+		t.Fatalf("read tags: %v", err)
+	}
+	if names != "Work,home" {
+		t.Errorf("task 1 tags = %q, want Work,home", names)
+	}
+	if count(t, db, `SELECT count(*) FROM task_tags WHERE task_id = 2`) != 1 {
+		t.Error("task 2 should keep one tag")
+	}
+	if count(t, db, `SELECT count(*) FROM sqlite_master WHERE name = 'tags'`) != 0 {
+		t.Error("tags table not dropped")
+	}
+}
+
+func TestApply_TaskMeta(t *testing.T) {
+	db := openTestDB(t)
+	if err := apply(db, all[:3]); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+	if _, err := db.Exec(`INSERT INTO tasks (title, metadata) VALUES ('a', '{"ticket":"OPS-1"}'), ('b', 'not json')`); err != nil {
+		t.Fatalf("seed: %v", err)
+	}
+	if err := apply(db, all); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+	if n := count(t, db, `SELECT count(*) FROM task_meta WHERE key = 'ticket' AND value = 'OPS-1'`); n != 1 {
+		t.Errorf("backfilled %d rows, want 1", n)
+	}
+	if _, err := db.Exec(`UPDATE tasks SET metadata = '{}' WHERE title = 'a'`); err != nil {
+		t.Fatalf("update: %v", err)
+	}
+	if n := count(t, db, `SELECT count(*) FROM task_meta`); n != 0 {
+		t.Errorf("task_meta has %d rows after clearing metadata, want 0", n)
+	}
+}
+
+func TestApply_Archive(t *testing.T) {
+	db := openTestDB(t)
+	if err := apply(db, all); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+	for _, name := range []string{"archived_tasks", "idx_archived_tasks_completed", "idx_tasks_status_updated"} {
+		if n := count(t, db, `SELECT count(*) FROM sqlite_master WHERE name = ?`, name); n != 1 {
+			t.Errorf("%s missing", name)
+		}
+	}
+}
+
+func TestApply_Trash(t *testing.T) {
+	db := openTestDB(t)
+	if err := apply(db, all); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+	for _, name := range []string{"idx_tasks_created", "idx_tasks_due", "idx_tasks_priority", "idx_tasks_status_updated"} {
+		if n := count(t, db, `SELECT count(*) FROM sqlite_master WHERE name = ? AND sql LIKE '%WHERE deleted_at IS NULL'`, name); n != 1 {
+			t.Errorf("%s should be partial over live tasks", name)
+		}
+	}
+
+	// The list order is served by the partial index once tombstones are
+	// excluded.
+	rows, err := db.Query(`EXPLAIN QUERY PLAN SELECT t.id FROM tasks t
+		WHERE t.deleted_at IS NULL ORDER BY t.created_at DESC, t.id DESC`)
+	if err != nil {
+		t.Fatalf("explain: %v", err)
+	}
+	defer rows.Close()
+	var plan string
+	for rows.Next() {
+		var id, parent, notUsed int
+		var detail string
+		if err := rows.Scan(&id, &parent, &notUsed, &detail); err != nil {
+			t.Fatalf("scan: %v", err)
+		}
+		plan += detail + "\n"
+	}
+	if !strings.Contains(plan, "idx_tasks_created") {
+		t.Errorf("expected idx_tasks_created in plan:\n%s", plan)
+	}
+}
+
+func TestApply_BaselineIsIdempotent(t *testing.T) {
+	db := openTestDB(t)
+	if err := apply(db, all); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+	if _, err := db.Exec(`INSERT INTO tasks (title, created_at, updated_at) VALUES ('once', '2024-01-01T00:00:00Z', '2024-01-01T00:00:00Z')`); err != nil {
+		t.Fatalf("insert: %v", err)
+	}
+	// A database created by a build that predates user_version tracking.
+	if _, err := db.Exec(`PRAGMA user_version = 0`); err != nil {
+		t.Fatalf("reset version: %v", err)
+	}
+	if err := apply(db, all); err != nil {
+		t.Fatalf("re-apply baseline: %v", err)
+	}
+	if n := count(t, db, `SELECT count(*) FROM task_fts`); n != 1 {
+		t.Errorf("search index has %d rows after re-running the baseline, want 1", n)
+	}
+}
+
+func TestApply_RejectsNewerSchema(t *testing.T) {
+	db := openTestDB(t)
+	if _, err := db.Exec(`PRAGMA user_version = 1000`); err != nil {
+		t.Fatalf("set version: %v", err)
+	}
+	if err := apply(db, all); err == nil {
+		t.Error("expected an error for a schema newer than this build")
+	}
+}
+
+func TestApply_FailedMigrationRollsBack(t *testing.T) {
+	db := openTestDB(t)
+	broken := append(all[:len(all):len(all)], Migration{Latest() + 1, "broken", func(tx *sql.Tx) error {
+		_, err := tx.Exec(`CREATE TABLE half_done (id INTEGER)`)
+		if err == nil {
+			_, err = tx.Exec(`NOT VALID SQL`)
+		}
+		return err
+	}})
+	if err := apply(db, broken); err == nil {
+		t.Fatal("expected the broken migration to fail")
+	}
+	if v, _ := Version(db); v != Latest() {
+		t.Errorf("user_version = %d, want %d", v, Latest())
+	}
+	if count(t, db, `SELECT count(*) FROM sqlite_master WHERE name = 'half_done'`) != 0 {
+		t.Error("failed migration was not rolled back")
+	}
+}
+
+func TestApply_SkipsMigrationAppliedByAnotherProcess(t *testing.T) {
+	path := filepath.Join(t.TempDir(), "todo.db")
+	var dbs [2]*sql.DB
+	for i := range dbs {
+		db, err := sql.Open("sqlite", path+"?_txlock=immediate&_pragma=busy_timeout(5000)")
+		if err != nil {
+			t.Fatalf("open: %v", err)
+		}
+		db.SetMaxOpenConns(1)
+		t.Cleanup(func() { db.Close() })
+		dbs[i] = db
+	}
+	first, second := dbs[0], dbs[1]
+	if err := apply(first, all[:len(all)-1]); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+	// Both processes saw the last migration pending; the first applies it.
+	if err := apply(first, all); err != nil {
+		t.Fatalf("apply: %v", err)
+	}
+	if err := run(second, all[len(all)-1]); err != nil {
+		t.Errorf("second run of migration %d = %v, want it skipped", Latest(), err)
+	}
+	if v, _ := Version(second); v != Latest() {
+		t.Errorf("user_version = %d, want %d", v, Latest())
+	}
+}
+
+// BenchmarkStartup compares the schema work done by each process start:
+// "unversioned" re-runs the baseline DDL and column probes, as every start
+// did before migrations were versioned; "versioned" is the current path
+// against an up-to-date database.
+func BenchmarkStartup(b *testing.B) {
+	b.Run("unversioned", func(b *testing.B) {
+		db := openTestDB(b)
+		if err := apply(db, all); err != nil {
+			b.Fatalf("apply: %v", err)
+		}
+		for b.Loop() {
+			tx, err := db.Begin()
+			if err != nil {
+				b.Fatal(err)
+			}
+			if err := baseline(tx); err != nil {
+				b.Fatal(err)
+			}
+			if err := tx.Commit(); err != nil {
+				b.Fatal(err)
+			}
+		}
+	})
+	b.Run("versioned", func(b *testing.B) {
+		db := openTestDB(b)
+		if err := apply(db, all); err != nil {
+			b.Fatalf("apply: %v", err)
+		}
+		for b.Loop() {
+			if err := apply(db, all); err != nil {
+				b.Fatal(err)
+			}
+		}
+	})
+}
@@ -0,0 +1,46 @@
+package migrations
+
+import "database/sql"
+
+// tagIndex replaces the per-task tags table with a tag_names dictionary and
+// a task_tags junction indexed both ways, so listing tags, counting them,
+// and finding the tasks that carry one are index lookups. Names compare
+// case-insensitively through the NOCASE unique index; the spelling stored is
+// the first one seen. Each tag's position preserves the order it was given
+// in. A tag is removed from the dictionary when its last task drops it.
+func tagIndex(tx *sql.Tx) error {
+	return execAll(tx, []string{
+		`CREATE TABLE IF NOT EXISTS tag_names (
+			id   INTEGER PRIMARY KEY,
+			name TEXT NOT NULL UNIQUE COLLATE NOCASE
+		)`,
+		`CREATE TABLE IF NOT EXISTS task_tags (
+			task_id  INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
+			tag_id   INTEGER NOT NULL REFERENCES tag_names(id),
+			position INTEGER NOT NULL DEFAULT 0,
+			PRIMARY KEY (task_id, tag_id)
+		) WITHOUT ROWID`,
+		`CREATE INDEX IF NOT EXISTS idx_task_tags_tag ON task_tags(tag_id, task_id)`,
+		// Copy the old rows in their original order; duplicates that differ
+		// only in case collapse into the first.
+		`INSERT OR IGNORE INTO tag_names (name) SELECT trim(name) FROM tags WHERE trim(name) != '' ORDER BY id`,
+		`INSERT OR IGNORE INTO task_tags (task_id, tag_id, position)
+			SELECT g.task_id, n.id, row_number() OVER (PARTITION BY g.task_id ORDER BY g.id) - 1
+			FROM tags g JOIN tag_names n ON n.name = trim(g.name)
+			ORDER BY g.id`,
+		`DROP TABLE IF EXISTS tags`,
+		`CREATE TRIGGER IF NOT EXISTS task_tags_prune AFTER DELETE ON task_tags
+			WHEN NOT EXISTS (SELECT 1 FROM task_tags WHERE tag_id = old.tag_id) BEGIN
+			DELETE FROM tag_names WHERE id = old.tag_id;
+		END`,
+		`CREATE TRIGGER IF NOT EXISTS task_changes_task_tags_ai AFTER INSERT ON task_tags BEGIN
+			INSERT INTO task_changes(task_id) VALUES (new.task_id);
+		END`,
+		`CREATE TRIGGER IF NOT EXISTS task_changes_task_tags_au AFTER UPDATE ON task_tags BEGIN
+			INSERT INTO task_changes(task_id) VALUES (new.task_id);
+		END`,
+		`CREATE TRIGGER IF NOT EXISTS task_changes_task_tags_ad AFTER DELETE ON task_tags BEGIN
+			INSERT INTO task_changes(task_id) VALUES (old.task_id);
+		END`,
+	})
+}
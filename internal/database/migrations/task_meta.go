@@ -0,0 +1,42 @@
+package migrations
+
+import (
+	"database/sql"
+	"fmt"
+)
+
+// taskMeta indexes task metadata as one (key, value) row per pair, so
+// metadata filters are index lookups instead of a JSON decode per task. The
+// table is derived from tasks.metadata, which stays the source of truth, and
+// is kept in step by triggers.
+func taskMeta(tx *sql.Tx) error {
+	// Metadata that is not a JSON object indexes as empty rather than
+	// failing the write.
+	const pairs = `json_each(CASE WHEN NOT json_valid(%[1]s) THEN '{}'
+		WHEN json_type(%[1]s) = 'object' THEN %[1]s ELSE '{}' END)`
+	return execAll(tx, []string{
+		`CREATE TABLE IF NOT EXISTS task_meta (
+			task_id INTEGER NOT NULL,
+			key     TEXT NOT NULL,
+			value   TEXT NOT NULL,
+			PRIMARY KEY (task_id, key)
+		) WITHOUT ROWID`,
+		`CREATE INDEX IF NOT EXISTS idx_task_meta_kv ON task_meta(key, value)`,
+		`CREATE TRIGGER IF NOT EXISTS task_meta_ai AFTER INSERT ON tasks WHEN new.metadata != '{}' BEGIN
+			INSERT OR REPLACE INTO task_meta (task_id, key, value)
+				SELECT new.id, key, value FROM ` + fmt.Sprintf(pairs, "new.metadata") + ` WHERE value IS NOT NULL;
+		END`,
+		`CREATE TRIGGER IF NOT EXISTS task_meta_au AFTER UPDATE OF metadata ON tasks
+			WHEN old.metadata IS NOT new.metadata BEGIN
+			DELETE FROM task_meta WHERE task_id = old.id;
+			INSERT OR REPLACE INTO task_meta (task_id, key, value)
+				SELECT new.id, key, value FROM ` + fmt.Sprintf(pairs, "new.metadata") + ` WHERE value IS NOT NULL;
+		END`,
+		`CREATE TRIGGER IF NOT EXISTS task_meta_ad AFTER DELETE ON tasks BEGIN
+			DELETE FROM task_meta WHERE task_id = old.id;
+		END`,
+		`INSERT OR REPLACE INTO task_meta (task_id, key, value)
+			SELECT t.id, j.key, j.value FROM tasks t, ` + fmt.Sprintf(pairs, "t.metadata") + ` j
+			WHERE t.metadata != '{}' AND j.value IS NOT NULL`,
+	})
+}
@@ -0,0 +1,31 @@
+package migrations
+
+import "database/sql"
+
+// trash turns task deletion into a tombstone: deleting sets deleted_at and
+// undoing clears it, so a deleted task keeps its ID and every relation until
+// it is purged. The list indexes become partial so tombstones cost them
+// nothing, and a small partial index finds the tombstones due for purging.
+// Trashing or restoring a task flips the blocked flag of the tasks it
+// blocks, so the change log records those as for a status change.
+func trash(tx *sql.Tx) error {
+	return execAll(tx, []string{
+		`ALTER TABLE tasks ADD COLUMN deleted_at INTEGER`,
+		`DROP INDEX IF EXISTS idx_tasks_created`,
+		`DROP INDEX IF EXISTS idx_tasks_due`,
+		`DROP INDEX IF EXISTS idx_tasks_priority`,
+		`DROP INDEX IF EXISTS idx_tasks_status_updated`,
+		`CREATE INDEX idx_tasks_created ON tasks(created_at, id) WHERE deleted_at IS NULL`,
+		`CREATE INDEX idx_tasks_due ON tasks(due_date, created_at, id) WHERE deleted_at IS NULL`,
+		`CREATE INDEX idx_tasks_priority ON tasks(priority, created_at, id) WHERE deleted_at IS NULL`,
+		`CREATE INDEX idx_tasks_status_updated ON tasks(status, updated_at) WHERE deleted_at IS NULL`,
+		`CREATE INDEX idx_tasks_deleted ON tasks(deleted_at) WHERE deleted_at IS NOT NULL`,
+		`DROP TRIGGER IF EXISTS task_changes_tasks_au`,
+		`CREATE TRIGGER task_changes_tasks_au AFTER UPDATE ON tasks BEGIN
+			INSERT INTO task_changes(task_id) VALUES (new.id);
+			INSERT INTO task_changes(task_id)
+				SELECT task_id FROM task_dependencies WHERE blocked_by = new.id
+				AND (old.status != new.status OR old.deleted_at IS NOT new.deleted_at);
+		END`,
+	})
+}
@@ -0,0 +1,214 @@
+package database
+
+import (
+	"database/sql"
+	"encoding/json"
+	"strings"
+	"sync"
+)
+
+// maxCachedStmts bounds a StmtCache. Queries past the limit, typically
+// one-off filter combinations, run unprepared as they always did.
+const maxCachedStmts = 256
+
+// StmtCache is an Execer over a *sql.DB that prepares each distinct query
+// once and reuses the statement on later calls. database/sql prepares a
+// cached statement again only on a pooled connection it has not yet run on.
+//
+// A transaction begun on a StmtCache binds cached statements to itself with
+// (*sql.Tx).Stmt. Queries the cache has not seen are prepared on the
+// transaction and added to the cache once it ends, because the writer's only
+// connection may be the one the transaction holds.
+//
+// When db has a reader pool (see Readers), Query and QueryRow outside a
+// transaction run there, with statements cached apart from the writer's,
+// so reads proceed in parallel with each other and with writes.
+type StmtCache struct {
+	db    *sql.DB
+	r     *sql.DB
+	mu    sync.Mutex
+	stmts map[string]*sql.Stmt // prepared on db
+	reads map[string]*sql.Stmt // prepared on r, if it differs from db
+}
+
+// NewStmtCache returns an empty statement cache for db.
+func NewStmtCache(db *sql.DB) *StmtCache {
+	return &StmtCache{
+		db:    db,
+		r:     Readers(db),
+		stmts: make(map[string]*sql.Stmt),
+		reads: make(map[string]*sql.Stmt),
+	}
+}
+
+// pool returns the database and statement map for a read or a write.
+func (c *StmtCache) pool(read bool) (*sql.DB, map[string]*sql.Stmt) {
+	if read && c.r != c.db {
+		return c.r, c.reads
+	}
+	return c.db, c.stmts
+}
+
+func (c *StmtCache) lookup(query string) (*sql.Stmt, bool) {
+	return c.lookupIn(c.stmts, query)
+}
+
+func (c *StmtCache) lookupIn(m map[string]*sql.Stmt, query string) (*sql.Stmt, bool) {
+	c.mu.Lock()
+	defer c.mu.Unlock()
+	st, ok := m[query]
+	return st, ok || len(m) >= maxCachedStmts
+}
+
+// stmt returns the cached statement for query on the read or write side,
+// preparing it on first use. It returns nil when the cache is full.
+func (c *StmtCache) stmt(query string, read bool) (*sql.Stmt, error) {
+	db, m := c.pool(read)
+	if st, done := c.lookupIn(m, query); done {
+		return st, nil
+	}
+	// Prepare without the lock: it waits for a connection.
+	st, err := db.Prepare(query)
+	if err != nil {
+		return nil, err
+	}
+	c.mu.Lock()
+	defer c.mu.Unlock()
+	if prev, ok := m[query]; ok {
+		st.Close()
+		return prev, nil
+	}
+	m[query] = st
+	return st, nil
+}
+
+// warm prepares queries first seen inside a transaction.
+func (c *StmtCache) warm(queries []string) {
+	for _, q := range queries {
+		c.stmt(q, false)
+	}
+}
+
+func (c *StmtCache) Exec(query string, args ...any) (sql.Result, error) {
+	st, err := c.stmt(query, false)
+	if err != nil || st == nil {
+		return c.db.Exec(query, args...)
+	}
+	return st.Exec(args...)
+}
+
+func (c *StmtCache) Query(query string, args ...any) (*sql.Rows, error) {
+	st, err := c.stmt(query, true)
+	if err != nil || st == nil {
+		return c.r.Query(query, args...)
+	}
+	return st.Query(args...)
+}
+
+func (c *StmtCache) QueryRow(query string, args ...any) *sql.Row {
+	st, err := c.stmt(query, true)
+	if err != nil || st == nil {
+		return c.r.QueryRow(query, args...)
+	}
+	return st.QueryRow(args...)
+}
+
+// Prepare returns a new statement owned by the caller; it is not cached.
+func (c *StmtCache) Prepare(query string) (*sql.Stmt, error) {
+	return c.db.Prepare(query)
+}
+
+// Close closes every cached statement.
+func (c *StmtCache) Close() error {
+	c.mu.Lock()
+	defer c.mu.Unlock()
+	for _, m := range []map[string]*sql.Stmt{c.stmts, c.reads} {
+		for q, st := range m {
+			st.Close()
+			delete(m, q)
+		}
+	}
+	return nil
+}
+
+// txStmts is the Execer of a transaction begun on a StmtCache.
+type txStmts struct {
+	tx     *sql.Tx
+	cache  *StmtCache
+	stmts  map[string]*sql.Stmt // bound to tx and closed with it
+	misses []string
+}
+
+func (t *txStmts) stmt(query string) *sql.Stmt {
+	if st, ok := t.stmts[query]; ok {
+		return st
+	}
+	var st *sql.Stmt
+	if shared, done := t.cache.lookup(query); shared != nil {
+		st = t.tx.Stmt(shared)
+	} else if !done {
+		var err error
+		if st, err = t.tx.Prepare(query); err != nil {
+			return nil
+		}
+		t.misses = append(t.misses, query)
+	} else {
+		return nil
+	}
+	t.stmts[query] = st
+	return st
+}
+
+// end runs after the transaction commits or rolls back.
+func (t *txStmts) end() {
+	t.cache.warm(t.misses)
+}
+
+func (t *txStmts) Exec(query string, args ...any) (sql.Result, error) {
+	if st := t.stmt(query); st != nil {
+		return st.Exec(args...)
+	}
+	return t.tx.Exec(query, args...)
+}
+
+func (t *txStmts) Query(query string, args ...any) (*sql.Rows, error) {
+	if st := t.stmt(query); st != nil {
+		return st.Query(args...)
+	}
+	return t.tx.Query(query, args...)
+}
+
+func (t *txStmts) QueryRow(query string, args ...any) *sql.Row {
+	if st := t.stmt(query); st != nil {
+		return st.QueryRow(args...)
+	}
+	return t.tx.QueryRow(query, args...)
+}
+
+func (t *txStmts) Prepare(query string) (*sql.Stmt, error) {
+	return t.tx.Prepare(query)
+}
+
+// maxInBucket is the longest ID list InList writes out as placeholders.
+const maxInBucket = 512
+
+// InList returns the contents of an IN (...) clause matching ids, and its
+// args. Lists are padded to a power-of-two length by repeating the last ID,
+// which leaves the result unchanged but keeps the number of distinct
+// statements small enough to cache. Longer lists are passed as a single
+// JSON array. ids must not be empty.
+func InList(ids []int64) (string, []any) {
+	if len(ids) > maxInBucket {
+		b, _ := json.Marshal(ids)
+		return `SELECT value FROM json_each(?)`, []any{string(b)}
+	}
+	n := 1
+	for n < len(ids) {
+		n *= 2
+	}
+	args := make([]any, n)
+	for i := range args {
+		args[i] = ids[min(i, len(ids)-1)]
+	}
+	return strings.TrimSuffix(strings.Repeat("?,", n), ","), args
+}
@@ -0,0 +1,172 @@
+package database
+
+import (
+	"database/sql"
+	"path/filepath"
+	"testing"
+	"time"
+)
+
+func openStmtTestDB(t *testing.T) *sql.DB {
+	t.Helper()
+	db, err := sql.Open("sqlite", filepath.Join(t.TempDir(), "stmt.db"))
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	// One connection, as in production: a transaction holds the only one.
+	db.SetMaxOpenConns(1)
+	t.Cleanup(func() { db.Close() })
+	if _, err := db.Exec("CREATE TABLE t (id INTEGER PRIMARY KEY, v TEXT)"); err != nil {
+		t.Fatalf("create: %v", err)
+	}
+	return db
+}
+
+func TestStmtCache_ReusesStatements(t *testing.T) {
+	c := NewStmtCache(openStmtTestDB(t))
+	for range 3 {
+		if _, err := c.Exec("INSERT INTO t (v) VALUES (?)", "x"); err != nil {
+			t.Fatalf("Exec: %v", err)
+		}
+	}
+	var n int
+	if err := c.QueryRow("SELECT count(*) FROM t").Scan(&n); err != nil || n != 3 {
+		t.Fatalf("count = %d, %v", n, err)
+	}
+	if len(c.stmts) != 2 {
+		t.Errorf("cached %d statements, want 2", len(c.stmts))
+	}
+}
+
+func TestStmtCache_Transaction(t *testing.T) {
+	c := NewStmtCache(openStmtTestDB(t))
+	const insert = "INSERT INTO t (v) VALUES (?)"
+
+	// First seen inside a transaction: prepared on it, cached afterwards.
+	tx, err := Begin(c)
+	if err != nil {
+		t.Fatalf("Begin: %v", err)
+	}
+	if _, err := tx.Exec(insert, "in tx"); err != nil {
+		t.Fatalf("Exec in tx: %v", err)
+	}
+	sp, err := Begin(tx)
+	if err != nil {
+		t.Fatalf("savepoint: %v", err)
+	}
+	if _, err := sp.Exec(insert, "undone"); err != nil {
+		t.Fatalf("Exec in savepoint: %v", err)
+	}
+	if err := sp.Rollback(); err != nil {
+		t.Fatalf("rollback savepoint: %v", err)
+	}
+	if err := tx.Commit(); err != nil {
+		t.Fatalf("Commit: %v", err)
+	}
+	if _, ok := c.stmts[insert]; !ok {
+		t.Error("statement first used in a transaction was not cached")
+	}
+
+	// Cached statements bind to later transactions.
+	tx, err = Begin(c)
+	if err != nil {
+		t.Fatalf("Begin: %v", err)
+	}
+	if _, err := tx.Exec(insert, "second tx"); err != nil {
+		t.Fatalf("Exec in second tx: %v", err)
+	}
+	if err := tx.Commit(); err != nil {
+		t.Fatalf("Commit: %v", err)
+	}
+
+	var n int
+	if err := c.QueryRow("SELECT count(*) FROM t").Scan(&n); err != nil || n != 2 {
+		t.Errorf("count = %d, %v; want 2", n, err)
+	}
+}
+
+func TestInList_Buckets(t *testing.T) {
+	for _, tc := range []struct{ n, args int }{{1, 1}, {3, 4}, {4, 4}, {5, 8}, {maxInBucket, maxInBucket}, {maxInBucket + 1, 1}} {
+		ids := make([]int64, tc.n)
+		for i := range ids {
+			ids[i] = int64(i + 1)
+		}
+		_, args := InList(ids)
+		if len(args) != tc.args {
+			t.Errorf("InList(%d ids) has %d args, want %d", tc.n, len(args), tc.args)
+		}
+	}
+
+	db := openStmtTestDB(t)
+	for _, v := range []string{"a", "b", "c"} {
+		db.Exec("INSERT INTO t (v) VALUES (?)", v)
+	}
+	for _, ids := range [][]int64{{1, 3, 2}, make([]int64, maxInBucket+1)} {
+		copy(ids, []int64{1, 3, 2})
+		ph, args := InList(ids)
+		var n int
+		if err := db.QueryRow("SELECT count(*) FROM t WHERE id IN ("+ph+")", args...).Scan(&n); err != nil || n != 3 {
+			t.Errorf("IN list of %d ids matched %d rows (%v), want 3", len(ids), n, err)
+		}
+	}
+}
+
+func TestStmtCache_ReaderPool(t *testing.T) {
+	path := filepath.Join(t.TempDir(), "split.db")
+	db, err := open(path, "")
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	t.Cleanup(func() { Close(db) })
+	c := NewStmtCache(db)
+	if _, err := c.Exec("CREATE TABLE t (id INTEGER PRIMARY KEY, v TEXT)"); err != nil {
+		t.Fatalf("create: %v", err)
+	}
+	if _, err := c.Exec("INSERT INTO t (v) VALUES (?)", "x"); err != nil {
+		t.Fatalf("insert: %v", err)
+	}
+
+	// Reads see committed writes and run on the read-only pool.
+	var n, queryOnly int
+	if err := c.QueryRow("SELECT count(*) FROM t").Scan(&n); err != nil || n != 1 {
+		t.Fatalf("count = %d, %v; want 1", n, err)
+	}
+	if err := c.QueryRow("PRAGMA query_only").Scan(&queryOnly); err != nil || queryOnly != 1 {
+		t.Errorf("reads should use the read-only pool, query_only = %d, %v", queryOnly, err)
+	}
+	if _, ok := c.reads["SELECT count(*) FROM t"]; !ok {
+		t.Error("read statement not cached on the reader pool")
+	}
+
+	// Rows held open on the reader do not block a write on the writer.
+	rows, err := c.Query("SELECT v FROM t")
+	if err != nil {
+		t.Fatalf("query: %v", err)
+	}
+	if _, err := c.Exec("INSERT INTO t (v) VALUES (?)", "y"); err != nil {
+		t.Errorf("write while reading: %v", err)
+	}
+	rows.Close()
+
+	// A write racing another process's transaction waits for it instead of
+	// failing with SQLITE_BUSY.
+	other, err := open(path, "")
+	if err != nil {
+		t.Fatalf("open second handle: %v", err)
+	}
+	t.Cleanup(func() { Close(other) })
+	tx, err := other.Begin()
+	if err != nil {
+		t.Fatalf("Begin: %v", err)
+	}
+	if _, err := tx.Exec("INSERT INTO t (v) VALUES ('other')"); err != nil {
+		t.Fatalf("insert in other tx: %v", err)
+	}
+	go func() {
+		time.Sleep(100 * time.Millisecond)
+		tx.Commit()
+	}()
+	if _, err := c.Exec("INSERT INTO t (v) VALUES (?)", "z"); err != nil {
+		t.Errorf("write behind another transaction: %v", err)
+	}
+}
@@ -0,0 +1,53 @@
+package database
+
+import (
+	"fmt"
+	"time"
+)
+
+// Millis returns t in the form timestamp columns store: unix milliseconds.
+func Millis(t time.Time) int64 {
+	return t.UnixMilli()
+}
+
+// FromMillis returns the UTC time for a stored timestamp.
+func FromMillis(ms int64) time.Time {
+	return time.UnixMilli(ms).UTC()
+}
+
+// Timestamp scans a timestamp column. Values are unix milliseconds, read
+// without parsing; RFC3339 text, as written before timestamps were stored
+// as integers, is still accepted. NULL leaves Valid false.
+type Timestamp struct {
+	Time  time.Time
+	Valid bool
+}
+
+// Scan implements sql.Scanner.
+func (ts *Timestamp) Scan(src any) error {
+	switch v := src.(type) {
+	case nil:
+		*ts = Timestamp{}
+		return nil
+	case int64:
+		*ts = Timestamp{Time: FromMillis(v), Valid: true}
+		return nil
+	case time.Time:
+		*ts = Timestamp{Time: v.UTC(), Valid: true}
+		return nil
+	case []byte:
+		return ts.parse(string(v))
+	case string:
+		return ts.parse(v)
+	}
+	return fmt.Errorf("timestamp: unsupported type %T", src)
+}
+
+func (ts *Timestamp) parse(s string) error {
+	t, err := time.Parse(time.RFC3339, s)
+	if err != nil {
+		return fmt.Errorf("timestamp: %w", err)
+	}
+	*ts = Timestamp{Time: t.UTC(), Valid: true}
+	return nil
+}
@@ -0,0 +1,32 @@
+package database
+
+import (
+	"testing"
+	"time"
+)
+
+func TestTimestamp_Scan(t *testing.T) {
+	want := time.Date(2024, 1, 2, 3, 4, 5, 6e6, time.UTC)
+	for _, src := range []any{
+		Millis(want),
+		want.In(time.FixedZone("x", 3600)),
+		[]byte("2024-01-02T03:04:05.006Z"),
+		"2024-01-02T04:04:05.006+01:00",
+	} {
+		var ts Timestamp
+		if err := ts.Scan(src); err != nil {
+			t.Fatalf("Scan(%#v): %v", src, err)
+		}
+		if !ts.Valid || !ts.Time.Equal(want) || ts.Time.Location() != time.UTC {
+			t.Errorf("Scan(%#v) = %v, %v; want %v", src, ts.Time, ts.Valid, want)
+		}
+	}
+
+	ts := Timestamp{Time: want, Valid: true}
+	if err := ts.Scan(nil); err != nil || ts.Valid {
+		t.Errorf("Scan(nil) = %+v, %v; want invalid", ts, err)
+	}
+	if err := ts.Scan("yesterday"); err == nil {
+		t.Error("Scan of malformed text succeeded")
+	}
+}
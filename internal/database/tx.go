@@ -0,0 +1,125 @@
+package database
+
+import (
+	"database/sql"
+	"fmt"
+)
+
+// Execer is the statement interface shared by *sql.DB, *sql.Tx, *StmtCache,
+// and *Tx.
+// Stores run their queries through one, so the same store methods work on
+// the database directly or inside a caller's transaction.
+type Execer interface {
+	Exec(query string, args ...any) (sql.Result, error)
+	Query(query string, args ...any) (*sql.Rows, error)
+	QueryRow(query string, args ...any) *sql.Row
+	Prepare(query string) (*sql.Stmt, error)
+}
+
+// Tx is a transaction started by Begin. It may be a real transaction or a
+// savepoint inside one; either way Commit and Rollback behave like those of
+// *sql.Tx, and Rollback after Commit is a no-op returning sql.ErrTxDone.
+type Tx struct {
+	Execer
+	commit   func() error
+	rollback func() error
+	done     bool
+}
+
+// savepoint is the name of every savepoint Begin opens. Nested savepoints
+// may share a name: RELEASE and ROLLBACK TO act on the innermost one, and
+// Tx values are always finished innermost first. A fixed name also keeps the
+// statements cacheable.
+const savepoint = "todo_sp"
+
+// Begin starts a transaction on e. On a *sql.DB or *StmtCache it begins a
+// new transaction; on anything else, which is already inside one, it opens
+// a savepoint, so a store method that groups its writes can still be undone
+// on its own when the caller's transaction carries on.
+func Begin(e Execer) (*Tx, error) {
+	switch e := e.(type) {
+	case *sql.DB:
+		tx, err := e.Begin()
+		if err != nil {
+			return nil, err
+		}
+		return &Tx{Execer: tx, commit: tx.Commit, rollback: tx.Rollback}, nil
+	case *StmtCache:
+		tx, err := e.db.Begin()
+		if err != nil {
+			return nil, err
+		}
+		ts := &txStmts{tx: tx, cache: e, stmts: make(map[string]*sql.Stmt)}
+		return &Tx{
+			Execer: ts,
+			commit: func() error {
+				defer ts.end()
+				return tx.Commit()
+			},
+			rollback: func() error {
+				defer ts.end()
+				return tx.Rollback()
+			},
+		}, nil
+	}
+
+	if _, err := e.Exec("SAVEPOINT " + savepoint); err != nil {
+		return nil, fmt.Errorf("savepoint: %w", err)
+	}
+	return &Tx{
+		Execer: e,
+		commit: func() error {
+			_, err := e.Exec("RELEASE " + savepoint)
+			return err
+		},
+		rollback: func() error {
+			if _, err := e.Exec("ROLLBACK TO " + savepoint); err != nil {
+				return err
+			}
+			_, err := e.Exec("RELEASE " + savepoint)
+			return err
+		},
+	}, nil
+}
+
+// BeginRead starts a read transaction on e, so a walk made of several
+// queries sees one snapshot of the database. On a *StmtCache it runs on the
+// reader pool, where in WAL mode it holds no lock writers wait on; on a
+// *sql.DB it is an ordinary transaction. Inside a transaction it adds
+// nothing, since reads there already share one snapshot. Commit or Rollback
+// ends it; nothing is written either way.
+func BeginRead(e Execer) (*Tx, error) {
+	var db *sql.DB
+	switch e := e.(type) {
+	case *sql.DB:
+		db = e
+	case *StmtCache:
+		db = e.r
+	default:
+		noop := func() error { return nil }
+		return &Tx{Execer: e, commit: noop, rollback: noop}, nil
+	}
+	tx, err := db.Begin()
+	if err != nil {
+		return nil, err
+	}
+	return &Tx{Execer: tx, commit: tx.Commit, rollback: tx.Rollback}, nil
+}
+
+// Commit commits the transaction or releases the savepoint.
+func (t *Tx) Commit() error {
+	if t.done {
+		return sql.ErrTxDone
+	}
+	t.done = true
+	return t.commit()
+}
+
+// Rollback undoes everything since Begin.
+func (t *Tx) Rollback() error {
+	if t.done {
+		return sql.ErrTxDone
+	}
+	t.done = true
+	return t.rollback()
+}
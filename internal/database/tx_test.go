@@ -0,0 +1,65 @@
+package database
+
+import (
+	"database/sql"
+	"path/filepath"
+	"testing"
+)
+
+func TestBegin_NestedSavepoints(t *testing.T) {
+	db, err := sql.Open("sqlite", filepath.Join(t.TempDir(), "tx.db"))
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	db.SetMaxOpenConns(1)
+	t.Cleanup(func() { db.Close() })
+	if _, err := db.Exec("CREATE TABLE t (v TEXT)"); err != nil {
+		t.Fatalf("create: %v", err)
+	}
+
+	outer, err := Begin(db)
+	if err != nil {
+		t.Fatalf("Begin: %v", err)
+	}
+	insert := func(e Execer, v string) {
+		t.Helper()
+		if _, err := e.Exec("INSERT INTO t (v) VALUES (?)", v); err != nil {
+			t.Fatalf("insert %s: %v", v, err)
+		}
+	}
+	insert(outer, "outer")
+
+	kept, err := Begin(outer)
+	if err != nil {
+		t.Fatalf("Begin savepoint: %v", err)
+	}
+	insert(kept, "kept")
+	if err := kept.Commit(); err != nil {
+		t.Fatalf("release: %v", err)
+	}
+
+	undone, err := Begin(outer)
+	if err != nil {
+		t.Fatalf("Begin savepoint: %v", err)
+	}
+	insert(undone, "undone")
+	if err := undone.Rollback(); err != nil {
+		t.Fatalf("rollback to savepoint: %v", err)
+	}
+	if err := undone.Rollback(); err != sql.ErrTxDone {
+		t.Errorf("second Rollback = %v, want sql.ErrTxDone", err)
+	}
+
+	if err := outer.Commit(); err != nil {
+		t.Fatalf("commit: %v", err)
+	}
+	var n int
+	if err := db.QueryRow("SELECT count(*) FROM t WHERE v IN ('outer', 'kept')").Scan(&n); err != nil {
+		t.Fatalf("count: %v", err)
+	}
+	var total int
+	db.QueryRow("SELECT count(*) FROM t").Scan(&total)
+	if n != 2 || total != 2 {
+		t.Errorf("got %d expected rows of %d total, want 2 of 2", n, total)
+	}
+}
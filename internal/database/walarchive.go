@@ -0,0 +1,350 @@
+package database
+
+import (
+	"context"
+	"database/sql"
+	"encoding/binary"
+	"encoding/json"
+	"errors"
+	"fmt"
+	"io"
+	"net/url"
+	"os"
+	"path/filepath"
+	"slices"
+	"strconv"
+	"strings"
+	"sync"
+	"time"
+)
+
+// WAL archiving for point-in-time recovery. A database opened with an
+// archive directory has SQLite's automatic checkpoints turned off; instead
+// the archiver copies the frames committed since its last run into a
+// segment file in the directory, then checkpoints them with PASSIVE. That
+// happens every walArchiveInterval and once more on Close, so writes pay
+// nothing extra. A frame only reaches the database file after it is
+// archived, and frames are full page images, so applying the segments in
+// order over an older copy of the database rebuilds it as of any segment.
+//
+// Every process that opens the database must archive too, or its automatic
+// checkpoints would move frames into the database file unseen: the setting
+// belongs in shared configuration, not a flag.
+
+// walArchiveInterval is how often a running process archives and
+// checkpoints; it bounds how finely a replay can pick its moment.
+const walArchiveInterval = 30 * time.Second
+
+const (
+	walHeaderSize      = 32
+	walFrameHeaderSize = 24
+)
+
+// walArchivers maps each writer opened with an archive to its archiver.
+var walArchivers sync.Map // *sql.DB -> *walArchiver
+
+// walPosition is how far the archive has copied the WAL: the first frames
+// of the WAL generation with the given salts. SQLite picks new salts when
+// it restarts the WAL from the top after a complete checkpoint.
+type walPosition struct {
+	Salt1  uint32 `json:"salt1"`
+	Salt2  uint32 `json:"salt2"`
+	Frames int64  `json:"frames"`
+}
+
+type walArchiver struct {
+	// conns are the archiver's own two connections: one holds the WAL
+	// write lock while the other checkpoints. They are kept apart from
+	// the writer so that a write waiting for the lock never holds the
+	// connection the checkpoint needs.
+	conns *sql.DB
+	wal   string // the database's -wal file
+	dir   string
+	stop  chan struct{}
+	done  chan struct{}
+}
+
+// startWALArchive archives db's WAL into dir until Close.
+func startWALArchive(db *sql.DB, path, dir string) error {
+	if err := os.MkdirAll(dir, 0o755); err != nil {
+		return fmt.Errorf("create WAL archive: %w", err)
+	}
+	conns, err := sql.Open("sqlite", dsn(path, url.Values{
+		"_txlock": {"immediate"},
+		"_pragma": {"wal_autocheckpoint(0)"},
+	}))
+	if err != nil {
+		return fmt.Errorf("open WAL archiver: %w", err)
+	}
+	conns.SetMaxOpenConns(2)
+	a := &walArchiver{
+		conns: conns,
+		wal:   path + "-wal",
+		dir:   dir,
+		stop:  make(chan struct{}),
+		done:  make(chan struct{}),
+	}
+	walArchivers.Store(db, a)
+	go a.loop()
+	return nil
+}
+
+func (a *walArchiver) loop() {
+	defer close(a.done)
+	t := time.NewTicker(walArchiveInterval)
+	defer t.Stop()
+	for {
+		select {
+		case <-a.stop:
+			return
+		case <-t.C:
+			a.checkpoint() // a failed run is retried on the next tick
+		}
+	}
+}
+
+// close stops the loop and archives whatever was committed since its last
+// run, before the connections close and SQLite checkpoints on its own.
+func (a *walArchiver) close() error {
+	close(a.stop)
+	<-a.done
+	defer a.conns.Close()
+	return a.checkpoint()
+}
+
+// walCheckpointHook, when set by tests, runs between archiving the frames
+// and checkpointing them.
+var walCheckpointHook func()
+
+// checkpoint archives the frames committed since the last run, then
+// checkpoints the WAL. An empty write transaction holds the WAL write lock
+// throughout, so no connection in any process commits frames while they
+// are read or before the checkpoint, which could otherwise move them into
+// the database file, and let the WAL restart over them, unarchived.
+// Archivers in different processes take turns.
+func (a *walArchiver) checkpoint() error {
+	ctx := context.Background()
+	hold, err := a.conns.Conn(ctx)
+	if err != nil {
+		return err
+	}
+	defer hold.Close()
+	tx, err := hold.BeginTx(ctx, nil)
+	if err != nil {
+		return fmt.Errorf("lock WAL: %w", err)
+	}
+	defer tx.Rollback()
+
+	if err := a.archive(); err != nil {
+		return fmt.Errorf("archive WAL: %w", err)
+	}
+	if walCheckpointHook != nil {
+		walCheckpointHook()
+	}
+	// A checkpoint cannot run inside a transaction, so it takes the
+	// archiver's other connection.
+	if _, err := a.conns.ExecContext(ctx, "PRAGMA wal_checkpoint(PASSIVE)"); err != nil {
+		return fmt.Errorf("checkpoint: %w", err)
+	}
+	return nil
+}
+
+// archive copies the WAL frames committed since the recorded position into
+// a new segment. The caller holds the WAL write lock.
+func (a *walArchiver) archive() error {
+	f, err := os.Open(a.wal)
+	if errors.Is(err, os.ErrNotExist) {
+		return nil // everything was checkpointed and the WAL removed
+	}
+	if err != nil {
+		return err
+	}
+	defer f.Close()
+	var hdr [walHeaderSize]byte
+	if _, err := io.ReadFull(f, hdr[:]); err != nil {
+		if err == io.EOF || err == io.ErrUnexpectedEOF {
+			return nil // no frames written yet
+		}
+		return err
+	}
+	pageSize := int64(binary.BigEndian.Uint32(hdr[8:]))
+	salt1, salt2 := binary.BigEndian.Uint32(hdr[16:]), binary.BigEndian.Uint32(hdr[20:])
+
+	pos, err := a.readPosition()
+	if err != nil {
+		return err
+	}
+	var start int64
+	if pos.Salt1 == salt1 && pos.Salt2 == salt2 {
+		start = pos.Frames
+	}
+
+	// Frames of this generation carry its salts; past the last commit
+	// frame are only leftovers of rolled-back transactions.
+	frameSize := walFrameHeaderSize + pageSize
+	end := start
+	var fh [walFrameHeaderSize]byte
+	for i := start; ; i++ {
+		if _, err := f.ReadAt(fh[:], walHeaderSize+i*frameSize); err != nil {
+			break
+		}
+		if binary.BigEndian.Uint32(fh[8:]) != salt1 || binary.BigEndian.Uint32(fh[12:]) != salt2 {
+			break
+		}
+		if binary.BigEndian.Uint32(fh[4:]) != 0 {
+			end = i + 1
+		}
+	}
+	if end == start {
+		return nil
+	}
+
+	name := fmt.Sprintf("%013d-%08x-%08d.wal", time.Now().UnixMilli(), salt1, start)
+	frames := io.NewSectionReader(f, walHeaderSize+start*frameSize, (end-start)*frameSize)
+	if err := writeAtomic(filepath.Join(a.dir, name), hdr[:], frames); err != nil {
+		return err
+	}
+	// A crash before this line archives the frames again next time;
+	// replaying them twice in order is harmless.
+	return a.writePosition(walPosition{Salt1: salt1, Salt2: salt2, Frames: end})
+}
+
+func (a *walArchiver) readPosition() (walPosition, error) {
+	var pos walPosition
+	data, err := os.ReadFile(filepath.Join(a.dir, "position.json"))
+	if errors.Is(err, os.ErrNotExist) {
+		return pos, nil
+	}
+	if err != nil {
+		return pos, err
+	}
+	if err := json.Unmarshal(data, &pos); err != nil {
+		return pos, fmt.Errorf("read WAL archive position: %w", err)
+	}
+	return pos, nil
+}
+
+func (a *walArchiver) writePosition(pos walPosition) error {
+	data, _ := json.Marshal(pos)
+	return writeAtomic(filepath.Join(a.dir, "position.json"), data, strings.NewReader(""))
+}
+
+// writeAtomic writes head followed by body to path through a temporary
+// file, so a replay never sees a partial segment or position.
+func writeAtomic(path string, head []byte, body io.Reader) error {
+	tmp, err := os.CreateTemp(filepath.Dir(path), "."+filepath.Base(path)+".*")
+	if err != nil {
+		return err
+	}
+	_, err = tmp.Write(head)
+	if err == nil {
+		_, err = io.Copy(tmp, body)
+	}
+	if cerr := tmp.Close(); err == nil {
+		err = cerr
+	}
+	if err == nil {
+		err = os.Rename(tmp.Name(), path)
+	}
+	if err != nil {
+		os.Remove(tmp.Name())
+	}
+	return err
+}
+
+// CheckpointWAL archives the frames db committed since the last run, if db
+// was opened with a WAL archive, and runs a PASSIVE checkpoint.
+func CheckpointWAL(db *sql.DB) error {
+	if a, ok := walArchivers.Load(db); ok {
+		return a.(*walArchiver).checkpoint()
+	}
+	_, err := db.Exec("PRAGMA wal_checkpoint(PASSIVE)")
+	return err
+}
+
+// WALSegment is an archived run of committed WAL frames.
+type WALSegment struct {
+	Path     string
+	Archived time.Time // when the frames were copied; all committed before
+}
+
+// WALSegments lists the segments archived in dir, oldest first.
+func WALSegments(dir string) ([]WALSegment, error) {
+	entries, err := os.ReadDir(dir)
+	if errors.Is(err, os.ErrNotExist) {
+		return nil, nil
+	}
+	if err != nil {
+		return nil, err
+	}
+	var segs []WALSegment
+	for _, e := range entries {
+		stamp, _, ok := strings.Cut(e.Name(), "-")
+		ms, err := strconv.ParseInt(stamp, 10, 64)
+		if !ok || err != nil || !strings.HasSuffix(e.Name(), ".wal") {
+			continue
+		}
+		segs = append(segs, WALSegment{
+			Path:     filepath.Join(dir, e.Name()),
+			Archived: time.UnixMilli(ms),
+		})
+	}
+	slices.SortFunc(segs, func(a, b WALSegment) int { return strings.Compare(a.Path, b.Path) })
+	return segs, nil
+}
+
+// ApplyWALSegment writes the page images of the segment at path into the
+// database file f, one committed transaction at a time, truncating or
+// growing the file to the size each commit records.
+func ApplyWALSegment(f *os.File, path string) error {
+	data, err := os.ReadFile(path)
+	if err != nil {
+		return err
+	}
+	if len(data) < walHeaderSize {
+		return fmt.Errorf("WAL segment %s: truncated header", filepath.Base(path))
+	}
+	if magic := binary.BigEndian.Uint32(data); magic&^1 != 0x377f0682 {
+		return fmt.Errorf("WAL segment %s: bad magic %#x", filepath.Base(path), magic)
+	}
+	pageSize := int64(binary.BigEndian.Uint32(data[8:]))
+	frameSize := walFrameHeaderSize + int(pageSize)
+	txStart := walHeaderSize
+	for off := walHeaderSize; off+frameSize <= len(data); off += frameSize {
+		commit := binary.BigEndian.Uint32(data[off+4:])
+		if commit == 0 {
+			continue
+		}
+		for p := txStart; p <= off; p += frameSize {
+			pgno := int64(binary.BigEndian.Uint32(data[p:]))
+			if _, err := f.WriteAt(data[p+walFrameHeaderSize:p+frameSize], (pgno-1)*pageSize); err != nil {
+				return err
+			}
+		}
+		if err := f.Truncate(int64(commit) * pageSize); err != nil {
+			return err
+		}
+		txStart = off + frameSize
+	}
+	return nil
+}
+
+// PruneWALSegments removes the segments in dir archived before cutoff and
+// returns how many it removed.
+func PruneWALSegments(dir string, cutoff time.Time) (int, error) {
+	segs, err := WALSegments(dir)
+	if err != nil {
+		return 0, err
+	}
+	removed := 0
+	for _, s := range segs {
+		if !s.Archived.Before(cutoff) {
+			break
+		}
+		if err := os.Remove(s.Path); err != nil {
+			return removed, err
+		}
+		removed++
+	}
+	return removed, nil
+}
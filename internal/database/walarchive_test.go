@@ -0,0 +1,185 @@
+package database
+
+import (
+	"database/sql"
+	"os"
+	"path/filepath"
+	"testing"
+	"time"
+)
+
+func TestWALArchive_ReplaysOverCopy(t *testing.T) {
+	dir := t.TempDir()
+	path := filepath.Join(dir, "todo.db")
+	archive := filepath.Join(dir, "wal")
+	db, err := open(path, archive)
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	defer Close(db)
+
+	var auto int
+	if err := db.QueryRow("PRAGMA wal_autocheckpoint").Scan(&auto); err != nil || auto != 0 {
+		t.Fatalf("wal_autocheckpoint = %d, %v; want 0 while archiving", auto, err)
+	}
+
+	exec := func(q string) {
+		t.Helper()
+		if _, err := db.Exec(q); err != nil {
+			t.Fatalf("%s: %v", q, err)
+		}
+	}
+	exec("CREATE TABLE t (id INTEGER PRIMARY KEY, v TEXT)")
+	exec("INSERT INTO t (v) VALUES ('a')")
+	if err := CheckpointWAL(db); err != nil {
+		t.Fatalf("CheckpointWAL: %v", err)
+	}
+	// Everything is checkpointed: the database file alone is a base copy.
+	base, err := os.ReadFile(path)
+	if err != nil {
+		t.Fatalf("read base: %v", err)
+	}
+	first, _ := WALSegments(archive)
+	if len(first) != 1 {
+		t.Fatalf("segments after first checkpoint = %d, want 1", len(first))
+	}
+	if err := CheckpointWAL(db); err != nil {
+		t.Fatalf("CheckpointWAL: %v", err)
+	}
+	if segs, _ := WALSegments(archive); len(segs) != 1 {
+		t.Errorf("checkpoint with nothing new wrote a segment: %d segments", len(segs))
+	}
+
+	time.Sleep(2 * time.Millisecond) // segment times are in milliseconds
+	exec("INSERT INTO t (v) SELECT 'b' FROM t")
+	exec("INSERT INTO t (v) SELECT 'c' FROM t")
+	if err := CheckpointWAL(db); err != nil {
+		t.Fatalf("CheckpointWAL: %v", err)
+	}
+	segs, _ := WALSegments(archive)
+	if len(segs) != 2 {
+		t.Fatalf("segments = %d, want 2", len(segs))
+	}
+
+	copyPath := filepath.Join(dir, "copy.db")
+	if err := os.WriteFile(copyPath, base, 0o644); err != nil {
+		t.Fatalf("write copy: %v", err)
+	}
+	f, err := os.OpenFile(copyPath, os.O_RDWR, 0)
+	if err != nil {
+		t.Fatalf("open copy: %v", err)
+	}
+	if err := ApplyWALSegment(f, segs[1].Path); err != nil {
+		t.Fatalf("ApplyWALSegment: %v", err)
+	}
+	f.Close()
+
+	replayed, err := sql.Open("sqlite", copyPath)
+	if err != nil {
+		t.Fatalf("open copy: %v", err)
+	}
+	defer replayed.Close()
+	var n int
+	if err := replayed.QueryRow("SELECT COUNT(*) FROM t").Scan(&n); err != nil || n != 4 {
+		t.Errorf("replayed copy has %d rows, %v; want 4", n, err)
+	}
+
+	if removed, err := PruneWALSegments(archive, segs[1].Archived); err != nil || removed != 1 {
+		t.Errorf("PruneWALSegments = %d, %v; want the older segment removed", removed, err)
+	}
+}
+
+func TestWALArchive_HoldsWritesUntilCheckpointed(t *testing.T) {
+	dir := t.TempDir()
+	path := filepath.Join(dir, "todo.db")
+	archive := filepath.Join(dir, "wal")
+	db, err := open(path, archive)
+	if err != nil {
+		t.Fatalf("open: %v", err)
+	}
+	defer Close(db)
+
+	exec := func(q string) {
+		t.Helper()
+		if _, err := db.Exec(q); err != nil {
+			t.Fatalf("%s: %v", q, err)
+		}
+	}
+	exec("CREATE TABLE t (id INTEGER PRIMARY KEY, v TEXT)")
+	if err := CheckpointWAL(db); err != nil {
+		t.Fatalf("CheckpointWAL: %v", err)
+	}
+	base, err := os.ReadFile(path)
+	if err != nil {
+		t.Fatalf("read base: %v", err)
+	}
+	exec("INSERT INTO t (v) VALUES ('a')")
+
+	// Another connection, as another process would, commits between the
+	// archive and the checkpoint.
+	other, err := sql.Open("sqlite", dsn(path, nil))
+	if err != nil {
+		t.Fatalf("open other: %v", err)
+	}
+	defer other.Close()
+	committed := make(chan error, 1)
+	walCheckpointHook = func() {
+		walCheckpointHook = nil
+		go func() {
+			_, err := other.Exec("INSERT INTO t (v) VALUES ('between')")
+			committed <- err
+		}()
+		select {
+		case err := <-committed:
+			t.Errorf("write committed while the archiver held the lock (%v)", err)
+		case <-time.After(100 * time.Millisecond):
+		}
+	}
+	defer func() { walCheckpointHook = nil }()
+	time.Sleep(2 * time.Millisecond) // segment times are in milliseconds
+	if err := CheckpointWAL(db); err != nil {
+		t.Fatalf("CheckpointWAL: %v", err)
+	}
+	select {
+	case err := <-committed:
+		if err != nil {
+			t.Fatalf("insert between: %v", err)
+		}
+	case <-time.After(5 * time.Second):
+		t.Fatal("write still blocked after the checkpoint")
+	}
+
+	// The next write restarts the WAL over the checkpointed frames; the
+	// one committed in between must have been archived all the same.
+	time.Sleep(2 * time.Millisecond)
+	exec("INSERT INTO t (v) VALUES ('b')")
+	if err := CheckpointWAL(db); err != nil {
+		t.Fatalf("CheckpointWAL: %v", err)
+	}
+
+	copyPath := filepath.Join(dir, "copy.db")
+	if err := os.WriteFile(copyPath, base, 0o644); err != nil {
+		t.Fatalf("write copy: %v", err)
+	}
+	f, err := os.OpenFile(copyPath, os.O_RDWR, 0)
+	if err != nil {
+		t.Fatalf("open copy: %v", err)
+	}
+	segs, _ := WALSegments(archive)
+	for _, s := range segs[1:] {
+		if err := ApplyWALSegment(f, s.Path); err != nil {
+			t.Fatalf("ApplyWALSegment: %v", err)
+		}
+	}
+	f.Close()
+
+	replayed, err := sql.Open("sqlite", copyPath)
+	if err != nil {
+		t.Fatalf("open copy: %v", err)
+	}
+	defer replayed.Close()
+	var got string
+	if err := replayed.QueryRow(`SELECT group_concat(v, ',') FROM (SELECT v FROM t ORDER BY id)`).Scan(&got); err != nil || got != "a,between,b" {
+		t.Errorf("replayed rows = %q, %v; want a,between,b", got, err)
+	}
+}
@@ -0,0 +1,17 @@
+package database
+
+import "database/sql"
+
+// DataVersion returns SQLite's PRAGMA data_version. The value changes only
+// when another connection (usually another process, such as a CLI command
+// run while the TUI is open) commits to the database, so comparing two
+// readings is a cheap way to detect external writes.
+//
+// data_version is per connection. The result is only comparable across
+// calls because Open limits the writer to a single connection; pass the
+// *sql.DB Open returned, not its reader pool.
+func DataVersion(db *sql.DB) (int64, error) {
+	var v int64
+	err := db.QueryRow("PRAGMA data_version").Scan(&v)
+	return v, err
+}
@@ -0,0 +1,44 @@
+package database
+
+import (
+	"database/sql"
+	"path/filepath"
+	"testing"
+)
+
+func TestDataVersion_ChangesOnlyForOtherConnections(t *testing.T) {
+	path := filepath.Join(t.TempDir(), "watch.db")
+	open := func() *sql.DB {
+		db, err := sql.Open("sqlite", path)
+		if err != nil {
+			t.Fatalf("open: %v", err)
+		}
+		db.SetMaxOpenConns(1)
+		t.Cleanup(func() { db.Close() })
+		return db
+	}
+	watcher, writer := open(), open()
+
+	if _, err := watcher.Exec("CREATE TABLE t (id INTEGER PRIMARY KEY)"); err != nil {
+		t.Fatalf("create: %v", err)
+	}
+	v1, err := DataVersion(watcher)
+	if err != nil {
+		t.Fatalf("DataVersion: %v", err)
+	}
+
+	// The watcher's own writes do not count as external changes.
+	if _, err := watcher.Exec("INSERT INTO t DEFAULT VALUES"); err != nil {
+		t.Fatalf("insert: %v", err)
+	}
+	if v, _ := DataVersion(watcher); v != v1 {
+		t.Errorf("own write changed data_version: %d -> %d", v1, v)
+	}
+
+	if _, err := writer.Exec("INSERT INTO t DEFAULT VALUES"); err != nil {
+		t.Fatalf("insert from second connection: %v", err)
+	}
+	if v, _ := DataVersion(watcher); v == v1 {
+		t.Error("expected data_version to change after another connection committed")
+	}
+}
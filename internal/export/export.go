@@ -1,7 +1,6 @@
 package export
 
 import (
-	"encoding/json"
 	"fmt"
 	"io"
 	"strings"
@@ -106,22 +105,25 @@ func WriteNotes(w io.Writer, notes []journal.Note) error {
 	return nil
 }
 
-// exportData is the JSON structure for combined export.
+// exportData is the JSON structure for combined export. Stream writes it
+// piece by piece rather than marshalling it whole.
 type exportData struct {
 	Tasks   []jsonTask   `json:"tasks"`
 	Journal []jsonNote   `json:"journal,omitempty"`
 }
 
 type jsonTask struct {
-	ID          int64        `json:"id"`
-	Title       string       `json:"title"`
-	Description string       `json:"description,omitempty"`
-	Status      string       `json:"status"`
-	Priority    string       `json:"priority"`
-	DueDate     string       `json:"due_date,omitempty"`
-	CreatedAt   string       `json:"created_at"`
-	Tags        []string     `json:"tags,omitempty"`
-	Subtasks    []jsonSubtask `json:"subtasks,omitempty"`
+	ID          int64             `json:"id"`
+	Title       string            `json:"title"`
+	Description string            `json:"description,omitempty"`
+	Status      string            `json:"status"`
+	Priority    string            `json:"priority"`
+	DueDate     string            `json:"due_date,omitempty"`
+	CreatedAt   string            `json:"created_at"`
+	Tags        []string          `json:"tags,omitempty"`
+	Subtasks    []jsonSubtask     `json:"subtasks,omitempty"`
+	Metadata    map[string]string `json:"metadata,omitempty"`
+	BlockedBy   []int64           `json:"blocked_by,omitempty"` // ids of the same export
 }
 
 type jsonSubtask struct {
@@ -142,47 +144,54 @@ type jsonEntry struct {
 
 // WriteJSON writes tasks and optional journal notes as JSON to w.
 func WriteJSON(w io.Writer, tasks []task.Task, notes []journal.Note) error {
-	data := exportData{}
-
+	s := NewJSONStream(w)
 	for _, t := range tasks {
-		jt := jsonTask{
-			ID:          t.ID,
-			Title:       t.Title,
-			Description: t.Description,
-			Status:      t.Status.String(),
-			Priority:    t.Priority.String(),
-			CreatedAt:   t.CreatedAt.Format("2006-01-02T15:04:05Z07:00"),
-			Tags:        t.Tags,
-		}
-		if t.DueDate != nil {
-			jt.DueDate = t.DueDate.Format("2006-01-02")
+		if err := s.WriteTask(t); err != nil {
+			return err
 		}
-		for _, st := range t.Subtasks {
-			jt.Subtasks = append(jt.Subtasks, jsonSubtask{
-				ID:        st.ID,
-				Title:     st.Title,
-				Completed: st.Completed,
-			})
+	}
+	for _, n := range notes {
+		if err := s.WriteNote(n); err != nil {
+			return err
 		}
-		data.Tasks = append(data.Tasks, jt)
 	}
+	return s.Close()
+}
 
-	if notes != nil {
-		for _, n := range notes {
-			jn := jsonNote{
-				Date: n.Date.Format("2006-01-02"),
-			}
-			for _, e := range n.Entries {
-				jn.Entries = append(jn.Entries, jsonEntry{
-					Body:      e.Body,
-					CreatedAt: e.CreatedAt.Format("2006-01-02T15:04:05Z07:00"),
-				})
-			}
-			data.Journal = append(data.Journal, jn)
-		}
+func toJSONTask(t task.Task) jsonTask {
+	jt := jsonTask{
+		ID:          t.ID,
+		Title:       t.Title,
+		Description: t.Description,
+		Status:      t.Status.String(),
+		Priority:    t.Priority.String(),
+		CreatedAt:   t.CreatedAt.Format("2006-01-02T15:04:05Z07:00"),
+		Tags:        t.Tags,
+		Metadata:    t.Metadata,
+		BlockedBy:   t.BlockedByIDs,
+	}
+	if t.DueDate != nil {
+		jt.DueDate = t.DueDate.Format("2006-01-02")
 	}
+	for _, st := range t.Subtasks {
+		jt.Subtasks = append(jt.Subtasks, jsonSubtask{
+			ID:        st.ID,
+			Title:     st.Title,
+			Completed: st.Completed,
+		})
+	}
+	return jt
+}
 
-	enc := json.NewEncoder(w)
-	enc.SetIndent("", "  ")
-	return enc.Encode(data)
+func toJSONNote(n journal.Note) jsonNote {
+	jn := jsonNote{
+		Date: n.Date.Format("2006-01-02"),
+	}
+	for _, e := range n.Entries {
+		jn.Entries = append(jn.Entries, jsonEntry{
+			Body:      e.Body,
+			CreatedAt: e.CreatedAt.Format("2006-01-02T15:04:05Z07:00"),
+		})
+	}
+	return jn
 }
@@ -372,3 +372,64 @@ func TestWriteJSON_ValidJSON(t *testing.T) {
 		t.Fatalf("output is not valid JSON: %v", err)
 	}
 }
+
+// --- Stream ---
+
+func TestJSONStream_EmptyTasksArray(t *testing.T) {
+	var buf bytes.Buffer
+	if err := NewJSONStream(&buf).Close(); err != nil {
+		t.Fatalf("Close() error: %v", err)
+	}
+	var compact bytes.Buffer
+	if err := json.Compact(&compact, buf.Bytes()); err != nil {
+		t.Fatalf("invalid JSON: %v", err)
+	}
+	if got := compact.String(); got != `{"tasks":[]}` {
+		t.Errorf("empty stream = %s, want {\"tasks\":[]}", got)
+	}
+}
+
+func TestNDJSONStream_OneRecordPerLine(t *testing.T) {
+	var buf bytes.Buffer
+	s := NewNDJSONStream(&buf)
+	for _, tk := range sampleTasks() {
+		if err := s.WriteTask(tk); err != nil {
+			t.Fatalf("WriteTask() error: %v", err)
+		}
+	}
+	for _, n := range sampleNotes() {
+		if err := s.WriteNote(n); err != nil {
+			t.Fatalf("WriteNote() error: %v", err)
+		}
+	}
+	if err := s.Close(); err != nil {
+		t.Fatalf("Close() error: %v", err)
+	}
+
+	lines := strings.Split(strings.TrimSuffix(buf.String(), "\n"), "\n")
+	if len(lines) != 4 {
+		t.Fatalf("expected 4 lines, got %d:\n%s", len(lines), buf.String())
+	}
+	var types []string
+	for _, line := range lines {
+		var rec struct {
+			Type  string `json:"type"`
+			Title string `json:"title"`
+			Date  string `json:"date"`
+		}
+		if err := json.Unmarshal([]byte(line), &rec); err != nil {
+			t.Fatalf("invalid line %q: %v", line, err)
+		}
+		types = append(types, rec.Type)
+		if rec.Type == "task" && rec.Title == "" || rec.Type == "note" && rec.Date == "" {
+			t.Errorf("record missing its fields: %s", line)
+		}
+	}
+	if got := strings.Join(types, ","); got != "task,task,note,note" {
+		t.Errorf("record types = %s, want task,task,note,note", got)
+	}
+
+	if err := s.WriteTask(sampleTasks()[0]); err == nil {
+		t.Error("expected an error writing a task after notes")
+	}
+}
@@ -0,0 +1,137 @@
+package export
+
+import (
+	"encoding/json"
+	"errors"
+	"io"
+
+	"github.com/roniel/todo-app/internal/journal"
+	"github.com/roniel/todo-app/internal/task"
+)
+
+// Stream encodes an export one record at a time, so writing it holds a
+// single task or note in memory however large the export is. Tasks must
+// all be written before notes.
+//
+// A JSON stream writes the same document as WriteJSON, one array element
+// at a time. An NDJSON stream writes one object per line, tagged by a
+// "type" field of "task" or "note".
+type Stream struct {
+	w       io.Writer
+	ndjson  bool
+	enc     *json.Encoder
+	section string // "tasks" or "journal" once that part has begun
+	first   bool   // no element written in the open array yet
+	err     error
+}
+
+// ndjsonRecord is one line of an NDJSON export.
+type ndjsonRecord struct {
+	Type string `json:"type"`
+	*jsonTask
+	*jsonNote
+}
+
+// NewJSONStream returns a Stream writing a JSON document to w.
+func NewJSONStream(w io.Writer) *Stream {
+	return &Stream{w: w}
+}
+
+// NewNDJSONStream returns a Stream writing newline-delimited JSON to w.
+func NewNDJSONStream(w io.Writer) *Stream {
+	return &Stream{w: w, ndjson: true, enc: json.NewEncoder(w)}
+}
+
+// WriteTask writes t.
+func (s *Stream) WriteTask(t task.Task) error {
+	if s.section == "journal" {
+		return errors.New("export: task written after journal notes")
+	}
+	jt := toJSONTask(t)
+	if s.ndjson {
+		return s.line(ndjsonRecord{Type: "task", jsonTask: &jt})
+	}
+	return s.element("tasks", jt)
+}
+
+// WriteNote writes n.
+func (s *Stream) WriteNote(n journal.Note) error {
+	jn := toJSONNote(n)
+	if s.ndjson {
+		s.section = "journal"
+		return s.line(ndjsonRecord{Type: "note", jsonNote: &jn})
+	}
+	return s.element("journal", jn)
+}
+
+// Close finishes the document. It does not close the underlying writer.
+func (s *Stream) Close() error {
+	if s.ndjson {
+		return s.err
+	}
+	if s.section == "" {
+		s.open("tasks")
+	}
+	s.closeArray()
+	s.write("\n}\n")
+	return s.err
+}
+
+func (s *Stream) line(rec ndjsonRecord) error {
+	if s.err == nil {
+		s.err = s.enc.Encode(rec)
+	}
+	return s.err
+}
+
+// element writes v as the next element of the array for section, opening
+// it first. Tasks always get an array, even an empty one; the journal only
+// once it has a note, as in WriteJSON.
+func (s *Stream) element(section string, v any) error {
+	if s.section != section {
+		if s.section == "" && section == "journal" {
+			s.open("tasks")
+		}
+		s.open(section)
+	}
+	b, err := json.MarshalIndent(v, "    ", "  ")
+	if err != nil {
+		return err
+	}
+	if !s.first {
+		s.write(",")
+	}
+	s.first = false
+	s.write("\n    ")
+	s.write(string(b))
+	return s.err
+}
+
+// open closes the current array, if any, and opens the one for section.
+func (s *Stream) open(section string) {
+	if s.section == "" {
+		s.write("{")
+	} else {
+		s.closeArray()
+		s.write(",")
+	}
+	s.write("\n  \"" + section + "\": [")
+	s.section = section
+	s.first = true
+}
+
+func (s *Stream) closeArray() {
+	if s.first {
+		s.write("]")
+	} else {
+		s.write("\n  ]")
+	}
+}
+
+// write writes str unless an earlier write failed; the first error is
+// kept and reported by every later call.
+func (s *Stream) write(str string) {
+	if s.err == nil {
+		_, s.err = io.WriteString(s.w, str)
+	}
+}
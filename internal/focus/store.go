@@ -4,87 +4,42 @@ import (
 	"database/sql"
 	"fmt"
 	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+	"github.com/roniel/todo-app/internal/database/migrations"
 )
 
 // Store handles focus session persistence in SQLite.
 type Store struct {
-	db *sql.DB
+	db database.Execer
 }
 
 // NewStore creates a focus store using the provided database connection.
 // The caller is responsible for opening and closing the DB.
 func NewStore(db *sql.DB) (*Store, error) {
-	if err := migrate(db); err != nil {
+	if err := migrations.Apply(db); err != nil {
 		return nil, err
 	}
-	return &Store{db: db}, nil
-}
-
-func migrate(db *sql.DB) error {
-	stmts := []string{
-		`CREATE TABLE IF NOT EXISTS focus_sessions (
-			id           INTEGER PRIMARY KEY AUTOINCREMENT,
-			task_id      INTEGER NOT NULL DEFAULT 0,
-			duration     INTEGER NOT NULL,
-			started_at   TEXT NOT NULL,
-			completed_at TEXT
-		)`,
-		`CREATE INDEX IF NOT EXISTS idx_focus_sessions_task ON focus_sessions(task_id)`,
-	}
-	for _, stmt := range stmts {
-		if _, err := db.Exec(stmt); err != nil {
-			return fmt.Errorf("focus migrate: %w", err)
-		}
-	}
-	if err := addColumnIfNotExists(db, "focus_sessions", "kind", "INTEGER NOT NULL DEFAULT 0"); err != nil {
-		return fmt.Errorf("focus migrate kind: %w", err)
-	}
-	if err := addColumnIfNotExists(db, "focus_sessions", "cycle_pos", "INTEGER NOT NULL DEFAULT 0"); err != nil {
-		return fmt.Errorf("focus migrate cycle_pos: %w", err)
-	}
-	return nil
+	return &Store{db: database.NewStmtCache(db)}, nil
 }
 
-func addColumnIfNotExists(db *sql.DB, table, column, colDef string) error {
-	rows, err := db.Query(fmt.Sprintf("PRAGMA table_info(%s)", table))
-	if err != nil {
-		return err
-	}
-	defer rows.Close()
-
-	for rows.Next() {
-		var cid int
-		var name, ctype string
-		var notnull int
-		var dflt sql.NullString
-		var pk int
-		if err := rows.Scan(&cid, &name, &ctype, &notnull, &dflt, &pk); err != nil {
-			return err
-		}
-		if name == column {
-			return nil // column already exists
-		}
-	}
-	if err := rows.Err(); err != nil {
-		return err
-	}
-
-	_, err = db.Exec(fmt.Sprintf("ALTER TABLE %s ADD COLUMN %s %s", table, column, colDef))
-	return err
+// WithTx returns a store that runs its statements in tx.
+func (s *Store) WithTx(tx database.Execer) *Store {
+	return &Store{db: tx}
 }
 
 // Create inserts a new session and sets its ID.
 func (s *Store) Create(session *Session) error {
-	var completedAt *string
+	var completedAt *int64
 	if session.CompletedAt != nil {
-		v := session.CompletedAt.UTC().Format(time.RFC3339)
+		v := database.Millis(*session.CompletedAt)
 		completedAt = &v
 	}
 	res, err := s.db.Exec(
 		`INSERT INTO focus_sessions (task_id, duration, started_at, completed_at, kind, cycle_pos) VALUES (?,?,?,?,?,?)`,
 		session.TaskID,
 		int64(session.Duration),
-		session.StartedAt.UTC().Format(time.RFC3339),
+		database.Millis(session.StartedAt),
 		completedAt,
 		int(session.Kind),
 		session.CyclePos,
@@ -102,7 +57,7 @@ func (s *Store) Create(session *Session) error {
 
 // Complete marks a session as completed by setting completed_at to now.
 func (s *Store) Complete(id int64) error {
-	now := time.Now().UTC().Format(time.RFC3339)
+	now := database.Millis(time.Now())
 	res, err := s.db.Exec(`UPDATE focus_sessions SET completed_at = ? WHERE id = ?`, now, id)
 	if err != nil {
 		return fmt.Errorf("complete focus session: %w", err)
@@ -142,12 +97,12 @@ func (s *Store) ListByTask(taskID int64) ([]Session, error) {
 // CompletionsByDay returns the count of completed sessions per day for the
 // last N days, keyed by "YYYY-MM-DD".
 func (s *Store) CompletionsByDay(days int) (map[string]int, error) {
-	cutoff := time.Now().UTC().AddDate(0, 0, -days).Format(time.RFC3339)
+	cutoff := database.Millis(time.Now().AddDate(0, 0, -days))
 	rows, err := s.db.Query(
-		`SELECT DATE(completed_at) AS day, COUNT(*) FROM focus_sessions
+		`SELECT completed_at / ? AS day, COUNT(*) FROM focus_sessions
 		 WHERE completed_at IS NOT NULL AND completed_at >= ?
 		 GROUP BY day`,
-		cutoff,
+		msPerDay, cutoff,
 	)
 	if err != nil {
 		return nil, fmt.Errorf("completions by day: %w", err)
@@ -156,23 +111,23 @@ func (s *Store) CompletionsByDay(days int) (map[string]int, error) {
 
 	result := make(map[string]int)
 	for rows.Next() {
-		var day string
+		var day int64
 		var count int
 		if err := rows.Scan(&day, &count); err != nil {
 			return nil, err
 		}
-		result[day] = count
+		result[dayString(day)] = count
 	}
 	return result, rows.Err()
 }
 
 // TodayCount returns the number of sessions completed today.
 func (s *Store) TodayCount() (int, error) {
-	today := time.Now().UTC().Format(time.DateOnly)
+	start, end := today()
 	var count int
 	err := s.db.QueryRow(
-		`SELECT COUNT(*) FROM focus_sessions WHERE completed_at IS NOT NULL AND DATE(completed_at) = ?`,
-		today,
+		`SELECT COUNT(*) FROM focus_sessions WHERE completed_at >= ? AND completed_at < ?`,
+		start, end,
 	).Scan(&count)
 	if err != nil {
 		return 0, fmt.Errorf("today count: %w", err)
@@ -182,11 +137,11 @@ func (s *Store) TodayCount() (int, error) {
 
 // TodayWorkCount returns the number of completed work sessions today.
 func (s *Store) TodayWorkCount() (int, error) {
-	today := time.Now().UTC().Format(time.DateOnly)
+	start, end := today()
 	var count int
 	err := s.db.QueryRow(
-		`SELECT COUNT(*) FROM focus_sessions WHERE completed_at IS NOT NULL AND kind = 0 AND DATE(completed_at) = ?`,
-		today,
+		`SELECT COUNT(*) FROM focus_sessions WHERE kind = 0 AND completed_at >= ? AND completed_at < ?`,
+		start, end,
 	).Scan(&count)
 	if err != nil {
 		return 0, fmt.Errorf("today work count: %w", err)
@@ -197,12 +152,12 @@ func (s *Store) TodayWorkCount() (int, error) {
 // WeeklySummary returns the count of completed work sessions per day for the
 // last 7 days, keyed by "YYYY-MM-DD".
 func (s *Store) WeeklySummary() (map[string]int, error) {
-	cutoff := time.Now().UTC().AddDate(0, 0, -7).Format(time.RFC3339)
+	cutoff := database.Millis(time.Now().AddDate(0, 0, -7))
 	rows, err := s.db.Query(
-		`SELECT DATE(completed_at) AS day, COUNT(*) FROM focus_sessions
+		`SELECT completed_at / ? AS day, COUNT(*) FROM focus_sessions
 		 WHERE completed_at IS NOT NULL AND kind = 0 AND completed_at >= ?
 		 GROUP BY day`,
-		cutoff,
+		msPerDay, cutoff,
 	)
 	if err != nil {
 		return nil, fmt.Errorf("weekly summary: %w", err)
@@ -211,12 +166,12 @@ func (s *Store) WeeklySummary() (map[string]int, error) {
 
 	result := make(map[string]int)
 	for rows.Next() {
-		var day string
+		var day int64
 		var count int
 		if err := rows.Scan(&day, &count); err != nil {
 			return nil, err
 		}
-		result[day] = count
+		result[dayString(day)] = count
 	}
 	return result, rows.Err()
 }
@@ -225,18 +180,19 @@ func (s *Store) WeeklySummary() (map[string]int, error) {
 // that have at least one completed work session.
 func (s *Store) Streak() (int, error) {
 	rows, err := s.db.Query(
-		`SELECT DISTINCT DATE(completed_at) AS day FROM focus_sessions
+		`SELECT DISTINCT completed_at / ? AS day FROM focus_sessions
 		 WHERE completed_at IS NOT NULL AND kind = 0
 		 ORDER BY day DESC`,
+		msPerDay,
 	)
 	if err != nil {
 		return 0, fmt.Errorf("streak: %w", err)
 	}
 	defer rows.Close()
 
-	var days []string
+	var days []int64
 	for rows.Next() {
-		var day string
+		var day int64
 		if err := rows.Scan(&day); err != nil {
 			return 0, err
 		}
@@ -251,15 +207,13 @@ func (s *Store) Streak() (int, error) {
 	}
 
 	streak := 0
-	expected := time.Now().UTC().Format(time.DateOnly)
+	expected := database.Millis(time.Now()) / msPerDay
 	for _, day := range days {
-		if day == expected {
-			streak++
-			t, _ := time.Parse(time.DateOnly, expected)
-			expected = t.AddDate(0, 0, -1).Format(time.DateOnly)
-		} else {
+		if day != expected {
 			break
 		}
+		streak++
+		expected--
 	}
 	return streak, nil
 }
@@ -267,7 +221,7 @@ func (s *Store) Streak() (int, error) {
 // TotalMinutesFocused returns the total minutes spent in completed work
 // sessions over the last N days.
 func (s *Store) TotalMinutesFocused(days int) (int, error) {
-	cutoff := time.Now().UTC().AddDate(0, 0, -days).Format(time.RFC3339)
+	cutoff := database.Millis(time.Now().AddDate(0, 0, -days))
 	var totalNs int64
 	err := s.db.QueryRow(
 		`SELECT COALESCE(SUM(duration), 0) FROM focus_sessions
@@ -280,6 +234,22 @@ func (s *Store) TotalMinutesFocused(days int) (int, error) {
 	return int(time.Duration(totalNs).Minutes()), nil
 }
 
+// msPerDay divides a stored timestamp into its UTC day number, so grouping
+// and matching by day compare integers instead of formatting dates.
+const msPerDay = 24 * 60 * 60 * 1000
+
+// dayString formats a UTC day number as "YYYY-MM-DD".
+func dayString(day int64) string {
+	return database.FromMillis(day * msPerDay).Format(time.DateOnly)
+}
+
+// today returns the bounds of the current UTC day as a half-open range of
+// stored timestamps.
+func today() (start, end int64) {
+	start = database.Millis(time.Now()) / msPerDay * msPerDay
+	return start, start + msPerDay
+}
+
 // scanner is satisfied by both *sql.Row and *sql.Rows.
 type scanner interface {
 	Scan(dest ...any) error
@@ -288,8 +258,7 @@ type scanner interface {
 func scanSession(s scanner) (Session, error) {
 	var sess Session
 	var durationNs int64
-	var startedAt string
-	var completedAt sql.NullString
+	var startedAt, completedAt database.Timestamp
 	var kind int
 
 	if err := s.Scan(&sess.ID, &sess.TaskID, &durationNs, &startedAt, &completedAt, &kind, &sess.CyclePos); err != nil {
@@ -299,17 +268,9 @@ func scanSession(s scanner) (Session, error) {
 	sess.Duration = time.Duration(durationNs)
 	sess.Kind = SessionKind(kind)
 
-	t, err := time.Parse(time.RFC3339, startedAt)
-	if err != nil {
-		return Session{}, fmt.Errorf("parse started_at %q: %w", startedAt, err)
-	}
-	sess.StartedAt = t
-
+	sess.StartedAt = startedAt.Time
 	if completedAt.Valid {
-		t, err := time.Parse(time.RFC3339, completedAt.String)
-		if err != nil {
-			return Session{}, fmt.Errorf("parse completed_at %q: %w", completedAt.String, err)
-		}
+		t := completedAt.Time
 		sess.CompletedAt = &t
 	}
 	return sess, nil
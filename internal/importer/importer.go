@@ -0,0 +1,379 @@
+// Package importer loads tasks and journal entries from the files `todo
+// export` writes (JSON or NDJSON) and from CSV. Files are read one record
+// at a time; tasks are inserted in batches through task.Store.BulkCreate,
+// all inside one transaction, so an import either lands whole or not at
+// all. Tasks get new IDs: dependencies in the file refer to the IDs it
+// was exported with and are remapped once every task is in.
+package importer
+
+import (
+	"errors"
+	"fmt"
+	"io"
+	"path/filepath"
+	"strings"
+	"time"
+
+	"github.com/roniel/todo-app/internal/journal"
+	"github.com/roniel/todo-app/internal/task"
+)
+
+// Format is the encoding of an import file.
+type Format int
+
+const (
+	JSON   Format = iota // the document written by `export --format json`
+	NDJSON               // one record per line, as `export --format ndjson`
+	CSV                  // a header row naming the columns, then one task per row
+)
+
+func (f Format) String() string {
+	switch f {
+	case NDJSON:
+		return "ndjson"
+	case CSV:
+		return "csv"
+	default:
+		return "json"
+	}
+}
+
+// ParseFormat converts a --format value to a Format.
+func ParseFormat(s string) (Format, error) {
+	switch strings.ToLower(s) {
+	case "json":
+		return JSON, nil
+	case "ndjson", "jsonl":
+		return NDJSON, nil
+	case "csv":
+		return CSV, nil
+	default:
+		return JSON, fmt.Errorf("invalid format %q: must be json, ndjson or csv", s)
+	}
+}
+
+// FormatFromPath guesses the format of a file from its extension,
+// defaulting to JSON.
+func FormatFromPath(path string) Format {
+	switch strings.ToLower(filepath.Ext(path)) {
+	case ".ndjson", ".jsonl":
+		return NDJSON
+	case ".csv":
+		return CSV
+	default:
+		return JSON
+	}
+}
+
+// DefaultBatchSize is how many tasks Import inserts per BulkCreate call
+// when Options.BatchSize is not positive.
+const DefaultBatchSize = 1000
+
+// Options configure Import.
+type Options struct {
+	Format    Format
+	BatchSize int
+	// Progress, if set, is called after every batch and once at the end.
+	Progress func(Stats)
+}
+
+// Stats counts what an import wrote.
+type Stats struct {
+	Tasks   int // tasks created
+	Entries int // journal entries added
+	Deps    int // dependencies linked
+	// SkippedDeps counts dependencies on IDs no task in the file had.
+	SkippedDeps int
+}
+
+// taskRecord is a task as exported, or as read from a CSV row.
+type taskRecord struct {
+	ID          int64             `json:"id"`
+	Title       string            `json:"title"`
+	Description string            `json:"description"`
+	Status      string            `json:"status"`
+	Priority    string            `json:"priority"`
+	DueDate     string            `json:"due_date"`
+	CreatedAt   string            `json:"created_at"`
+	Tags        []string          `json:"tags"`
+	Subtasks    []subtaskRecord   `json:"subtasks"`
+	Metadata    map[string]string `json:"metadata"`
+	BlockedBy   []int64           `json:"blocked_by"`
+}
+
+type subtaskRecord struct {
+	Title     string `json:"title"`
+	Completed bool   `json:"completed"`
+}
+
+// noteRecord is a journal day as exported.
+type noteRecord struct {
+	Date    string        `json:"date"`
+	Entries []entryRecord `json:"entries"`
+}
+
+type entryRecord struct {
+	Body      string `json:"body"`
+	CreatedAt string `json:"created_at"`
+}
+
+// Import reads r in opts.Format and adds its tasks to ts and its journal
+// entries to js, in one transaction. Journal entries already present, same
+// day, body and time, are skipped, so importing a journal twice is
+// harmless; tasks are always created anew. js may be nil when the file
+// has no journal.
+func Import(r io.Reader, ts *task.Store, js *journal.Store, opts Options) (Stats, error) {
+	if opts.BatchSize <= 0 {
+		opts.BatchSize = DefaultBatchSize
+	}
+	tx, err := ts.Begin()
+	if err != nil {
+		return Stats{}, err
+	}
+	defer tx.Rollback()
+
+	im := &importer{
+		opts:  opts,
+		tasks: ts.WithTx(tx),
+		idMap: make(map[int64]int64),
+	}
+	if js != nil {
+		im.journal = js.WithTx(tx)
+	}
+
+	var read func(io.Reader, *importer) error
+	switch opts.Format {
+	case NDJSON:
+		read = readNDJSON
+	case CSV:
+		read = readCSV
+	default:
+		read = readJSON
+	}
+	if err := read(r, im); err != nil {
+		return im.stats, err
+	}
+	if err := im.flush(); err != nil {
+		return im.stats, err
+	}
+	if err := im.link(); err != nil {
+		return im.stats, err
+	}
+	if err := tx.Commit(); err != nil {
+		return im.stats, err
+	}
+	if opts.Progress != nil {
+		opts.Progress(im.stats)
+	}
+	return im.stats, nil
+}
+
+// importer accumulates one batch of tasks at a time. Only the ID map and
+// the dependency list grow with the file, by a few words per task.
+type importer struct {
+	opts    Options
+	tasks   *task.Store
+	journal *journal.Store
+
+	batch  []task.Task
+	srcIDs []int64 // exported ID of each batch task, 0 if none
+
+	idMap map[int64]int64 // exported ID -> new ID
+	deps  [][2]int64      // exported (task, blocker) pairs
+	stats Stats
+}
+
+// addTask queues rec, flushing the batch when it is full.
+func (im *importer) addTask(rec taskRecord) error {
+	t, err := rec.toTask()
+	if err != nil {
+		return err
+	}
+	im.batch = append(im.batch, t)
+	im.srcIDs = append(im.srcIDs, rec.ID)
+	for _, b := range rec.BlockedBy {
+		if rec.ID != 0 && b != rec.ID {
+			im.deps = append(im.deps, [2]int64{rec.ID, b})
+		}
+	}
+	if len(im.batch) >= im.opts.BatchSize {
+		return im.flush()
+	}
+	return nil
+}
+
+// flush inserts the queued tasks and records their new IDs.
+func (im *importer) flush() error {
+	if len(im.batch) == 0 {
+		return nil
+	}
+	if err := im.tasks.BulkCreate(im.batch); err != nil {
+		return fmt.Errorf("insert tasks: %w", err)
+	}
+	for i, src := range im.srcIDs {
+		if src != 0 {
+			im.idMap[src] = im.batch[i].ID
+		}
+	}
+	im.stats.Tasks += len(im.batch)
+	im.batch = im.batch[:0]
+	im.srcIDs = im.srcIDs[:0]
+	if im.opts.Progress != nil {
+		im.opts.Progress(im.stats)
+	}
+	return nil
+}
+
+// link adds the dependencies once every task has its new ID, so a task may
+// be blocked by one later in the file. A file whose dependencies loop is
+// rejected, naming the IDs it uses.
+func (im *importer) link() error {
+	var ops []task.Op
+	var kept [][2]int64
+	for _, d := range im.deps {
+		id, ok1 := im.idMap[d[0]]
+		blocker, ok2 := im.idMap[d[1]]
+		if !ok1 || !ok2 {
+			im.stats.SkippedDeps++
+			continue
+		}
+		kept = append(kept, d)
+		ops = append(ops, task.Op{Kind: task.OpSetBlocker, TaskID: id, BlockerID: blocker})
+	}
+	if len(ops) == 0 {
+		return nil
+	}
+	if err := checkCycles(kept); err != nil {
+		return err
+	}
+	if err := im.tasks.Apply(ops); err != nil {
+		return fmt.Errorf("link dependencies: %w", err)
+	}
+	im.stats.Deps = len(ops)
+	return nil
+}
+
+// checkCycles returns an error wrapping task.ErrCycle if the exported
+// (task, blocker) pairs in deps form a loop. The imported tasks are all
+// new, so a loop can only run through the file's own dependencies. The
+// graph is sorted once; only if that fails are the edges replayed to name
+// the first one that closes the loop.
+func checkCycles(deps [][2]int64) error {
+	g := task.NewDepGraph()
+	for _, d := range deps {
+		g.AddEdge(d[0], d[1])
+	}
+	if _, err := g.TopoOrder(); !errors.Is(err, task.ErrCycle) {
+		return nil
+	}
+	g = task.NewDepGraph()
+	for _, d := range deps {
+		if g.WouldCycle(d[0], d[1]) {
+			return fmt.Errorf("task %d blocked by %d closes a loop: %w", d[0], d[1], task.ErrCycle)
+		}
+		g.AddEdge(d[0], d[1])
+	}
+	return nil
+}
+
+// addNote adds the entries of rec to its day's note, skipping any already
+// there.
+func (im *importer) addNote(rec noteRecord) error {
+	if im.journal == nil || len(rec.Entries) == 0 {
+		return nil
+	}
+	if _, err := time.Parse(time.DateOnly, rec.Date); err != nil {
+		return fmt.Errorf("invalid date %q", rec.Date)
+	}
+	note, err := im.journal.GetOrCreate(rec.Date)
+	if err != nil {
+		return err
+	}
+	have := make(map[string]bool, len(note.Entries))
+	for _, e := range note.Entries {
+		have[entryKey(e.Body, e.CreatedAt)] = true
+	}
+	for _, e := range rec.Entries {
+		at, err := time.Parse(time.RFC3339, e.CreatedAt)
+		if err != nil {
+			return fmt.Errorf("invalid created_at %q", e.CreatedAt)
+		}
+		if have[entryKey(e.Body, at)] {
+			continue
+		}
+		if err := im.journal.RestoreEntry(note.ID, e.Body, at); err != nil {
+			return err
+		}
+		im.stats.Entries++
+	}
+	return nil
+}
+
+func entryKey(body string, at time.Time) string {
+	return at.UTC().Truncate(time.Second).Format(time.RFC3339) + "\x00" + body
+}
+
+// toTask validates rec and converts it. Status and priority accept the
+// exported names and the CLI's spellings, in any case.
+func (rec taskRecord) toTask() (task.Task, error) {
+	t := task.Task{
+		Title:       strings.TrimSpace(rec.Title),
+		Description: rec.Description,
+		Tags:        rec.Tags,
+		Metadata:    rec.Metadata,
+	}
+	if t.Title == "" {
+		return t, fmt.Errorf("missing title")
+	}
+	var err error
+	if t.Status, err = parseStatus(rec.Status); err != nil {
+		return t, err
+	}
+	if t.Priority, err = parsePriority(rec.Priority); err != nil {
+		return t, err
+	}
+	if rec.DueDate != "" {
+		d, err := time.ParseInLocation(time.DateOnly, rec.DueDate, time.UTC)
+		if err != nil {
+			return t, fmt.Errorf("invalid due_date %q: use YYYY-MM-DD", rec.DueDate)
+		}
+		t.DueDate = &d
+	}
+	if rec.CreatedAt != "" {
+		if t.CreatedAt, err = time.Parse(time.RFC3339, rec.CreatedAt); err != nil {
+			return t, fmt.Errorf("invalid created_at %q: use RFC 3339", rec.CreatedAt)
+		}
+	}
+	for i, st := range rec.Subtasks {
+		t.Subtasks = append(t.Subtasks, task.Subtask{Title: st.Title, Completed: st.Completed, Position: i})
+	}
+	return t, nil
+}
+
+func parseStatus(s string) (task.Status, error) {
+	switch strings.NewReplacer("_", "", "-", "", " ", "").Replace(strings.ToLower(s)) {
+	case "", "pending", "todo":
+		return task.Pending, nil
+	case "inprogress":
+		return task.InProgress, nil
+	case "done":
+		return task.Done, nil
+	default:
+		return task.Pending, fmt.Errorf("invalid status %q: must be pending, in progress or done", s)
+	}
+}
+
+func parsePriority(s string) (task.Priority, error) {
+	switch strings.ToLower(s) {
+	case "", "low":
+		return task.Low, nil
+	case "medium", "med":
+		return task.Medium, nil
+	case "high":
+		return task.High, nil
+	case "urgent":
+		return task.Urgent, nil
+	default:
+		return task.Low, fmt.Errorf("invalid priority %q: must be low, medium, high or urgent", s)
+	}
+}
@@ -0,0 +1,198 @@
+package importer
+
+import (
+	"bytes"
+	"database/sql"
+	"errors"
+	"fmt"
+	"slices"
+	"strings"
+	"testing"
+	"time"
+
+	"github.com/roniel/todo-app/internal/export"
+	"github.com/roniel/todo-app/internal/journal"
+	"github.com/roniel/todo-app/internal/task"
+	_ "modernc.org/sqlite"
+)
+
+func newTestStores(t *testing.T) (*task.Store, *journal.Store) {
+	t.Helper()
+	db, err := sql.Open("sqlite", ":memory:")
+	if err != nil {
+		t.Fatalf("open test db: %v", err)
+	}
+	db.SetMaxOpenConns(1) // one in-memory database
+	t.Cleanup(func() { db.Close() })
+	if _, err := db.Exec("PRAGMA foreign_keys = ON"); err != nil {
+		t.Fatalf("enable foreign keys: %v", err)
+	}
+	ts, err := task.NewStore(db)
+	if err != nil {
+		t.Fatalf("task.NewStore: %v", err)
+	}
+	js, err := journal.NewStore(db)
+	if err != nil {
+		t.Fatalf("journal.NewStore: %v", err)
+	}
+	return ts, js
+}
+
+// byTitle returns the tasks in ts keyed by title.
+func byTitle(t *testing.T, ts *task.Store) map[string]task.Task {
+	t.Helper()
+	tasks, err := ts.List()
+	if err != nil {
+		t.Fatalf("List: %v", err)
+	}
+	m := make(map[string]task.Task, len(tasks))
+	for _, tk := range tasks {
+		m[tk.Title] = tk
+	}
+	return m
+}
+
+func TestImport_RoundTripsExport(t *testing.T) {
+	src, srcJournal := newTestStores(t)
+	due := time.Date(2026, 5, 1, 0, 0, 0, 0, time.UTC)
+	var tasks []task.Task
+	for i := range 5 {
+		tasks = append(tasks, task.Task{Title: fmt.Sprintf("task %d", i), Priority: task.High})
+	}
+	tasks[0].Tags = []string{"work", "q2"}
+	tasks[0].DueDate = &due
+	tasks[0].Subtasks = []task.Subtask{{Title: "step", Completed: true}}
+	tasks[1].Status = task.InProgress
+	if err := src.BulkCreate(tasks); err != nil {
+		t.Fatalf("BulkCreate: %v", err)
+	}
+	// The export lists newest first, so task 0 is blocked by a task that
+	// comes before it and blocks one that comes after.
+	if err := src.Apply([]task.Op{
+		{Kind: task.OpSetBlocker, TaskID: tasks[0].ID, BlockerID: tasks[4].ID},
+		{Kind: task.OpSetBlocker, TaskID: tasks[1].ID, BlockerID: tasks[0].ID},
+	}); err != nil {
+		t.Fatalf("Apply: %v", err)
+	}
+	note, err := srcJournal.GetOrCreate("2026-04-01")
+	if err != nil {
+		t.Fatalf("GetOrCreate: %v", err)
+	}
+	if err := srcJournal.AddEntry(note.ID, "shipped it"); err != nil {
+		t.Fatalf("AddEntry: %v", err)
+	}
+
+	for _, format := range []Format{JSON, NDJSON} {
+		t.Run(format.String(), func(t *testing.T) {
+			var buf bytes.Buffer
+			s := export.NewJSONStream(&buf)
+			if format == NDJSON {
+				s = export.NewNDJSONStream(&buf)
+			}
+			if err := src.ForEach(task.Query{}, 0, s.WriteTask); err != nil {
+				t.Fatalf("export tasks: %v", err)
+			}
+			if err := srcJournal.ForEachNote(false, 0, s.WriteNote); err != nil {
+				t.Fatalf("export journal: %v", err)
+			}
+			if err := s.Close(); err != nil {
+				t.Fatalf("export: %v", err)
+			}
+			data := buf.Bytes()
+
+			ts, js := newTestStores(t)
+			// Give the target different IDs than the source.
+			if err := ts.Create(&task.Task{Title: "already here"}); err != nil {
+				t.Fatalf("Create: %v", err)
+			}
+			var progress []int
+			stats, err := Import(bytes.NewReader(data), ts, js, Options{
+				Format:    format,
+				BatchSize: 2,
+				Progress:  func(s Stats) { progress = append(progress, s.Tasks) },
+			})
+			if err != nil {
+				t.Fatalf("Import: %v", err)
+			}
+			if stats.Tasks != 5 || stats.Entries != 1 || stats.Deps != 2 || stats.SkippedDeps != 0 {
+				t.Errorf("stats = %+v, want 5 tasks, 1 entry, 2 deps", stats)
+			}
+			if !slices.Equal(progress, []int{2, 4, 5, 5}) {
+				t.Errorf("progress = %v, want a report per batch and one at the end", progress)
+			}
+
+			got := byTitle(t, ts)
+			t0, t1, t4 := got["task 0"], got["task 1"], got["task 4"]
+			if !slices.Equal(t0.Tags, []string{"work", "q2"}) || t0.DueDate == nil || !t0.DueDate.Equal(due) {
+				t.Errorf("task 0 tags %v due %v, want [work q2] and %v", t0.Tags, t0.DueDate, due)
+			}
+			if len(t0.Subtasks) != 1 || !t0.Subtasks[0].Completed || t0.Priority != task.High {
+				t.Errorf("task 0 subtasks %+v priority %v, want one done subtask and High", t0.Subtasks, t0.Priority)
+			}
+			if t1.Status != task.InProgress {
+				t.Errorf("task 1 status = %v, want In Progress", t1.Status)
+			}
+			if !slices.Equal(t0.BlockedByIDs, []int64{t4.ID}) || !slices.Equal(t1.BlockedByIDs, []int64{t0.ID}) {
+				t.Errorf("dependencies not remapped: task 0 blocked by %v (want %d), task 1 by %v (want %d)",
+					t0.BlockedByIDs, t4.ID, t1.BlockedByIDs, t0.ID)
+			}
+
+			// The journal entry is already there the second time.
+			again, err := Import(bytes.NewReader(data), ts, js, Options{Format: format})
+			if err != nil || again.Entries != 0 {
+				t.Errorf("second import = %+v, %v; want the journal entry skipped", again, err)
+			}
+		})
+	}
+}
+
+func TestImport_CSV(t *testing.T) {
+	ts, js := newTestStores(t)
+	in := "\ufeffID,Title,Priority,Status,Due,Tags,Blocked_By,Owner\n" +
+		"10,Write draft,high,in progress,2026-06-01,\"docs, q3\",11,ann\n" +
+		"11,Collect notes,,,,,,bob\n" +
+		"12,\"Review, then publish\",urgent,done,,,10;99,\n"
+
+	stats, err := Import(strings.NewReader(in), ts, js, Options{Format: CSV})
+	if err != nil {
+		t.Fatalf("Import: %v", err)
+	}
+	if stats.Tasks != 3 || stats.Deps != 2 || stats.SkippedDeps != 1 {
+		t.Errorf("stats = %+v, want 3 tasks, 2 deps, 1 skipped", stats)
+	}
+	got := byTitle(t, ts)
+	draft, notes, review := got["Write draft"], got["Collect notes"], got["Review, then publish"]
+	if draft.Priority != task.High || draft.Status != task.InProgress || !slices.Equal(draft.Tags, []string{"docs", "q3"}) {
+		t.Errorf("draft = %v/%v %v, want High, In Progress, [docs q3]", draft.Priority, draft.Status, draft.Tags)
+	}
+	if !slices.Equal(draft.BlockedByIDs, []int64{notes.ID}) || !slices.Equal(review.BlockedByIDs, []int64{draft.ID}) {
+		t.Errorf("blocked_by = %v and %v, want [%d] and [%d]", draft.BlockedByIDs, review.BlockedByIDs, notes.ID, draft.ID)
+	}
+}
+
+func TestImport_ErrorWritesNothing(t *testing.T) {
+	ts, js := newTestStores(t)
+	in := "title,priority\none,low\ntwo,low\nthree,sometimes\n"
+
+	_, err := Import(strings.NewReader(in), ts, js, Options{Format: CSV, BatchSize: 2})
+	if err == nil || !strings.Contains(err.Error(), "line 4") {
+		t.Fatalf("Import = %v, want an error naming line 4", err)
+	}
+	tasks, _ := ts.List()
+	if len(tasks) != 0 {
+		t.Errorf("%d tasks left after a failed import, want none", len(tasks))
+	}
+}
+
+func TestImport_RejectsCycle(t *testing.T) {
+	ts, js := newTestStores(t)
+	in := "id,title,blocked_by\n1,A,3\n2,B,1\n3,C,2\n4,D,1\n"
+
+	_, err := Import(strings.NewReader(in), ts, js, Options{Format: CSV})
+	if !errors.Is(err, task.ErrCycle) || !strings.Contains(err.Error(), "task 3 blocked by 2") {
+		t.Fatalf("Import = %v, want ErrCycle naming task 3 blocked by 2", err)
+	}
+	if tasks, _ := ts.List(); len(tasks) != 0 {
+		t.Errorf("%d tasks left after a rejected import, want none", len(tasks))
+	}
+}
@@ -0,0 +1,224 @@
+package importer
+
+import (
+	"bufio"
+	"bytes"
+	"encoding/csv"
+	"encoding/json"
+	"errors"
+	"fmt"
+	"io"
+	"strconv"
+	"strings"
+)
+
+// readJSON walks an export document token by token, decoding one array
+// element at a time, so the document is never held whole.
+func readJSON(r io.Reader, im *importer) error {
+	dec := json.NewDecoder(bufio.NewReaderSize(r, 1<<16))
+	if err := expectDelim(dec, '{'); err != nil {
+		return err
+	}
+	for dec.More() {
+		tok, err := dec.Token()
+		if err != nil {
+			return fmt.Errorf("read json: %w", err)
+		}
+		switch key, _ := tok.(string); key {
+		case "tasks", "journal":
+			if err := readArray(dec, key, im); err != nil {
+				return err
+			}
+		default:
+			var skip json.RawMessage
+			if err := dec.Decode(&skip); err != nil {
+				return fmt.Errorf("read json: %w", err)
+			}
+		}
+	}
+	return expectDelim(dec, '}')
+}
+
+// readArray reads the array of key element by element. A null array, as
+// older exports write for no tasks, is empty.
+func readArray(dec *json.Decoder, key string, im *importer) error {
+	tok, err := dec.Token()
+	if err != nil {
+		return fmt.Errorf("read json: %w", err)
+	}
+	if tok == nil {
+		return nil
+	}
+	if d, ok := tok.(json.Delim); !ok || d != '[' {
+		return fmt.Errorf("read json: %q is not an array", key)
+	}
+	for n := 1; dec.More(); n++ {
+		if key == "tasks" {
+			var rec taskRecord
+			err := dec.Decode(&rec)
+			if err == nil {
+				err = im.addTask(rec)
+			}
+			if err != nil {
+				return fmt.Errorf("task %d: %w", n, err)
+			}
+		} else {
+			var rec noteRecord
+			err := dec.Decode(&rec)
+			if err == nil {
+				err = im.addNote(rec)
+			}
+			if err != nil {
+				return fmt.Errorf("journal note %d: %w", n, err)
+			}
+		}
+	}
+	return expectDelim(dec, ']')
+}
+
+func expectDelim(dec *json.Decoder, want json.Delim) error {
+	tok, err := dec.Token()
+	if err != nil {
+		return fmt.Errorf("read json: %w", err)
+	}
+	if d, ok := tok.(json.Delim); !ok || d != want {
+		return fmt.Errorf("read json: expected %q, got %v", want, tok)
+	}
+	return nil
+}
+
+// readNDJSON reads one record per line, dispatched on its "type" field.
+// Blank lines are skipped.
+func readNDJSON(r io.Reader, im *importer) error {
+	sc := bufio.NewScanner(r)
+	sc.Buffer(make([]byte, 0, 1<<16), 16<<20)
+	for line := 1; sc.Scan(); line++ {
+		b := bytes.TrimSpace(sc.Bytes())
+		if len(b) == 0 {
+			continue
+		}
+		var kind struct {
+			Type string `json:"type"`
+		}
+		if err := json.Unmarshal(b, &kind); err != nil {
+			return fmt.Errorf("line %d: %w", line, err)
+		}
+		var err error
+		switch kind.Type {
+		case "task":
+			var rec taskRecord
+			if err = json.Unmarshal(b, &rec); err == nil {
+				err = im.addTask(rec)
+			}
+		case "note":
+			var rec noteRecord
+			if err = json.Unmarshal(b, &rec); err == nil {
+				err = im.addNote(rec)
+			}
+		default:
+			err = fmt.Errorf("unknown record type %q", kind.Type)
+		}
+		if err != nil {
+			return fmt.Errorf("line %d: %w", line, err)
+		}
+	}
+	if err := sc.Err(); err != nil {
+		return fmt.Errorf("read ndjson: %w", err)
+	}
+	return nil
+}
+
+// csvColumns maps the header names readCSV understands to the field they
+// fill. Other columns are ignored.
+var csvColumns = map[string]func(*taskRecord, string) error{
+	"id": func(r *taskRecord, v string) error {
+		if v == "" {
+			return nil
+		}
+		id, err := strconv.ParseInt(v, 10, 64)
+		if err != nil {
+			return fmt.Errorf("invalid id %q", v)
+		}
+		r.ID = id
+		return nil
+	},
+	"title":       func(r *taskRecord, v string) error { r.Title = v; return nil },
+	"description": func(r *taskRecord, v string) error { r.Description = v; return nil },
+	"status":      func(r *taskRecord, v string) error { r.Status = v; return nil },
+	"priority":    func(r *taskRecord, v string) error { r.Priority = v; return nil },
+	"due_date":    func(r *taskRecord, v string) error { r.DueDate = v; return nil },
+	"created_at":  func(r *taskRecord, v string) error { r.CreatedAt = v; return nil },
+	"tags":        func(r *taskRecord, v string) error { r.Tags = splitList(v); return nil },
+	"blocked_by": func(r *taskRecord, v string) error {
+		for _, s := range splitList(v) {
+			id, err := strconv.ParseInt(s, 10, 64)
+			if err != nil {
+				return fmt.Errorf("invalid blocked_by id %q", s)
+			}
+			r.BlockedBy = append(r.BlockedBy, id)
+		}
+		return nil
+	},
+}
+
+// readCSV reads a header row, then one task per row. Tags and blocked_by
+// hold lists separated by commas or semicolons.
+func readCSV(r io.Reader, im *importer) error {
+	cr := csv.NewReader(bufio.NewReaderSize(r, 1<<16))
+	cr.ReuseRecord = true
+	cr.FieldsPerRecord = -1
+	header, err := cr.Read()
+	if errors.Is(err, io.EOF) {
+		return nil
+	}
+	if err != nil {
+		return fmt.Errorf("read csv header: %w", err)
+	}
+	fields := make([]func(*taskRecord, string) error, len(header))
+	hasTitle := false
+	for i, name := range header {
+		name = strings.ToLower(strings.TrimSpace(strings.TrimPrefix(name, "\ufeff"))) // spreadsheet BOM
+		if name == "due" {
+			name = "due_date"
+		}
+		fields[i] = csvColumns[name]
+		hasTitle = hasTitle || name == "title"
+	}
+	if !hasTitle {
+		return errors.New("read csv: header has no title column")
+	}
+
+	for {
+		record, err := cr.Read()
+		if errors.Is(err, io.EOF) {
+			return nil
+		}
+		if err != nil {
+			return fmt.Errorf("read csv: %w", err)
+		}
+		var rec taskRecord
+		for i, v := range record {
+			if i < len(fields) && fields[i] != nil && err == nil {
+				err = fields[i](&rec, strings.TrimSpace(v))
+			}
+		}
+		if err == nil {
+			err = im.addTask(rec)
+		}
+		if err != nil {
+			line, _ := cr.FieldPos(0)
+			return fmt.Errorf("line %d: %w", line, err)
+		}
+	}
+}
+
+// splitList splits a CSV list cell on commas and semicolons.
+func splitList(s string) []string {
+	var out []string
+	for _, f := range strings.FieldsFunc(s, func(r rune) bool { return r == ',' || r == ';' }) {
+		if f = strings.TrimSpace(f); f != "" {
+			out = append(out, f)
+		}
+	}
+	return out
+}
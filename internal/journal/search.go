@@ -0,0 +1,63 @@
+package journal
+
+import (
+	"database/sql"
+	"fmt"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// SearchHit is one ranked full-text match in a journal entry.
+type SearchHit struct {
+	EntryID int64
+	Date    time.Time
+	Snippet string  // matching text with the hit wrapped in [brackets]
+	Rank    float64 // bm25 score; lower is more relevant
+}
+
+// Search returns entries of visible notes matching every whitespace-separated
+// term of text, best match first. Terms shorter than three characters fall
+// back to an unranked substring scan.
+func (s *Store) Search(text string, limit int) ([]SearchHit, error) {
+	if limit <= 0 {
+		limit = 20
+	}
+	var rows *sql.Rows
+	var err error
+	if expr, ok := database.MatchAll(text); ok {
+		rows, err = s.db.Query(`SELECT e.id, n.date, snippet(journal_fts, 0, '[', ']', '…', 10), bm25(journal_fts)
+			FROM journal_fts
+			JOIN journal_entries e ON e.id = journal_fts.rowid
+			JOIN journal_notes n ON n.id = e.note_id
+			WHERE journal_fts MATCH ? AND n.hidden = 0
+			ORDER BY bm25(journal_fts)
+			LIMIT ?`, expr, limit)
+	} else {
+		rows, err = s.db.Query(`SELECT e.id, n.date, e.body, 0
+			FROM journal_entries e JOIN journal_notes n ON n.id = e.note_id
+			WHERE e.body LIKE ? ESCAPE '\' AND n.hidden = 0
+			ORDER BY n.date DESC, e.created_at DESC
+			LIMIT ?`, "%"+database.EscapeLike(text)+"%", limit)
+	}
+	if err != nil {
+		return nil, fmt.Errorf("journal search: %w", err)
+	}
+	defer rows.Close()
+
+	var hits []SearchHit
+	for rows.Next() {
+		var h SearchHit
+		var dateStr string
+		if err := rows.Scan(&h.EntryID, &dateStr, &h.Snippet, &h.Rank); err != nil {
+			return nil, err
+		}
+		d, err := time.ParseInLocation(time.DateOnly, dateStr, time.UTC)
+		if err != nil {
+			return nil, fmt.Errorf("parse note date %q: %w", dateStr, err)
+		}
+		h.Date = d
+		hits = append(hits, h)
+	}
+	return hits, rows.Err()
+}
@@ -3,47 +3,28 @@ package journal
 import (
 	"database/sql"
 	"fmt"
-	"strings"
 	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+	"github.com/roniel/todo-app/internal/database/migrations"
 )
 
 // Store handles journal persistence in SQLite.
 type Store struct {
-	db *sql.DB
+	db database.Execer
 }
 
 // NewStore creates a journal store using the provided database connection.
 func NewStore(db *sql.DB) (*Store, error) {
-	if err := migrate(db); err != nil {
+	if err := migrations.Apply(db); err != nil {
 		return nil, err
 	}
-	return &Store{db: db}, nil
+	return &Store{db: database.NewStmtCache(db)}, nil
 }
 
-func migrate(db *sql.DB) error {
-	stmts := []string{
-		`CREATE TABLE IF NOT EXISTS journal_notes (
-			id         INTEGER PRIMARY KEY AUTOINCREMENT,
-			date       TEXT NOT NULL UNIQUE,
-			hidden     INTEGER NOT NULL DEFAULT 0,
-			created_at TEXT NOT NULL,
-			updated_at TEXT NOT NULL
-		)`,
-		`CREATE TABLE IF NOT EXISTS journal_entries (
-			id         INTEGER PRIMARY KEY AUTOINCREMENT,
-			note_id    INTEGER NOT NULL REFERENCES journal_notes(id) ON DELETE CASCADE,
-			body       TEXT NOT NULL,
-			created_at TEXT NOT NULL
-		)`,
-		`CREATE INDEX IF NOT EXISTS idx_journal_entries_note ON journal_entries(note_id)`,
-		`CREATE INDEX IF NOT EXISTS idx_journal_notes_date ON journal_notes(date)`,
-	}
-	for _, stmt := range stmts {
-		if _, err := db.Exec(stmt); err != nil {
-			return fmt.Errorf("journal migrate: %w", err)
-		}
-	}
-	return nil
+// WithTx returns a store that runs its statements in tx.
+func (s *Store) WithTx(tx database.Execer) *Store {
+	return &Store{db: tx}
 }
 
 // ListNotes returns notes ordered by date descending.
@@ -63,28 +44,10 @@ func (s *Store) ListNotes(includeHidden bool) ([]Note, error) {
 
 	var notes []Note
 	for rows.Next() {
-		var n Note
-		var dateStr, createdAt, updatedAt string
-		var hidden int
-		if err := rows.Scan(&n.ID, &dateStr, &hidden, &createdAt, &updatedAt); err != nil {
-			return nil, err
-		}
-		n.Hidden = hidden != 0
-		d, err := time.ParseInLocation(time.DateOnly, dateStr, time.UTC)
-		if err != nil {
-			return nil, fmt.Errorf("parse note date %q: %w", dateStr, err)
-		}
-		n.Date = d
-		t, err := time.Parse(time.RFC3339, createdAt)
-		if err != nil {
-			return nil, fmt.Errorf("parse note created_at %q: %w", createdAt, err)
-		}
-		n.CreatedAt = t
-		t, err = time.Parse(time.RFC3339, updatedAt)
+		n, err := scanNote(rows)
 		if err != nil {
-			return nil, fmt.Errorf("parse note updated_at %q: %w", updatedAt, err)
+			return nil, err
 		}
-		n.UpdatedAt = t
 		notes = append(notes, n)
 	}
 	if err := rows.Err(); err != nil {
@@ -92,34 +55,136 @@ func (s *Store) ListNotes(includeHidden bool) ([]Note, error) {
 	}
 
 	// Batch-load all entries to avoid N+1 queries.
-	if len(notes) > 0 {
-		entryMap, err := s.listAllEntries(notes)
+	if err := s.loadEntries(notes); err != nil {
+		return nil, err
+	}
+	return notes, nil
+}
+
+// defaultPageSize is used by ForEachNote when pageSize is not positive.
+const defaultPageSize = 100
+
+// ForEachNote calls fn for every note, newest date first like ListNotes,
+// reading pageSize notes and their entries at a time. Dates are unique, so
+// each page resumes after the last date seen. An error from fn stops the
+// walk and is returned as is. The pages are read in one read transaction,
+// as task.Store.ForEach does.
+func (s *Store) ForEachNote(includeHidden bool, pageSize int, fn func(Note) error) error {
+	if pageSize <= 0 {
+		pageSize = defaultPageSize
+	}
+	tx, err := database.BeginRead(s.db)
+	if err != nil {
+		return err
+	}
+	defer tx.Rollback()
+	s = s.WithTx(tx)
+
+	after := ""
+	for {
+		notes, err := s.notesPage(includeHidden, after, pageSize)
 		if err != nil {
-			return nil, fmt.Errorf("batch list entries: %w", err)
+			return err
+		}
+		for _, n := range notes {
+			if err := fn(n); err != nil {
+				return err
+			}
 		}
-		for i := range notes {
-			notes[i].Entries = entryMap[notes[i].ID]
+		if len(notes) < pageSize {
+			return nil
+		}
+		after = notes[len(notes)-1].Date.Format(time.DateOnly)
+	}
+}
+
+// notesPage returns up to limit notes dated before after (from the newest
+// when after is empty), with their entries.
+func (s *Store) notesPage(includeHidden bool, after string, limit int) ([]Note, error) {
+	query := `SELECT id, date, hidden, created_at, updated_at FROM journal_notes WHERE 1=1`
+	var args []any
+	if !includeHidden {
+		query += ` AND hidden = 0`
+	}
+	if after != "" {
+		query += ` AND date < ?`
+		args = append(args, after)
+	}
+	query += ` ORDER BY date DESC LIMIT ?`
+	rows, err := s.db.Query(query, append(args, limit)...)
+	if err != nil {
+		return nil, err
+	}
+	defer rows.Close()
+	var notes []Note
+	for rows.Next() {
+		n, err := scanNote(rows)
+		if err != nil {
+			return nil, err
 		}
+		notes = append(notes, n)
+	}
+	if err := rows.Err(); err != nil {
+		return nil, err
+	}
+	rows.Close()
+	if err := s.loadEntries(notes); err != nil {
+		return nil, err
 	}
 	return notes, nil
 }
 
+// scanNote reads a row of id, date, hidden, created_at, updated_at.
+func scanNote(rows *sql.Rows) (Note, error) {
+	var n Note
+	var dateStr string
+	var createdAt, updatedAt database.Timestamp
+	var hidden int
+	if err := rows.Scan(&n.ID, &dateStr, &hidden, &createdAt, &updatedAt); err != nil {
+		return Note{}, err
+	}
+	n.Hidden = hidden != 0
+	d, err := time.ParseInLocation(time.DateOnly, dateStr, time.UTC)
+	if err != nil {
+		return Note{}, fmt.Errorf("parse note date %q: %w", dateStr, err)
+	}
+	n.Date = d
+	n.CreatedAt = createdAt.Time
+	n.UpdatedAt = updatedAt.Time
+	return n, nil
+}
+
+// loadEntries fills in the entries of notes with one query.
+func (s *Store) loadEntries(notes []Note) error {
+	if len(notes) == 0 {
+		return nil
+	}
+	entryMap, err := s.listAllEntries(notes)
+	if err != nil {
+		return fmt.Errorf("batch list entries: %w", err)
+	}
+	for i := range notes {
+		notes[i].Entries = entryMap[notes[i].ID]
+	}
+	return nil
+}
+
 // GetOrCreate returns the note for dateStr (YYYY-MM-DD format), creating it
 // if it does not exist.
 func (s *Store) GetOrCreate(dateStr string) (*Note, error) {
-	now := time.Now().UTC()
-	nowStr := now.Format(time.RFC3339)
+	now := database.Millis(time.Now())
 
 	_, err := s.db.Exec(
 		`INSERT OR IGNORE INTO journal_notes (date, hidden, created_at, updated_at) VALUES (?,0,?,?)`,
-		dateStr, nowStr, nowStr,
+		dateStr, now, now,
 	)
 	if err != nil {
 		return nil, fmt.Errorf("create note for %s: %w", dateStr, err)
 	}
 
 	var n Note
-	var dStr, createdAt, updatedAt string
+	var dStr string
+	var createdAt, updatedAt database.Timestamp
 	var hidden int
 	err = s.db.QueryRow(
 		`SELECT id, date, hidden, created_at, updated_at FROM journal_notes WHERE date = ?`, dateStr,
@@ -133,16 +198,8 @@ func (s *Store) GetOrCreate(dateStr string) (*Note, error) {
 		return nil, fmt.Errorf("parse note date %q: %w", dStr, err)
 	}
 	n.Date = d
-	t, err := time.Parse(time.RFC3339, createdAt)
-	if err != nil {
-		return nil, fmt.Errorf("parse note created_at %q: %w", createdAt, err)
-	}
-	n.CreatedAt = t
-	t, err = time.Parse(time.RFC3339, updatedAt)
-	if err != nil {
-		return nil, fmt.Errorf("parse note updated_at %q: %w", updatedAt, err)
-	}
-	n.UpdatedAt = t
+	n.CreatedAt = createdAt.Time
+	n.UpdatedAt = updatedAt.Time
 
 	n.Entries, err = s.ListEntries(n.ID)
 	if err != nil {
@@ -158,13 +215,13 @@ func (s *Store) GetOrCreateToday() (*Note, error) {
 
 // AddEntry appends a new entry to the given note.
 func (s *Store) AddEntry(noteID int64, body string) error {
-	tx, err := s.db.Begin()
+	tx, err := database.Begin(s.db)
 	if err != nil {
 		return fmt.Errorf("begin tx: %w", err)
 	}
 	defer tx.Rollback()
 
-	now := time.Now().UTC().Format(time.RFC3339)
+	now := database.Millis(time.Now())
 	if _, err := tx.Exec(
 		`INSERT INTO journal_entries (note_id, body, created_at) VALUES (?,?,?)`,
 		noteID, body, now,
@@ -179,13 +236,13 @@ func (s *Store) AddEntry(noteID int64, body string) error {
 
 // UpdateEntry replaces the body of an existing entry and updates the parent note's timestamp.
 func (s *Store) UpdateEntry(entryID int64, body string) error {
-	tx, err := s.db.Begin()
+	tx, err := database.Begin(s.db)
 	if err != nil {
 		return fmt.Errorf("begin tx: %w", err)
 	}
 	defer tx.Rollback()
 
-	now := time.Now().UTC().Format(time.RFC3339)
+	now := database.Millis(time.Now())
 	res, err := tx.Exec(`UPDATE journal_entries SET body = ? WHERE id = ?`, body, entryID)
 	if err != nil {
 		return fmt.Errorf("update entry: %w", err)
@@ -204,7 +261,7 @@ func (s *Store) UpdateEntry(entryID int64, body string) error {
 
 // DeleteEntry removes a single entry and updates the parent note's timestamp.
 func (s *Store) DeleteEntry(entryID int64) error {
-	tx, err := s.db.Begin()
+	tx, err := database.Begin(s.db)
 	if err != nil {
 		return fmt.Errorf("begin tx: %w", err)
 	}
@@ -217,7 +274,7 @@ func (s *Store) DeleteEntry(entryID int64) error {
 	if _, err := tx.Exec(`DELETE FROM journal_entries WHERE id = ?`, entryID); err != nil {
 		return fmt.Errorf("delete entry: %w", err)
 	}
-	now := time.Now().UTC().Format(time.RFC3339)
+	now := database.Millis(time.Now())
 	if _, err := tx.Exec(`UPDATE journal_notes SET updated_at = ? WHERE id = ?`, now, noteID); err != nil {
 		return fmt.Errorf("update note timestamp: %w", err)
 	}
@@ -246,17 +303,12 @@ func (s *Store) listAllEntries(notes []Note) (map[int64][]Entry, error) {
 		return nil, nil
 	}
 
-	// Build parameterized IN clause for the note IDs.
-	placeholders := make([]string, len(notes))
-	args := make([]any, len(notes))
+	ids := make([]int64, len(notes))
 	for i, n := range notes {
-		placeholders[i] = "?"
-		args[i] = n.ID
+		ids[i] = n.ID
 	}
-	query := fmt.Sprintf(
-		`SELECT id, note_id, body, created_at FROM journal_entries WHERE note_id IN (%s) ORDER BY created_at ASC`,
-		strings.Join(placeholders, ","),
-	)
+	ph, args := database.InList(ids)
+	query := `SELECT id, note_id, body, created_at FROM journal_entries WHERE note_id IN (` + ph + `) ORDER BY created_at ASC`
 
 	rows, err := s.db.Query(query, args...)
 	if err != nil {
@@ -267,15 +319,11 @@ func (s *Store) listAllEntries(notes []Note) (map[int64][]Entry, error) {
 	result := make(map[int64][]Entry, len(notes))
 	for rows.Next() {
 		var e Entry
-		var createdAt string
+		var createdAt database.Timestamp
 		if err := rows.Scan(&e.ID, &e.NoteID, &e.Body, &createdAt); err != nil {
 			return nil, err
 		}
-		t, err := time.Parse(time.RFC3339, createdAt)
-		if err != nil {
-			return nil, fmt.Errorf("parse entry created_at %q: %w", createdAt, err)
-		}
-		e.CreatedAt = t
+		e.CreatedAt = createdAt.Time
 		result[e.NoteID] = append(result[e.NoteID], e)
 	}
 	return result, rows.Err()
@@ -283,7 +331,7 @@ func (s *Store) listAllEntries(notes []Note) (map[int64][]Entry, error) {
 
 // RestoreEntry re-inserts a previously deleted journal entry.
 func (s *Store) RestoreEntry(noteID int64, body string, createdAt time.Time) error {
-	tx, err := s.db.Begin()
+	tx, err := database.Begin(s.db)
 	if err != nil {
 		return fmt.Errorf("begin tx: %w", err)
 	}
@@ -291,11 +339,11 @@ func (s *Store) RestoreEntry(noteID int64, body string, createdAt time.Time) err
 
 	if _, err := tx.Exec(
 		`INSERT INTO journal_entries (note_id, body, created_at) VALUES (?,?,?)`,
-		noteID, body, createdAt.Format(time.RFC3339),
+		noteID, body, database.Millis(createdAt),
 	); err != nil {
 		return fmt.Errorf("restore entry: %w", err)
 	}
-	now := time.Now().UTC().Format(time.RFC3339)
+	now := database.Millis(time.Now())
 	if _, err := tx.Exec(`UPDATE journal_notes SET updated_at = ? WHERE id = ?`, now, noteID); err != nil {
 		return fmt.Errorf("update note timestamp: %w", err)
 	}
@@ -316,15 +364,11 @@ func (s *Store) ListEntries(noteID int64) ([]Entry, error) {
 	var entries []Entry
 	for rows.Next() {
 		var e Entry
-		var createdAt string
+		var createdAt database.Timestamp
 		if err := rows.Scan(&e.ID, &e.NoteID, &e.Body, &createdAt); err != nil {
 			return nil, err
 		}
-		t, err := time.Parse(time.RFC3339, createdAt)
-		if err != nil {
-			return nil, fmt.Errorf("parse entry created_at %q: %w", createdAt, err)
-		}
-		e.CreatedAt = t
+		e.CreatedAt = createdAt.Time
 		entries = append(entries, e)
 	}
 	return entries, rows.Err()
@@ -0,0 +1,196 @@
+package task
+
+import (
+	"encoding/json"
+	"fmt"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// archiveBatch caps the tasks moved per transaction, so archiving years of
+// history never holds the write lock for long.
+const archiveBatch = 500
+
+// ArchiveDone moves done tasks last updated before cutoff out of the hot
+// tables into archived_tasks, each as one JSON document holding the task
+// and all of its relations. Done tasks that still block an unfinished task
+// stay, so dependency views keep them. It returns the number of tasks
+// moved. Archived tasks are read back with ListArchived and GetArchived.
+func (s *Store) ArchiveDone(cutoff time.Time) (int, error) {
+	total := 0
+	for {
+		n, err := s.archiveBatch(database.Millis(cutoff))
+		total += n
+		if err != nil {
+			return total, fmt.Errorf("archive done tasks: %w", err)
+		}
+		if n < archiveBatch {
+			return total, nil
+		}
+	}
+}
+
+func (s *Store) archiveBatch(cutoff int64) (int, error) {
+	tx, err := database.Begin(s.db)
+	if err != nil {
+		return 0, err
+	}
+	defer tx.Rollback()
+
+	rows, err := tx.Query(`SELECT t.id FROM tasks t
+		WHERE t.status = ? AND t.updated_at < ? AND t.deleted_at IS NULL AND NOT EXISTS (
+			SELECT 1 FROM task_dependencies d JOIN tasks o ON o.id = d.task_id
+			WHERE d.blocked_by = t.id AND o.status != ? AND o.deleted_at IS NULL)
+		LIMIT ?`, int(Done), cutoff, int(Done), archiveBatch)
+	if err != nil {
+		return 0, err
+	}
+	var ids []int64
+	for rows.Next() {
+		var id int64
+		if err := rows.Scan(&id); err != nil {
+			rows.Close()
+			return 0, err
+		}
+		ids = append(ids, id)
+	}
+	rows.Close()
+	if err := rows.Err(); err != nil || len(ids) == 0 {
+		return 0, err
+	}
+
+	ph, args := database.InList(ids)
+	tasks, err := s.WithTx(tx).selectTasks(taskColumns, `t.id IN (`+ph+`)`, args, `t.id`, 0)
+	if err != nil {
+		return 0, err
+	}
+	archived := make([][]any, len(tasks))
+	for i, t := range tasks {
+		data, err := json.Marshal(t)
+		if err != nil {
+			return 0, fmt.Errorf("encode task %d: %w", t.ID, err)
+		}
+		archived[i] = []any{t.ID, t.Title, database.Millis(t.UpdatedAt), string(data)}
+	}
+	if err := bulkInsert(tx, `INSERT INTO archived_tasks (id, title, completed_at, data) VALUES `, archived); err != nil {
+		return 0, err
+	}
+	// Relations go with the task through ON DELETE CASCADE.
+	if _, err := tx.Exec(`DELETE FROM tasks WHERE id IN (`+ph+`)`, args...); err != nil {
+		return 0, err
+	}
+	return len(ids), tx.Commit()
+}
+
+// ListArchived returns up to limit archived tasks (all if limit <= 0), most
+// recently completed first. Pass the last task of the previous page as
+// after to continue from it, or nil for the first page.
+func (s *Store) ListArchived(after *Task, limit int) ([]Task, error) {
+	if limit <= 0 {
+		limit = -1 // SQLite reads a negative LIMIT as none
+	}
+	where, args := `1=1`, []any{}
+	if after != nil {
+		where = `(completed_at, id) < (?, ?)`
+		args = append(args, database.Millis(after.UpdatedAt), after.ID)
+	}
+	args = append(args, limit)
+	rows, err := s.db.Query(`SELECT data FROM archived_tasks WHERE `+where+`
+		ORDER BY completed_at DESC, id DESC LIMIT ?`, args...)
+	if err != nil {
+		return nil, fmt.Errorf("list archived tasks: %w", err)
+	}
+	defer rows.Close()
+	var tasks []Task
+	for rows.Next() {
+		var data string
+		if err := rows.Scan(&data); err != nil {
+			return nil, err
+		}
+		var t Task
+		if err := json.Unmarshal([]byte(data), &t); err != nil {
+			return nil, fmt.Errorf("decode archived task: %w", err)
+		}
+		tasks = append(tasks, t)
+	}
+	return tasks, rows.Err()
+}
+
+// ForEachArchived calls fn for every archived task, most recently
+// completed first, reading pageSize tasks at a time through ListArchived
+// in one read transaction, like ForEach. An error from fn stops the walk
+// and is returned as is.
+func (s *Store) ForEachArchived(pageSize int, fn func(Task) error) error {
+	if pageSize <= 0 {
+		pageSize = DefaultPageSize
+	}
+	tx, err := s.BeginRead()
+	if err != nil {
+		return err
+	}
+	defer tx.Rollback()
+	s = s.WithTx(tx)
+
+	var after *Task
+	for {
+		page, err := s.ListArchived(after, pageSize)
+		if err != nil {
+			return err
+		}
+		for _, t := range page {
+			if err := fn(t); err != nil {
+				return err
+			}
+		}
+		if len(page) < pageSize {
+			return nil
+		}
+		last := page[len(page)-1]
+		after = &last
+	}
+}
+
+// GetArchived returns archived task id, or sql.ErrNoRows if there is none.
+func (s *Store) GetArchived(id int64) (*Task, error) {
+	var data string
+	if err := s.db.QueryRow(`SELECT data FROM archived_tasks WHERE id = ?`, id).Scan(&data); err != nil {
+		return nil, err
+	}
+	var t Task
+	if err := json.Unmarshal([]byte(data), &t); err != nil {
+		return nil, fmt.Errorf("decode archived task %d: %w", id, err)
+	}
+	return &t, nil
+}
+
+// CountArchived returns the number of archived tasks.
+func (s *Store) CountArchived() (int, error) {
+	var n int
+	err := s.db.QueryRow(`SELECT count(*) FROM archived_tasks`).Scan(&n)
+	return n, err
+}
+
+// Summary returns the list-view projection of a fully loaded task. It is
+// used for archived tasks, which have no rows to aggregate in SQL.
+func (t Task) Summary() TaskSummary {
+	sum := TaskSummary{
+		ID:            t.ID,
+		Title:         t.Title,
+		Status:        t.Status,
+		Priority:      t.Priority,
+		DueDate:       t.DueDate,
+		CreatedAt:     t.CreatedAt,
+		RecurFreq:     t.RecurFreq,
+		Tags:          t.Tags,
+		SubtasksTotal: len(t.Subtasks),
+		NoteCount:     len(t.Notes),
+		TimeLogged:    TotalDuration(t.TimeLogs),
+	}
+	for _, st := range t.Subtasks {
+		if st.Completed {
+			sum.SubtasksDone++
+		}
+	}
+	return sum
+}
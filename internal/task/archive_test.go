@@ -0,0 +1,115 @@
+package task
+
+import (
+	"database/sql"
+	"errors"
+	"testing"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// markDone sets t done and backdates its last update by age.
+func markDone(t *testing.T, store *Store, tk *Task, age time.Duration) {
+	t.Helper()
+	tk.Status = Done
+	if err := store.Update(tk); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+	if _, err := store.db.Exec(`UPDATE tasks SET updated_at = ? WHERE id = ?`,
+		database.Millis(time.Now().Add(-age)), tk.ID); err != nil {
+		t.Fatalf("backdate: %v", err)
+	}
+}
+
+func TestArchiveDone(t *testing.T) {
+	store := newTestStore(t)
+	const day = 24 * time.Hour
+
+	old := createTestTask(t, store, "old")
+	old.Tags = []string{"work"}
+	if err := store.Update(old); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+	if err := store.AddSubtask(old.ID, "step"); err != nil {
+		t.Fatalf("AddSubtask: %v", err)
+	}
+	markDone(t, store, old, 100*day)
+	recent := createTestTask(t, store, "recent")
+	markDone(t, store, recent, day)
+	blocker := createTestTask(t, store, "still blocks")
+	open := createTestTask(t, store, "open")
+	if err := store.SetBlocker(open.ID, blocker.ID); err != nil {
+		t.Fatalf("SetBlocker: %v", err)
+	}
+	markDone(t, store, blocker, 100*day)
+
+	n, err := store.ArchiveDone(time.Now().Add(-30 * day))
+	if err != nil {
+		t.Fatalf("ArchiveDone: %v", err)
+	}
+	if n != 1 {
+		t.Fatalf("archived %d tasks, want 1", n)
+	}
+	if _, err := store.GetByID(old.ID); !errors.Is(err, sql.ErrNoRows) {
+		t.Errorf("GetByID(archived) = %v, want ErrNoRows", err)
+	}
+	for _, id := range []int64{recent.ID, blocker.ID, open.ID} {
+		if _, err := store.GetByID(id); err != nil {
+			t.Errorf("task %d left the working set: %v", id, err)
+		}
+	}
+
+	got, err := store.GetArchived(old.ID)
+	if err != nil {
+		t.Fatalf("GetArchived: %v", err)
+	}
+	if got.Title != "old" || got.Status != Done || len(got.Tags) != 1 || len(got.Subtasks) != 1 {
+		t.Errorf("archived task = %+v, want title, status, tag, and subtask kept", got)
+	}
+	if c, _ := store.CountArchived(); c != 1 {
+		t.Errorf("CountArchived = %d, want 1", c)
+	}
+	if _, err := store.GetArchived(recent.ID); !errors.Is(err, sql.ErrNoRows) {
+		t.Errorf("GetArchived(hot task) = %v, want ErrNoRows", err)
+	}
+}
+
+func TestListArchived_Pages(t *testing.T) {
+	store := newTestStore(t)
+	for i := range 5 {
+		tk := createTestTask(t, store, "t")
+		// Later tasks completed longer ago.
+		markDone(t, store, tk, time.Duration(40+i)*24*time.Hour)
+	}
+	if _, err := store.ArchiveDone(time.Now().Add(-30 * 24 * time.Hour)); err != nil {
+		t.Fatalf("ArchiveDone: %v", err)
+	}
+
+	var seen []int64
+	var after *Task
+	for {
+		page, err := store.ListArchived(after, 2)
+		if err != nil {
+			t.Fatalf("ListArchived: %v", err)
+		}
+		if len(page) == 0 {
+			break
+		}
+		for _, tk := range page {
+			seen = append(seen, tk.ID)
+		}
+		after = &page[len(page)-1]
+	}
+	if len(seen) != 5 {
+		t.Fatalf("paged through %d tasks, want 5", len(seen))
+	}
+	for i := 1; i < len(seen); i++ {
+		if seen[i] < seen[i-1] {
+			t.Errorf("pages not most recent first: %v", seen)
+		}
+	}
+	if all, _ := store.ListArchived(nil, 0); len(all) != 5 {
+		t.Errorf("ListArchived(nil, 0) = %d tasks, want all 5", len(all))
+	}
+}
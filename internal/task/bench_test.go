@@ -0,0 +1,76 @@
+package task
+
+import (
+	"database/sql"
+	"path/filepath"
+	"testing"
+)
+
+// BenchmarkStoreWrites measures per-op latency of common writes with
+// statements re-prepared on every call ("unprepared", how the stores used
+// to run) and served from the statement cache ("cached").
+func BenchmarkStoreWrites(b *testing.B) {
+	open := func(b *testing.B, cached bool) *Store {
+		db, err := sql.Open("sqlite", filepath.Join(b.TempDir(), "bench.db"))
+		if err != nil {
+			b.Fatalf("open: %v", err)
+		}
+		db.SetMaxOpenConns(1)
+		b.Cleanup(func() { db.Close() })
+		store, err := NewStore(db)
+		if err != nil {
+			b.Fatalf("NewStore: %v", err)
+		}
+		if !cached {
+			store = store.WithTx(db)
+		}
+		return store
+	}
+
+	for _, mode := range []struct {
+		name   string
+		cached bool
+	}{{"unprepared", false}, {"cached", true}} {
+		b.Run("Create/"+mode.name, func(b *testing.B) {
+			store := open(b, mode.cached)
+			for b.Loop() {
+				if err := store.Create(&Task{Title: "bench", Tags: []string{"a", "b"}}); err != nil {
+					b.Fatal(err)
+				}
+			}
+		})
+		b.Run("Update/"+mode.name, func(b *testing.B) {
+			store := open(b, mode.cached)
+			t := &Task{Title: "bench", Tags: []string{"a"}}
+			if err := store.Create(t); err != nil {
+				b.Fatal(err)
+			}
+			for b.Loop() {
+				t.Priority = (t.Priority + 1) % 4
+				if err := store.Update(t); err != nil {
+					b.Fatal(err)
+				}
+			}
+		})
+		b.Run("ToggleSubtask/"+mode.name, func(b *testing.B) {
+			store := open(b, mode.cached)
+			t := &Task{Title: "bench"}
+			if err := store.Create(t); err != nil {
+				b.Fatal(err)
+			}
+			if err := store.AddSubtask(t.ID, "sub"); err != nil {
+				b.Fatal(err)
+			}
+			got, err := store.GetByID(t.ID)
+			if err != nil {
+				b.Fatal(err)
+			}
+			id := got.Subtasks[0].ID
+			for b.Loop() {
+				if err := store.ToggleSubtask(id); err != nil {
+					b.Fatal(err)
+				}
+			}
+		})
+	}
+}
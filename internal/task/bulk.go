@@ -0,0 +1,317 @@
+package task
+
+import (
+	"encoding/json"
+	"fmt"
+	"strings"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// bulkChunk is the most rows a single multi-row INSERT carries. It keeps
+// even the widest row (tasks, 11 columns) far below SQLite's bound
+// parameter limit while amortizing statement overhead.
+const bulkChunk = 256
+
+// OpKind identifies the write an Op performs.
+type OpKind int
+
+const (
+	OpCreate     OpKind = iota // insert Task with its relations
+	OpAddSubtask               // append subtask Title to TaskID
+	OpAddNote                  // add note Body to TaskID
+	OpAddTimeLog               // log Duration with note Body on TaskID
+	OpSetBlocker               // TaskID is blocked by BlockerID
+)
+
+// Op is one write in an Apply call. TaskID and BlockerID may be negative
+// to refer to a task created by the same call: -1 is the first OpCreate,
+// -2 the second, and so on.
+type Op struct {
+	Kind      OpKind
+	Task      *Task // OpCreate; its ID is set on success
+	TaskID    int64
+	BlockerID int64
+	Title     string
+	Body      string
+	Duration  time.Duration
+	At        time.Time // when the note or time log was written; zero means now
+}
+
+// BulkCreate inserts tasks in one transaction, with their tags, subtasks,
+// notes, time logs, and dependencies, and sets each task's ID. CreatedAt and
+// UpdatedAt default to now when zero. BlockedByIDs and BlocksIDs must name
+// existing tasks; use Apply with negative references to link tasks created
+// together.
+func (s *Store) BulkCreate(tasks []Task) error {
+	ops := make([]Op, len(tasks))
+	for i := range tasks {
+		ops[i] = Op{Kind: OpCreate, Task: &tasks[i]}
+	}
+	return s.Apply(ops)
+}
+
+// Apply performs ops in one transaction. Writes are grouped by table and
+// inserted with multi-row statements, so the cost is a handful of
+// statements per few hundred rows rather than one or more per op. Tasks are
+// created before any other op runs, which is what lets later ops refer to
+// them. Dependencies that would close a loop fail with an error wrapping
+// ErrCycle, as with SetBlocker. Nothing is written if any op fails.
+func (s *Store) Apply(ops []Op) error {
+	tx, err := database.Begin(s.db)
+	if err != nil {
+		return err
+	}
+	defer tx.Rollback()
+
+	var created []*Task
+	for _, op := range ops {
+		if op.Kind == OpCreate {
+			if op.Task == nil {
+				return fmt.Errorf("create op without a task")
+			}
+			created = append(created, op.Task)
+		}
+	}
+	if err := insertTasks(tx, created); err != nil {
+		return err
+	}
+
+	resolve := func(id int64) (int64, error) {
+		if id >= 0 {
+			return id, nil
+		}
+		k := int(-id)
+		if k > len(created) {
+			return 0, fmt.Errorf("reference %d: only %d tasks created", id, len(created))
+		}
+		return created[k-1].ID, nil
+	}
+
+	now := time.Now().UTC()
+	stamp := func(t time.Time) int64 {
+		if t.IsZero() {
+			t = now
+		}
+		return database.Millis(t)
+	}
+
+	taskTags := make([][]string, len(created))
+	var tagNames []string
+	seenTag := map[string]bool{}
+	for i, t := range created {
+		taskTags[i] = normalizeTags(t.Tags)
+		for _, tag := range taskTags[i] {
+			if !seenTag[tagKey(tag)] {
+				seenTag[tagKey(tag)] = true
+				tagNames = append(tagNames, tag)
+			}
+		}
+	}
+	ids, err := tagIDs(tx, tagNames)
+	if err != nil {
+		return err
+	}
+
+	var tags, subtasks, notes, logs, deps [][]any
+	var edges [][2]int64 // deps as (task, blocker), for the cycle check
+	nextPos := map[int64]int{}
+	for i, t := range created {
+		for pos, tag := range taskTags[i] {
+			tags = append(tags, []any{t.ID, ids[tagKey(tag)], pos})
+		}
+		pos := 0
+		for _, st := range t.Subtasks {
+			subtasks = append(subtasks, []any{t.ID, st.Title, st.Completed, st.Position})
+			pos = max(pos, st.Position+1)
+		}
+		nextPos[t.ID] = pos
+		for _, n := range t.Notes {
+			notes = append(notes, []any{t.ID, n.Body, stamp(n.CreatedAt)})
+		}
+		for _, tl := range t.TimeLogs {
+			logs = append(logs, []any{t.ID, int64(tl.Duration), tl.Note, stamp(tl.LoggedAt)})
+		}
+		for _, bid := range t.BlockedByIDs {
+			if bid != t.ID {
+				deps = append(deps, []any{t.ID, bid})
+				edges = append(edges, [2]int64{t.ID, bid})
+			}
+		}
+		for _, tid := range t.BlocksIDs {
+			if tid != t.ID {
+				deps = append(deps, []any{tid, t.ID})
+				edges = append(edges, [2]int64{tid, t.ID})
+			}
+		}
+	}
+
+	// Subtasks appended to existing tasks continue after their current last
+	// position, found with one grouped query instead of one per insert.
+	var existing []int64
+	for i := range ops {
+		if ops[i].Kind != OpAddSubtask || ops[i].TaskID < 0 {
+			continue
+		}
+		if _, ok := nextPos[ops[i].TaskID]; !ok {
+			nextPos[ops[i].TaskID] = 0
+			existing = append(existing, ops[i].TaskID)
+		}
+	}
+	if err := loadNextPositions(tx, existing, nextPos); err != nil {
+		return err
+	}
+
+	for _, op := range ops {
+		if op.Kind == OpCreate {
+			continue
+		}
+		taskID, err := resolve(op.TaskID)
+		if err != nil {
+			return err
+		}
+		switch op.Kind {
+		case OpAddSubtask:
+			subtasks = append(subtasks, []any{taskID, op.Title, false, nextPos[taskID]})
+			nextPos[taskID]++
+		case OpAddNote:
+			notes = append(notes, []any{taskID, op.Body, stamp(op.At)})
+		case OpAddTimeLog:
+			logs = append(logs, []any{taskID, int64(op.Duration), op.Body, stamp(op.At)})
+		case OpSetBlocker:
+			blockerID, err := resolve(op.BlockerID)
+			if err != nil {
+				return err
+			}
+			if taskID == blockerID {
+				return fmt.Errorf("task cannot block itself")
+			}
+			deps = append(deps, []any{taskID, blockerID})
+			edges = append(edges, [2]int64{taskID, blockerID})
+		default:
+			return fmt.Errorf("unknown op kind %d", op.Kind)
+		}
+	}
+
+	for _, ins := range []struct {
+		prefix string
+		rows   [][]any
+	}{
+		{`INSERT INTO task_tags (task_id, tag_id, position) VALUES `, tags},
+		{`INSERT INTO subtasks (task_id, title, completed, position) VALUES `, subtasks},
+		{`INSERT INTO task_notes (task_id, body, created_at) VALUES `, notes},
+		{`INSERT INTO time_logs (task_id, duration, note, logged_at) VALUES `, logs},
+		{`INSERT OR IGNORE INTO task_dependencies (task_id, blocked_by) VALUES `, deps},
+	} {
+		if err := bulkInsert(tx, ins.prefix, ins.rows); err != nil {
+			return err
+		}
+	}
+	if err := checkNewEdges(tx, edges); err != nil {
+		return err
+	}
+	return tx.Commit()
+}
+
+// insertTasks inserts tasks with explicit IDs continuing the table's
+// AUTOINCREMENT sequence, so every ID is known without reading it back.
+func insertTasks(e database.Execer, tasks []*Task) error {
+	if len(tasks) == 0 {
+		return nil
+	}
+	var next int64
+	if err := e.QueryRow(`SELECT max(
+			coalesce((SELECT seq FROM sqlite_sequence WHERE name = 'tasks'), 0),
+			coalesce((SELECT max(id) FROM tasks), 0)) + 1`).Scan(&next); err != nil {
+		return fmt.Errorf("next task id: %w", err)
+	}
+
+	now := time.Now().UTC().Truncate(time.Millisecond)
+	rows := make([][]any, len(tasks))
+	for i, t := range tasks {
+		t.ID = next + int64(i)
+		if t.CreatedAt.IsZero() {
+			t.CreatedAt = now
+		}
+		if t.UpdatedAt.IsZero() {
+			t.UpdatedAt = t.CreatedAt
+		}
+		var dueStr *string
+		if t.DueDate != nil {
+			d := t.DueDate.Format(time.DateOnly)
+			dueStr = &d
+		}
+		rows[i] = []any{
+			t.ID, t.Title, t.Description, t.Status, t.Priority, dueStr,
+			database.Millis(t.CreatedAt), database.Millis(t.UpdatedAt),
+			int(t.RecurFreq), t.RecurInterval, marshalMetadata(t.Metadata),
+		}
+	}
+	return bulkInsert(e, `INSERT INTO tasks (id, title, description, status, priority, due_date, created_at, updated_at, recur_freq, recur_interval, metadata) VALUES `, rows)
+}
+
+// loadNextPositions sets nextPos[id] to one past the highest subtask
+// position of each task in ids that has subtasks.
+func loadNextPositions(e database.Execer, ids []int64, nextPos map[int64]int) error {
+	if len(ids) == 0 {
+		return nil
+	}
+	list, _ := json.Marshal(ids)
+	rows, err := e.Query(`SELECT task_id, max(position) FROM subtasks
+		WHERE task_id IN (SELECT value FROM json_each(?)) GROUP BY task_id`, string(list))
+	if err != nil {
+		return fmt.Errorf("subtask positions: %w", err)
+	}
+	defer rows.Close()
+	for rows.Next() {
+		var id int64
+		var pos int
+		if err := rows.Scan(&id, &pos); err != nil {
+			return err
+		}
+		nextPos[id] = pos + 1
+	}
+	return rows.Err()
+}
+
+// bulkInsert inserts rows with multi-row VALUES statements of up to
+// bulkChunk rows, reusing one prepared statement for every full chunk.
+// prefix is the statement up to and including VALUES.
+func bulkInsert(e database.Execer, prefix string, rows [][]any) error {
+	if len(rows) == 0 {
+		return nil
+	}
+	cols := len(rows[0])
+	n := min(bulkChunk, len(rows))
+	full, err := e.Prepare(prefix + valuesTuples(cols, n))
+	if err != nil {
+		return err
+	}
+	defer full.Close()
+
+	args := make([]any, 0, n*cols)
+	for len(rows) > 0 {
+		k := min(n, len(rows))
+		args = args[:0]
+		for _, r := range rows[:k] {
+			args = append(args, r...)
+		}
+		if k == n {
+			_, err = full.Exec(args...)
+		} else {
+			_, err = e.Exec(prefix+valuesTuples(cols, k), args...)
+		}
+		if err != nil {
+			return err
+		}
+		rows = rows[k:]
+	}
+	return nil
+}
+
+// valuesTuples returns a VALUES list of rows tuples of cols parameters.
+func valuesTuples(cols, rows int) string {
+	tuple := "(" + strings.Repeat("?,", cols-1) + "?)"
+	return strings.Repeat(tuple+",", rows-1) + tuple
+}
@@ -0,0 +1,172 @@
+package task
+
+import (
+	"errors"
+	"fmt"
+	"testing"
+	"time"
+)
+
+func TestBulkCreate(t *testing.T) {
+	store := newTestStore(t)
+	blocker := createTestTask(t, store, "existing blocker")
+
+	logged := time.Date(2025, 3, 1, 9, 0, 0, 0, time.UTC)
+	tasks := []Task{
+		{
+			Title:        "with relations",
+			Priority:     High,
+			Tags:         []string{"work", " "},
+			Metadata:     map[string]string{"source": "import"},
+			Subtasks:     []Subtask{{Title: "one", Position: 0}, {Title: "two", Completed: true, Position: 1}},
+			Notes:        []TaskNote{{Body: "first note"}},
+			TimeLogs:     []TimeLog{{Duration: 30 * time.Minute, Note: "spike", LoggedAt: logged}},
+			BlockedByIDs: []int64{blocker.ID},
+		},
+		{Title: "plain"},
+	}
+	if err := store.BulkCreate(tasks); err != nil {
+		t.Fatalf("BulkCreate: %v", err)
+	}
+	if tasks[0].ID <= blocker.ID || tasks[1].ID != tasks[0].ID+1 {
+		t.Fatalf("unexpected IDs %d, %d after %d", tasks[0].ID, tasks[1].ID, blocker.ID)
+	}
+
+	got, err := store.GetByID(tasks[0].ID)
+	if err != nil {
+		t.Fatalf("GetByID: %v", err)
+	}
+	if got.Priority != High || got.Metadata["source"] != "import" {
+		t.Errorf("fields not stored: %+v", got)
+	}
+	if len(got.Tags) != 1 || got.Tags[0] != "work" {
+		t.Errorf("Tags = %v, want [work]", got.Tags)
+	}
+	if len(got.Subtasks) != 2 || !got.Subtasks[1].Completed {
+		t.Errorf("Subtasks = %+v", got.Subtasks)
+	}
+	if len(got.Notes) != 1 || len(got.TimeLogs) != 1 || !got.TimeLogs[0].LoggedAt.Equal(logged) {
+		t.Errorf("Notes = %+v, TimeLogs = %+v", got.Notes, got.TimeLogs)
+	}
+	if len(got.BlockedByIDs) != 1 || got.BlockedByIDs[0] != blocker.ID {
+		t.Errorf("BlockedByIDs = %v, want [%d]", got.BlockedByIDs, blocker.ID)
+	}
+
+	// Created tasks are searchable: the FTS triggers fire for bulk inserts.
+	hits, err := store.Search("relations", 10)
+	if err != nil || len(hits) != 1 {
+		t.Errorf("Search = %v, %v", hits, err)
+	}
+}
+
+func TestBulkCreateManyChunks(t *testing.T) {
+	store := newTestStore(t)
+	n := bulkChunk*2 + 7
+	tasks := make([]Task, n)
+	for i := range tasks {
+		tasks[i].Title = fmt.Sprintf("task %d", i)
+	}
+	if err := store.BulkCreate(tasks); err != nil {
+		t.Fatalf("BulkCreate: %v", err)
+	}
+	all, err := store.List()
+	if err != nil {
+		t.Fatalf("List: %v", err)
+	}
+	if len(all) != n {
+		t.Fatalf("got %d tasks, want %d", len(all), n)
+	}
+	last, err := store.GetByID(tasks[n-1].ID)
+	if err != nil || last.Title != tasks[n-1].Title {
+		t.Errorf("last task = %+v, %v", last, err)
+	}
+
+	// IDs keep counting from the sequence after explicit-ID inserts.
+	next := createTestTask(t, store, "after")
+	if next.ID != tasks[n-1].ID+1 {
+		t.Errorf("next ID = %d, want %d", next.ID, tasks[n-1].ID+1)
+	}
+}
+
+func TestApply(t *testing.T) {
+	store := newTestStore(t)
+	existing := createTestTask(t, store, "existing")
+	if err := store.AddSubtask(existing.ID, "already there"); err != nil {
+		t.Fatalf("AddSubtask: %v", err)
+	}
+
+	a, b := &Task{Title: "a"}, &Task{Title: "b"}
+	ops := []Op{
+		{Kind: OpAddSubtask, TaskID: existing.ID, Title: "appended"},
+		{Kind: OpCreate, Task: a},
+		{Kind: OpCreate, Task: b},
+		{Kind: OpSetBlocker, TaskID: -2, BlockerID: -1},
+		{Kind: OpAddNote, TaskID: -1, Body: "note on a"},
+		{Kind: OpAddTimeLog, TaskID: existing.ID, Duration: time.Hour},
+		{Kind: OpAddSubtask, TaskID: existing.ID, Title: "appended again"},
+	}
+	if err := store.Apply(ops); err != nil {
+		t.Fatalf("Apply: %v", err)
+	}
+
+	got, err := store.GetByID(existing.ID)
+	if err != nil {
+		t.Fatalf("GetByID: %v", err)
+	}
+	if len(got.Subtasks) != 3 || got.Subtasks[1].Title != "appended" || got.Subtasks[2].Position != 2 {
+		t.Errorf("Subtasks = %+v", got.Subtasks)
+	}
+	if len(got.TimeLogs) != 1 {
+		t.Errorf("TimeLogs = %+v", got.TimeLogs)
+	}
+	gotB, err := store.GetByID(b.ID)
+	if err != nil {
+		t.Fatalf("GetByID: %v", err)
+	}
+	if len(gotB.BlockedByIDs) != 1 || gotB.BlockedByIDs[0] != a.ID {
+		t.Errorf("b.BlockedByIDs = %v, want [%d]", gotB.BlockedByIDs, a.ID)
+	}
+}
+
+func TestApplyRollsBackOnError(t *testing.T) {
+	store := newTestStore(t)
+	ops := []Op{
+		{Kind: OpCreate, Task: &Task{Title: "doomed"}},
+		{Kind: OpSetBlocker, TaskID: -1, BlockerID: -1},
+	}
+	if err := store.Apply(ops); err == nil {
+		t.Fatal("expected self-block to fail")
+	}
+	all, err := store.List()
+	if err != nil {
+		t.Fatalf("List: %v", err)
+	}
+	if len(all) != 0 {
+		t.Errorf("expected no tasks after rollback, got %d", len(all))
+	}
+}
+
+func TestApplyRejectsCycles(t *testing.T) {
+	store := newTestStore(t)
+	a, b, c := storeChain(t, store)
+
+	if err := store.Apply([]Op{{Kind: OpSetBlocker, TaskID: a.ID, BlockerID: c.ID}}); !errors.Is(err, ErrCycle) {
+		t.Errorf("Apply closing a <- b <- c = %v, want ErrCycle", err)
+	}
+	x, y := &Task{Title: "x"}, &Task{Title: "y", BlockedByIDs: []int64{b.ID}}
+	err := store.Apply([]Op{
+		{Kind: OpCreate, Task: x},
+		{Kind: OpCreate, Task: y},
+		{Kind: OpSetBlocker, TaskID: -1, BlockerID: -2},
+		{Kind: OpSetBlocker, TaskID: a.ID, BlockerID: -1},
+	})
+	if !errors.Is(err, ErrCycle) {
+		t.Errorf("Apply closing a loop through new tasks = %v, want ErrCycle", err)
+	}
+	if all, _ := store.List(); len(all) != 3 {
+		t.Errorf("%d tasks after rejected Apply, want 3", len(all))
+	}
+	if err := store.Apply([]Op{{Kind: OpSetBlocker, TaskID: c.ID, BlockerID: a.ID}}); err != nil {
+		t.Errorf("Apply adding a shortcut: %v", err)
+	}
+}
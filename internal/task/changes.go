@@ -0,0 +1,57 @@
+package task
+
+import (
+	"database/sql"
+	"errors"
+)
+
+// ErrChangesTruncated is returned by ChangesSince when entries after the
+// requested sequence have been pruned, or the log is behind it because the
+// database was restored from an older copy, so the caller must reload in
+// full.
+var ErrChangesTruncated = errors.New("change log truncated")
+
+// CurrentSeq returns the sequence number of the latest logged change, or 0.
+// Take it before a full load and pass it to ChangesSince afterwards.
+func (s *Store) CurrentSeq() (int64, error) {
+	var seq int64
+	err := s.db.QueryRow(`SELECT coalesce(max(seq), 0) FROM task_changes`).Scan(&seq)
+	return seq, err
+}
+
+// ChangesSince returns the distinct IDs of tasks created, updated, or
+// deleted after seq, together with the latest sequence number to pass on
+// the next call. A returned ID whose task no longer exists was deleted.
+func (s *Store) ChangesSince(seq int64) (ids []int64, latest int64, err error) {
+	var oldest, newest sql.NullInt64
+	if err := s.db.QueryRow(`SELECT min(seq), max(seq) FROM task_changes`).Scan(&oldest, &newest); err != nil {
+		return nil, seq, err
+	}
+	if oldest.Valid && oldest.Int64 > seq+1 {
+		return nil, seq, ErrChangesTruncated
+	}
+	// A restore rewinds the log, and its sequence, below what was read.
+	if newest.Int64 < seq {
+		return nil, seq, ErrChangesTruncated
+	}
+
+	rows, err := s.db.Query(`SELECT task_id, max(seq) FROM task_changes WHERE seq > ? GROUP BY task_id`, seq)
+	if err != nil {
+		return nil, seq, err
+	}
+	defer rows.Close()
+
+	latest = seq
+	for rows.Next() {
+		var id, last int64
+		if err := rows.Scan(&id, &last); err != nil {
+			return nil, seq, err
+		}
+		ids = append(ids, id)
+		latest = max(latest, last)
+	}
+	if err := rows.Err(); err != nil {
+		return nil, seq, err
+	}
+	return ids, latest, nil
+}
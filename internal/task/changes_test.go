@@ -0,0 +1,89 @@
+package task
+
+import (
+	"errors"
+	"slices"
+	"testing"
+	"time"
+)
+
+func TestChangesSince(t *testing.T) {
+	store := newTestStore(t)
+	a := createTestTask(t, store, "a")
+	b := createTestTask(t, store, "b")
+	c := createTestTask(t, store, "c")
+	if err := store.SetBlocker(c.ID, a.ID); err != nil {
+		t.Fatalf("SetBlocker: %v", err)
+	}
+
+	seq, err := store.CurrentSeq()
+	if err != nil {
+		t.Fatalf("CurrentSeq: %v", err)
+	}
+	ids, latest, err := store.ChangesSince(seq)
+	if err != nil || len(ids) != 0 || latest != seq {
+		t.Fatalf("expected no changes at current seq, got %v, %d, %v", ids, latest, err)
+	}
+
+	store.AddTimeLog(b.ID, time.Minute, "")
+	a.Status = Done
+	if err := store.Update(a); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+
+	ids, latest, err = store.ChangesSince(seq)
+	if err != nil {
+		t.Fatalf("ChangesSince: %v", err)
+	}
+	slices.Sort(ids)
+	// c is reported because its blocker's status changed.
+	if want := []int64{a.ID, b.ID, c.ID}; !slices.Equal(ids, want) {
+		t.Errorf("expected touched %v, got %v", want, ids)
+	}
+	if latest <= seq {
+		t.Errorf("expected latest > %d, got %d", seq, latest)
+	}
+
+	if err := store.Delete(b.ID); err != nil {
+		t.Fatalf("Delete: %v", err)
+	}
+	ids, _, err = store.ChangesSince(latest)
+	if err != nil {
+		t.Fatalf("ChangesSince: %v", err)
+	}
+	if !slices.Equal(ids, []int64{b.ID}) {
+		t.Errorf("expected deleted task %d, got %v", b.ID, ids)
+	}
+	sums, _ := store.SummariesByID(ids)
+	if len(sums) != 0 {
+		t.Errorf("expected no summary for deleted task, got %v", sums)
+	}
+}
+
+func TestChangesSinceTruncated(t *testing.T) {
+	store := newTestStore(t)
+	createTestTask(t, store, "a")
+	createTestTask(t, store, "b")
+	if _, err := store.db.Exec(`DELETE FROM task_changes WHERE seq = (SELECT min(seq) FROM task_changes)`); err != nil {
+		t.Fatalf("prune: %v", err)
+	}
+	if _, _, err := store.ChangesSince(0); !errors.Is(err, ErrChangesTruncated) {
+		t.Errorf("expected ErrChangesTruncated, got %v", err)
+	}
+}
+
+func TestChangesSinceRewound(t *testing.T) {
+	store := newTestStore(t)
+	createTestTask(t, store, "a")
+	seq, err := store.CurrentSeq()
+	if err != nil {
+		t.Fatalf("CurrentSeq: %v", err)
+	}
+	// A restore from an older copy leaves the log behind what was read.
+	if _, err := store.db.Exec(`DELETE FROM task_changes`); err != nil {
+		t.Fatalf("rewind: %v", err)
+	}
+	if _, _, err := store.ChangesSince(seq); !errors.Is(err, ErrChangesTruncated) {
+		t.Errorf("expected ErrChangesTruncated, got %v", err)
+	}
+}
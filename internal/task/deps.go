@@ -7,7 +7,10 @@ func HasCycle(taskID int64, blockerIDs []int64, getBlockers func(int64) []int64)
 	// We need to check: if taskID depends on each blockerID, does any
 	// blockerID (transitively) already depend on taskID?
 	// That is equivalent to: can we reach taskID by following the blocker
-	// graph starting from any of the proposed blockerIDs?
+	// graph starting from any of the proposed blockerIDs? A node that did
+	// not reach taskID from one start cannot from another, so the visited
+	// set is shared. DepGraph.WouldCycle answers the same question without
+	// a callback per node.
 	visited := make(map[int64]bool)
 
 	var dfs func(id int64) bool
@@ -28,8 +31,6 @@ func HasCycle(taskID int64, blockerIDs []int64, getBlockers func(int64) []int64)
 	}
 
 	for _, bid := range blockerIDs {
-		// Reset visited for each starting blocker to ensure correct traversal.
-		visited = make(map[int64]bool)
 		if dfs(bid) {
 			return true
 		}
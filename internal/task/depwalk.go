@@ -0,0 +1,170 @@
+package task
+
+import (
+	"encoding/json"
+	"errors"
+	"fmt"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// DepDirection selects which way a dependency walk follows edges.
+type DepDirection int
+
+const (
+	Upstream   DepDirection = iota // toward blockers
+	Downstream                     // toward the tasks blocked
+)
+
+// columns returns the task_dependencies columns a walk in dir steps from
+// and to.
+func (d DepDirection) columns() (from, to string) {
+	if d == Downstream {
+		return "blocked_by", "task_id"
+	}
+	return "task_id", "blocked_by"
+}
+
+// reachCTE returns a recursive CTE named reach(id) holding the start IDs
+// and every task reachable from them in dir. The start IDs are bound as one
+// JSON array. UNION drops rows already found, so the walk ends on cycles
+// and visits each task once. Tasks in the trash are stepped over unless
+// trash is set.
+func reachCTE(dir DepDirection, trash bool) string {
+	from, to := dir.columns()
+	step := `SELECT d.` + to + ` FROM reach JOIN task_dependencies d ON d.` + from + ` = reach.id`
+	if !trash {
+		step += ` JOIN tasks w ON w.id = d.` + to + ` WHERE w.deleted_at IS NULL`
+	}
+	return `WITH RECURSIVE reach(id) AS (
+		SELECT value FROM json_each(?)
+		UNION
+		` + step + `
+	)`
+}
+
+func jsonIDs(ids ...int64) string {
+	b, _ := json.Marshal(ids)
+	return string(b)
+}
+
+// DepLink is one dependency edge found by a walk. From is the task nearer
+// the start; To is its blocker when walking Upstream, or the task it
+// blocks when walking Downstream.
+type DepLink struct {
+	From   int64
+	To     int64
+	Title  string // To's title
+	Status Status // To's status
+}
+
+// TransitiveBlockers returns the IDs of every task that id waits on,
+// directly or through other tasks.
+func (s *Store) TransitiveBlockers(id int64) ([]int64, error) {
+	return s.reach(id, Upstream)
+}
+
+// TransitiveDependents returns the IDs of every task waiting on id,
+// directly or through other tasks.
+func (s *Store) TransitiveDependents(id int64) ([]int64, error) {
+	return s.reach(id, Downstream)
+}
+
+func (s *Store) reach(id int64, dir DepDirection) ([]int64, error) {
+	rows, err := s.db.Query(reachCTE(dir, false)+` SELECT id FROM reach WHERE id != ?`, jsonIDs(id), id)
+	if err != nil {
+		return nil, fmt.Errorf("walk dependencies of %d: %w", id, err)
+	}
+	defer rows.Close()
+	var ids []int64
+	for rows.Next() {
+		var v int64
+		if err := rows.Scan(&v); err != nil {
+			return nil, err
+		}
+		ids = append(ids, v)
+	}
+	return ids, rows.Err()
+}
+
+// DepLinks returns every dependency edge reachable from id in dir, with the
+// title and status of the task each edge leads to, in one query. Edges are
+// ordered by From, then To.
+func (s *Store) DepLinks(id int64, dir DepDirection) ([]DepLink, error) {
+	from, to := dir.columns()
+	rows, err := s.db.Query(reachCTE(dir, false)+`
+		SELECT d.`+from+`, d.`+to+`, t.title, t.status
+		FROM reach JOIN task_dependencies d ON d.`+from+` = reach.id JOIN tasks t ON t.id = d.`+to+`
+		WHERE t.deleted_at IS NULL
+		ORDER BY d.`+from+`, d.`+to, jsonIDs(id))
+	if err != nil {
+		return nil, fmt.Errorf("walk dependencies of %d: %w", id, err)
+	}
+	defer rows.Close()
+	var links []DepLink
+	for rows.Next() {
+		var l DepLink
+		if err := rows.Scan(&l.From, &l.To, &l.Title, &l.Status); err != nil {
+			return nil, err
+		}
+		links = append(links, l)
+	}
+	return links, rows.Err()
+}
+
+// checkCycle returns an error wrapping ErrCycle if making the tasks in
+// blocked wait on the tasks in blockers would close a loop, which is when
+// one of blocked is already reachable from blockers by following blockers.
+// Edges of tasks in the trash count, so undeleting a task can never close
+// a loop.
+func checkCycle(e database.Execer, blockers, blocked []int64) error {
+	if len(blockers) == 0 || len(blocked) == 0 {
+		return nil
+	}
+	var cycle bool
+	err := e.QueryRow(reachCTE(Upstream, true)+` SELECT EXISTS (SELECT 1 FROM reach WHERE id IN (SELECT value FROM json_each(?)))`,
+		jsonIDs(blockers...), jsonIDs(blocked...)).Scan(&cycle)
+	if err != nil {
+		return fmt.Errorf("check dependency cycle: %w", err)
+	}
+	if cycle {
+		return fmt.Errorf("blockers %v already depend on %v: %w", blockers, blocked, ErrCycle)
+	}
+	return nil
+}
+
+// checkNewEdges returns an error wrapping ErrCycle if any of edges, (task,
+// blocker) pairs already inserted in e's transaction, lies on a loop. The
+// blockers' upstream closure is loaded and sorted in memory, which is
+// linear in its size; only when that finds a loop is each blocked task
+// checked with checkCycle, to name the edge at fault and to let through a
+// batch whose edges are not part of a loop that was already there.
+func checkNewEdges(e database.Execer, edges [][2]int64) error {
+	if len(edges) == 0 {
+		return nil
+	}
+	blockers := make(map[int64][]int64)
+	var blocked, starts []int64
+	for _, d := range edges {
+		if _, ok := blockers[d[0]]; !ok {
+			blocked = append(blocked, d[0])
+		}
+		blockers[d[0]] = append(blockers[d[0]], d[1])
+		starts = append(starts, d[1])
+	}
+	g := NewDepGraph()
+	if err := loadEdges(e, g, reachCTE(Upstream, true)+`
+		SELECT d.task_id, d.blocked_by FROM task_dependencies d WHERE d.task_id IN (SELECT id FROM reach)`,
+		jsonIDs(starts...)); err != nil {
+		return err
+	}
+	if _, err := g.TopoOrder(); !errors.Is(err, ErrCycle) {
+		return nil
+	}
+	for _, id := range blocked {
+		if err := checkCycle(e, blockers[id], []int64{id}); err != nil {
+			return err
+		}
+	}
+	return nil
+}
@@ -0,0 +1,122 @@
+package task
+
+import (
+	"errors"
+	"slices"
+	"testing"
+)
+
+// storeChain creates a <- b <- c in store: b is blocked by a and c by b.
+func storeChain(t *testing.T, store *Store) (a, b, c *Task) {
+	t.Helper()
+	a = createTestTask(t, store, "a")
+	b = createTestTask(t, store, "b")
+	c = createTestTask(t, store, "c")
+	if err := store.SetBlocker(b.ID, a.ID); err != nil {
+		t.Fatalf("SetBlocker: %v", err)
+	}
+	if err := store.SetBlocker(c.ID, b.ID); err != nil {
+		t.Fatalf("SetBlocker: %v", err)
+	}
+	return a, b, c
+}
+
+func TestTransitiveBlockersAndDependents(t *testing.T) {
+	store := newTestStore(t)
+	a, b, c := storeChain(t, store)
+
+	up, err := store.TransitiveBlockers(c.ID)
+	if err != nil {
+		t.Fatalf("TransitiveBlockers: %v", err)
+	}
+	if want := sorted([]int64{a.ID, b.ID}); !slices.Equal(sorted(up), want) {
+		t.Errorf("TransitiveBlockers(c) = %v, want %v", up, want)
+	}
+	down, err := store.TransitiveDependents(a.ID)
+	if err != nil {
+		t.Fatalf("TransitiveDependents: %v", err)
+	}
+	if want := sorted([]int64{b.ID, c.ID}); !slices.Equal(sorted(down), want) {
+		t.Errorf("TransitiveDependents(a) = %v, want %v", down, want)
+	}
+	if none, _ := store.TransitiveBlockers(a.ID); len(none) != 0 {
+		t.Errorf("TransitiveBlockers(a) = %v, want none", none)
+	}
+}
+
+func TestDepLinks(t *testing.T) {
+	store := newTestStore(t)
+	a, b, c := storeChain(t, store)
+
+	links, err := store.DepLinks(c.ID, Upstream)
+	if err != nil {
+		t.Fatalf("DepLinks: %v", err)
+	}
+	want := []DepLink{
+		{From: b.ID, To: a.ID, Title: "a", Status: Pending},
+		{From: c.ID, To: b.ID, Title: "b", Status: Pending},
+	}
+	if !slices.Equal(links, want) {
+		t.Errorf("DepLinks(c, Upstream) = %+v, want %+v", links, want)
+	}
+
+	links, err = store.DepLinks(a.ID, Downstream)
+	if err != nil {
+		t.Fatalf("DepLinks: %v", err)
+	}
+	if len(links) != 2 || links[0].To != b.ID || links[1].To != c.ID {
+		t.Errorf("DepLinks(a, Downstream) = %+v", links)
+	}
+}
+
+func TestSetBlocker_RejectsCycle(t *testing.T) {
+	store := newTestStore(t)
+	a, b, c := storeChain(t, store)
+
+	if err := store.SetBlocker(a.ID, c.ID); !errors.Is(err, ErrCycle) {
+		t.Errorf("SetBlocker closing a <- b <- c = %v, want ErrCycle", err)
+	}
+	if err := store.SetBlockers(a.ID, []int64{b.ID}); !errors.Is(err, ErrCycle) {
+		t.Errorf("SetBlockers closing a <- b = %v, want ErrCycle", err)
+	}
+	if err := store.SetBlocker(c.ID, a.ID); err != nil {
+		t.Errorf("SetBlocker adding a shortcut: %v", err)
+	}
+	if up, _ := store.TransitiveBlockers(a.ID); len(up) != 0 {
+		t.Errorf("rejected edges were stored: blockers of a = %v", up)
+	}
+}
+
+func TestFind_Unblocked(t *testing.T) {
+	store := newTestStore(t)
+	a, b, _ := storeChain(t, store)
+	d := createTestTask(t, store, "d")
+	d.Status = Done
+	if err := store.Update(d); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+
+	ids := func() []int64 {
+		t.Helper()
+		tasks, err := store.Find(Query{Unblocked: true})
+		if err != nil {
+			t.Fatalf("Find: %v", err)
+		}
+		var out []int64
+		for _, tk := range tasks {
+			out = append(out, tk.ID)
+		}
+		return sorted(out)
+	}
+	if got := ids(); !slices.Equal(got, []int64{a.ID}) {
+		t.Errorf("unblocked = %v, want only a (%d)", got, a.ID)
+	}
+
+	a.Status = Done
+	if err := store.Update(a); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+	if got := ids(); !slices.Equal(got, []int64{b.ID}) {
+		t.Errorf("unblocked after a done = %v, want only b (%d)", got, b.ID)
+	}
+}
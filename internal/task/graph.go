@@ -0,0 +1,334 @@
+package task
+
+import (
+	"errors"
+	"fmt"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// ErrCycle is returned by DepGraph.TopoOrder when dependencies form a cycle.
+var ErrCycle = errors.New("dependency cycle")
+
+// DepGraph is an in-memory index of task dependencies. Task IDs are mapped
+// to dense node numbers so adjacency lists are compact int32 slices and
+// per-node state lives in flat arrays. Every query runs in time linear in
+// the nodes and edges it visits. A DepGraph is not safe for concurrent use.
+type DepGraph struct {
+	index    map[int64]int32
+	ids      []int64
+	status   []Status
+	live     []bool
+	blockers [][]int32 // node -> nodes it is blocked by
+	blocks   [][]int32 // node -> nodes it blocks
+
+	// mark and gen implement a visited set that is cleared in O(1) by
+	// bumping gen, so traversals do not allocate.
+	mark []uint32
+	gen  uint32
+}
+
+// NewDepGraph returns an empty graph.
+func NewDepGraph() *DepGraph {
+	return &DepGraph{index: make(map[int64]int32)}
+}
+
+// LoadDepGraph builds a DepGraph of every task and dependency.
+func (s *Store) LoadDepGraph() (*DepGraph, error) {
+	g := NewDepGraph()
+	rows, err := s.db.Query(`SELECT id, status FROM tasks WHERE deleted_at IS NULL`)
+	if err != nil {
+		return nil, fmt.Errorf("load dependency graph: %w", err)
+	}
+	for rows.Next() {
+		var id int64
+		var st Status
+		if err := rows.Scan(&id, &st); err != nil {
+			rows.Close()
+			return nil, err
+		}
+		g.SetStatus(id, st)
+	}
+	rows.Close()
+	if err := rows.Err(); err != nil {
+		return nil, err
+	}
+	if err := loadEdges(s.db, g, liveEdges); err != nil {
+		return nil, err
+	}
+	return g, nil
+}
+
+// RefreshDepGraph re-reads the status and blockers of the tasks in ids, as
+// reported by ChangesSince, and removes those deleted or in the trash. A
+// dependency change is logged against the blocked task, so refreshing each
+// task's own blockers picks up every added or removed edge.
+func (s *Store) RefreshDepGraph(g *DepGraph, ids []int64) error {
+	if len(ids) == 0 {
+		return nil
+	}
+	ph, args := database.InList(ids)
+	rows, err := s.db.Query(`SELECT id, status FROM tasks WHERE id IN (`+ph+`) AND deleted_at IS NULL`, args...)
+	if err != nil {
+		return fmt.Errorf("refresh dependency graph: %w", err)
+	}
+	found := make(map[int64]bool, len(ids))
+	for rows.Next() {
+		var id int64
+		var st Status
+		if err := rows.Scan(&id, &st); err != nil {
+			rows.Close()
+			return err
+		}
+		found[id] = true
+		g.SetStatus(id, st)
+	}
+	rows.Close()
+	if err := rows.Err(); err != nil {
+		return err
+	}
+	for _, id := range ids {
+		if found[id] {
+			g.clearBlockers(id)
+		} else {
+			g.RemoveTask(id)
+		}
+	}
+	return loadEdges(s.db, g, liveEdges+` AND d.task_id IN (`+ph+`)`, args...)
+}
+
+// liveEdges selects the dependencies between tasks not in the trash.
+const liveEdges = `SELECT d.task_id, d.blocked_by FROM task_dependencies d
+	JOIN tasks a ON a.id = d.task_id JOIN tasks b ON b.id = d.blocked_by
+	WHERE a.deleted_at IS NULL AND b.deleted_at IS NULL`
+
+func loadEdges(e database.Execer, g *DepGraph, query string, args ...any) error {
+	rows, err := e.Query(query, args...)
+	if err != nil {
+		return fmt.Errorf("load dependencies: %w", err)
+	}
+	defer rows.Close()
+	for rows.Next() {
+		var taskID, blockerID int64
+		if err := rows.Scan(&taskID, &blockerID); err != nil {
+			return err
+		}
+		g.AddEdge(taskID, blockerID)
+	}
+	return rows.Err()
+}
+
+// node returns the node for id, adding it if needed.
+func (g *DepGraph) node(id int64) int32 {
+	if n, ok := g.index[id]; ok {
+		g.live[n] = true
+		return n
+	}
+	n := int32(len(g.ids))
+	g.index[id] = n
+	g.ids = append(g.ids, id)
+	g.status = append(g.status, Pending)
+	g.live = append(g.live, true)
+	g.blockers = append(g.blockers, nil)
+	g.blocks = append(g.blocks, nil)
+	g.mark = append(g.mark, 0)
+	return n
+}
+
+// SetStatus records the status of task id, adding the task if needed.
+func (g *DepGraph) SetStatus(id int64, st Status) {
+	g.status[g.node(id)] = st
+}
+
+// AddEdge records that taskID is blocked by blockerID. Adding an edge that
+// exists is a no-op.
+func (g *DepGraph) AddEdge(taskID, blockerID int64) {
+	t, b := g.node(taskID), g.node(blockerID)
+	for _, x := range g.blockers[t] {
+		if x == b {
+			return
+		}
+	}
+	g.blockers[t] = append(g.blockers[t], b)
+	g.blocks[b] = append(g.blocks[b], t)
+}
+
+// RemoveEdge deletes the dependency of taskID on blockerID, if present.
+func (g *DepGraph) RemoveEdge(taskID, blockerID int64) {
+	t, ok1 := g.index[taskID]
+	b, ok2 := g.index[blockerID]
+	if ok1 && ok2 {
+		g.blockers[t] = without(g.blockers[t], b)
+		g.blocks[b] = without(g.blocks[b], t)
+	}
+}
+
+// RemoveTask deletes task id and its edges. Its node number is kept and
+// reused if the ID is added again.
+func (g *DepGraph) RemoveTask(id int64) {
+	n, ok := g.index[id]
+	if !ok {
+		return
+	}
+	g.clearBlockers(id)
+	for _, t := range g.blocks[n] {
+		g.blockers[t] = without(g.blockers[t], n)
+	}
+	g.blocks[n] = nil
+	g.live[n] = false
+}
+
+// clearBlockers deletes every edge from task id to its blockers.
+func (g *DepGraph) clearBlockers(id int64) {
+	n, ok := g.index[id]
+	if !ok {
+		return
+	}
+	for _, b := range g.blockers[n] {
+		g.blocks[b] = without(g.blocks[b], n)
+	}
+	g.blockers[n] = g.blockers[n][:0]
+}
+
+// without removes x from s without preserving order.
+func without(s []int32, x int32) []int32 {
+	for i, v := range s {
+		if v == x {
+			s[i] = s[len(s)-1]
+			return s[:len(s)-1]
+		}
+	}
+	return s
+}
+
+// visit starts a new traversal.
+func (g *DepGraph) visit() {
+	g.gen++
+	if g.gen == 0 {
+		clear(g.mark)
+		g.gen = 1
+	}
+}
+
+// WouldCycle reports whether making taskID blocked by blockerIDs would
+// create a cycle, that is, whether taskID is already reachable from any of
+// them by following blockers. Each node is visited at most once across all
+// of blockerIDs.
+func (g *DepGraph) WouldCycle(taskID int64, blockerIDs ...int64) bool {
+	target, ok := g.index[taskID]
+	if !ok {
+		return false
+	}
+	g.visit()
+	var stack []int32
+	for _, bid := range blockerIDs {
+		if bid == taskID {
+			return true
+		}
+		if b, ok := g.index[bid]; ok && g.mark[b] != g.gen {
+			g.mark[b] = g.gen
+			stack = append(stack, b)
+		}
+	}
+	for len(stack) > 0 {
+		n := stack[len(stack)-1]
+		stack = stack[:len(stack)-1]
+		for _, b := range g.blockers[n] {
+			if b == target {
+				return true
+			}
+			if g.mark[b] != g.gen {
+				g.mark[b] = g.gen
+				stack = append(stack, b)
+			}
+		}
+	}
+	return false
+}
+
+// Blocked reports whether task id has a blocker that is not done.
+func (g *DepGraph) Blocked(id int64) bool {
+	n, ok := g.index[id]
+	return ok && g.blocked(n)
+}
+
+func (g *DepGraph) blocked(n int32) bool {
+	for _, b := range g.blockers[n] {
+		if g.status[b] != Done {
+			return true
+		}
+	}
+	return false
+}
+
+// OpenBlockers returns every unfinished task that must be done before task
+// id can start: its blockers that are not done, their unfinished blockers,
+// and so on. Done tasks end the walk, since whatever blocked them no longer
+// holds anything up.
+func (g *DepGraph) OpenBlockers(id int64) []int64 {
+	n, ok := g.index[id]
+	if !ok {
+		return nil
+	}
+	g.visit()
+	g.mark[n] = g.gen
+	var out []int64
+	stack := []int32{n}
+	for len(stack) > 0 {
+		n := stack[len(stack)-1]
+		stack = stack[:len(stack)-1]
+		for _, b := range g.blockers[n] {
+			if g.mark[b] == g.gen || g.status[b] == Done {
+				continue
+			}
+			g.mark[b] = g.gen
+			out = append(out, g.ids[b])
+			stack = append(stack, b)
+		}
+	}
+	return out
+}
+
+// Ready returns the unfinished tasks whose blockers are all done: the work
+// that can start now.
+func (g *DepGraph) Ready() []int64 {
+	var out []int64
+	for n, id := range g.ids {
+		if g.live[n] && g.status[n] != Done && !g.blocked(int32(n)) {
+			out = append(out, id)
+		}
+	}
+	return out
+}
+
+// TopoOrder returns every task ordered so that each comes after all of its
+// blockers. It returns ErrCycle if the dependencies contain a cycle.
+func (g *DepGraph) TopoOrder() ([]int64, error) {
+	pending := make([]int32, len(g.ids))
+	var queue []int32
+	total := 0
+	for n := range g.ids {
+		if !g.live[n] {
+			continue
+		}
+		total++
+		pending[n] = int32(len(g.blockers[n]))
+		if pending[n] == 0 {
+			queue = append(queue, int32(n))
+		}
+	}
+	out := make([]int64, 0, total)
+	for i := 0; i < len(queue); i++ {
+		n := queue[i]
+		out = append(out, g.ids[n])
+		for _, t := range g.blocks[n] {
+			if pending[t]--; pending[t] == 0 {
+				queue = append(queue, t)
+			}
+		}
+	}
+	if len(out) != total {
+		return out, ErrCycle
+	}
+	return out, nil
+}
@@ -0,0 +1,178 @@
+package task
+
+import (
+	"errors"
+	"math/rand/v2"
+	"slices"
+	"testing"
+)
+
+// chain builds 1 <- 2 <- 3: 2 is blocked by 1 and 3 by 2.
+func chain() *DepGraph {
+	g := NewDepGraph()
+	for id := int64(1); id <= 3; id++ {
+		g.SetStatus(id, Pending)
+	}
+	g.AddEdge(2, 1)
+	g.AddEdge(3, 2)
+	return g
+}
+
+func TestDepGraph_WouldCycle(t *testing.T) {
+	g := chain()
+	if !g.WouldCycle(1, 3) {
+		t.Error("1 blocked by 3 closes 1 <- 2 <- 3")
+	}
+	if !g.WouldCycle(1, 1) {
+		t.Error("self-dependency is a cycle")
+	}
+	if g.WouldCycle(3, 1) {
+		t.Error("3 blocked by 1 adds a shortcut, not a cycle")
+	}
+	g.RemoveEdge(2, 1)
+	if g.WouldCycle(1, 3) {
+		t.Error("cycle reported after removing an edge of it")
+	}
+}
+
+func TestDepGraph_BlockedIsTransitiveThroughOpenTasks(t *testing.T) {
+	g := chain()
+	if got := g.OpenBlockers(3); !slices.Equal(sorted(got), []int64{1, 2}) {
+		t.Errorf("OpenBlockers(3) = %v, want [1 2]", got)
+	}
+	if got := g.Ready(); !slices.Equal(got, []int64{1}) {
+		t.Errorf("Ready = %v, want [1]", got)
+	}
+
+	g.SetStatus(2, Done)
+	if g.Blocked(3) {
+		t.Error("3 is blocked only by a done task")
+	}
+	if got := g.OpenBlockers(3); len(got) != 0 {
+		t.Errorf("OpenBlockers(3) = %v; a done blocker ends the walk", got)
+	}
+	if got := g.Ready(); !slices.Equal(sorted(got), []int64{1, 3}) {
+		t.Errorf("Ready = %v, want [1 3]", got)
+	}
+}
+
+func TestDepGraph_TopoOrder(t *testing.T) {
+	g := chain()
+	g.SetStatus(4, Pending)
+	order, err := g.TopoOrder()
+	if err != nil {
+		t.Fatalf("TopoOrder: %v", err)
+	}
+	pos := map[int64]int{}
+	for i, id := range order {
+		pos[id] = i
+	}
+	if len(order) != 4 || pos[1] > pos[2] || pos[2] > pos[3] {
+		t.Errorf("TopoOrder = %v", order)
+	}
+
+	g.AddEdge(1, 3)
+	if _, err := g.TopoOrder(); !errors.Is(err, ErrCycle) {
+		t.Errorf("TopoOrder on a cycle = %v, want ErrCycle", err)
+	}
+	g.RemoveTask(3)
+	if _, err := g.TopoOrder(); err != nil {
+		t.Errorf("TopoOrder after removing the cycle: %v", err)
+	}
+}
+
+func TestStore_DepGraph(t *testing.T) {
+	store := newTestStore(t)
+	a := createTestTask(t, store, "a")
+	b := createTestTask(t, store, "b")
+	if err := store.SetBlocker(b.ID, a.ID); err != nil {
+		t.Fatalf("SetBlocker: %v", err)
+	}
+	g, err := store.LoadDepGraph()
+	if err != nil {
+		t.Fatalf("LoadDepGraph: %v", err)
+	}
+	if !g.Blocked(b.ID) {
+		t.Fatal("b should be blocked by a")
+	}
+
+	seq, _ := store.CurrentSeq()
+	a.Status = Done
+	if err := store.Update(a); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+	ids, _, err := store.ChangesSince(seq)
+	if err != nil {
+		t.Fatalf("ChangesSince: %v", err)
+	}
+	if err := store.RefreshDepGraph(g, ids); err != nil {
+		t.Fatalf("RefreshDepGraph: %v", err)
+	}
+	if g.Blocked(b.ID) {
+		t.Error("b still blocked after a was done")
+	}
+}
+
+func sorted(ids []int64) []int64 {
+	slices.Sort(ids)
+	return ids
+}
+
+// benchGraph returns a random DAG of n tasks and 2n edges, each task blocked
+// by tasks with lower IDs, plus the same edges as a map for HasCycle.
+func benchGraph(n int) (*DepGraph, map[int64][]int64) {
+	r := rand.New(rand.NewPCG(1, 2))
+	g := NewDepGraph()
+	adj := make(map[int64][]int64, n)
+	for id := int64(1); id <= int64(n); id++ {
+		g.SetStatus(id, Status(r.IntN(3)))
+	}
+	for range 2 * n {
+		t := 2 + r.Int64N(int64(n-1))
+		b := 1 + r.Int64N(t-1)
+		g.AddEdge(t, b)
+		adj[t] = append(adj[t], b)
+	}
+	return g, adj
+}
+
+// BenchmarkDepGraph runs each query on a 50k-task, 100k-edge graph. The
+// HasCycle case is the callback-based check the graph replaces.
+func BenchmarkDepGraph(b *testing.B) {
+	const n = 50_000
+	g, adj := benchGraph(n)
+
+	b.Run("Build", func(b *testing.B) {
+		for b.Loop() {
+			benchGraph(n)
+		}
+	})
+	b.Run("WouldCycle", func(b *testing.B) {
+		for b.Loop() {
+			g.WouldCycle(1, n)
+		}
+	})
+	b.Run("HasCycle", func(b *testing.B) {
+		getBlockers := func(id int64) []int64 { return adj[id] }
+		for b.Loop() {
+			HasCycle(1, []int64{n}, getBlockers)
+		}
+	})
+	b.Run("OpenBlockers", func(b *testing.B) {
+		for b.Loop() {
+			g.OpenBlockers(n)
+		}
+	})
+	b.Run("Ready", func(b *testing.B) {
+		for b.Loop() {
+			g.Ready()
+		}
+	})
+	b.Run("TopoOrder", func(b *testing.B) {
+		for b.Loop() {
+			if _, err := g.TopoOrder(); err != nil {
+				b.Fatal(err)
+			}
+		}
+	})
+}
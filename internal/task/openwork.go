@@ -0,0 +1,94 @@
+package task
+
+import (
+	"database/sql"
+	"fmt"
+	"time"
+)
+
+// OpenWork is an open task reduced to what scheduling reads.
+type OpenWork struct {
+	ID           int64
+	Title        string
+	Status       Status
+	DueDate      *time.Time
+	Meta         string        // the value of the metadata key asked for, "" if unset
+	Logged       time.Duration // total time logged
+	BlockedByIDs []int64       // blockers that are open too
+}
+
+// ListOpenWork returns the open tasks not in the trash, oldest first, with
+// the metadata value of key, the time logged on each, and the open tasks
+// blocking them. It also returns the time logged on done tasks and how
+// many done tasks logged any. Nothing else is loaded: no tags, subtasks,
+// notes, or rows of finished tasks.
+func (s *Store) ListOpenWork(key string) (work []OpenWork, doneLogged time.Duration, doneCount int, err error) {
+	rows, err := s.db.Query(`SELECT t.id, t.title, t.status, t.due_date,
+		coalesce((SELECT m.value FROM task_meta m WHERE m.task_id = t.id AND m.key = ?), ''),
+		(SELECT coalesce(sum(l.duration), 0) FROM time_logs l WHERE l.task_id = t.id)
+		FROM tasks t WHERE t.status != ? AND t.deleted_at IS NULL ORDER BY t.id`, key, int(Done))
+	if err != nil {
+		return nil, 0, 0, fmt.Errorf("list open work: %w", err)
+	}
+	index := make(map[int64]int)
+	for rows.Next() {
+		var w OpenWork
+		var dueDate sql.NullString
+		var logged int64
+		if err := rows.Scan(&w.ID, &w.Title, &w.Status, &dueDate, &w.Meta, &logged); err != nil {
+			rows.Close()
+			return nil, 0, 0, err
+		}
+		if dueDate.Valid {
+			d, err := time.ParseInLocation(time.DateOnly, dueDate.String, time.UTC)
+			if err != nil {
+				rows.Close()
+				return nil, 0, 0, fmt.Errorf("parse task due_date %q: %w", dueDate.String, err)
+			}
+			w.DueDate = &d
+		}
+		w.Logged = time.Duration(logged)
+		index[w.ID] = len(work)
+		work = append(work, w)
+	}
+	rows.Close()
+	if err := rows.Err(); err != nil {
+		return nil, 0, 0, err
+	}
+
+	if err := s.openEdges(work, index); err != nil {
+		return nil, 0, 0, err
+	}
+
+	var total int64
+	if err := s.db.QueryRow(`SELECT coalesce(sum(logged), 0), count(*) FROM (
+		SELECT sum(l.duration) AS logged FROM tasks t JOIN time_logs l ON l.task_id = t.id
+		WHERE t.status = ? AND t.deleted_at IS NULL GROUP BY t.id HAVING logged > 0)`,
+		int(Done)).Scan(&total, &doneCount); err != nil {
+		return nil, 0, 0, fmt.Errorf("sum time logged on done tasks: %w", err)
+	}
+	return work, time.Duration(total), doneCount, nil
+}
+
+// openEdges fills in the BlockedByIDs of work, indexed by ID in index, with
+// the dependencies between open tasks not in the trash.
+func (s *Store) openEdges(work []OpenWork, index map[int64]int) error {
+	rows, err := s.db.Query(`SELECT d.task_id, d.blocked_by FROM task_dependencies d
+		JOIN tasks a ON a.id = d.task_id JOIN tasks b ON b.id = d.blocked_by
+		WHERE a.status != ? AND a.deleted_at IS NULL AND b.status != ? AND b.deleted_at IS NULL`,
+		int(Done), int(Done))
+	if err != nil {
+		return fmt.Errorf("load open dependencies: %w", err)
+	}
+	defer rows.Close()
+	for rows.Next() {
+		var taskID, blockerID int64
+		if err := rows.Scan(&taskID, &blockerID); err != nil {
+			return err
+		}
+		if i, ok := index[taskID]; ok {
+			work[i].BlockedByIDs = append(work[i].BlockedByIDs, blockerID)
+		}
+	}
+	return rows.Err()
+}
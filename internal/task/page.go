@@ -0,0 +1,157 @@
+package task
+
+import (
+	"encoding/base64"
+	"encoding/json"
+	"errors"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// DefaultPageSize is used by ListPage when pageSize is not positive.
+const DefaultPageSize = 100
+
+// ErrInvalidCursor is returned by ListPage when the cursor cannot be decoded
+// or was issued for a different sort order.
+var ErrInvalidCursor = errors.New("invalid cursor")
+
+// Page is one slice of a keyset-paginated listing.
+type Page struct {
+	Tasks []Task
+	Next  string // cursor for the following page; empty on the last page
+}
+
+// pageCursor records the sort key values of the last row on a page. Rows
+// are ordered by (sort column, created_at, id), so these values identify a
+// unique position to resume after.
+type pageCursor struct {
+	Sort      SortKey `json:"s"`
+	CreatedAt int64   `json:"c"`
+	ID        int64   `json:"i"`
+	Priority  int     `json:"p,omitempty"`
+	DueDate   *string `json:"d,omitempty"`
+}
+
+func newPageCursor(sort SortKey, t Task) pageCursor {
+	c := pageCursor{
+		Sort:      sort,
+		CreatedAt: database.Millis(t.CreatedAt),
+		ID:        t.ID,
+		Priority:  int(t.Priority),
+	}
+	if t.DueDate != nil {
+		d := t.DueDate.Format(time.DateOnly)
+		c.DueDate = &d
+	}
+	return c
+}
+
+func (c pageCursor) encode() string {
+	b, _ := json.Marshal(c)
+	return base64.RawURLEncoding.EncodeToString(b)
+}
+
+func decodePageCursor(s string) (pageCursor, error) {
+	var c pageCursor
+	b, err := base64.RawURLEncoding.DecodeString(s)
+	if err != nil {
+		return c, ErrInvalidCursor
+	}
+	if err := json.Unmarshal(b, &c); err != nil {
+		return c, ErrInvalidCursor
+	}
+	return c, nil
+}
+
+// after returns a condition matching the rows that sort strictly after the
+// cursor position under c.Sort.
+func (c pageCursor) after() (string, []any) {
+	const tail = `(t.created_at < ? OR (t.created_at = ? AND t.id < ?))`
+	tailArgs := []any{c.CreatedAt, c.CreatedAt, c.ID}
+
+	switch c.Sort {
+	case SortDue:
+		if c.DueDate == nil {
+			// Undated tasks sort last, so only undated tasks can follow.
+			return `(t.due_date IS NULL AND ` + tail + `)`, tailArgs
+		}
+		return `(t.due_date IS NULL OR t.due_date > ? OR (t.due_date = ? AND ` + tail + `))`,
+			append([]any{*c.DueDate, *c.DueDate}, tailArgs...)
+	case SortPriority:
+		return `(t.priority < ? OR (t.priority = ? AND ` + tail + `))`,
+			append([]any{c.Priority, c.Priority}, tailArgs...)
+	default:
+		return tail, tailArgs
+	}
+}
+
+// ListPage returns up to pageSize tasks matching q, starting after cursor
+// (empty for the first page). It seeks with a keyset condition on the sort
+// columns rather than an OFFSET, so each page costs the same no matter how
+// deep into the listing it is. q.Limit is ignored.
+func (s *Store) ListPage(q Query, cursor string, pageSize int) (Page, error) {
+	if pageSize <= 0 {
+		pageSize = DefaultPageSize
+	}
+
+	where, args := q.compile()
+	if cursor != "" {
+		c, err := decodePageCursor(cursor)
+		if err != nil {
+			return Page{}, err
+		}
+		if c.Sort != q.Sort {
+			return Page{}, ErrInvalidCursor
+		}
+		cond, cargs := c.after()
+		where += ` AND ` + cond
+		args = append(args, cargs...)
+	}
+
+	// Fetch one extra row to learn whether another page follows.
+	tasks, err := s.selectTasks(q.columns(), where, args, q.orderBy(), pageSize+1)
+	if err != nil {
+		return Page{}, err
+	}
+
+	var page Page
+	if len(tasks) > pageSize {
+		tasks = tasks[:pageSize]
+		page.Next = newPageCursor(q.Sort, tasks[pageSize-1]).encode()
+	}
+	page.Tasks = tasks
+	return page, nil
+}
+
+// ForEach calls fn for every task matching q, in q's order, reading
+// pageSize tasks at a time through ListPage. Only one page is held in
+// memory, so it suits walks over the whole table such as exports. The
+// pages are read in one read transaction, so tasks created or re-dated
+// meanwhile are neither duplicated nor skipped. An error from fn stops the
+// walk and is returned as is.
+func (s *Store) ForEach(q Query, pageSize int, fn func(Task) error) error {
+	tx, err := s.BeginRead()
+	if err != nil {
+		return err
+	}
+	defer tx.Rollback()
+	s = s.WithTx(tx)
+
+	cursor := ""
+	for {
+		page, err := s.ListPage(q, cursor, pageSize)
+		if err != nil {
+			return err
+		}
+		for _, t := range page.Tasks {
+			if err := fn(t); err != nil {
+				return err
+			}
+		}
+		if page.Next == "" {
+			return nil
+		}
+		cursor = page.Next
+	}
+}
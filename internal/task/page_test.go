@@ -0,0 +1,136 @@
+package task
+
+import (
+	"errors"
+	"testing"
+	"time"
+)
+
+// collectPages walks every page of q and returns the task IDs in order.
+func collectPages(t *testing.T, store *Store, q Query, size int) []int64 {
+	t.Helper()
+	var ids []int64
+	cursor := ""
+	for range 100 {
+		page, err := store.ListPage(q, cursor, size)
+		if err != nil {
+			t.Fatalf("ListPage: %v", err)
+		}
+		if len(page.Tasks) > size {
+			t.Fatalf("page has %d tasks, want at most %d", len(page.Tasks), size)
+		}
+		for _, tk := range page.Tasks {
+			ids = append(ids, tk.ID)
+		}
+		if page.Next == "" {
+			return ids
+		}
+		cursor = page.Next
+	}
+	t.Fatal("pagination did not terminate")
+	return nil
+}
+
+func TestListPageMatchesFind(t *testing.T) {
+	store := newTestStore(t)
+
+	day := time.Now().UTC().Truncate(24 * time.Hour)
+	for i := range 11 {
+		tk := &Task{Title: "task", Priority: Priority(i % 4)}
+		// Leave every third task undated and give the rest repeated dates
+		// so the tiebreak columns are exercised.
+		if i%3 != 0 {
+			d := day.AddDate(0, 0, i%2)
+			tk.DueDate = &d
+		}
+		if err := store.Create(tk); err != nil {
+			t.Fatalf("create: %v", err)
+		}
+	}
+
+	for _, sort := range []SortKey{SortCreated, SortDue, SortPriority} {
+		q := Query{Sort: sort}
+		all, err := store.Find(q)
+		if err != nil {
+			t.Fatalf("Find: %v", err)
+		}
+		got := collectPages(t, store, q, 3)
+		if len(got) != len(all) {
+			t.Fatalf("sort %d: paged %d tasks, want %d", sort, len(got), len(all))
+		}
+		for i := range all {
+			if got[i] != all[i].ID {
+				t.Errorf("sort %d position %d: got task %d, want %d", sort, i, got[i], all[i].ID)
+			}
+		}
+	}
+}
+
+func TestListPageLastPageHasNoCursor(t *testing.T) {
+	store := newTestStore(t)
+	createTestTask(t, store, "a")
+	createTestTask(t, store, "b")
+
+	page, err := store.ListPage(Query{}, "", 2)
+	if err != nil {
+		t.Fatalf("ListPage: %v", err)
+	}
+	if len(page.Tasks) != 2 || page.Next != "" {
+		t.Errorf("expected 2 tasks and no cursor, got %d tasks, cursor %q", len(page.Tasks), page.Next)
+	}
+}
+
+func TestListPageInvalidCursor(t *testing.T) {
+	store := newTestStore(t)
+	createTestTask(t, store, "a")
+	createTestTask(t, store, "b")
+
+	if _, err := store.ListPage(Query{}, "not-a-cursor!", 1); !errors.Is(err, ErrInvalidCursor) {
+		t.Errorf("expected ErrInvalidCursor for garbage, got %v", err)
+	}
+
+	page, err := store.ListPage(Query{}, "", 1)
+	if err != nil {
+		t.Fatalf("ListPage: %v", err)
+	}
+	if _, err := store.ListPage(Query{Sort: SortDue}, page.Next, 1); !errors.Is(err, ErrInvalidCursor) {
+		t.Errorf("expected ErrInvalidCursor for a cursor from another sort, got %v", err)
+	}
+}
+
+func TestForEachVisitsEveryTaskInOrder(t *testing.T) {
+	store := newTestStore(t)
+	for range 7 {
+		createTestTask(t, store, "task")
+	}
+	want := collectPages(t, store, Query{}, 100)
+
+	var got []int64
+	if err := store.ForEach(Query{}, 3, func(tk Task) error {
+		got = append(got, tk.ID)
+		return nil
+	}); err != nil {
+		t.Fatalf("ForEach: %v", err)
+	}
+	if len(got) != len(want) {
+		t.Fatalf("ForEach visited %d tasks, want %d", len(got), len(want))
+	}
+	for i := range want {
+		if got[i] != want[i] {
+			t.Errorf("position %d: got task %d, want %d", i, got[i], want[i])
+		}
+	}
+
+	stop := errors.New("stop")
+	n := 0
+	err := store.ForEach(Query{}, 3, func(Task) error {
+		n++
+		if n == 4 {
+			return stop
+		}
+		return nil
+	})
+	if !errors.Is(err, stop) || n != 4 {
+		t.Errorf("ForEach after stop = %v with %d calls, want stop after 4", err, n)
+	}
+}
@@ -0,0 +1,52 @@
+package plan
+
+import (
+	"fmt"
+	"sync"
+	"time"
+
+	"github.com/roniel/todo-app/internal/task"
+)
+
+// Cache holds the last plan computed from a store and recomputes it only
+// after the store's change log moves on. Every task, dependency, and time
+// log write is logged, so status, estimate, and dependency edits all
+// invalidate it. A Cache is safe for concurrent use; the plans it returns
+// are shared and must not be modified.
+type Cache struct {
+	mu    sync.Mutex
+	store *task.Store
+	seq   int64
+	plan  *Plan
+}
+
+// NewCache returns an empty cache over store.
+func NewCache(store *task.Store) *Cache {
+	return &Cache{store: store}
+}
+
+// maxAge bounds how long a plan is reused when nothing changes, so slack
+// against due dates, which shrinks as time passes, stays current in a
+// long-running daemon.
+const maxAge = time.Minute
+
+// Plan returns the cached plan if nothing changed since it was computed
+// less than maxAge before now, or computes a new one as of now. Offsets in
+// a cached plan stay relative to the Plan.Now it was computed at.
+func (c *Cache) Plan(now time.Time) (*Plan, error) {
+	c.mu.Lock()
+	defer c.mu.Unlock()
+	seq, err := c.store.CurrentSeq()
+	if err != nil {
+		return nil, fmt.Errorf("plan: %w", err)
+	}
+	if c.plan != nil && seq == c.seq && now.Sub(c.plan.Now) < maxAge {
+		return c.plan, nil
+	}
+	p, err := Load(c.store, now)
+	if err != nil {
+		return nil, err
+	}
+	c.plan, c.seq = p, seq
+	return p, nil
+}
@@ -0,0 +1,278 @@
+// Package plan schedules open tasks along their dependencies. It runs the
+// critical path method over the dependency graph: a forward pass gives each
+// task its earliest start and finish, and a backward pass from the project
+// end and any due dates gives its latest finish and slack.
+package plan
+
+import (
+	"fmt"
+	"slices"
+	"time"
+
+	"github.com/roniel/todo-app/internal/task"
+)
+
+// EstimateKey is the metadata key read as a task's estimated total work,
+// in task.ParseDuration syntax such as "90m" or "2h30m".
+const EstimateKey = "estimate"
+
+// DefaultEstimate is used for tasks without an estimate when no finished
+// task has logged time to learn from.
+const DefaultEstimate = time.Hour
+
+// Node is one task as the scheduler sees it.
+type Node struct {
+	ID       int64
+	Title    string
+	Status   task.Status
+	Due      *time.Time
+	Estimate time.Duration // 0 = unknown
+	Logged   time.Duration
+	Blockers []int64
+}
+
+// Entry is the schedule of one open task. Start, finish and slack values
+// are offsets of remaining work from Plan.Now; a negative Slack means the
+// task cannot meet its own or a dependent's due date.
+type Entry struct {
+	ID             int64
+	Title          string
+	Status         task.Status
+	Due            *time.Time
+	Remaining      time.Duration
+	EarliestStart  time.Duration
+	EarliestFinish time.Duration
+	LatestFinish   time.Duration
+	Slack          time.Duration
+	Critical       bool
+}
+
+// Plan is a schedule of every open task.
+type Plan struct {
+	Now time.Time
+	// Entries holds the open tasks in dependency order: each comes after
+	// all of its blockers.
+	Entries []Entry
+	// CriticalPath lists the chain of tasks with the least slack, first
+	// blocker first. It is the chain that drives the latest finish, or the
+	// one furthest behind a due date.
+	CriticalPath []int64
+	// Finish is the earliest time all open work can be done.
+	Finish time.Duration
+
+	index map[int64]int
+}
+
+// Entry returns the schedule of task id, if it is open.
+func (p *Plan) Entry(id int64) (Entry, bool) {
+	i, ok := p.index[id]
+	if !ok {
+		return Entry{}, false
+	}
+	return p.Entries[i], true
+}
+
+// FinishAt returns the wall-clock time of an offset from p.Now.
+func (p *Plan) FinishAt(d time.Duration) time.Time {
+	return p.Now.Add(d)
+}
+
+// FromTasks converts tasks to nodes, reading estimates from metadata and
+// logged time from TimeLogs. The tasks must have relations loaded.
+func FromTasks(tasks []task.Task) []Node {
+	nodes := make([]Node, len(tasks))
+	for i, t := range tasks {
+		n := Node{
+			ID:       t.ID,
+			Title:    t.Title,
+			Status:   t.Status,
+			Due:      t.DueDate,
+			Logged:   task.TotalDuration(t.TimeLogs),
+			Blockers: t.BlockedByIDs,
+		}
+		if v, ok := t.Metadata[EstimateKey]; ok {
+			if d, err := task.ParseDuration(v); err == nil {
+				n.Estimate = d
+			}
+		}
+		nodes[i] = n
+	}
+	return nodes
+}
+
+// Compute schedules the open tasks in nodes as of now. A task without an
+// estimate is assumed to take as long as finished tasks took on average,
+// judged by their logged time, or DefaultEstimate if none logged any. Time
+// already logged on an open task is taken off its estimate. Done tasks
+// count as finished, so edges to them are ignored. Compute runs in time
+// linear in the tasks and dependencies and returns an error wrapping
+// task.ErrCycle if the open tasks depend on each other in a loop.
+func Compute(now time.Time, nodes []Node) (*Plan, error) {
+	var doneTotal time.Duration
+	var doneCount int
+	for _, n := range nodes {
+		if n.Status == task.Done && n.Logged > 0 {
+			doneTotal += n.Logged
+			doneCount++
+		}
+	}
+	return schedule(now, nodes, fallbackEstimate(doneTotal, doneCount))
+}
+
+// Load schedules the open tasks in store as of now, as Compute does over
+// every task, but reads only what scheduling needs: the open tasks with
+// their estimate, logged time, and open blockers, and the time logged on
+// done tasks.
+func Load(store *task.Store, now time.Time) (*Plan, error) {
+	work, doneTotal, doneCount, err := store.ListOpenWork(EstimateKey)
+	if err != nil {
+		return nil, fmt.Errorf("plan: %w", err)
+	}
+	nodes := make([]Node, len(work))
+	for i, w := range work {
+		nodes[i] = Node{ID: w.ID, Title: w.Title, Status: w.Status, Due: w.DueDate, Logged: w.Logged, Blockers: w.BlockedByIDs}
+		if d, err := task.ParseDuration(w.Meta); w.Meta != "" && err == nil {
+			nodes[i].Estimate = d
+		}
+	}
+	return schedule(now, nodes, fallbackEstimate(doneTotal, doneCount))
+}
+
+// fallbackEstimate is the estimate of a task without one: the average time
+// logged on the count done tasks that logged any, or DefaultEstimate.
+func fallbackEstimate(total time.Duration, count int) time.Duration {
+	if count == 0 {
+		return DefaultEstimate
+	}
+	return total / time.Duration(count)
+}
+
+// schedule runs both passes over nodes, using fallback for tasks without
+// an estimate.
+func schedule(now time.Time, nodes []Node, fallback time.Duration) (*Plan, error) {
+	// Number the open tasks densely so the passes run over flat slices.
+	index := make(map[int64]int, len(nodes))
+	var open []*Node
+	for i := range nodes {
+		if nodes[i].Status != task.Done {
+			index[nodes[i].ID] = len(open)
+			open = append(open, &nodes[i])
+		}
+	}
+	blockers := make([][]int, len(open))
+	dependents := make([][]int, len(open))
+	pending := make([]int, len(open))
+	for i, n := range open {
+		for _, b := range n.Blockers {
+			if j, ok := index[b]; ok && j != i {
+				blockers[i] = append(blockers[i], j)
+				dependents[j] = append(dependents[j], i)
+				pending[i]++
+			}
+		}
+	}
+
+	// Kahn's algorithm gives the order for both passes.
+	order := make([]int, 0, len(open))
+	for i := range open {
+		if pending[i] == 0 {
+			order = append(order, i)
+		}
+	}
+	for k := 0; k < len(order); k++ {
+		for _, d := range dependents[order[k]] {
+			if pending[d]--; pending[d] == 0 {
+				order = append(order, d)
+			}
+		}
+	}
+	if len(order) != len(open) {
+		return nil, fmt.Errorf("schedule %d open tasks: %w", len(open), task.ErrCycle)
+	}
+
+	entries := make([]Entry, len(open))
+	var finish time.Duration
+	for _, i := range order {
+		n := open[i]
+		est := n.Estimate
+		if est == 0 {
+			est = fallback
+		}
+		e := &entries[i]
+		*e = Entry{ID: n.ID, Title: n.Title, Status: n.Status, Due: n.Due, Remaining: max(est-n.Logged, 0)}
+		for _, b := range blockers[i] {
+			e.EarliestStart = max(e.EarliestStart, entries[b].EarliestFinish)
+		}
+		e.EarliestFinish = e.EarliestStart + e.Remaining
+		finish = max(finish, e.EarliestFinish)
+	}
+
+	for k := len(order) - 1; k >= 0; k-- {
+		i := order[k]
+		e := &entries[i]
+		e.LatestFinish = finish
+		if e.Due != nil {
+			// Due dates are calendar days: the task is on time until that
+			// day ends where the user is.
+			e.LatestFinish = min(e.LatestFinish, dayEnd(*e.Due, now.Location()).Sub(now))
+		}
+		for _, d := range dependents[i] {
+			e.LatestFinish = min(e.LatestFinish, entries[d].LatestFinish-entries[d].Remaining)
+		}
+		e.Slack = e.LatestFinish - e.EarliestFinish
+	}
+
+	p := &Plan{Now: now, Finish: finish, Entries: make([]Entry, 0, len(open)), index: make(map[int64]int, len(open))}
+	if len(open) > 0 {
+		p.CriticalPath = criticalPath(entries, blockers)
+	}
+	for _, id := range p.CriticalPath {
+		entries[index[id]].Critical = true
+	}
+	for _, i := range order {
+		p.index[entries[i].ID] = len(p.Entries)
+		p.Entries = append(p.Entries, entries[i])
+	}
+	return p, nil
+}
+
+// criticalPath walks back from the latest-finishing task of least slack,
+// each step taking the blocker whose finish sets the task's start. Along a
+// least-slack chain that blocker has the same least slack.
+func criticalPath(entries []Entry, blockers [][]int) []int64 {
+	end := 0
+	for i, e := range entries {
+		best := entries[end]
+		if e.Slack < best.Slack || e.Slack == best.Slack && e.EarliestFinish > best.EarliestFinish {
+			end = i
+		}
+	}
+	var path []int64
+	for i := end; i >= 0; {
+		path = append(path, entries[i].ID)
+		next := -1
+		for _, b := range blockers[i] {
+			if entries[b].EarliestFinish == entries[i].EarliestStart && entries[b].Slack == entries[end].Slack {
+				next = b
+				break
+			}
+		}
+		i = next
+	}
+	slices.Reverse(path)
+	return path
+}
+
+func dayEnd(d time.Time, loc *time.Location) time.Time {
+	y, m, day := d.Date()
+	return time.Date(y, m, day+1, 0, 0, 0, 0, loc)
+}
+
+// FormatSlack formats a slack as task.FormatDuration does, signed so that
+// time in hand reads "+2h" and a shortfall reads "-2h".
+func FormatSlack(d time.Duration) string {
+	if d < 0 {
+		return "-" + task.FormatDuration(-d)
+	}
+	return "+" + task.FormatDuration(d)
+}
@@ -0,0 +1,246 @@
+package plan
+
+import (
+	"database/sql"
+	"errors"
+	"slices"
+	"testing"
+	"time"
+
+	"github.com/roniel/todo-app/internal/task"
+	_ "modernc.org/sqlite"
+)
+
+var now = time.Date(2026, 3, 10, 12, 0, 0, 0, time.UTC)
+
+func entry(t *testing.T, p *Plan, id int64) Entry {
+	t.Helper()
+	e, ok := p.Entry(id)
+	if !ok {
+		t.Fatalf("no entry for task %d", id)
+	}
+	return e
+}
+
+func TestCompute_CriticalPath(t *testing.T) {
+	// 1 <- 2 <- 3 is the long chain; 4 runs alongside it.
+	p, err := Compute(now, []Node{
+		{ID: 1, Estimate: 2 * time.Hour},
+		{ID: 2, Estimate: time.Hour, Blockers: []int64{1}},
+		{ID: 3, Estimate: 3 * time.Hour, Blockers: []int64{2}},
+		{ID: 4, Estimate: time.Hour},
+	})
+	if err != nil {
+		t.Fatalf("Compute: %v", err)
+	}
+	if p.Finish != 6*time.Hour {
+		t.Errorf("Finish = %v, want 6h", p.Finish)
+	}
+	if !slices.Equal(p.CriticalPath, []int64{1, 2, 3}) {
+		t.Errorf("CriticalPath = %v, want [1 2 3]", p.CriticalPath)
+	}
+	if e := entry(t, p, 3); e.EarliestStart != 3*time.Hour || e.EarliestFinish != 6*time.Hour || e.Slack != 0 || !e.Critical {
+		t.Errorf("task 3 = %+v", e)
+	}
+	if e := entry(t, p, 4); e.Slack != 5*time.Hour || e.Critical {
+		t.Errorf("task 4 = %+v, want 5h slack", e)
+	}
+
+	pos := map[int64]int{}
+	for i, e := range p.Entries {
+		pos[e.ID] = i
+	}
+	if pos[1] > pos[2] || pos[2] > pos[3] {
+		t.Errorf("Entries not in dependency order: %v", pos)
+	}
+}
+
+func TestCompute_DueDates(t *testing.T) {
+	today := time.Date(2026, 3, 10, 0, 0, 0, 0, time.UTC)
+	// Task 2 is due at the end of today, 12h from now, but needs 8h after
+	// its 6h blocker, so the short chain 1 <- 2 is 2h late while task 3
+	// finishes later but has no deadline.
+	p, err := Compute(now, []Node{
+		{ID: 1, Estimate: 6 * time.Hour},
+		{ID: 2, Estimate: 8 * time.Hour, Due: &today, Blockers: []int64{1}},
+		{ID: 3, Estimate: 20 * time.Hour},
+	})
+	if err != nil {
+		t.Fatalf("Compute: %v", err)
+	}
+	if e := entry(t, p, 2); e.LatestFinish != 12*time.Hour || e.Slack != -2*time.Hour {
+		t.Errorf("task 2 = %+v, want -2h slack", e)
+	}
+	if e := entry(t, p, 1); e.Slack != -2*time.Hour {
+		t.Errorf("task 1 slack = %v, want -2h", e.Slack)
+	}
+	if !slices.Equal(p.CriticalPath, []int64{1, 2}) {
+		t.Errorf("CriticalPath = %v, want [1 2]", p.CriticalPath)
+	}
+}
+
+func TestCompute_Estimates(t *testing.T) {
+	// Done tasks took 3h on average, so task 3 is assumed to as well.
+	// Task 4 has 3h of its estimate left and task 5 has overrun its own.
+	p, err := Compute(now, []Node{
+		{ID: 1, Status: task.Done, Logged: 2 * time.Hour},
+		{ID: 2, Status: task.Done, Logged: 4 * time.Hour},
+		{ID: 3, Blockers: []int64{1}},
+		{ID: 4, Estimate: 5 * time.Hour, Logged: 2 * time.Hour},
+		{ID: 5, Estimate: time.Hour, Logged: 2 * time.Hour, Blockers: []int64{4}},
+	})
+	if err != nil {
+		t.Fatalf("Compute: %v", err)
+	}
+	if _, ok := p.Entry(1); ok {
+		t.Error("done task 1 should not be scheduled")
+	}
+	if e := entry(t, p, 3); e.Remaining != 3*time.Hour || e.EarliestStart != 0 {
+		t.Errorf("task 3 = %+v, want 3h from now", e)
+	}
+	if e := entry(t, p, 4); e.Remaining != 3*time.Hour {
+		t.Errorf("task 4 remaining = %v, want 3h", e.Remaining)
+	}
+	if e := entry(t, p, 5); e.Remaining != 0 || e.EarliestFinish != 3*time.Hour {
+		t.Errorf("task 5 = %+v", e)
+	}
+
+	p, err = Compute(now, []Node{{ID: 1}})
+	if err != nil {
+		t.Fatalf("Compute: %v", err)
+	}
+	if e := entry(t, p, 1); e.Remaining != DefaultEstimate {
+		t.Errorf("remaining without history = %v, want %v", e.Remaining, DefaultEstimate)
+	}
+}
+
+func TestCompute_Cycle(t *testing.T) {
+	_, err := Compute(now, []Node{
+		{ID: 1, Blockers: []int64{2}},
+		{ID: 2, Blockers: []int64{1}},
+	})
+	if !errors.Is(err, task.ErrCycle) {
+		t.Errorf("Compute on a cycle = %v, want ErrCycle", err)
+	}
+
+	// A loop through a done task no longer holds anything up.
+	_, err = Compute(now, []Node{
+		{ID: 1, Blockers: []int64{2}},
+		{ID: 2, Status: task.Done, Blockers: []int64{1}},
+	})
+	if err != nil {
+		t.Errorf("Compute with a done task in the loop: %v", err)
+	}
+}
+
+func TestCache(t *testing.T) {
+	db, err := sql.Open("sqlite", ":memory:")
+	if err != nil {
+		t.Fatalf("open db: %v", err)
+	}
+	t.Cleanup(func() { db.Close() })
+	store, err := task.NewStore(db)
+	if err != nil {
+		t.Fatalf("NewStore: %v", err)
+	}
+	a := &task.Task{Title: "a", Metadata: map[string]string{EstimateKey: "2h"}}
+	b := &task.Task{Title: "b"}
+	for _, tk := range []*task.Task{a, b} {
+		if err := store.Create(tk); err != nil {
+			t.Fatalf("Create: %v", err)
+		}
+	}
+
+	c := NewCache(store)
+	p1, err := c.Plan(now)
+	if err != nil {
+		t.Fatalf("Plan: %v", err)
+	}
+	if p2, _ := c.Plan(now); p2 != p1 {
+		t.Error("plan recomputed without changes")
+	}
+	if e := entry(t, p1, a.ID); e.Remaining != 2*time.Hour {
+		t.Errorf("estimate from metadata = %v, want 2h", e.Remaining)
+	}
+
+	if err := store.SetBlocker(b.ID, a.ID); err != nil {
+		t.Fatalf("SetBlocker: %v", err)
+	}
+	p3, err := c.Plan(now)
+	if err != nil {
+		t.Fatalf("Plan: %v", err)
+	}
+	if p3 == p1 {
+		t.Fatal("plan not recomputed after a dependency change")
+	}
+	if e := entry(t, p3, b.ID); e.EarliestStart != 2*time.Hour {
+		t.Errorf("b starts at %v, want 2h", e.EarliestStart)
+	}
+
+	a.Status = task.Done
+	if err := store.Update(a); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+	p4, _ := c.Plan(now)
+	if _, ok := p4.Entry(a.ID); ok || p4 == p3 {
+		t.Error("plan not recomputed after a status change")
+	}
+}
+
+func TestLoad_MatchesCompute(t *testing.T) {
+	db, err := sql.Open("sqlite", ":memory:")
+	if err != nil {
+		t.Fatalf("open db: %v", err)
+	}
+	db.SetMaxOpenConns(1)
+	t.Cleanup(func() { db.Close() })
+	store, err := task.NewStore(db)
+	if err != nil {
+		t.Fatalf("NewStore: %v", err)
+	}
+	due := time.Date(2026, 3, 11, 0, 0, 0, 0, time.UTC)
+	tasks := []task.Task{
+		{Title: "done", Status: task.Done, TimeLogs: []task.TimeLog{{Duration: 3 * time.Hour}}},
+		{Title: "first", Metadata: map[string]string{EstimateKey: "2h"}, TimeLogs: []task.TimeLog{{Duration: 30 * time.Minute}}},
+		{Title: "second", DueDate: &due},
+		{Title: "trashed"},
+	}
+	if err := store.BulkCreate(tasks); err != nil {
+		t.Fatalf("BulkCreate: %v", err)
+	}
+	for _, d := range [][2]int64{{tasks[2].ID, tasks[1].ID}, {tasks[2].ID, tasks[0].ID}, {tasks[2].ID, tasks[3].ID}} {
+		if err := store.SetBlocker(d[0], d[1]); err != nil {
+			t.Fatalf("SetBlocker: %v", err)
+		}
+	}
+	if err := store.Delete(tasks[3].ID); err != nil {
+		t.Fatalf("Delete: %v", err)
+	}
+
+	all, err := store.List()
+	if err != nil {
+		t.Fatalf("List: %v", err)
+	}
+	want, err := Compute(now, FromTasks(all))
+	if err != nil {
+		t.Fatalf("Compute: %v", err)
+	}
+	got, err := Load(store, now)
+	if err != nil {
+		t.Fatalf("Load: %v", err)
+	}
+	// Due dates are compared by value, the rest of each entry exactly.
+	sameEntry := func(a, b Entry) bool {
+		if (a.Due == nil) != (b.Due == nil) || a.Due != nil && !a.Due.Equal(*b.Due) {
+			return false
+		}
+		a.Due, b.Due = nil, nil
+		return a == b
+	}
+	if !slices.EqualFunc(got.Entries, want.Entries, sameEntry) || !slices.Equal(got.CriticalPath, want.CriticalPath) {
+		t.Errorf("Load = %+v\nwant %+v", got.Entries, want.Entries)
+	}
+	if e := entry(t, got, tasks[2].ID); e.Remaining != 3*time.Hour || e.EarliestStart != 90*time.Minute {
+		t.Errorf("second = %+v, want 3h after first's 90m", e)
+	}
+}
@@ -0,0 +1,153 @@
+package task
+
+import (
+	"maps"
+	"slices"
+	"strings"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// SortKey selects the ordering applied to a task listing.
+type SortKey int
+
+const (
+	SortCreated  SortKey = iota // newest first
+	SortDue                     // earliest due date first, undated tasks last
+	SortPriority                // highest priority first
+)
+
+// ParseSortKey converts a CLI sort name ("created", "due", "priority") to a
+// SortKey. Unknown names fall back to SortCreated.
+func ParseSortKey(s string) SortKey {
+	switch strings.ToLower(s) {
+	case "due":
+		return SortDue
+	case "priority":
+		return SortPriority
+	default:
+		return SortCreated
+	}
+}
+
+// Query describes a filtered, ordered task listing that the store compiles
+// into a single parameterized SQL statement. The zero value matches every
+// task, newest first.
+type Query struct {
+	Statuses  []Status          // match any; empty matches all
+	Priority  *Priority         // exact match when set
+	Tags      []string          // match any, case-insensitive
+	Metadata  map[string]string // match all key=value pairs
+	DueBefore *time.Time        // due on or before (inclusive)
+	DueAfter  *time.Time        // due on or after (inclusive)
+	Overdue   bool              // not done and past due
+	Unblocked bool              // not done and every blocker done
+	Search    string            // case-insensitive substring of title or description, via task_fts
+	Sort      SortKey
+	Limit     int // 0 = unlimited
+
+	// NoMetadata leaves Task.Metadata nil, skipping the JSON decode for
+	// callers that do not show it. Metadata filters still apply.
+	NoMetadata bool
+}
+
+// compile returns the WHERE clause (without the keyword, "1=1" when empty)
+// and its arguments. The tasks table must be aliased as t.
+func (q Query) compile() (string, []any) {
+	var conds []string
+	var args []any
+
+	if len(q.Statuses) > 0 {
+		ph := make([]string, len(q.Statuses))
+		for i, st := range q.Statuses {
+			ph[i] = "?"
+			args = append(args, int(st))
+		}
+		conds = append(conds, "t.status IN ("+strings.Join(ph, ",")+")")
+	}
+
+	if q.Priority != nil {
+		conds = append(conds, "t.priority = ?")
+		args = append(args, int(*q.Priority))
+	}
+
+	if len(q.Tags) > 0 {
+		ph := make([]string, len(q.Tags))
+		for i, tag := range q.Tags {
+			ph[i] = "?"
+			args = append(args, strings.TrimSpace(tag))
+		}
+		// Driven from the tag side: tag_names matches case-insensitively
+		// and task_tags is indexed by tag.
+		conds = append(conds, "t.id IN (SELECT tt.task_id FROM tag_names n JOIN task_tags tt ON tt.tag_id = n.id WHERE n.name IN ("+strings.Join(ph, ",")+"))")
+	}
+
+	// Keys are sorted so the same filter always compiles to the same
+	// statement.
+	for _, k := range slices.Sorted(maps.Keys(q.Metadata)) {
+		conds = append(conds, "t.id IN (SELECT task_id FROM task_meta WHERE key = ? AND value = ?)")
+		args = append(args, k, q.Metadata[k])
+	}
+
+	if q.Search != "" {
+		if expr, ok := database.MatchSubstring(q.Search); ok {
+			// Even rowids are task rows (title and description), not notes.
+			conds = append(conds, "t.id IN (SELECT task_id FROM task_fts WHERE task_fts MATCH ? AND rowid % 2 = 0)")
+			args = append(args, expr)
+		} else {
+			pattern := "%" + database.EscapeLike(q.Search) + "%"
+			conds = append(conds, `(t.title LIKE ? ESCAPE '\' OR t.description LIKE ? ESCAPE '\')`)
+			args = append(args, pattern, pattern)
+		}
+	}
+
+	if q.Overdue {
+		// A due date is stored as midnight UTC, so it has passed as soon as
+		// the UTC calendar reaches it.
+		conds = append(conds, "t.due_date IS NOT NULL AND t.due_date <= ? AND t.status != ?")
+		args = append(args, time.Now().UTC().Format(time.DateOnly), int(Done))
+	}
+
+	if q.Unblocked {
+		conds = append(conds, `t.status != ? AND NOT EXISTS (SELECT 1 FROM task_dependencies d
+			JOIN tasks b ON b.id = d.blocked_by WHERE d.task_id = t.id AND b.status != ? AND b.deleted_at IS NULL)`)
+		args = append(args, int(Done), int(Done))
+	}
+
+	if q.DueBefore != nil {
+		conds = append(conds, "t.due_date IS NOT NULL AND t.due_date <= ?")
+		args = append(args, q.DueBefore.Format(time.DateOnly))
+	}
+
+	if q.DueAfter != nil {
+		conds = append(conds, "t.due_date IS NOT NULL AND t.due_date >= ?")
+		args = append(args, q.DueAfter.Format(time.DateOnly))
+	}
+
+	if len(conds) == 0 {
+		return "1=1", args
+	}
+	return strings.Join(conds, " AND "), args
+}
+
+// columns returns the column list to select for the query's tasks.
+func (q Query) columns() string {
+	if q.NoMetadata {
+		return taskColumnsNoMetadata
+	}
+	return taskColumns
+}
+
+// orderBy returns the ORDER BY clause for the query's sort key. Ties are
+// broken by id so the order is deterministic.
+func (q Query) orderBy() string {
+	switch q.Sort {
+	case SortDue:
+		return "t.due_date IS NULL, t.due_date ASC, t.created_at DESC, t.id DESC"
+	case SortPriority:
+		return "t.priority DESC, t.created_at DESC, t.id DESC"
+	default:
+		return "t.created_at DESC, t.id DESC"
+	}
+}
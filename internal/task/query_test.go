@@ -0,0 +1,115 @@
+package task
+
+import (
+	"testing"
+	"time"
+)
+
+func TestFindFilters(t *testing.T) {
+	store := newTestStore(t)
+
+	past := time.Now().UTC().AddDate(0, 0, -3).Truncate(24 * time.Hour)
+	future := time.Now().UTC().AddDate(0, 0, 10).Truncate(24 * time.Hour)
+
+	a := &Task{Title: "Write report", Priority: High, Tags: []string{"Work"}, DueDate: &past}
+	b := &Task{Title: "Buy milk", Description: "100% organic", Tags: []string{"home"}, DueDate: &future}
+	c := &Task{Title: "Ping bot", Status: Done, Metadata: map[string]string{"source": "whatsapp"}, DueDate: &past}
+	for _, tk := range []*Task{a, b, c} {
+		if err := store.Create(tk); err != nil {
+			t.Fatalf("create: %v", err)
+		}
+	}
+
+	high := High
+	cases := []struct {
+		name string
+		q    Query
+		want []int64
+	}{
+		{"all", Query{}, []int64{c.ID, b.ID, a.ID}},
+		{"status", Query{Statuses: []Status{Done}}, []int64{c.ID}},
+		{"priority", Query{Priority: &high}, []int64{a.ID}},
+		{"tag case-insensitive", Query{Tags: []string{"work"}}, []int64{a.ID}},
+		{"metadata", Query{Metadata: map[string]string{"source": "whatsapp"}}, []int64{c.ID}},
+		{"search description", Query{Search: "ORGANIC"}, []int64{b.ID}},
+		{"search literal percent", Query{Search: "100%"}, []int64{b.ID}},
+		{"overdue skips done", Query{Overdue: true}, []int64{a.ID}},
+		{"due after", Query{DueAfter: &future}, []int64{b.ID}},
+		{"limit", Query{Limit: 2}, []int64{c.ID, b.ID}},
+		{"sort due", Query{Sort: SortDue}, []int64{c.ID, a.ID, b.ID}},
+	}
+
+	for _, tc := range cases {
+		t.Run(tc.name, func(t *testing.T) {
+			got, err := store.Find(tc.q)
+			if err != nil {
+				t.Fatalf("Find: %v", err)
+			}
+			if len(got) != len(tc.want) {
+				t.Fatalf("expected %d tasks, got %d", len(tc.want), len(got))
+			}
+			for i, id := range tc.want {
+				if got[i].ID != id {
+					t.Errorf("position %d: expected task %d, got %d", i, id, got[i].ID)
+				}
+			}
+		})
+	}
+}
+
+func TestFindHydratesRelations(t *testing.T) {
+	store := newTestStore(t)
+	tk := &Task{Title: "with tags", Tags: []string{"x"}}
+	if err := store.Create(tk); err != nil {
+		t.Fatalf("create: %v", err)
+	}
+	if err := store.AddSubtask(tk.ID, "step"); err != nil {
+		t.Fatalf("AddSubtask: %v", err)
+	}
+
+	got, err := store.Find(Query{Tags: []string{"x"}})
+	if err != nil {
+		t.Fatalf("Find: %v", err)
+	}
+	if len(got) != 1 || len(got[0].Tags) != 1 || len(got[0].Subtasks) != 1 {
+		t.Fatalf("expected hydrated task, got %+v", got)
+	}
+}
+
+func TestFindMetadataIndex(t *testing.T) {
+	store := newTestStore(t)
+	tk := &Task{Title: "ticket", Metadata: map[string]string{"ticket": "OPS-1", "sprint": "12"}}
+	if err := store.Create(tk); err != nil {
+		t.Fatalf("Create: %v", err)
+	}
+	find := func(meta map[string]string) []Task {
+		t.Helper()
+		got, err := store.Find(Query{Metadata: meta})
+		if err != nil {
+			t.Fatalf("Find: %v", err)
+		}
+		return got
+	}
+	if got := find(map[string]string{"ticket": "OPS-1", "sprint": "12"}); len(got) != 1 {
+		t.Fatalf("matched %d tasks, want 1", len(got))
+	}
+
+	tk.Metadata = map[string]string{"ticket": "OPS-2"}
+	if err := store.Update(tk); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+	if got := find(map[string]string{"ticket": "OPS-1"}); len(got) != 0 {
+		t.Errorf("old metadata still matches after update")
+	}
+	if got := find(map[string]string{"ticket": "OPS-2"}); len(got) != 1 {
+		t.Errorf("new metadata does not match after update")
+	}
+
+	got, err := store.Find(Query{Metadata: map[string]string{"ticket": "OPS-2"}, NoMetadata: true})
+	if err != nil {
+		t.Fatalf("Find: %v", err)
+	}
+	if len(got) != 1 || got[0].Metadata != nil {
+		t.Errorf("NoMetadata = %+v, want one task without metadata", got)
+	}
+}
@@ -0,0 +1,83 @@
+package task
+
+import (
+	"fmt"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// SearchHit is one ranked full-text match.
+type SearchHit struct {
+	TaskID  int64
+	NoteID  int64 // 0 when the match is in the task's title or description
+	Title   string
+	Snippet string  // matching text with the hit wrapped in [brackets]
+	Rank    float64 // bm25 score, title hits weighted double; lower is more relevant
+}
+
+// Search returns tasks and task notes matching every whitespace-separated
+// term of text, best match first. Terms shorter than three characters
+// cannot use the index, so such queries fall back to a substring scan and
+// are returned unranked.
+func (s *Store) Search(text string, limit int) ([]SearchHit, error) {
+	if limit <= 0 {
+		limit = 20
+	}
+	expr, ok := database.MatchAll(text)
+	if !ok {
+		return s.searchLike(text, limit)
+	}
+	rows, err := s.db.Query(`SELECT task_fts.task_id,
+			CASE WHEN task_fts.rowid % 2 = 1 THEN task_fts.rowid / 2 ELSE 0 END,
+			t.title,
+			snippet(task_fts, -1, '[', ']', '…', 10),
+			bm25(task_fts, 2.0, 1.0)
+		FROM task_fts JOIN tasks t ON t.id = task_fts.task_id
+		WHERE task_fts MATCH ? AND t.deleted_at IS NULL
+		ORDER BY bm25(task_fts, 2.0, 1.0)
+		LIMIT ?`, expr, limit)
+	if err != nil {
+		return nil, fmt.Errorf("search: %w", err)
+	}
+	defer rows.Close()
+
+	var hits []SearchHit
+	for rows.Next() {
+		var h SearchHit
+		if err := rows.Scan(&h.TaskID, &h.NoteID, &h.Title, &h.Snippet, &h.Rank); err != nil {
+			return nil, err
+		}
+		hits = append(hits, h)
+	}
+	return hits, rows.Err()
+}
+
+// searchLike is the unindexed fallback for Search.
+func (s *Store) searchLike(text string, limit int) ([]SearchHit, error) {
+	pattern := "%" + database.EscapeLike(text) + "%"
+	rows, err := s.db.Query(`SELECT id, 0, title, description FROM tasks
+			WHERE deleted_at IS NULL AND (title LIKE ? ESCAPE '\' OR description LIKE ? ESCAPE '\')
+		UNION ALL
+		SELECT n.task_id, n.id, t.title, n.body FROM task_notes n JOIN tasks t ON t.id = n.task_id
+			WHERE t.deleted_at IS NULL AND n.body LIKE ? ESCAPE '\'
+		LIMIT ?`, pattern, pattern, pattern, limit)
+	if err != nil {
+		return nil, fmt.Errorf("search: %w", err)
+	}
+	defer rows.Close()
+
+	var hits []SearchHit
+	for rows.Next() {
+		var h SearchHit
+		var desc string
+		if err := rows.Scan(&h.TaskID, &h.NoteID, &h.Title, &desc); err != nil {
+			return nil, err
+		}
+		h.Snippet = desc
+		if h.NoteID == 0 && desc == "" {
+			h.Snippet = h.Title
+		}
+		hits = append(hits, h)
+	}
+	return hits, rows.Err()
+}
@@ -4,120 +4,102 @@ import (
 	"database/sql"
 	"encoding/json"
 	"fmt"
-	"strings"
+	"slices"
 	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+	"github.com/roniel/todo-app/internal/database/migrations"
 )
 
 type Store struct {
-	db *sql.DB
+	db database.Execer
 }
 
 // NewStore creates a task store using the provided database connection.
 // The caller is responsible for opening and closing the DB.
 func NewStore(db *sql.DB) (*Store, error) {
-	if err := migrate(db); err != nil {
+	if err := migrations.Apply(db); err != nil {
 		return nil, err
 	}
-	return &Store{db: db}, nil
-}
-
-func migrate(db *sql.DB) error {
-	stmts := []string{
-		`CREATE TABLE IF NOT EXISTS tasks (
-			id          INTEGER PRIMARY KEY AUTOINCREMENT,
-			title       TEXT NOT NULL,
-			description TEXT NOT NULL DEFAULT '',
-			status      INTEGER NOT NULL DEFAULT 0,
-			priority    INTEGER NOT NULL DEFAULT 0,
-			due_date    TEXT,
-			created_at  TEXT NOT NULL,
-			updated_at  TEXT NOT NULL
-		)`,
-		`CREATE TABLE IF NOT EXISTS subtasks (
-			id         INTEGER PRIMARY KEY AUTOINCREMENT,
-			task_id    INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
-			title      TEXT NOT NULL,
-			completed  INTEGER NOT NULL DEFAULT 0,
-			position   INTEGER NOT NULL DEFAULT 0
-		)`,
-		`CREATE TABLE IF NOT EXISTS tags (
-			id      INTEGER PRIMARY KEY AUTOINCREMENT,
-			task_id INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
-			name    TEXT NOT NULL
-		)`,
-		`CREATE INDEX IF NOT EXISTS idx_subtasks_task ON subtasks(task_id)`,
-		`CREATE INDEX IF NOT EXISTS idx_tags_task ON tags(task_id)`,
-		`CREATE TABLE IF NOT EXISTS time_logs (
-			id        INTEGER PRIMARY KEY AUTOINCREMENT,
-			task_id   INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
-			duration  INTEGER NOT NULL,
-			note      TEXT NOT NULL DEFAULT '',
-			logged_at TEXT NOT NULL
-		)`,
-		`CREATE INDEX IF NOT EXISTS idx_time_logs_task ON time_logs(task_id)`,
-		`CREATE TABLE IF NOT EXISTS task_dependencies (
-			task_id    INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
-			blocked_by INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
-			PRIMARY KEY (task_id, blocked_by)
-		)`,
-		`CREATE INDEX IF NOT EXISTS idx_task_deps_blocked_by ON task_dependencies(blocked_by)`,
-		`CREATE TABLE IF NOT EXISTS task_notes (
-			id         INTEGER PRIMARY KEY AUTOINCREMENT,
-			task_id    INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE,
-			body       TEXT NOT NULL,
-			created_at TEXT NOT NULL
-		)`,
-		`CREATE INDEX IF NOT EXISTS idx_task_notes_task ON task_notes(task_id)`,
-	}
-	for _, stmt := range stmts {
-		if _, err := db.Exec(stmt); err != nil {
-			return fmt.Errorf("migrate: %w", err)
-		}
-	}
+	return &Store{db: database.NewStmtCache(db)}, nil
+}
 
-	// Add new columns to tasks table if they don't already exist.
-	if err := addColumnIfNotExists(db, "tasks", "recur_freq", "INTEGER NOT NULL DEFAULT 0"); err != nil {
-		return fmt.Errorf("migrate recur_freq: %w", err)
-	}
-	if err := addColumnIfNotExists(db, "tasks", "recur_interval", "INTEGER NOT NULL DEFAULT 0"); err != nil {
-		return fmt.Errorf("migrate recur_interval: %w", err)
-	}
-	if err := addColumnIfNotExists(db, "tasks", "metadata", "TEXT NOT NULL DEFAULT '{}'"); err != nil {
-		return fmt.Errorf("migrate metadata: %w", err)
-	}
-	return nil
+// Begin starts a transaction on the store's database. Stores that share
+// the database can join it through their own WithTx.
+func (s *Store) Begin() (*database.Tx, error) {
+	return database.Begin(s.db)
 }
 
-func addColumnIfNotExists(db *sql.DB, table, column, colDef string) error {
-	rows, err := db.Query(fmt.Sprintf("PRAGMA table_info(%s)", table))
-	if err != nil {
-		return err
-	}
-	defer rows.Close()
+// BeginRead starts a read transaction on the store's database, see
+// database.BeginRead. Stores that share the database can read the same
+// snapshot through their own WithTx.
+func (s *Store) BeginRead() (*database.Tx, error) {
+	return database.BeginRead(s.db)
+}
 
-	for rows.Next() {
-		var cid int
-		var name, ctype string
-		var notnull int
-		var dflt sql.NullString
-		var pk int
-		if err := rows.Scan(&cid, &name, &ctype, &notnull, &dflt, &pk); err != nil {
-			return err
-		}
-		if name == column {
-			return nil // column already exists
-		}
+// WithTx returns a store that runs its statements in tx. Methods that group
+// several writes use a savepoint inside it.
+func (s *Store) WithTx(tx database.Execer) *Store {
+	return &Store{db: tx}
+}
+
+// taskColumns is the column list scanned by scanTask, qualified for the
+// tasks table aliased as t.
+const taskColumns = `t.id, t.title, t.description, t.status, t.priority, t.due_date, t.created_at, t.updated_at, t.recur_freq, t.recur_interval, t.metadata`
+
+// taskColumnsNoMetadata selects an empty object in place of the metadata
+// column, which scanTask leaves nil without decoding.
+const taskColumnsNoMetadata = `t.id, t.title, t.description, t.status, t.priority, t.due_date, t.created_at, t.updated_at, t.recur_freq, t.recur_interval, '{}'`
+
+// scanner is satisfied by both *sql.Row and *sql.Rows.
+type scanner interface {
+	Scan(dest ...any) error
+}
+
+// scanTask reads a row selected with taskColumns. Relations are not loaded.
+func scanTask(sc scanner) (Task, error) {
+	var t Task
+	var dueDate sql.NullString
+	var createdAt, updatedAt database.Timestamp
+	var metadataStr string
+	if err := sc.Scan(&t.ID, &t.Title, &t.Description, &t.Status, &t.Priority, &dueDate, &createdAt, &updatedAt, &t.RecurFreq, &t.RecurInterval, &metadataStr); err != nil {
+		return Task{}, err
 	}
-	if err := rows.Err(); err != nil {
-		return err
+	t.Metadata = parseMetadata(metadataStr)
+	if dueDate.Valid {
+		d, err := time.ParseInLocation(time.DateOnly, dueDate.String, time.UTC)
+		if err != nil {
+			return Task{}, fmt.Errorf("parse task due_date %q: %w", dueDate.String, err)
+		}
+		t.DueDate = &d
 	}
-
-	_, err = db.Exec(fmt.Sprintf("ALTER TABLE %s ADD COLUMN %s %s", table, column, colDef))
-	return err
+	t.CreatedAt = createdAt.Time
+	t.UpdatedAt = updatedAt.Time
+	return t, nil
 }
 
+// List returns every task, newest first, with all relations loaded.
 func (s *Store) List() ([]Task, error) {
-	rows, err := s.db.Query(`SELECT id, title, description, status, priority, due_date, created_at, updated_at, recur_freq, recur_interval, metadata FROM tasks ORDER BY created_at DESC`)
+	return s.Find(Query{})
+}
+
+// Find returns the tasks matching q. Filtering, ordering, and the limit are
+// applied in SQL, and relations are loaded only for the rows that match.
+func (s *Store) Find(q Query) ([]Task, error) {
+	where, args := q.compile()
+	return s.selectTasks(q.columns(), where, args, q.orderBy(), q.Limit)
+}
+
+// selectTasks runs a task SELECT of cols (taskColumns or
+// taskColumnsNoMetadata) with the given WHERE and ORDER BY clauses and
+// hydrates the resulting rows. Tasks in the trash are skipped.
+func (s *Store) selectTasks(cols, where string, args []any, orderBy string, limit int) ([]Task, error) {
+	query := `SELECT ` + cols + ` FROM tasks t WHERE t.deleted_at IS NULL AND (` + where + `) ORDER BY ` + orderBy
+	if limit > 0 {
+		query += ` LIMIT ?`
+		args = append(args, limit)
+	}
+	rows, err := s.db.Query(query, args...)
 	if err != nil {
 		return nil, err
 	}
@@ -125,70 +107,57 @@ func (s *Store) List() ([]Task, error) {
 
 	var tasks []Task
 	for rows.Next() {
-		var t Task
-		var dueDate, createdAt, updatedAt sql.NullString
-		var metadataStr string
-		if err := rows.Scan(&t.ID, &t.Title, &t.Description, &t.Status, &t.Priority, &dueDate, &createdAt, &updatedAt, &t.RecurFreq, &t.RecurInterval, &metadataStr); err != nil {
+		t, err := scanTask(rows)
+		if err != nil {
 			return nil, err
 		}
-		t.Metadata = parseMetadata(metadataStr)
-		if dueDate.Valid {
-			d, err := time.ParseInLocation(time.DateOnly, dueDate.String, time.UTC)
-			if err != nil {
-				return nil, fmt.Errorf("parse task due_date %q: %w", dueDate.String, err)
-			}
-			t.DueDate = &d
-		}
-		if createdAt.Valid {
-			parsed, err := time.Parse(time.RFC3339, createdAt.String)
-			if err != nil {
-				return nil, fmt.Errorf("parse task created_at %q: %w", createdAt.String, err)
-			}
-			t.CreatedAt = parsed
-		}
-		if updatedAt.Valid {
-			parsed, err := time.Parse(time.RFC3339, updatedAt.String)
-			if err != nil {
-				return nil, fmt.Errorf("parse task updated_at %q: %w", updatedAt.String, err)
-			}
-			t.UpdatedAt = parsed
-		}
 		tasks = append(tasks, t)
 	}
 	if err := rows.Err(); err != nil {
 		return nil, err
 	}
+	// Close before hydrating so the relation queries can reuse the connection.
+	rows.Close()
 
-	// Collect task IDs for batch loading.
+	if err := s.hydrate(tasks); err != nil {
+		return nil, err
+	}
+	return tasks, nil
+}
+
+// hydrate batch-loads all relations for tasks (6 queries total instead of 6N).
+func (s *Store) hydrate(tasks []Task) error {
+	if len(tasks) == 0 {
+		return nil
+	}
 	taskIDs := make([]int64, len(tasks))
 	for i := range tasks {
 		taskIDs[i] = tasks[i].ID
 	}
 
-	// Batch-load all relations (7 queries total instead of 6N+1).
 	allSubtasks, err := s.listAllSubtasks(taskIDs)
 	if err != nil {
-		return nil, fmt.Errorf("batch list subtasks: %w", err)
+		return fmt.Errorf("batch list subtasks: %w", err)
 	}
 	allTags, err := s.listAllTags(taskIDs)
 	if err != nil {
-		return nil, fmt.Errorf("batch list tags: %w", err)
+		return fmt.Errorf("batch list tags: %w", err)
 	}
 	allTimeLogs, err := s.listAllTimeLogs(taskIDs)
 	if err != nil {
-		return nil, fmt.Errorf("batch list time logs: %w", err)
+		return fmt.Errorf("batch list time logs: %w", err)
 	}
 	allNotes, err := s.listAllNotes(taskIDs)
 	if err != nil {
-		return nil, fmt.Errorf("batch list notes: %w", err)
+		return fmt.Errorf("batch list notes: %w", err)
 	}
 	allBlockerIDs, err := s.listAllBlockerIDs(taskIDs)
 	if err != nil {
-		return nil, fmt.Errorf("batch list blocker ids: %w", err)
+		return fmt.Errorf("batch list blocker ids: %w", err)
 	}
 	allBlocksIDs, err := s.listAllBlocksIDs(taskIDs)
 	if err != nil {
-		return nil, fmt.Errorf("batch list blocks ids: %w", err)
+		return fmt.Errorf("batch list blocks ids: %w", err)
 	}
 
 	for i := range tasks {
@@ -199,7 +168,7 @@ func (s *Store) List() ([]Task, error) {
 		tasks[i].BlockedByIDs = allBlockerIDs[tasks[i].ID]
 		tasks[i].BlocksIDs = allBlocksIDs[tasks[i].ID]
 	}
-	return tasks, nil
+	return nil
 }
 
 func (s *Store) listSubtasks(taskID int64) ([]Subtask, error) {
@@ -220,7 +189,8 @@ func (s *Store) listSubtasks(taskID int64) ([]Subtask, error) {
 }
 
 func (s *Store) listTags(taskID int64) ([]string, error) {
-	rows, err := s.db.Query(`SELECT name FROM tags WHERE task_id = ?`, taskID)
+	rows, err := s.db.Query(`SELECT n.name FROM task_tags tt JOIN tag_names n ON n.id = tt.tag_id
+		WHERE tt.task_id = ? ORDER BY tt.position`, taskID)
 	if err != nil {
 		return nil, err
 	}
@@ -236,22 +206,11 @@ func (s *Store) listTags(taskID int64) ([]string, error) {
 	return tags, rows.Err()
 }
 
-// placeholders returns a comma-separated list of "?" placeholders and the args slice.
-func placeholders(ids []int64) (string, []any) {
-	ph := make([]string, len(ids))
-	args := make([]any, len(ids))
-	for i, id := range ids {
-		ph[i] = "?"
-		args[i] = id
-	}
-	return strings.Join(ph, ","), args
-}
-
 func (s *Store) listAllSubtasks(taskIDs []int64) (map[int64][]Subtask, error) {
 	if len(taskIDs) == 0 {
 		return nil, nil
 	}
-	ph, args := placeholders(taskIDs)
+	ph, args := database.InList(taskIDs)
 	rows, err := s.db.Query(`SELECT id, task_id, title, completed, position FROM subtasks WHERE task_id IN (`+ph+`) ORDER BY position`, args...)
 	if err != nil {
 		return nil, err
@@ -273,8 +232,9 @@ func (s *Store) listAllTags(taskIDs []int64) (map[int64][]string, error) {
 	if len(taskIDs) == 0 {
 		return nil, nil
 	}
-	ph, args := placeholders(taskIDs)
-	rows, err := s.db.Query(`SELECT task_id, name FROM tags WHERE task_id IN (`+ph+`)`, args...)
+	ph, args := database.InList(taskIDs)
+	rows, err := s.db.Query(`SELECT tt.task_id, n.name FROM task_tags tt JOIN tag_names n ON n.id = tt.tag_id
+		WHERE tt.task_id IN (`+ph+`) ORDER BY tt.task_id, tt.position`, args...)
 	if err != nil {
 		return nil, err
 	}
@@ -295,7 +255,7 @@ func (s *Store) listAllTimeLogs(taskIDs []int64) (map[int64][]TimeLog, error) {
 	if len(taskIDs) == 0 {
 		return nil, nil
 	}
-	ph, args := placeholders(taskIDs)
+	ph, args := database.InList(taskIDs)
 	rows, err := s.db.Query(`SELECT id, task_id, duration, note, logged_at FROM time_logs WHERE task_id IN (`+ph+`) ORDER BY logged_at DESC`, args...)
 	if err != nil {
 		return nil, err
@@ -305,16 +265,12 @@ func (s *Store) listAllTimeLogs(taskIDs []int64) (map[int64][]TimeLog, error) {
 	for rows.Next() {
 		var tl TimeLog
 		var dur int64
-		var loggedAt string
+		var loggedAt database.Timestamp
 		if err := rows.Scan(&tl.ID, &tl.TaskID, &dur, &tl.Note, &loggedAt); err != nil {
 			return nil, err
 		}
 		tl.Duration = time.Duration(dur)
-		parsed, err := time.Parse(time.RFC3339, loggedAt)
-		if err != nil {
-			return nil, fmt.Errorf("parse time_log logged_at %q: %w", loggedAt, err)
-		}
-		tl.LoggedAt = parsed
+		tl.LoggedAt = loggedAt.Time
 		m[tl.TaskID] = append(m[tl.TaskID], tl)
 	}
 	return m, rows.Err()
@@ -324,7 +280,7 @@ func (s *Store) listAllNotes(taskIDs []int64) (map[int64][]TaskNote, error) {
 	if len(taskIDs) == 0 {
 		return nil, nil
 	}
-	ph, args := placeholders(taskIDs)
+	ph, args := database.InList(taskIDs)
 	rows, err := s.db.Query(`SELECT id, task_id, body, created_at FROM task_notes WHERE task_id IN (`+ph+`) ORDER BY created_at ASC`, args...)
 	if err != nil {
 		return nil, err
@@ -333,15 +289,11 @@ func (s *Store) listAllNotes(taskIDs []int64) (map[int64][]TaskNote, error) {
 	m := make(map[int64][]TaskNote)
 	for rows.Next() {
 		var n TaskNote
-		var createdAt string
+		var createdAt database.Timestamp
 		if err := rows.Scan(&n.ID, &n.TaskID, &n.Body, &createdAt); err != nil {
 			return nil, err
 		}
-		parsed, err := time.Parse(time.RFC3339, createdAt)
-		if err != nil {
-			return nil, fmt.Errorf("parse task_note created_at %q: %w", createdAt, err)
-		}
-		n.CreatedAt = parsed
+		n.CreatedAt = createdAt.Time
 		m[n.TaskID] = append(m[n.TaskID], n)
 	}
 	return m, rows.Err()
@@ -351,8 +303,9 @@ func (s *Store) listAllBlockerIDs(taskIDs []int64) (map[int64][]int64, error) {
 	if len(taskIDs) == 0 {
 		return nil, nil
 	}
-	ph, args := placeholders(taskIDs)
-	rows, err := s.db.Query(`SELECT task_id, blocked_by FROM task_dependencies WHERE task_id IN (`+ph+`)`, args...)
+	ph, args := database.InList(taskIDs)
+	rows, err := s.db.Query(`SELECT d.task_id, d.blocked_by FROM task_dependencies d
+		JOIN tasks b ON b.id = d.blocked_by WHERE d.task_id IN (`+ph+`) AND b.deleted_at IS NULL`, args...)
 	if err != nil {
 		return nil, err
 	}
@@ -372,8 +325,9 @@ func (s *Store) listAllBlocksIDs(taskIDs []int64) (map[int64][]int64, error) {
 	if len(taskIDs) == 0 {
 		return nil, nil
 	}
-	ph, args := placeholders(taskIDs)
-	rows, err := s.db.Query(`SELECT blocked_by, task_id FROM task_dependencies WHERE blocked_by IN (`+ph+`)`, args...)
+	ph, args := database.InList(taskIDs)
+	rows, err := s.db.Query(`SELECT d.blocked_by, d.task_id FROM task_dependencies d
+		JOIN tasks o ON o.id = d.task_id WHERE d.blocked_by IN (`+ph+`) AND o.deleted_at IS NULL`, args...)
 	if err != nil {
 		return nil, err
 	}
@@ -390,13 +344,13 @@ func (s *Store) listAllBlocksIDs(taskIDs []int64) (map[int64][]int64, error) {
 }
 
 func (s *Store) Create(t *Task) error {
-	tx, err := s.db.Begin()
+	tx, err := database.Begin(s.db)
 	if err != nil {
 		return err
 	}
 	defer tx.Rollback()
 
-	now := time.Now().UTC()
+	now := time.Now().UTC().Truncate(time.Millisecond)
 	t.CreatedAt = now
 	t.UpdatedAt = now
 	var dueStr *string
@@ -406,7 +360,7 @@ func (s *Store) Create(t *Task) error {
 	}
 	res, err := tx.Exec(
 		`INSERT INTO tasks (title, description, status, priority, due_date, created_at, updated_at, metadata) VALUES (?,?,?,?,?,?,?,?)`,
-		t.Title, t.Description, t.Status, t.Priority, dueStr, now.Format(time.RFC3339), now.Format(time.RFC3339), marshalMetadata(t.Metadata),
+		t.Title, t.Description, t.Status, t.Priority, dueStr, database.Millis(now), database.Millis(now), marshalMetadata(t.Metadata),
 	)
 	if err != nil {
 		return err
@@ -423,30 +377,68 @@ func (s *Store) Create(t *Task) error {
 	return tx.Commit()
 }
 
-func saveTagsTx(tx *sql.Tx, taskID int64, tags []string) error {
-	if _, err := tx.Exec(`DELETE FROM tags WHERE task_id = ?`, taskID); err != nil {
-		return fmt.Errorf("delete tags: %w", err)
+// saveTagsTx sets the tags of taskID to tags, in order. Only the
+// differences from the stored tags are written, so saving a task whose tags
+// did not change leaves task_tags untouched.
+func saveTagsTx(tx database.Execer, taskID int64, tags []string) error {
+	type stored struct {
+		id  int64
+		pos int
+	}
+	rows, err := tx.Query(`SELECT n.name, tt.tag_id, tt.position FROM task_tags tt
+		JOIN tag_names n ON n.id = tt.tag_id WHERE tt.task_id = ?`, taskID)
+	if err != nil {
+		return fmt.Errorf("load tags: %w", err)
+	}
+	have := make(map[string]stored)
+	for rows.Next() {
+		var name string
+		var st stored
+		if err := rows.Scan(&name, &st.id, &st.pos); err != nil {
+			rows.Close()
+			return err
+		}
+		have[tagKey(name)] = st
 	}
-	for _, tag := range tags {
-		tag = strings.TrimSpace(tag)
-		if tag == "" {
+	rows.Close()
+	if err := rows.Err(); err != nil {
+		return err
+	}
+
+	for pos, name := range normalizeTags(tags) {
+		if st, ok := have[tagKey(name)]; ok {
+			delete(have, tagKey(name))
+			if st.pos != pos {
+				if _, err := tx.Exec(`UPDATE task_tags SET position = ? WHERE task_id = ? AND tag_id = ?`, pos, taskID, st.id); err != nil {
+					return fmt.Errorf("reorder tag %q: %w", name, err)
+				}
+			}
 			continue
 		}
-		if _, err := tx.Exec(`INSERT INTO tags (task_id, name) VALUES (?,?)`, taskID, tag); err != nil {
+		id, err := tagID(tx, name)
+		if err != nil {
 			return err
 		}
+		if _, err := tx.Exec(`INSERT INTO task_tags (task_id, tag_id, position) VALUES (?,?,?)`, taskID, id, pos); err != nil {
+			return fmt.Errorf("add tag %q: %w", name, err)
+		}
+	}
+	for _, st := range have {
+		if _, err := tx.Exec(`DELETE FROM task_tags WHERE task_id = ? AND tag_id = ?`, taskID, st.id); err != nil {
+			return fmt.Errorf("remove tag: %w", err)
+		}
 	}
 	return nil
 }
 
 func (s *Store) Update(t *Task) error {
-	tx, err := s.db.Begin()
+	tx, err := database.Begin(s.db)
 	if err != nil {
 		return err
 	}
 	defer tx.Rollback()
 
-	t.UpdatedAt = time.Now().UTC()
+	t.UpdatedAt = time.Now().UTC().Truncate(time.Millisecond)
 	var dueStr *string
 	if t.DueDate != nil {
 		d := t.DueDate.Format(time.DateOnly)
@@ -454,7 +446,7 @@ func (s *Store) Update(t *Task) error {
 	}
 	if _, err := tx.Exec(
 		`UPDATE tasks SET title=?, description=?, status=?, priority=?, due_date=?, updated_at=?, metadata=? WHERE id=?`,
-		t.Title, t.Description, t.Status, t.Priority, dueStr, t.UpdatedAt.Format(time.RFC3339), marshalMetadata(t.Metadata), t.ID,
+		t.Title, t.Description, t.Status, t.Priority, dueStr, database.Millis(t.UpdatedAt), marshalMetadata(t.Metadata), t.ID,
 	); err != nil {
 		return err
 	}
@@ -465,11 +457,35 @@ func (s *Store) Update(t *Task) error {
 	return tx.Commit()
 }
 
+// Delete moves a task to the trash. The task disappears from every list
+// and lookup, and stops blocking other tasks, but keeps its ID and all of
+// its relations until PurgeDeleted removes it. Undelete brings it back.
 func (s *Store) Delete(id int64) error {
-	_, err := s.db.Exec(`DELETE FROM tasks WHERE id = ?`, id)
+	_, err := s.db.Exec(`UPDATE tasks SET deleted_at = ? WHERE id = ? AND deleted_at IS NULL`, database.Millis(time.Now()), id)
+	return err
+}
+
+// Undelete takes a task back out of the trash, exactly as it was deleted.
+func (s *Store) Undelete(id int64) error {
+	_, err := s.db.Exec(`UPDATE tasks SET deleted_at = NULL WHERE id = ?`, id)
 	return err
 }
 
+// TrashRetention is how long a deleted task can still be undeleted before
+// PurgeDeleted removes it for good.
+const TrashRetention = 30 * 24 * time.Hour
+
+// PurgeDeleted permanently removes tasks deleted before cutoff, with their
+// relations, and returns how many it removed.
+func (s *Store) PurgeDeleted(cutoff time.Time) (int, error) {
+	res, err := s.db.Exec(`DELETE FROM tasks WHERE deleted_at IS NOT NULL AND deleted_at < ?`, database.Millis(cutoff))
+	if err != nil {
+		return 0, fmt.Errorf("purge deleted tasks: %w", err)
+	}
+	n, err := res.RowsAffected()
+	return int(n), err
+}
+
 func (s *Store) AddSubtask(taskID int64, title string) error {
 	var maxPos int
 	if err := s.db.QueryRow(`SELECT COALESCE(MAX(position), -1) FROM subtasks WHERE task_id = ?`, taskID).Scan(&maxPos); err != nil {
@@ -496,7 +512,7 @@ func (s *Store) DeleteSubtask(id int64) error {
 
 // AddTimeLog records a time log entry for the given task.
 func (s *Store) AddTimeLog(taskID int64, duration time.Duration, note string) error {
-	now := time.Now().UTC().Format(time.RFC3339)
+	now := database.Millis(time.Now())
 	_, err := s.db.Exec(
 		`INSERT INTO time_logs (task_id, duration, note, logged_at) VALUES (?,?,?,?)`,
 		taskID, int64(duration), note, now,
@@ -518,16 +534,12 @@ func (s *Store) ListTimeLogs(taskID int64) ([]TimeLog, error) {
 	for rows.Next() {
 		var tl TimeLog
 		var dur int64
-		var loggedAt string
+		var loggedAt database.Timestamp
 		if err := rows.Scan(&tl.ID, &tl.TaskID, &dur, &tl.Note, &loggedAt); err != nil {
 			return nil, err
 		}
 		tl.Duration = time.Duration(dur)
-		parsed, err := time.Parse(time.RFC3339, loggedAt)
-		if err != nil {
-			return nil, fmt.Errorf("parse time_log logged_at %q: %w", loggedAt, err)
-		}
-		tl.LoggedAt = parsed
+		tl.LoggedAt = loggedAt.Time
 		logs = append(logs, tl)
 	}
 	return logs, rows.Err()
@@ -535,7 +547,7 @@ func (s *Store) ListTimeLogs(taskID int64) ([]TimeLog, error) {
 
 // AddNote adds a timestamped note to a task.
 func (s *Store) AddNote(taskID int64, body string) error {
-	now := time.Now().UTC().Format(time.RFC3339)
+	now := database.Millis(time.Now())
 	_, err := s.db.Exec(
 		`INSERT INTO task_notes (task_id, body, created_at) VALUES (?, ?, ?)`,
 		taskID, body, now,
@@ -556,15 +568,11 @@ func (s *Store) ListNotes(taskID int64) ([]TaskNote, error) {
 	var notes []TaskNote
 	for rows.Next() {
 		var n TaskNote
-		var createdAt string
+		var createdAt database.Timestamp
 		if err := rows.Scan(&n.ID, &n.TaskID, &n.Body, &createdAt); err != nil {
 			return nil, err
 		}
-		parsed, err := time.Parse(time.RFC3339, createdAt)
-		if err != nil {
-			return nil, fmt.Errorf("parse task_note created_at %q: %w", createdAt, err)
-		}
-		n.CreatedAt = parsed
+		n.CreatedAt = createdAt.Time
 		notes = append(notes, n)
 	}
 	return notes, rows.Err()
@@ -582,16 +590,30 @@ func (s *Store) DeleteNote(id int64) error {
 	return err
 }
 
-// SetBlocker adds a dependency: taskID is blocked by blockerID.
+// SetBlocker adds a dependency: taskID is blocked by blockerID. It returns
+// an error wrapping ErrCycle if blockerID already waits on taskID. The
+// check runs in the transaction that inserts the edge, so two concurrent
+// calls cannot each pass it and together close a loop.
 func (s *Store) SetBlocker(taskID, blockerID int64) error {
 	if taskID == blockerID {
 		return fmt.Errorf("task cannot block itself")
 	}
-	_, err := s.db.Exec(
+	tx, err := database.Begin(s.db)
+	if err != nil {
+		return err
+	}
+	defer tx.Rollback()
+
+	if err := checkCycle(tx, []int64{blockerID}, []int64{taskID}); err != nil {
+		return err
+	}
+	if _, err := tx.Exec(
 		`INSERT OR IGNORE INTO task_dependencies (task_id, blocked_by) VALUES (?,?)`,
 		taskID, blockerID,
-	)
-	return err
+	); err != nil {
+		return err
+	}
+	return tx.Commit()
 }
 
 // RemoveBlocker removes a dependency: taskID is no longer blocked by blockerID.
@@ -606,7 +628,8 @@ func (s *Store) RemoveBlocker(taskID, blockerID int64) error {
 // ListBlockerIDs returns all task IDs that block the given task.
 func (s *Store) ListBlockerIDs(taskID int64) ([]int64, error) {
 	rows, err := s.db.Query(
-		`SELECT blocked_by FROM task_dependencies WHERE task_id = ?`,
+		`SELECT d.blocked_by FROM task_dependencies d JOIN tasks b ON b.id = d.blocked_by
+		WHERE d.task_id = ? AND b.deleted_at IS NULL`,
 		taskID,
 	)
 	if err != nil {
@@ -627,7 +650,8 @@ func (s *Store) ListBlockerIDs(taskID int64) ([]int64, error) {
 // ListBlocksIDs returns all task IDs that this task blocks (reverse of BlockedBy).
 func (s *Store) ListBlocksIDs(taskID int64) ([]int64, error) {
 	rows, err := s.db.Query(
-		`SELECT task_id FROM task_dependencies WHERE blocked_by = ?`,
+		`SELECT d.task_id FROM task_dependencies d JOIN tasks o ON o.id = d.task_id
+		WHERE d.blocked_by = ? AND o.deleted_at IS NULL`,
 		taskID,
 	)
 	if err != nil {
@@ -645,9 +669,10 @@ func (s *Store) ListBlocksIDs(taskID int64) ([]int64, error) {
 	return ids, rows.Err()
 }
 
-// SetBlockers replaces all blockers for a task with the given IDs.
+// SetBlockers replaces all blockers for a task with the given IDs. Nothing
+// changes if the new blockers would form a cycle.
 func (s *Store) SetBlockers(taskID int64, blockerIDs []int64) error {
-	tx, err := s.db.Begin()
+	tx, err := database.Begin(s.db)
 	if err != nil {
 		return err
 	}
@@ -656,6 +681,10 @@ func (s *Store) SetBlockers(taskID int64, blockerIDs []int64) error {
 	if _, err := tx.Exec(`DELETE FROM task_dependencies WHERE task_id = ?`, taskID); err != nil {
 		return err
 	}
+	others := slices.DeleteFunc(slices.Clone(blockerIDs), func(id int64) bool { return id == taskID })
+	if err := checkCycle(tx, others, []int64{taskID}); err != nil {
+		return err
+	}
 	for _, bid := range blockerIDs {
 		if bid == taskID {
 			continue // self-block guard
@@ -670,9 +699,10 @@ func (s *Store) SetBlockers(taskID int64, blockerIDs []int64) error {
 	return tx.Commit()
 }
 
-// SetBlocksIDs replaces all tasks that blockerID blocks with the given blockedIDs.
+// SetBlocksIDs replaces all tasks that blockerID blocks with the given
+// blockedIDs. Nothing changes if the new dependencies would form a cycle.
 func (s *Store) SetBlocksIDs(blockerID int64, blockedIDs []int64) error {
-	tx, err := s.db.Begin()
+	tx, err := database.Begin(s.db)
 	if err != nil {
 		return err
 	}
@@ -681,6 +711,10 @@ func (s *Store) SetBlocksIDs(blockerID int64, blockedIDs []int64) error {
 	if _, err := tx.Exec(`DELETE FROM task_dependencies WHERE blocked_by = ?`, blockerID); err != nil {
 		return err
 	}
+	others := slices.DeleteFunc(slices.Clone(blockedIDs), func(id int64) bool { return id == blockerID })
+	if err := checkCycle(tx, []int64{blockerID}, others); err != nil {
+		return err
+	}
 	for _, tid := range blockedIDs {
 		if tid == blockerID {
 			continue // self-block guard
@@ -704,48 +738,6 @@ func (s *Store) UpdateRecurrence(taskID int64, freq RecurFreq, interval int) err
 	return err
 }
 
-// Restore re-inserts a previously deleted task with its tags.
-func (s *Store) Restore(t *Task) error {
-	tx, err := s.db.Begin()
-	if err != nil {
-		return err
-	}
-	defer tx.Rollback()
-
-	var dueStr *string
-	if t.DueDate != nil {
-		d := t.DueDate.Format(time.DateOnly)
-		dueStr = &d
-	}
-	res, err := tx.Exec(
-		`INSERT INTO tasks (title, description, status, priority, due_date, created_at, updated_at, recur_freq, recur_interval, metadata) VALUES (?,?,?,?,?,?,?,?,?,?)`,
-		t.Title, t.Description, t.Status, t.Priority, dueStr,
-		t.CreatedAt.Format(time.RFC3339), t.UpdatedAt.Format(time.RFC3339),
-		int(t.RecurFreq), t.RecurInterval, marshalMetadata(t.Metadata),
-	)
-	if err != nil {
-		return err
-	}
-	id, err := res.LastInsertId()
-	if err != nil {
-		return err
-	}
-	t.ID = id
-
-	if err := saveTagsTx(tx, t.ID, t.Tags); err != nil {
-		return err
-	}
-	for _, st := range t.Subtasks {
-		if _, err := tx.Exec(
-			`INSERT INTO subtasks (task_id, title, completed, position) VALUES (?,?,?,?)`,
-			t.ID, st.Title, st.Completed, st.Position,
-		); err != nil {
-			return err
-		}
-	}
-	return tx.Commit()
-}
-
 // RestoreSubtask re-inserts a previously deleted subtask.
 func (s *Store) RestoreSubtask(taskID int64, title string, completed bool, position int) error {
 	_, err := s.db.Exec(
@@ -759,33 +751,17 @@ func (s *Store) RestoreSubtask(taskID int64, title string, completed bool, posit
 func (s *Store) RestoreNote(taskID int64, body string, createdAt time.Time) error {
 	_, err := s.db.Exec(
 		`INSERT INTO task_notes (task_id, body, created_at) VALUES (?,?,?)`,
-		taskID, body, createdAt.Format(time.RFC3339),
+		taskID, body, database.Millis(createdAt),
 	)
 	return err
 }
 
 // GetByID retrieves a single task by ID.
 func (s *Store) GetByID(id int64) (*Task, error) {
-	var t Task
-	var dueDate, createdAt, updatedAt sql.NullString
-	var metadataStr string
-	err := s.db.QueryRow(
-		`SELECT id, title, description, status, priority, due_date, created_at, updated_at, recur_freq, recur_interval, metadata FROM tasks WHERE id = ?`, id,
-	).Scan(&t.ID, &t.Title, &t.Description, &t.Status, &t.Priority, &dueDate, &createdAt, &updatedAt, &t.RecurFreq, &t.RecurInterval, &metadataStr)
+	t, err := scanTask(s.db.QueryRow(`SELECT `+taskColumns+` FROM tasks t WHERE t.id = ? AND t.deleted_at IS NULL`, id))
 	if err != nil {
 		return nil, err
 	}
-	t.Metadata = parseMetadata(metadataStr)
-	if dueDate.Valid {
-		d, _ := time.ParseInLocation(time.DateOnly, dueDate.String, time.UTC)
-		t.DueDate = &d
-	}
-	if createdAt.Valid {
-		t.CreatedAt, _ = time.Parse(time.RFC3339, createdAt.String)
-	}
-	if updatedAt.Valid {
-		t.UpdatedAt, _ = time.Parse(time.RFC3339, updatedAt.String)
-	}
 	t.Subtasks, _ = s.listSubtasks(t.ID)
 	t.Tags, _ = s.listTags(t.ID)
 	t.TimeLogs, _ = s.ListTimeLogs(t.ID)
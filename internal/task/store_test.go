@@ -2,7 +2,11 @@ package task
 
 import (
 	"database/sql"
+	"slices"
 	"testing"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
 
 	_ "modernc.org/sqlite"
 )
@@ -272,3 +276,67 @@ func TestMetadataRoundTrip(t *testing.T) {
 		t.Errorf("expected source=cli, got %q", got.Metadata["source"])
 	}
 }
+
+func TestDeleteUndelete(t *testing.T) {
+	store := newTestStore(t)
+	blocker := createTestTask(t, store, "blocker")
+	blocked := createTestTask(t, store, "blocked")
+	if err := store.SetBlocker(blocked.ID, blocker.ID); err != nil {
+		t.Fatalf("SetBlocker: %v", err)
+	}
+	store.AddNote(blocker.ID, "keep me")
+	store.AddTimeLog(blocker.ID, time.Hour, "")
+
+	if err := store.Delete(blocker.ID); err != nil {
+		t.Fatalf("Delete: %v", err)
+	}
+	if _, err := store.GetByID(blocker.ID); err == nil {
+		t.Error("expected deleted task to be hidden from GetByID")
+	}
+	sums, _ := store.ListSummaries()
+	if len(sums) != 1 || sums[0].ID != blocked.ID || sums[0].Blocked {
+		t.Errorf("expected only the unblocked task listed, got %+v", sums)
+	}
+	ready, _ := store.Find(Query{Unblocked: true})
+	if len(ready) != 1 || ready[0].ID != blocked.ID || len(ready[0].BlockedByIDs) != 0 {
+		t.Errorf("expected blocked task ready once its blocker is deleted, got %+v", ready)
+	}
+
+	if err := store.Undelete(blocker.ID); err != nil {
+		t.Fatalf("Undelete: %v", err)
+	}
+	got, err := store.GetByID(blocker.ID)
+	if err != nil {
+		t.Fatalf("GetByID after undelete: %v", err)
+	}
+	if len(got.Notes) != 1 || len(got.TimeLogs) != 1 || !slices.Equal(got.BlocksIDs, []int64{blocked.ID}) {
+		t.Errorf("expected relations kept through the trash, got %+v", got)
+	}
+}
+
+func TestPurgeDeleted(t *testing.T) {
+	store := newTestStore(t)
+	old := createTestTask(t, store, "old")
+	recent := createTestTask(t, store, "recent")
+	store.Delete(old.ID)
+	store.Delete(recent.ID)
+	if _, err := store.db.Exec(`UPDATE tasks SET deleted_at = ? WHERE id = ?`,
+		database.Millis(time.Now().Add(-2*TrashRetention)), old.ID); err != nil {
+		t.Fatalf("backdate: %v", err)
+	}
+
+	n, err := store.PurgeDeleted(time.Now().Add(-TrashRetention))
+	if err != nil || n != 1 {
+		t.Fatalf("PurgeDeleted = %d, %v; want 1", n, err)
+	}
+	if err := store.Undelete(recent.ID); err != nil {
+		t.Fatalf("Undelete: %v", err)
+	}
+	if _, err := store.GetByID(recent.ID); err != nil {
+		t.Errorf("recent tombstone should survive the purge: %v", err)
+	}
+	store.Undelete(old.ID)
+	if _, err := store.GetByID(old.ID); err == nil {
+		t.Error("purged task came back")
+	}
+}
@@ -0,0 +1,103 @@
+package task
+
+import (
+	"database/sql"
+	"fmt"
+	"strings"
+	"time"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// TaskSummary is the lightweight projection of a task used by list views.
+// Relations are reduced to counts computed in SQL, so listing does not load
+// note bodies, time logs, or subtask rows.
+type TaskSummary struct {
+	ID            int64
+	Title         string
+	Status        Status
+	Priority      Priority
+	DueDate       *time.Time
+	CreatedAt     time.Time
+	RecurFreq     RecurFreq
+	Tags          []string
+	SubtasksDone  int
+	SubtasksTotal int
+	NoteCount     int
+	Blocked       bool // at least one blocker is not done
+	TimeLogged    time.Duration
+	Archived      bool // read from archived_tasks, see Task.Summary
+}
+
+// FilterValue implements list.Item interface for bubbles list.
+func (t TaskSummary) FilterValue() string { return t.Title }
+
+// tagSep separates tag names in the group_concat column. Unit separator
+// cannot appear in a tag typed at the prompt.
+const tagSep = "\x1f"
+
+// summarySelect computes each relation with a correlated subquery over the
+// task_id indexes, so the cost follows the tasks selected: refreshing a few
+// changed IDs reads only their children, not every child table in full.
+const summarySelect = `SELECT t.id, t.title, t.status, t.priority, t.due_date, t.created_at, t.recur_freq,
+	(SELECT group_concat(n.name, char(31) ORDER BY tt.position)
+		FROM task_tags tt JOIN tag_names n ON n.id = tt.tag_id WHERE tt.task_id = t.id),
+	(SELECT coalesce(sum(s.completed), 0) FROM subtasks s WHERE s.task_id = t.id),
+	(SELECT count(*) FROM subtasks s WHERE s.task_id = t.id),
+	(SELECT count(*) FROM task_notes n WHERE n.task_id = t.id),
+	EXISTS (SELECT 1 FROM task_dependencies d JOIN tasks b ON b.id = d.blocked_by
+		WHERE d.task_id = t.id AND b.status != ? AND b.deleted_at IS NULL),
+	(SELECT coalesce(sum(l.duration), 0) FROM time_logs l WHERE l.task_id = t.id)
+FROM tasks t`
+
+// ListSummaries returns a summary of every task, newest first. Counts,
+// logged time, and the blocked flag are aggregated in SQL; use GetByID to
+// load the full task when its details are needed.
+func (s *Store) ListSummaries() ([]TaskSummary, error) {
+	return s.selectSummaries(`1=1`, nil)
+}
+
+// SummariesByID returns the summaries of the given tasks, newest first.
+// IDs of tasks that no longer exist or are in the trash are skipped.
+func (s *Store) SummariesByID(ids []int64) ([]TaskSummary, error) {
+	if len(ids) == 0 {
+		return nil, nil
+	}
+	ph, args := database.InList(ids)
+	return s.selectSummaries(`t.id IN (`+ph+`)`, args)
+}
+
+func (s *Store) selectSummaries(where string, args []any) ([]TaskSummary, error) {
+	args = append([]any{int(Done)}, args...)
+	rows, err := s.db.Query(summarySelect+` WHERE t.deleted_at IS NULL AND (`+where+`) ORDER BY `+Query{}.orderBy(), args...)
+	if err != nil {
+		return nil, err
+	}
+	defer rows.Close()
+
+	var out []TaskSummary
+	for rows.Next() {
+		var t TaskSummary
+		var dueDate, tags sql.NullString
+		var createdAt database.Timestamp
+		var logged int64
+		if err := rows.Scan(&t.ID, &t.Title, &t.Status, &t.Priority, &dueDate, &createdAt, &t.RecurFreq,
+			&tags, &t.SubtasksDone, &t.SubtasksTotal, &t.NoteCount, &t.Blocked, &logged); err != nil {
+			return nil, err
+		}
+		if dueDate.Valid {
+			d, err := time.ParseInLocation(time.DateOnly, dueDate.String, time.UTC)
+			if err != nil {
+				return nil, fmt.Errorf("parse task due_date %q: %w", dueDate.String, err)
+			}
+			t.DueDate = &d
+		}
+		t.CreatedAt = createdAt.Time
+		if tags.Valid {
+			t.Tags = strings.Split(tags.String, tagSep)
+		}
+		t.TimeLogged = time.Duration(logged)
+		out = append(out, t)
+	}
+	return out, rows.Err()
+}
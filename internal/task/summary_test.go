@@ -0,0 +1,68 @@
+package task
+
+import (
+	"testing"
+	"time"
+)
+
+func TestListSummaries(t *testing.T) {
+	store := newTestStore(t)
+
+	blocker := createTestTask(t, store, "blocker")
+	tk := &Task{Title: "main", Priority: High, Tags: []string{"work", "home"}}
+	if err := store.Create(tk); err != nil {
+		t.Fatalf("create: %v", err)
+	}
+	store.AddSubtask(tk.ID, "one")
+	store.AddSubtask(tk.ID, "two")
+	full, err := store.GetByID(tk.ID)
+	if err != nil {
+		t.Fatalf("GetByID: %v", err)
+	}
+	store.ToggleSubtask(full.Subtasks[0].ID)
+	store.AddNote(tk.ID, "a note")
+	store.AddTimeLog(tk.ID, 30*time.Minute, "")
+	store.AddTimeLog(tk.ID, 15*time.Minute, "")
+	if err := store.SetBlocker(tk.ID, blocker.ID); err != nil {
+		t.Fatalf("SetBlocker: %v", err)
+	}
+
+	sums, err := store.ListSummaries()
+	if err != nil {
+		t.Fatalf("ListSummaries: %v", err)
+	}
+	if len(sums) != 2 {
+		t.Fatalf("expected 2 summaries, got %d", len(sums))
+	}
+	got := sums[0]
+	if got.ID != tk.ID {
+		t.Fatalf("expected newest task %d first, got %d", tk.ID, got.ID)
+	}
+	if got.Priority != High || len(got.Tags) != 2 || got.Tags[0] != "work" || got.Tags[1] != "home" {
+		t.Errorf("unexpected fields: %+v", got)
+	}
+	if got.SubtasksDone != 1 || got.SubtasksTotal != 2 {
+		t.Errorf("expected subtasks 1/2, got %d/%d", got.SubtasksDone, got.SubtasksTotal)
+	}
+	if got.NoteCount != 1 {
+		t.Errorf("expected 1 note, got %d", got.NoteCount)
+	}
+	if got.TimeLogged != 45*time.Minute {
+		t.Errorf("expected 45m logged, got %v", got.TimeLogged)
+	}
+	if !got.Blocked {
+		t.Error("expected task to be blocked by a pending task")
+	}
+	if sums[1].Blocked || sums[1].SubtasksTotal != 0 || sums[1].Tags != nil {
+		t.Errorf("expected empty relations for blocker, got %+v", sums[1])
+	}
+
+	blocker.Status = Done
+	if err := store.Update(blocker); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+	sums, _ = store.ListSummaries()
+	if sums[0].Blocked {
+		t.Error("expected task to be unblocked once its blocker is done")
+	}
+}
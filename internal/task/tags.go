@@ -0,0 +1,137 @@
+package task
+
+import (
+	"database/sql"
+	"encoding/json"
+	"errors"
+	"fmt"
+	"strings"
+
+	"github.com/roniel/todo-app/internal/database"
+)
+
+// TagCount is a tag name and the number of tasks carrying it.
+type TagCount struct {
+	Name  string
+	Count int
+}
+
+// TagCounts returns every tag in use with its task count, ordered by name.
+// Tasks in the trash are not counted, and tags only they carry are left out.
+func (s *Store) TagCounts() ([]TagCount, error) {
+	rows, err := s.db.Query(`SELECT n.name, count(*) FROM tag_names n
+		JOIN task_tags tt ON tt.tag_id = n.id
+		JOIN tasks t ON t.id = tt.task_id AND t.deleted_at IS NULL
+		GROUP BY n.id ORDER BY n.name`)
+	if err != nil {
+		return nil, fmt.Errorf("tag counts: %w", err)
+	}
+	defer rows.Close()
+	var counts []TagCount
+	for rows.Next() {
+		var c TagCount
+		if err := rows.Scan(&c.Name, &c.Count); err != nil {
+			return nil, err
+		}
+		counts = append(counts, c)
+	}
+	return counts, rows.Err()
+}
+
+// TaskIDsWithTag returns the IDs of tasks tagged name, matched
+// case-insensitively. Tasks in the trash are skipped.
+func (s *Store) TaskIDsWithTag(name string) ([]int64, error) {
+	rows, err := s.db.Query(`SELECT tt.task_id FROM tag_names n JOIN task_tags tt ON tt.tag_id = n.id
+		JOIN tasks t ON t.id = tt.task_id AND t.deleted_at IS NULL
+		WHERE n.name = ?`, strings.TrimSpace(name))
+	if err != nil {
+		return nil, fmt.Errorf("tasks with tag %q: %w", name, err)
+	}
+	defer rows.Close()
+	var ids []int64
+	for rows.Next() {
+		var id int64
+		if err := rows.Scan(&id); err != nil {
+			return nil, err
+		}
+		ids = append(ids, id)
+	}
+	return ids, rows.Err()
+}
+
+// SameTag reports whether a and b name the same tag. Tags compare the way
+// the tag_names index does: ignoring ASCII case and surrounding space.
+func SameTag(a, b string) bool {
+	return tagKey(strings.TrimSpace(a)) == tagKey(strings.TrimSpace(b))
+}
+
+// tagKey folds name the way SQLite's NOCASE collation does, which only
+// folds ASCII letters.
+func tagKey(name string) string {
+	return strings.Map(func(r rune) rune {
+		if 'A' <= r && r <= 'Z' {
+			return r + 'a' - 'A'
+		}
+		return r
+	}, name)
+}
+
+// normalizeTags trims tags and drops empty and repeated ones.
+func normalizeTags(tags []string) []string {
+	out := make([]string, 0, len(tags))
+	seen := make(map[string]bool, len(tags))
+	for _, tag := range tags {
+		tag = strings.TrimSpace(tag)
+		if tag == "" || seen[tagKey(tag)] {
+			continue
+		}
+		seen[tagKey(tag)] = true
+		out = append(out, tag)
+	}
+	return out
+}
+
+// tagID returns the dictionary ID of name, adding it if it is new.
+func tagID(e database.Execer, name string) (int64, error) {
+	var id int64
+	err := e.QueryRow(`SELECT id FROM tag_names WHERE name = ?`, name).Scan(&id)
+	if !errors.Is(err, sql.ErrNoRows) {
+		return id, err
+	}
+	res, err := e.Exec(`INSERT INTO tag_names (name) VALUES (?)`, name)
+	if err != nil {
+		return 0, fmt.Errorf("add tag %q: %w", name, err)
+	}
+	return res.LastInsertId()
+}
+
+// tagIDs returns the dictionary IDs of names keyed by tagKey, adding the
+// names that are new with multi-row inserts.
+func tagIDs(e database.Execer, names []string) (map[string]int64, error) {
+	ids := make(map[string]int64, len(names))
+	if len(names) == 0 {
+		return ids, nil
+	}
+	rows := make([][]any, len(names))
+	for i, name := range names {
+		rows[i] = []any{name}
+	}
+	if err := bulkInsert(e, `INSERT OR IGNORE INTO tag_names (name) VALUES `, rows); err != nil {
+		return nil, fmt.Errorf("add tags: %w", err)
+	}
+	list, _ := json.Marshal(names)
+	res, err := e.Query(`SELECT id, name FROM tag_names WHERE name IN (SELECT value FROM json_each(?))`, string(list))
+	if err != nil {
+		return nil, fmt.Errorf("tag ids: %w", err)
+	}
+	defer res.Close()
+	for res.Next() {
+		var id int64
+		var name string
+		if err := res.Scan(&id, &name); err != nil {
+			return nil, err
+		}
+		ids[tagKey(name)] = id
+	}
+	return ids, res.Err()
+}
@@ -0,0 +1,118 @@
+package task
+
+import (
+	"slices"
+	"testing"
+)
+
+func TestTags_DictionaryIsCaseFolded(t *testing.T) {
+	store := newTestStore(t)
+	a := &Task{Title: "a", Tags: []string{"Work", " home ", "work"}}
+	b := &Task{Title: "b", Tags: []string{"WORK"}}
+	for _, tk := range []*Task{a, b} {
+		if err := store.Create(tk); err != nil {
+			t.Fatalf("Create: %v", err)
+		}
+	}
+
+	got, err := store.GetByID(b.ID)
+	if err != nil {
+		t.Fatalf("GetByID: %v", err)
+	}
+	if !slices.Equal(got.Tags, []string{"Work"}) {
+		t.Errorf("b tags = %v, want [Work]", got.Tags)
+	}
+	got, _ = store.GetByID(a.ID)
+	if !slices.Equal(got.Tags, []string{"Work", "home"}) {
+		t.Errorf("a tags = %v, want [Work home]", got.Tags)
+	}
+
+	counts, err := store.TagCounts()
+	if err != nil {
+		t.Fatalf("TagCounts: %v", err)
+	}
+	if want := []TagCount{{"home", 1}, {"Work", 2}}; !slices.Equal(counts, want) {
+		t.Errorf("TagCounts = %v, want %v", counts, want)
+	}
+	ids, err := store.TaskIDsWithTag("wOrK")
+	if err != nil {
+		t.Fatalf("TaskIDsWithTag: %v", err)
+	}
+	slices.Sort(ids)
+	if !slices.Equal(ids, []int64{a.ID, b.ID}) {
+		t.Errorf("TaskIDsWithTag = %v, want [%d %d]", ids, a.ID, b.ID)
+	}
+}
+
+func TestTags_UpdateWritesOnlyDifferences(t *testing.T) {
+	store := newTestStore(t)
+	tk := &Task{Title: "t", Tags: []string{"a", "b"}}
+	if err := store.Create(tk); err != nil {
+		t.Fatalf("Create: %v", err)
+	}
+	before, _ := store.CurrentSeq()
+	if err := saveTagsTx(store.db, tk.ID, []string{"A", "b"}); err != nil {
+		t.Fatalf("saveTagsTx: %v", err)
+	}
+	if after, _ := store.CurrentSeq(); after != before {
+		t.Errorf("saving unchanged tags logged %d changes", after-before)
+	}
+
+	tk.Tags = []string{"c", "a"}
+	if err := store.Update(tk); err != nil {
+		t.Fatalf("Update: %v", err)
+	}
+	got, _ := store.GetByID(tk.ID)
+	if !slices.Equal(got.Tags, []string{"c", "a"}) {
+		t.Errorf("tags = %v, want [c a]", got.Tags)
+	}
+	counts, _ := store.TagCounts()
+	if want := []TagCount{{"a", 1}, {"c", 1}}; !slices.Equal(counts, want) {
+		t.Errorf("TagCounts = %v, want %v; unused tags should be pruned", counts, want)
+	}
+}
+
+func TestTags_SkipTrashedTasks(t *testing.T) {
+	store := newTestStore(t)
+	kept := &Task{Title: "kept", Tags: []string{"work"}}
+	trashed := &Task{Title: "trashed", Tags: []string{"work", "old"}}
+	for _, tk := range []*Task{kept, trashed} {
+		if err := store.Create(tk); err != nil {
+			t.Fatalf("Create: %v", err)
+		}
+	}
+	if err := store.Delete(trashed.ID); err != nil {
+		t.Fatalf("Delete: %v", err)
+	}
+
+	counts, err := store.TagCounts()
+	if err != nil {
+		t.Fatalf("TagCounts: %v", err)
+	}
+	if want := []TagCount{{"work", 1}}; !slices.Equal(counts, want) {
+		t.Errorf("TagCounts = %v, want %v", counts, want)
+	}
+	ids, err := store.TaskIDsWithTag("work")
+	if err != nil {
+		t.Fatalf("TaskIDsWithTag: %v", err)
+	}
+	if !slices.Equal(ids, []int64{kept.ID}) {
+		t.Errorf("TaskIDsWithTag = %v, want [%d]", ids, kept.ID)
+	}
+
+	if err := store.Undelete(trashed.ID); err != nil {
+		t.Fatalf("Undelete: %v", err)
+	}
+	if counts, _ := store.TagCounts(); len(counts) != 2 {
+		t.Errorf("TagCounts after Undelete = %v, want old and work back", counts)
+	}
+}
+
+func TestSameTag(t *testing.T) {
+	if !SameTag("Work ", "wORK") {
+		t.Error("tags differing in ASCII case should match")
+	}
+	if SameTag("work", "works") {
+		t.Error("different tags matched")
+	}
+}
@@ -66,10 +66,11 @@ func RenderTabs(activeTab int, allCount, activeCount, doneCount, journalCount in
 }
 
 // RenderDetail renders the task detail panel content.
+// blocked adds the [BLOCKED] badge; pass whether a blocker is unfinished.
 // subtaskIdx indicates which subtask has the cursor (-1 for none).
 // detailFocused controls whether the subtask cursor is shown.
 // noteIdx and notesFocused control the notes cursor when in note navigation mode.
-func RenderDetail(t *task.Task, width int, subtaskIdx int, detailFocused bool, noteIdx int, notesFocused bool, cfg config.Config) string {
+func RenderDetail(t *task.Task, blocked bool, width int, subtaskIdx int, detailFocused bool, noteIdx int, notesFocused bool, cfg config.Config) string {
 	if t == nil {
 		return lipgloss.NewStyle().
 			Foreground(Gray).
@@ -90,15 +91,9 @@ func RenderDetail(t *task.Task, width int, subtaskIdx int, detailFocused bool, n
 	sections = append(sections, labelStyle().Render("Status")+statusStyle(t.Status).Render(statusStr))
 
 	// Blocked badge
-	if len(t.BlockedByIDs) > 0 {
-		blocked := task.IsBlocked(t.BlockedByIDs, func(id int64) task.Status {
-			// Default to Pending if we can't look up; the badge is informational.
-			return task.Pending
-		})
-		if blocked {
-			badge := lipgloss.NewStyle().Foreground(Red).Bold(true).Render(" [BLOCKED]")
-			sections[len(sections)-1] += badge
-		}
+	if blocked {
+		badge := lipgloss.NewStyle().Foreground(Red).Bold(true).Render(" [BLOCKED]")
+		sections[len(sections)-1] += badge
 	}
 
 	// Priority